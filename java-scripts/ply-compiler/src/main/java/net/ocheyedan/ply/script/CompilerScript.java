@@ -1,7 +1,9 @@
 package net.ocheyedan.ply.script;
 
+import net.ocheyedan.ply.Events;
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.Trace;
 import net.ocheyedan.ply.dep.ClassDeps;
 import net.ocheyedan.ply.dep.Deps;
 import net.ocheyedan.ply.props.*;
@@ -171,6 +173,7 @@ public class CompilerScript {
                 System.exit(1);
             } else {
                 Output.print("Nothing to compile, everything is up to date.");
+                Events.emit("compile", "scope", scope.name, "files", 0, "errors", 0, "warnings", 0, "success", true);
                 return;
             }
         }
@@ -200,7 +203,9 @@ public class CompilerScript {
                                                                         Scope.named(Props.get("scope", Context.named("ply")).value()).getPrettyPrint(),
                                                                        (sourceFilePaths.size() == 1 ? "" : "s"),
                                                                        Props.get("name", Context.named("project")).value());
+        Trace.Span span = Trace.start("compile", "javac");
         boolean result = compilationTask.call();
+        span.end();
         for (String notes : diagnosticListener.getNotes()) {
             Output.print(notes);
         }
@@ -214,7 +219,12 @@ public class CompilerScript {
             Output.print(extraPrintStatements.toString());
         }
         handleFilesWithError(diagnosticListener.getFileErrors(), this.errorsPropertiesFile);
+        span = Trace.start("compile", "class dependencies");
         generateClassDependenciesForSuccessfullyCompiled();
+        span.end();
+        Events.emit("compile", "scope", scope.name, "files", sourceFilePaths.size(),
+                    "errors", diagnosticListener.getErrors().size(), "warnings", diagnosticListener.getWarnings().size(),
+                    "success", result);
         if (!result) {
             Context compileContext = Context.named("compiler");
             String javaProcessor = Props.get("java.processor", compileContext).value();
@@ -2,9 +2,12 @@ package net.ocheyedan.ply.script;
 
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.dep.ClassDeps;
 import net.ocheyedan.ply.props.*;
 
 import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -63,6 +66,53 @@ public class FileChangeDetector {
             }
             PropFiles.store(compiledSinceTestProps, compiledSinceTest.getAbsolutePath(), true);
         }
+        // record the changed classes (and their transitive dependents) until the next successful test run
+        // so that the test script can run only those tests impacted by the changes.
+        if (Scope.Default.equals(scope) || "test".equals(scope.name)) {
+            recordChangedSinceTest(filesToCompile, srcDirPath, buildDirPath);
+        }
+    }
+
+    /**
+     * Adds the class names of {@code filesToCompile} along with every class transitively depending upon them (according
+     * to {@literal compiler.class.deps}) to file {@literal changed-since-test.properties} within {@code buildDirPath}.
+     * This file accumulates across invocations and is cleared by the test script upon a successful test run.
+     * @param filesToCompile the source files which will be compiled
+     * @param srcDirPath the source directory path
+     * @param buildDirPath the build directory path
+     */
+    private static void recordChangedSinceTest(PropFile filesToCompile, String srcDirPath, String buildDirPath) {
+        // the names of filesToCompile are canonical paths
+        File srcDir = new File(srcDirPath);
+        String srcDirPrefix;
+        try {
+            srcDirPrefix = srcDir.getCanonicalPath();
+        } catch (IOException ioe) {
+            srcDirPrefix = srcDir.getAbsolutePath();
+        }
+        if (!srcDirPrefix.endsWith(File.separator)) {
+            srcDirPrefix = srcDirPrefix + File.separator;
+        }
+        Set<String> changedClasses = new HashSet<String>();
+        for (PropFile.Prop prop : filesToCompile.props()) {
+            // files outside of the source directory have no class name
+            if (!prop.name.endsWith(".java") || !prop.name.startsWith(srcDirPrefix)) {
+                continue;
+            }
+            String name = prop.name.substring(srcDirPrefix.length(), prop.name.length() - 5);
+            changedClasses.add(name.replace(File.separatorChar, '.'));
+        }
+        if (changedClasses.isEmpty()) {
+            return;
+        }
+        String classDepsPath = Props.get("class.deps", Context.named("compiler")).value();
+        Set<String> impacted = new ClassDeps().getTransitiveDependents(classDepsPath, changedClasses);
+        File changedSinceTest = FileUtil.fromParts(buildDirPath, "changed-since-test.properties");
+        PropFile changedSinceTestProps = PropFiles.load(changedSinceTest.getAbsolutePath(), false, false);
+        for (String className : impacted) {
+            changedSinceTestProps.add(className, "");
+        }
+        PropFiles.store(changedSinceTestProps, changedSinceTest.getAbsolutePath(), true);
     }
 
     private static PropFile computeFilesChanged(File lastSrcChanged, File changedPropertiesFile, File srcDir,
@@ -1,20 +1,29 @@
 package net.ocheyedan.ply.script;
 
+import net.ocheyedan.ply.BitUtil;
+import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * User: blangel
  * Date: 10/22/11
  * Time: 12:20 PM
  *
- * Filters a {@link File} in place by reading in the contents of the {@link File} line by line.  If the filtered
- * result is longer than the original line itself, the data is queued until there is enough room to write it.
+ * Filters a {@link File} by streaming its contents through a {@link java.nio.charset.CharsetDecoder} in fixed size
+ * chunks.  Literal text is written as it is read and each property placeholder (i.e., ${xxxx}) is collected, even
+ * when split across chunks, and handed to the {@link Provider} in its entirety.  The filtered contents are written to
+ * a temporary file within the same directory which then replaces the original file.  Memory usage is therefore
+ * independent of the file's size.
+ *
+ * As with {@link net.ocheyedan.ply.props.Filter}, placeholders do not span lines.  Placeholders longer than
+ * {@link #MAX_PLACEHOLDER_SIZE} characters are left unfiltered.
  */
 public class FileFilterer {
 
@@ -23,77 +32,155 @@ public class FileFilterer {
      */
     public static interface Provider {
 
+        /**
+         * @param value a single property placeholder (i.e., ${xxxx})
+         * @return the filtered value
+         */
         String filter(String value);
 
     }
 
     private static final int BUF_SIZE = 8192;
 
+    static final int MAX_PLACEHOLDER_SIZE = 8192;
+
     private final File file;
 
+    private final Charset charset;
+
     private final Provider provider;
 
+    private String sourceHash;
+
     public FileFilterer(File file, Provider provider) {
+        this(file, Charset.defaultCharset(), provider);
+    }
+
+    public FileFilterer(File file, Charset charset, Provider provider) {
         this.file = file;
+        this.charset = charset;
         this.provider = provider;
     }
 
-    public void filter() {
-        FileChannel fc = null;
+    /**
+     * @return true if {@link #file} was filtered; false on error
+     */
+    public boolean filter() {
+        File filtered = null;
+        Reader reader = null;
+        Writer writer = null;
+        MessageDigest hash;
         try {
-            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
-            fc = randomAccessFile.getChannel();
-            /**
-             * The javadoc for FileChannel#map indicates that memory mapping anything but large files (> tens of KB)
-             * is generally less efficient than simply reading/writing from a file for most operating systems.  Because
-             * of this, we are not memory mapping the file.
-             * @see {@link FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long)}
-             */
-            ByteBuffer readBuf = ByteBuffer.allocateDirect(BUF_SIZE);
-            ByteBuffer writeBuf;
-            long position = 0;
-            int read = 0, totalRead = 0;
-
-            do {
-
-                int numberRead = 0;
-                String converted;
-
-                // read into the buffer
-                do {
-                    read = fc.read(readBuf);
-                    numberRead += read;
-                    totalRead += read;
-                } while ((read != -1) && readBuf.hasRemaining() && (totalRead < fc.size()));
-
-                // transform to string
-                converted = readBuf.asCharBuffer().toString();
-
-                // filter string
-                converted = provider.filter(converted);
-
-                // write filtered to writeBuf
-                writeBuf = ByteBuffer.wrap(converted.getBytes(), 0, numberRead);
-
-                // write numberRead bytes from writeBuf to the file
-                fc.position(position);
-                while (writeBuf.hasRemaining()) {
-                    fc.write(writeBuf);
+            hash = MessageDigest.getInstance("SHA1");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new AssertionError(nsae);
+        }
+        try {
+            filtered = File.createTempFile(file.getName(), ".filtering", file.getAbsoluteFile().getParentFile());
+            reader = new InputStreamReader(new DigestInputStream(new FileInputStream(file), hash), charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE));
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filtered), charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE)), BUF_SIZE);
+            filter(reader, writer);
+        } catch (IOException ioe) {
+            Output.print(ioe);
+            close(reader);
+            close(writer);
+            if (filtered != null) {
+                filtered.delete();
+            }
+            return false;
+        }
+        if (!close(reader) || !close(writer)) {
+            filtered.delete();
+            return false;
+        }
+        sourceHash = BitUtil.toHexString(hash.digest());
+        FileUtil.copyPermissions(file, filtered); // the temporary file is accessible to its owner only
+        // rename is atomic on most platforms but fails on some (i.e., windows) if the destination exists
+        if (!filtered.renameTo(file) && !(file.delete() && filtered.renameTo(file))) {
+            Output.print("^error^ Could not replace ^b^%s^r^ with its filtered contents.", file.getPath());
+            filtered.delete();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the SHA1 hash of {@link #file} prior to filtering; available after a successful {@link #filter()}
+     */
+    public String getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * Filters the contents of {@code reader} into {@code writer}.
+     */
+    void filter(Reader reader, Writer writer) throws IOException {
+        char[] buffer = new char[BUF_SIZE];
+        StringBuilder placeholder = new StringBuilder();
+        boolean dollar = false, inPlaceholder = false;
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            int literalStart = 0;
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (inPlaceholder) {
+                    if (c == '}') {
+                        writer.write(provider.filter(placeholder.append(c).toString()));
+                        inPlaceholder = false;
+                        literalStart = i + 1;
+                    } else if (isLineTerminator(c) || (placeholder.length() >= MAX_PLACEHOLDER_SIZE)) {
+                        // not a placeholder, as there is no '}' before the end of the line, any '${' within is
+                        // likewise not a placeholder
+                        writer.write(placeholder.toString());
+                        inPlaceholder = false;
+                        literalStart = i;
+                        i--; // reconsider c
+                    } else {
+                        placeholder.append(c);
+                    }
+                } else if (dollar) {
+                    dollar = false;
+                    if (c == '{') {
+                        inPlaceholder = true;
+                        placeholder.setLength(0);
+                        placeholder.append("${");
+                    } else {
+                        writer.write('$');
+                        literalStart = i;
+                        i--; // reconsider c
+                    }
+                } else if (c == '$') {
+                    writer.write(buffer, literalStart, i - literalStart);
+                    dollar = true;
                 }
+            }
+            if (!dollar && !inPlaceholder && (literalStart < read)) {
+                writer.write(buffer, literalStart, read - literalStart);
+            }
+        }
+        if (dollar) {
+            writer.write('$');
+        } else if (inPlaceholder) {
+            writer.write(placeholder.toString());
+        }
+    }
 
-                readBuf.rewind();
-            } while (totalRead < fc.size());
+    private static boolean isLineTerminator(char c) {
+        return ((c == '\n') || (c == '\r') || (c == '\u0085') || (c == '\u2028') || (c == '\u2029'));
+    }
 
+    private static boolean close(Closeable closeable) {
+        if (closeable == null) {
+            return true;
+        }
+        try {
+            closeable.close();
+            return true;
         } catch (IOException ioe) {
             Output.print(ioe);
-        } finally {
-            if (fc != null) {
-                try {
-                    fc.close();
-                } catch (IOException ioe) {
-                    throw new AssertionError(ioe);
-                }
-            }
+            return false;
         }
     }
 }
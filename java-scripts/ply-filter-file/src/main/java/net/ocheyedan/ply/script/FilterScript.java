@@ -1,23 +1,22 @@
 package net.ocheyedan.ply.script;
 
-import net.ocheyedan.ply.AntStyleWildcardUtil;
+import net.ocheyedan.ply.AntStyleWildcardSet;
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.props.Context;
 import net.ocheyedan.ply.props.Filter;
+import net.ocheyedan.ply.props.FilteredFiles;
 import net.ocheyedan.ply.props.PropFileChain;
 import net.ocheyedan.ply.props.Props;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.charset.Charset;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static net.ocheyedan.ply.props.PropFile.Prop;
 
@@ -45,50 +44,34 @@ import static net.ocheyedan.ply.props.PropFile.Prop;
  * if there is a {@literal $\{compiler.buildDir\}} then the property {@literal compiler[.scope].buildDir} is looked
  * up and its value is used in filtering.
  *
+ * The patterns are compiled together (see {@link AntStyleWildcardSet}); the first pattern, in property order, matching
+ * a file determines whether it is filtered and directories within which no pattern could include a file are not walked.
+ *
+ * Files are filtered concurrently.  A file is skipped if it is still the output of its last filtering and the values
+ * of the property placeholders it used are unchanged (see {@link FilteredFiles}).
+ *
  */
 public final class FilterScript {
 
-    /**
-     * Wraps {@link Pattern} with a boolean expression indicating whether the pattern should include or exclude.
-     */
-    private final static class FilterPattern implements FileFilter {
-
-        private final Pattern pattern;
-
-        private final boolean include;
-
-        private FilterPattern(Pattern pattern, boolean include) {
-            this.pattern = pattern;
-            this.include = include;
-        }
-
-        @Override public boolean accept(File pathname) {
-            return pattern.matcher(pathname.getPath()).matches();
-        }
-    }
-
     private final static class CollectingFileFilter implements FileFilter {
 
-        private final List<FilterPattern> filterPatterns;
+        private final AntStyleWildcardSet filterPatterns;
 
         private final Set<File> collecting;
 
-        private CollectingFileFilter(List<FilterPattern> filterPatterns, Set<File> collecting) {
+        private CollectingFileFilter(AntStyleWildcardSet filterPatterns, Set<File> collecting) {
             this.filterPatterns = filterPatterns;
             this.collecting = collecting;
         }
 
         @Override public boolean accept(File pathname) {
             if (pathname.isDirectory()) {
-                FilterScript.getApplicableFiles(filterPatterns, pathname, collecting);
-                return false;
-            } else {
-                for (FilterPattern filterPattern : filterPatterns) {
-                    if (filterPattern.accept(pathname)) {
-                        return filterPattern.include;
-                    }
+                if (filterPatterns.mayIncludeWithin(pathname.getPath(), File.separatorChar)) {
+                    FilterScript.getApplicableFiles(filterPatterns, pathname, collecting);
                 }
                 return false;
+            } else {
+                return filterPatterns.includes(pathname.getPath());
             }
         }
     }
@@ -106,19 +89,18 @@ public final class FilterScript {
         }
         File filterDir = new File(filterDirProp.value());
 
-        List<FilterPattern> filterPatterns = new ArrayList<FilterPattern>();
+        AntStyleWildcardSet filterPatterns = new AntStyleWildcardSet();
         for (Prop filterProp : filterFiles.props()) {
             String filterExp = filterProp.name;
             // if the filterExp is not prefixed with a directory, hard-code to be the filter.dir
             if (!filterExp.startsWith("**")) {
                 filterExp = FileUtil.pathFromParts(filterDir.getPath(), filterExp);
             }
-            Pattern filterPattern = AntStyleWildcardUtil.regex(filterExp);
             boolean include = false;
             if ("include".equalsIgnoreCase(filterProp.value()) || filterProp.value().isEmpty()) {
                 include = true;
             }
-            filterPatterns.add(new FilterPattern(filterPattern, include));
+            filterPatterns.add(filterExp, include);
         }
 
         Set<File> files = new HashSet<File>();
@@ -128,49 +110,72 @@ public final class FilterScript {
             return;
         }
 
-        for (File file : files) {
-            Output.print("^info^ Filtering file %s.", file.getPath());
-            filter(file);
+        final FilteredFiles filteredFiles = FilteredFiles.load();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<?>> futures = new ArrayList<Future<?>>(files.size());
+        for (final File file : files) {
+            futures.add(executor.submit(new Runnable() {
+                @Override public void run() {
+                    if (filteredFiles.isCurrentOutput(file)) {
+                        Output.print("^dbug^ Skipping file %s, it is unchanged since last filtered.", file.getPath());
+                        return;
+                    }
+                    Output.print("^info^ Filtering file %s.", file.getPath());
+                    if (!filter(file, filteredFiles)) {
+                        failed.set(true);
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+        } catch (ExecutionException ee) {
+            Output.print(ee.getCause());
+            failed.set(true);
+        } finally {
+            executor.shutdownNow();
+        }
+        filteredFiles.store(files);
+        if (failed.get()) {
+            System.exit(1);
         }
     }
 
-    private static void getApplicableFiles(List<FilterPattern> filterPatterns, File dir, Set<File> collecting) {
+    private static void getApplicableFiles(AntStyleWildcardSet filterPatterns, File dir, Set<File> collecting) {
         if (dir.isDirectory()) {
             File[] subfiles = dir.listFiles(new CollectingFileFilter(filterPatterns, collecting));
             Collections.addAll(collecting, subfiles);
         }
     }
 
-    private static void filter(File file) {
-        FileChannel fc = null;
-        try {
-            RandomAccessFile stream = new RandomAccessFile(file, "rw");
-            fc = stream.getChannel();
-            MappedByteBuffer mappedByteBuffer = fc.map(FileChannel.MapMode.READ_WRITE, 0, fc.size());
-            String text = Charset.defaultCharset().decode(mappedByteBuffer).toString();
-            text = Filter.filter(text, Context.named("ply"), String.valueOf(System.identityHashCode(file)), Props.get());
-            fc.position(0);
-            ByteBuffer filtered = ByteBuffer.wrap(text.getBytes());
-            long currentSize = fc.size();
-            long newSize = filtered.capacity();
-            while (filtered.hasRemaining()) {
-                fc.write(filtered);
-            }
-            if (newSize < currentSize) {
-                fc.truncate(newSize);
-            }
-        } catch (IOException ioe) {
-            Output.print(ioe);
-            System.exit(1);
-        } finally {
-            if (fc != null) {
-                try {
-                    fc.close();
-                } catch (IOException ioe) {
-                    throw new AssertionError(ioe);
-                }
+    /**
+     * Filters {@code file} in place and records its fingerprint within {@code filteredFiles}.
+     * @param file to filter
+     * @param filteredFiles into which to record the fingerprint of {@code file}
+     * @return true on success; false otherwise
+     */
+    private static boolean filter(File file, FilteredFiles filteredFiles) {
+        final String uniqueIdentifier = String.valueOf(System.identityHashCode(file));
+        final Set<String> placeholders = new TreeSet<String>();
+        long templateSize = file.length(), templateLastModified = file.lastModified();
+        FileFilterer fileFilterer = new FileFilterer(file, new FileFilterer.Provider() {
+            @Override public String filter(String value) {
+                placeholders.add(value);
+                return Filter.filter(value, Context.named("ply"), uniqueIdentifier, Props.get());
             }
+        });
+        if (!fileFilterer.filter()) {
+            return false;
         }
+        filteredFiles.put(file, new FilteredFiles.Fingerprint(templateSize, templateLastModified, file,
+                fileFilterer.getSourceHash(), placeholders));
+        return true;
     }
 
 }
@@ -0,0 +1,90 @@
+package net.ocheyedan.ply.script;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.Charset;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 2:30 PM
+ *
+ * Measures {@link FileFilterer#filter()} over a generated file (500 MB by default) of lines of literal text and
+ * placeholders, many of which straddle the filterer's read buffer, reporting the throughput and the peak heap used
+ * (which is expected to be independent of the file's size).
+ * Run via {@link #main(String[])}; the optional argument is the size of the file in megabytes.
+ */
+public final class FileFiltererBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long megabytes = (args.length > 0 ? Long.parseLong(args[0]) : 500L);
+        Charset charset = Charset.forName("UTF-8");
+        File file = File.createTempFile("ply-filter-benchmark", ".txt");
+        try {
+            long placeholders = generate(file, megabytes * 1024L * 1024L, charset);
+            FileFilterer.Provider provider = new FileFilterer.Provider() {
+                @Override public String filter(String value) {
+                    return (value.startsWith("${project.") ? "filtered-value" : value);
+                }
+            };
+            System.gc();
+            resetPeaks();
+            long start = System.nanoTime();
+            if (!new FileFilterer(file, charset, provider).filter()) {
+                throw new AssertionError("Filtering failed");
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%d MB with %d placeholders: %.1f s, %.1f MB/s, %.1f MB peak heap (of %.1f MB max)%n",
+                    megabytes, placeholders, (elapsed / 1e9), (megabytes / (elapsed / 1e9)), (peakHeap() / 1048576.0),
+                    (Runtime.getRuntime().maxMemory() / 1048576.0));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * @return the number of placeholders written
+     */
+    private static long generate(File file, long size, Charset charset) throws IOException {
+        String[] lines = { "literal text without any placeholders at all, of a reasonable length for a resource\n",
+                           "name=${project.name} version=${project.version} \u20AC unresolved=${unresolved}\n",
+                           "${project.artifact.name}:${project.build.dir}$ {not a placeholder} $$ {}\n" };
+        long[] counts = { 0L, 3L, 2L };
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), charset), 65536);
+        long written = 0L, placeholders = 0L;
+        try {
+            for (int i = 0; written < size; i++) {
+                String line = lines[i % lines.length];
+                writer.write(line);
+                written += line.getBytes(charset).length;
+                placeholders += counts[i % lines.length];
+            }
+        } finally {
+            writer.close();
+        }
+        return placeholders;
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private FileFiltererBenchmark() { }
+
+}
@@ -0,0 +1,190 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.props.Context;
+import net.ocheyedan.ply.props.Filter;
+import net.ocheyedan.ply.props.PropFileChain;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 7:10 PM
+ *
+ * Compares the streaming {@link FileFilterer} against filtering the whole file as a single value (as the
+ * {@literal ply-filter-file} script did prior to streaming).  Placeholders are resolved via system properties.
+ */
+public class FileFiltererTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Returns at most {@link #chunkSize} characters per read.
+     */
+    private static final class ChunkedReader extends Reader {
+
+        private final Reader reader;
+
+        private final int chunkSize;
+
+        private ChunkedReader(String value, int chunkSize) {
+            this.reader = new StringReader(value);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override public int read(char[] buffer, int offset, int length) throws IOException {
+            return reader.read(buffer, offset, Math.min(length, chunkSize));
+        }
+
+        @Override public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private final Map<Context, PropFileChain> props = new HashMap<Context, PropFileChain>();
+
+    private final List<String> provided = new ArrayList<String>();
+
+    private final FileFilterer.Provider provider = new FileFilterer.Provider() {
+        @Override public String filter(String value) {
+            provided.add(value);
+            return Filter.filter(value, Context.named("ply"), "file-filterer-test", props);
+        }
+    };
+
+    private File file;
+
+    @Before public void setup() throws IOException {
+        System.setProperty("filterer.name", "ply");
+        System.setProperty("filterer.version", "1.0\u20AC");
+        file = File.createTempFile("filterer", ".txt");
+    }
+
+    @After public void teardown() {
+        System.clearProperty("filterer.name");
+        System.clearProperty("filterer.version");
+        file.delete();
+    }
+
+    @Test public void placeholderAcrossChunks() throws IOException {
+        String value = "a${filterer.name}b$${filterer.version}$ {x}${unknown}$\n${filterer.name\n}${filterer.name}$";
+        String expected = filterWhole(value);
+        assertEquals("aplyb$1.0\u20AC$ {x}${unknown}$\n${filterer.name\n}ply$", expected);
+        // every split position, including the '$' and '{' of a placeholder in separate chunks and the closing '}'
+        // alone in the next chunk
+        for (int chunkSize = 1; chunkSize <= value.length(); chunkSize++) {
+            assertEquals("chunk size " + chunkSize, expected, filterChunked(value, chunkSize));
+        }
+        // a placeholder ending exactly at a chunk boundary
+        provided.clear();
+        assertEquals("aply", filterChunked("a${filterer.name}", 17));
+        assertEquals(Collections.singletonList("${filterer.name}"), provided);
+    }
+
+    @Test public void multiByteAcrossChunks() throws IOException {
+        // a surrogate pair split across chunks
+        String value = "\uD83D\uDE00${filterer.version}\uD83D\uDE00";
+        for (int chunkSize = 1; chunkSize <= value.length(); chunkSize++) {
+            assertEquals("\uD83D\uDE00" + "1.0\u20AC" + "\uD83D\uDE00", filterChunked(value, chunkSize));
+        }
+        // a three byte character split across the bytes read by the decoder
+        StringBuilder contents = new StringBuilder();
+        for (int offset = 8189; offset < 8193; offset++) {
+            contents.setLength(0);
+            for (int i = 0; i < offset; i++) {
+                contents.append('x');
+            }
+            contents.append("\u20AC${filterer.name}\u20AC\n");
+            write(contents.toString());
+            assertTrue(new FileFilterer(file, UTF_8, provider).filter());
+            assertEquals(filterWhole(contents.toString()), read());
+        }
+    }
+
+    @Test public void unterminatedPlaceholderTooLong() throws IOException {
+        StringBuilder tooLong = new StringBuilder("${");
+        for (int i = 0; i < (FileFilterer.MAX_PLACEHOLDER_SIZE + 10); i++) {
+            tooLong.append('a');
+        }
+        String value = tooLong + " then ${filterer.name}";
+        for (int chunkSize : new int[] { 7, 1000, 8192, value.length() }) {
+            provided.clear();
+            assertEquals(tooLong + " then ply", filterChunked(value, chunkSize));
+            assertEquals(Collections.singletonList("${filterer.name}"), provided);
+        }
+        // likewise at the end of the file
+        assertEquals(tooLong.toString(), filterChunked(tooLong.toString(), 100));
+        assertEquals("${unterminated", filterChunked("${unterminated", 3));
+    }
+
+    @Test public void matchesWholeFileFilter() throws IOException {
+        String[] fragments = { "${filterer.name}", "${filterer.version}", "${unknown}", "$", "$$", "${", "x}", "{y", " ",
+                               "\n", "\r\n", "\u20AC", "\uD83D\uDE00", "text", "${filterer.name", "$ {", "=" };
+        Random random = new Random(11L);
+        StringBuilder contents = new StringBuilder();
+        while (contents.length() < (FileFilterer.MAX_PLACEHOLDER_SIZE * 6)) {
+            contents.append(fragments[random.nextInt(fragments.length)]);
+        }
+        write(contents.toString());
+        assertTrue(new FileFilterer(file, UTF_8, provider).filter());
+        byte[] expected = filterWhole(contents.toString()).getBytes(UTF_8);
+        assertTrue(Arrays.equals(expected, readBytes()));
+    }
+
+    @Test public void permissionsRetained() throws IOException {
+        write("${filterer.name}");
+        assertTrue(file.setExecutable(true, false));
+        assertTrue(new FileFilterer(file, UTF_8, provider).filter());
+        assertEquals("ply", read());
+        assertTrue(file.canRead() && file.canWrite() && file.canExecute());
+        assertTrue(file.setExecutable(false, false));
+        assertTrue(new FileFilterer(file, UTF_8, provider).filter());
+        assertTrue(file.canRead() && file.canWrite() && !file.canExecute());
+    }
+
+    private String filterWhole(String value) {
+        return Filter.filter(value, Context.named("ply"), "file-filterer-test-whole", props);
+    }
+
+    private String filterChunked(String value, int chunkSize) throws IOException {
+        StringWriter writer = new StringWriter();
+        new FileFilterer(file, UTF_8, provider).filter(new ChunkedReader(value, chunkSize), writer);
+        return writer.toString();
+    }
+
+    private void write(String contents) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(contents.getBytes(UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    private String read() throws IOException {
+        return new String(readBytes(), UTF_8);
+    }
+
+    private byte[] readBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes.toByteArray();
+    }
+
+}
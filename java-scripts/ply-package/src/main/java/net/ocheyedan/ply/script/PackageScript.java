@@ -1,6 +1,7 @@
 package net.ocheyedan.ply.script;
 
 import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.Trace;
 import net.ocheyedan.ply.props.Context;
 import net.ocheyedan.ply.props.Props;
 
@@ -32,12 +33,15 @@ public class PackageScript {
             Output.print("Packaging type ^b^%s^r^ not supported.", packaging);
             System.exit(1); return;
         }
+        Trace.Span span = Trace.start("package", packaging);
         try {
             packagingScript.invoke();
         } catch (IOException ioe) {
             Output.print(ioe);
         } catch (InterruptedException ie) {
             Output.print(ie);
+        } finally {
+            span.end();
         }
     }
 
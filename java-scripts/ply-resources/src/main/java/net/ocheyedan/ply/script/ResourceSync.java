@@ -0,0 +1,197 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.FileUtil;
+import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.props.FilteredFiles;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 4:20 PM
+ *
+ * Incrementally synchronizes a directory into another.  Only those files whose size or last modified time differ
+ * from their synchronized copy are copied (and the copy is given the last modified time of the original so that an
+ * untouched file is skipped the next time).  Files and directories within the destination which no longer exist in
+ * the source (or which are excluded) are deleted.  Directories are walked in parallel and files are copied via
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ *
+ * Files filtered in place after being synchronized are not copied again so long as their source is unchanged and
+ * their filtered output is current (see {@link FilteredFiles}).
+ */
+final class ResourceSync {
+
+    private final File fromDir;
+
+    private final File toDir;
+
+    private final FilenameFilter excluding;
+
+    private final FilteredFiles filteredFiles;
+
+    private final Set<File> copied;
+
+    private final AtomicBoolean failed;
+
+    private final ExecutorService executor;
+
+    private final Queue<Future<?>> pending;
+
+    /**
+     * @param fromDir from which to synchronize
+     * @param toDir into which to synchronize
+     * @param excluding if true will skip the file/directory (and delete it from {@code toDir}); may be null
+     * @param filteredFiles the record of files filtered in place within {@code toDir}; may be null
+     */
+    ResourceSync(File fromDir, File toDir, FilenameFilter excluding, FilteredFiles filteredFiles) {
+        this.fromDir = fromDir;
+        this.toDir = toDir;
+        this.excluding = excluding;
+        this.filteredFiles = filteredFiles;
+        this.copied = new ConcurrentSkipListSet<File>();
+        this.failed = new AtomicBoolean(false);
+        this.executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        this.pending = new ConcurrentLinkedQueue<Future<?>>();
+    }
+
+    /**
+     * @return true on success; false otherwise
+     */
+    boolean sync() {
+        try {
+            submit(fromDir, toDir);
+            Future<?> future;
+            // each directory task submits its sub-directory tasks prior to completing, so once the queue is drained
+            // every directory has been synchronized
+            while ((future = pending.poll()) != null) {
+                future.get();
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+        } catch (ExecutionException ee) {
+            Output.print(ee.getCause());
+            failed.set(true);
+        } finally {
+            executor.shutdownNow();
+        }
+        return !failed.get();
+    }
+
+    /**
+     * @return the files within {@literal toDir} which were copied by {@link #sync()}
+     */
+    Set<File> getCopied() {
+        return copied;
+    }
+
+    private void submit(final File from, final File to) {
+        pending.add(executor.submit(new Runnable() {
+            @Override public void run() {
+                syncDir(from, to);
+            }
+        }));
+    }
+
+    private void syncDir(File from, File to) {
+        if (to.isFile()) {
+            FileUtil.delete(to);
+        }
+        if (!to.exists() && !to.mkdirs()) {
+            Output.print("^error^ Could not create directory ^b^%s^r^.", to.getPath());
+            failed.set(true);
+            return;
+        }
+        File[] subFiles = from.listFiles();
+        if (subFiles == null) {
+            return;
+        }
+        Set<String> synced = new HashSet<String>(subFiles.length, 1.0f);
+        for (File subFile : subFiles) {
+            if ((excluding != null) && excluding.accept(from, subFile.getName())) {
+                continue;
+            }
+            synced.add(subFile.getName());
+            File toSubFile = new File(to, subFile.getName());
+            if (subFile.isDirectory()) {
+                submit(subFile, toSubFile);
+            } else if (isModified(subFile, toSubFile)) {
+                if (!copy(subFile, toSubFile)) {
+                    failed.set(true);
+                    return;
+                }
+                copied.add(toSubFile);
+            }
+        }
+        File[] existing = to.listFiles();
+        if (existing == null) {
+            return;
+        }
+        for (File existingFile : existing) {
+            if (!synced.contains(existingFile.getName())) {
+                Output.print("^dbug^ Removing ^b^%s^r^ as it no longer exists in ^b^%s^r^.", existingFile.getPath(), from.getPath());
+                FileUtil.delete(existingFile);
+            }
+        }
+    }
+
+    private boolean isModified(File from, File to) {
+        if (!to.isFile()) {
+            return true;
+        }
+        if ((from.length() == to.length()) && (from.lastModified() == to.lastModified())) {
+            return false;
+        }
+        return ((filteredFiles == null) || !filteredFiles.isCurrentOutput(from, to));
+    }
+
+    private static boolean copy(File from, File to) {
+        if (to.isDirectory()) {
+            FileUtil.delete(to);
+        }
+        FileChannel fromChannel = null;
+        FileChannel toChannel = null;
+        try {
+            fromChannel = new FileInputStream(from).getChannel();
+            toChannel = new FileOutputStream(to).getChannel();
+            long size = fromChannel.size();
+            long position = 0L;
+            while (position < size) {
+                position += fromChannel.transferTo(position, (size - position), toChannel);
+            }
+        } catch (IOException ioe) {
+            Output.print("^error^ Could not copy ^b^%s^r^ to ^b^%s^r^.", from.getPath(), to.getPath());
+            Output.print(ioe);
+            return false;
+        } finally {
+            close(fromChannel);
+            close(toChannel);
+        }
+        if (!to.setLastModified(from.lastModified())) {
+            Output.print("^dbug^ Could not set last modified time of ^b^%s^r^; it will be copied again on next sync.", to.getPath());
+        }
+        return true;
+    }
+
+    private static void close(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ioe) {
+                throw new AssertionError(ioe);
+            }
+        }
+    }
+
+}
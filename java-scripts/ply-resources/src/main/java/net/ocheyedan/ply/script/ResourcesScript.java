@@ -1,13 +1,17 @@
 package net.ocheyedan.ply.script;
 
+import net.ocheyedan.ply.AntStyleWildcardSet;
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.props.Context;
+import net.ocheyedan.ply.props.FilteredFiles;
+import net.ocheyedan.ply.props.PropFile;
+import net.ocheyedan.ply.props.PropFiles;
 import net.ocheyedan.ply.props.Props;
+import net.ocheyedan.ply.props.Scope;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -20,6 +24,15 @@ import static net.ocheyedan.ply.props.PropFile.Prop;
  *
  * Simply copies {@literal project[.scope].res.dir} to {@literal project[.scope].res.build.dir} priming the resources
  * for filtering/packaging/etc.
+ *
+ * Files and directories named within the comma delimited {@literal resources.exclude} are not copied.  Names containing
+ * wildcards are matched as ant-style wildcard patterns (see {@link AntStyleWildcardSet}); i.e., {@literal *.bak}.
+ *
+ * If {@literal resources.incremental} is true (the default) the copy is incremental; only those files which differ (by
+ * size or last modified time) from their copy are copied and copies of files which no longer exist (or are now
+ * excluded) are deleted.  The copied files are recorded in {@literal changed-resources[.scope].properties} within
+ * {@literal project.build.dir} for use by downstream scripts (i.e., filtering).  Otherwise every file is copied and
+ * that file is deleted (its absence meaning every resource is to be considered changed).
  */
 public final class ResourcesScript {
 
@@ -31,8 +44,15 @@ public final class ResourcesScript {
             Output.print("^error^ Could not find properties 'project.res.dir' or 'project.res.build.dir'");
             System.exit(1);
         }
-        String[] split = resourcesExclusionPropValue.split(",");
-        final Set<String> exclusions = new HashSet<String>(Arrays.asList(split));
+        final Set<String> exclusions = new HashSet<String>();
+        final AntStyleWildcardSet exclusionPatterns = new AntStyleWildcardSet();
+        for (String exclusion : resourcesExclusionPropValue.split(",")) {
+            if ((exclusion.indexOf('*') != -1) || (exclusion.indexOf('?') != -1)) {
+                exclusionPatterns.add(exclusion, true);
+            } else {
+                exclusions.add(exclusion);
+            }
+        }
 
         File resDir = new File(resourcesDirProp.value());
         if (!resDir.exists()) {
@@ -42,16 +62,55 @@ public final class ResourcesScript {
         }
 
         File resBuildDir = new File(resourcesBuildDirProp.value());
-        FilenameFilter excluding = (exclusions.isEmpty() ? null : new FilenameFilter() {
+        FilenameFilter excluding = ((exclusions.isEmpty() && (exclusionPatterns.size() == 0)) ? null : new FilenameFilter() {
             @Override public boolean accept(File dir, String name) {
-                return exclusions.contains(name);
+                return (exclusions.contains(name) || exclusionPatterns.includes(name));
             }
         });
-        if (!FileUtil.copyDir(resDir, resBuildDir, excluding)) {
+        if ("false".equalsIgnoreCase(Props.get("incremental", Context.named("resources")).value())) {
+            if (!FileUtil.copyDir(resDir, resBuildDir, excluding)) {
+                Output.print("^error^ Could not copy resources directory (%s) to resources build directory (%s).",
+                        resourcesDirProp.value(), resourcesBuildDirProp.value());
+                System.exit(1);
+            }
+            // everything was copied; a change set from a previous incremental copy no longer applies
+            File changedResourcesFile = getChangedResourcesFile();
+            if (changedResourcesFile.exists() && !changedResourcesFile.delete()) {
+                Output.print("^error^ Could not delete %s.", changedResourcesFile.getPath());
+                System.exit(1);
+            }
+            return;
+        }
+        ResourceSync sync = new ResourceSync(resDir, resBuildDir, excluding, FilteredFiles.load());
+        if (!sync.sync()) {
             Output.print("^error^ Could not copy resources directory (%s) to resources build directory (%s).",
                     resourcesDirProp.value(), resourcesBuildDirProp.value());
             System.exit(1);
         }
+        Output.print("^dbug^ Copied %d changed resource%s.", sync.getCopied().size(), (sync.getCopied().size() == 1 ? "" : "s"));
+        storeChanged(sync.getCopied());
+    }
+
+    /**
+     * Saves {@code copied} into {@literal changed-resources[.scope].properties} within {@literal project.build.dir}.
+     * @param copied the files copied into {@literal project[.scope].res.build.dir}
+     */
+    private static void storeChanged(Set<File> copied) {
+        File changedResourcesFile = getChangedResourcesFile();
+        PropFile changedResources = new PropFile(Context.named("changed-resources"), PropFile.Loc.AdHoc);
+        for (File file : copied) {
+            changedResources.add(file.getPath(), "");
+        }
+        PropFiles.store(changedResources, changedResourcesFile.getPath(), true);
+    }
+
+    /**
+     * @return the {@literal changed-resources[.scope].properties} file within {@literal project.build.dir}
+     */
+    private static File getChangedResourcesFile() {
+        Scope scope = Scope.named(Props.get("scope", Context.named("ply")).value());
+        String buildDirPath = Props.get("build.dir", Context.named("project")).value();
+        return FileUtil.fromParts(buildDirPath, "changed-resources" + scope.getFileSuffix() + ".properties");
     }
 
     private ResourcesScript() { }
@@ -0,0 +1,120 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 5:10 PM
+ */
+public class ResourceSyncTest {
+
+    private static final FilenameFilter EXCLUDING = new FilenameFilter() {
+        @Override public boolean accept(File dir, String name) {
+            return name.endsWith(".tmp");
+        }
+    };
+
+    private File fromDir;
+
+    private File toDir;
+
+    @Before public void setup() throws IOException {
+        File directory = File.createTempFile("ply-sync", "");
+        directory.delete();
+        fromDir = new File(directory, "from");
+        toDir = new File(directory, "to");
+        write(new File(fromDir, "a.txt"), "a", 1000L);
+        write(new File(fromDir, "sub/b.txt"), "b", 1000L);
+        write(new File(fromDir, "sub/excluded.tmp"), "excluded", 1000L);
+        write(new File(fromDir, "excluded.tmp/c.txt"), "c", 1000L);
+    }
+
+    @After public void teardown() {
+        FileUtil.delete(fromDir.getParentFile());
+    }
+
+    @Test public void sync() throws IOException {
+        ResourceSync sync = new ResourceSync(fromDir, toDir, EXCLUDING, null);
+        assertTrue(sync.sync());
+        assertEquals(new HashSet<File>(Arrays.asList(new File(toDir, "a.txt"), new File(toDir, "sub/b.txt"))),
+                sync.getCopied());
+        assertEquals("a", read(new File(toDir, "a.txt")));
+        assertEquals("b", read(new File(toDir, "sub/b.txt")));
+        assertEquals(1000L, new File(toDir, "a.txt").lastModified());
+        assertFalse(new File(toDir, "sub/excluded.tmp").exists());
+        assertFalse(new File(toDir, "excluded.tmp").exists());
+
+        // unchanged files are not copied again
+        sync = new ResourceSync(fromDir, toDir, EXCLUDING, null);
+        assertTrue(sync.sync());
+        assertEquals(Collections.<File>emptySet(), sync.getCopied());
+
+        // changed files (by size or last modified time) are
+        write(new File(fromDir, "a.txt"), "a2", 1000L);
+        write(new File(fromDir, "sub/b.txt"), "c", 2000L);
+        sync = new ResourceSync(fromDir, toDir, EXCLUDING, null);
+        assertTrue(sync.sync());
+        assertEquals(new HashSet<File>(Arrays.asList(new File(toDir, "a.txt"), new File(toDir, "sub/b.txt"))),
+                sync.getCopied());
+        assertEquals("a2", read(new File(toDir, "a.txt")));
+        assertEquals("c", read(new File(toDir, "sub/b.txt")));
+        assertEquals(2000L, new File(toDir, "sub/b.txt").lastModified());
+    }
+
+    @Test public void syncDeletesStale() throws IOException {
+        write(new File(toDir, "stale.txt"), "stale", 1000L);
+        write(new File(toDir, "stale/d.txt"), "d", 1000L);
+        write(new File(toDir, "excluded.tmp/c.txt"), "c", 1000L);
+        // a directory in place of a file and a file in place of a directory
+        write(new File(toDir, "a.txt/e.txt"), "e", 1000L);
+        write(new File(toDir, "sub"), "sub", 1000L);
+        ResourceSync sync = new ResourceSync(fromDir, toDir, EXCLUDING, null);
+        assertTrue(sync.sync());
+        assertFalse(new File(toDir, "stale.txt").exists());
+        assertFalse(new File(toDir, "stale").exists());
+        assertFalse(new File(toDir, "excluded.tmp").exists());
+        assertEquals("a", read(new File(toDir, "a.txt")));
+        assertEquals("b", read(new File(toDir, "sub/b.txt")));
+
+        // previously synchronized files which are now excluded are deleted
+        write(new File(toDir, "sub/excluded.tmp"), "excluded", 1000L);
+        sync = new ResourceSync(fromDir, toDir, EXCLUDING, null);
+        assertTrue(sync.sync());
+        assertFalse(new File(toDir, "sub/excluded.tmp").exists());
+
+        // removed source files are deleted
+        assertTrue(new File(fromDir, "sub/b.txt").delete());
+        sync = new ResourceSync(fromDir, toDir, EXCLUDING, null);
+        assertTrue(sync.sync());
+        assertFalse(new File(toDir, "sub/b.txt").exists());
+        assertTrue(new File(toDir, "sub").isDirectory());
+        assertTrue(new File(toDir, "a.txt").isFile());
+    }
+
+    private static void write(File file, String content, long lastModified) throws IOException {
+        file.getParentFile().mkdirs();
+        assertTrue(FileUtil.copy(new ByteArrayInputStream(content.getBytes("UTF-8")), file));
+        assertTrue(file.setLastModified(lastModified));
+    }
+
+    private static String read(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            return reader.readLine();
+        } finally {
+            reader.close();
+        }
+    }
+
+}
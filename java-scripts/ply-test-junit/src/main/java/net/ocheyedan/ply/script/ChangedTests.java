@@ -0,0 +1,129 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.FileUtil;
+import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.dep.ClassDeps;
+import net.ocheyedan.ply.dep.DependencyAtom;
+import net.ocheyedan.ply.props.*;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 9:12 AM
+ *
+ * Determines which test classes are impacted by changes since the last successful test run.
+ * The {@literal ply-file-changed} script records each changed class (and all classes transitively depending upon it
+ * within its scope) into {@literal changed-since-test.properties} within {@literal project.build.dir}.  This class
+ * walks the test-scoped {@literal compiler.class.deps} from those recorded classes to find every test class which
+ * transitively depends upon a changed class.
+ *
+ * If the test dependencies have changed since the last successful test run (or there is no record of a successful test
+ * run) then all test classes are considered impacted.  The dependency information of the last successful test run is
+ * stored in {@literal tested-deps[.scope].properties} within {@literal project.build.dir} with the format:
+ * dependency-path=timestamp
+ */
+class ChangedTests {
+
+    private final File changedSinceTestFile;
+
+    private final File testedDepsFile;
+
+    private final PropFile resolvedDeps;
+
+    ChangedTests(String buildDirPath, Scope scope, PropFile resolvedDepProps) {
+        this.changedSinceTestFile = FileUtil.fromParts(buildDirPath, "changed-since-test.properties");
+        this.testedDepsFile = FileUtil.fromParts(buildDirPath, "tested-deps" + scope.getFileSuffix() + ".properties");
+        this.resolvedDeps = getDependencyTimestamps(resolvedDepProps);
+    }
+
+    /**
+     * @param classNames the test class names within the test artifact
+     * @return those class names from {@code classNames} impacted by changes since the last successful test run or
+     *         {@code classNames} itself if all tests need to be run.
+     */
+    Set<String> filter(Set<String> classNames) {
+        String classDepsPath = Props.get("class.deps", Context.named("compiler")).value();
+        if (!new File(classDepsPath).exists()) {
+            Output.print("^dbug^ No test class-dependencies found, running all tests.");
+            return classNames;
+        }
+        if (dependenciesChanged()) {
+            Output.print("^dbug^ No successful test run with the current test dependencies, running all tests.");
+            return classNames;
+        }
+        PropFile changedSinceTest = PropFiles.load(changedSinceTestFile.getPath(), false, false);
+        Set<String> changed = new HashSet<String>(changedSinceTest.size());
+        for (PropFile.Prop prop : changedSinceTest.props()) {
+            changed.add(prop.name);
+        }
+        Set<String> impacted = new ClassDeps().getTransitiveDependents(classDepsPath, changed);
+        Set<String> impactedOuterClasses = new HashSet<String>(impacted.size());
+        for (String className : impacted) {
+            impactedOuterClasses.add(getOuterClassName(className));
+        }
+        Set<String> filtered = new HashSet<String>();
+        for (String className : classNames) {
+            if (impactedOuterClasses.contains(getOuterClassName(className))) {
+                filtered.add(className);
+            }
+        }
+        Output.print("^dbug^ %d class%s changed since last successful test run, impacting %d of %d test class%s.",
+                changed.size(), (changed.size() == 1 ? "" : "es"), filtered.size(), classNames.size(),
+                (classNames.size() == 1 ? "" : "es"));
+        return filtered;
+    }
+
+    /**
+     * Clears the changes recorded since the last successful test run and saves the current test dependency information.
+     */
+    void succeeded() {
+        if (changedSinceTestFile.exists()) {
+            FileUtil.delete(changedSinceTestFile);
+        }
+        PropFiles.store(resolvedDeps, testedDepsFile.getPath(), true);
+    }
+
+    private boolean dependenciesChanged() {
+        if (!testedDepsFile.exists()) {
+            return true;
+        }
+        PropFile testedDeps = PropFiles.load(testedDepsFile.getPath(), false, false);
+        if (testedDeps.size() != resolvedDeps.size()) {
+            return true;
+        }
+        for (PropFile.Prop dep : resolvedDeps.props()) {
+            if (!dep.value().equals(testedDeps.get(dep.name).value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param resolvedDepProps the resolved dependencies of the test scope
+     * @return a mapping of dependency path to its last modified timestamp for {@code resolvedDepProps}, excluding the
+     *         project itself (which changes with every source change and is handled by the class-dependencies)
+     */
+    private static PropFile getDependencyTimestamps(PropFile resolvedDepProps) {
+        DependencyAtom self = DependencyAtom.parse(Props.get("nonscoped.artifact.name", Context.named("project")).value(), null);
+        String selfPrefix = (self == null ? null : self.namespace + ":" + self.name + ":");
+        PropFile timestamps = new PropFile(Context.named("tested-deps"), PropFile.Loc.AdHoc);
+        for (PropFile.Prop dep : resolvedDepProps.props()) {
+            if ((selfPrefix != null) && dep.name.startsWith(selfPrefix)) {
+                continue;
+            }
+            timestamps.add(dep.value(), String.valueOf(new File(dep.value()).lastModified()));
+        }
+        return timestamps;
+    }
+
+    private static String getOuterClassName(String className) {
+        int innerIndex = className.indexOf('$');
+        return (innerIndex == -1 ? className : className.substring(0, innerIndex));
+    }
+
+}
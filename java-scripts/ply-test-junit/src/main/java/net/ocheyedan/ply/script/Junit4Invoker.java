@@ -62,8 +62,9 @@ public class Junit4Invoker implements Runnable {
             return;
         }
 
+        TestHistory history = TestHistory.load();
         JUnitCore jUnitCore = new JUnitCore();
-        Junit4RunListener junit4RunListener = new Junit4RunListener(padding);
+        Junit4RunListener junit4RunListener = new Junit4RunListener(padding, history, (originalMatchers != null));
         jUnitCore.addListener(junit4RunListener);
         jUnitCore.addListener(new MavenReporter());
 
@@ -73,6 +74,9 @@ public class Junit4Invoker implements Runnable {
         if (filter != null) {
             request = request.filterWith(filter);
         }
+        // run previously failing tests first and then the longest running (the sort is stable so classes/methods
+        // without history retain the alphabetic ordering)
+        request = request.sortWith(history.getComparator());
         Result result = jUnitCore.run(request);
 
         int syntheticCount;
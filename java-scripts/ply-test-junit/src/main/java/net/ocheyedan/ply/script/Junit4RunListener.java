@@ -1,9 +1,11 @@
 package net.ocheyedan.ply.script;
 
+import net.ocheyedan.ply.Events;
 import net.ocheyedan.ply.PlyUtil;
 import net.ocheyedan.ply.script.print.PrivilegedOutput;
 import net.ocheyedan.ply.script.print.PrivilegedPrintStream;
 import org.junit.runner.Description;
+import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 
@@ -20,8 +22,14 @@ public class Junit4RunListener extends RunListener {
 
     private final Map<String, Integer> methodNameOffsets = new HashMap<String, Integer>();
 
+    private final Map<Description, Long> startTimes = new HashMap<Description, Long>();
+
     private final AllFilterCollectPad padding;
 
+    private final TestHistory history;
+
+    private final boolean filtered;
+
     private final List<String> potentialStatements;
 
     private final List<String> failureStatements;
@@ -31,11 +39,18 @@ public class Junit4RunListener extends RunListener {
     private final String ignoredChar = PlyUtil.isUnicodeSupported() ? "\u26A0" : "";
 
     public Junit4RunListener() {
-        this(null);
+        this(null, null, false);
     }
 
-    public Junit4RunListener(AllFilterCollectPad padding) {
+    /**
+     * @param padding used to align the output of test methods, may be null
+     * @param history into which the outcome and duration of each test method is recorded, may be null
+     * @param filtered true if the test run is filtered (i.e., not all test methods of a test class may be run)
+     */
+    public Junit4RunListener(AllFilterCollectPad padding, TestHistory history, boolean filtered) {
         this.padding = padding;
+        this.history = history;
+        this.filtered = filtered;
         this.potentialStatements = new LinkedList<String>();
         this.failureStatements = new LinkedList<String>();
     }
@@ -61,6 +76,7 @@ public class Junit4RunListener extends RunListener {
             return;
         }
         handleNewDescription(description);
+        startTimes.put(description, System.currentTimeMillis());
         // need to go directly to stdout to avoid Output parsing prior to Exec handling
         String statement = String.format("%s^no_line^\t^b^%s^r^ ", PrivilegedPrintStream.PRIVILEGED_PREFIX, description.getMethodName());
         potentialStatements.add(statement);
@@ -71,6 +87,13 @@ public class Junit4RunListener extends RunListener {
         if (isSyntheticDescription(description)) {
             return;
         }
+        Long startTime = startTimes.remove(description);
+        long millis = (startTime == null ? 0L : (System.currentTimeMillis() - startTime));
+        if ((history != null) && (startTime != null)) {
+            history.record(description, failures.containsKey(description), millis);
+        }
+        Events.emit("test", "class", description.getClassName(), "method", description.getMethodName(),
+                    "status", (failures.containsKey(description) ? "fail" : "pass"), "millis", millis);
         // need to go directly to stdout to avoid Output parsing prior to Exec handling
         if (failures.containsKey(description)) {
             Failure failure = failures.get(description);
@@ -89,6 +112,14 @@ public class Junit4RunListener extends RunListener {
         potentialStatements.clear();
     }
 
+    @Override public void testRunFinished(Result result) throws Exception {
+        if (history != null) {
+            history.store(!filtered);
+        }
+        Events.emit("tests.finish", "run", result.getRunCount(), "failures", result.getFailureCount(),
+                    "ignored", result.getIgnoreCount(), "millis", result.getRunTime());
+    }
+
     @Override public void testFailure(Failure failure) throws Exception {
         if (isSyntheticDescription(failure.getDescription())) {
             return;
@@ -101,6 +132,8 @@ public class Junit4RunListener extends RunListener {
             return;
         }
         handleNewDescription(description);
+        Events.emit("test", "class", description.getClassName(), "method", description.getMethodName(),
+                    "status", "ignored", "millis", 0L);
         System.out.println(String.format("%s^no_line^\t^b^%s^r^ ", PrivilegedPrintStream.PRIVILEGED_PREFIX, description.getMethodName()));
         System.out.println(String.format("%s^no_prefix^%s^yellow^^i^ %s IGNORED %s ^r^", PrivilegedPrintStream.PRIVILEGED_PREFIX, getPad(description), ignoredChar, ignoredChar));
     }
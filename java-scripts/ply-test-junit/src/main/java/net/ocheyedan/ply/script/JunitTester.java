@@ -10,6 +10,7 @@ import net.ocheyedan.ply.input.Resources;
 import net.ocheyedan.ply.props.Context;
 import net.ocheyedan.ply.props.PropFile;
 import net.ocheyedan.ply.props.Props;
+import net.ocheyedan.ply.props.Scope;
 import net.ocheyedan.ply.script.print.PrivilegedOutput;
 import net.ocheyedan.ply.script.print.PrivilegedPrintStream;
 
@@ -23,8 +24,6 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
 
 import static net.ocheyedan.ply.props.PropFile.Prop;
 
@@ -80,14 +79,12 @@ public class JunitTester {
                 null
         );
 
-        FilenameFilter filter = new FilenameFilter() {
-            @Override public boolean accept(File dir, String name) {
-                return name.endsWith(".class");
-            }
-        };
-        Set<String> classNames = getClasses(artifact, filter);
-        Set<Class> classes = loadClasses(classNames, loader);
-        Output.print("^dbug^ Loaded %d classes from test artifact.", classes.size());
+        // discover the test classes from their bytecode so that only those classes need be loaded
+        long discoveryStart = System.currentTimeMillis();
+        TestClassScanner scanner = new TestClassScanner(loader).scan(artifact);
+        Set<String> classNames = scanner.getTestClassNames();
+        Output.print("^dbug^ Discovered %d test classes of %d classes in test artifact in %d ms.", classNames.size(),
+                scanner.getClassNames().size(), (System.currentTimeMillis() - discoveryStart));
 
         String[] matchers = null;
         String unsplitMatchers = null;
@@ -96,6 +93,20 @@ public class JunitTester {
             matchers = args[0].split(",");
         }
 
+        Scope scope = Scope.named(Props.get("scope", Context.named("ply")).value());
+        ChangedTests changedTests = new ChangedTests(buildDirProp.value(), scope, resolvedDepProps);
+        if ("true".equalsIgnoreCase(Props.get("changed.only", Context.named("junit")).value())) {
+            classNames = changedTests.filter(classNames);
+            if (classNames.isEmpty()) {
+                Output.print("No tests impacted by changes since last successful test run, nothing to test.");
+                changedTests.succeeded();
+                return;
+            }
+        }
+
+        Set<Class> classes = loadClasses(classNames, loader);
+        Output.print("^dbug^ Loaded %d classes from test artifact.", classes.size());
+
         // redirect out/err to a log file (except privileged code from this package)
         PrintStream oldOut = System.out;
         PrintStream oldErr = System.err;
@@ -111,8 +122,9 @@ public class JunitTester {
             outFile.createNewFile();
             File errFile = FileUtil.fromParts(reportDirProp.value(), "tests-err.txt");
             errFile.createNewFile();
-            System.setOut(new PrivilegedPrintStream(oldOut, outFile));
-            System.setErr(new PrivilegedPrintStream(oldErr, errFile));
+            long outputLimit = getOutputLimit();
+            System.setOut(new PrivilegedPrintStream(oldOut, outFile, outputLimit));
+            System.setErr(new PrivilegedPrintStream(oldErr, errFile, outputLimit));
         } catch (IOException ioe) {
             PrivilegedOutput.print(ioe);
             System.exit(1);
@@ -130,6 +142,11 @@ public class JunitTester {
             runner.setName("Junit4Runner");
             runner.start();
             runner.join();
+            // the invoker exits upon test failure; only when every matched test ran successfully is the record
+            // of changes cleared
+            if (matchers == null) {
+                changedTests.succeeded();
+            }
         } catch (ClassNotFoundException cfne) {
             PrivilegedOutput.print(cfne);
             System.exit(1);
@@ -248,39 +265,11 @@ public class JunitTester {
         return artifactUrl;
     }
 
-    private static Set<String> getClasses(File artifact, FilenameFilter filter) {
-        Set<String> classes = new HashSet<String>();
-        JarInputStream inputStream = null;
-        try {
-            inputStream = new JarInputStream(new FileInputStream(artifact));
-            JarEntry entry = inputStream.getNextJarEntry();
-            while (entry != null) {
-                if (filter.accept(null, entry.getName())) {
-                    String javaClassName = entry.getName().substring(0, entry.getName().length() - 6);
-                    javaClassName = javaClassName.replaceAll("/", ".");
-                    classes.add(javaClassName);
-                }
-                entry = inputStream.getNextJarEntry();
-            }
-        } catch (IOException ioe) {
-            Output.print(ioe);
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException ioe) {
-                    throw new AssertionError(ioe);
-                }
-            }
-        }
-        return classes;
-    }
-
     private static Set<Class> loadClasses(Set<String> classNames, ClassLoader loader) {
         Set<Class> classes = new HashSet<Class>(classNames.size());
         for (String className : classNames) {
             try {
-                Class clazz = Class.forName(className, true, loader);
+                Class clazz = Class.forName(className, false, loader);
                 classes.add(clazz);
             } catch (ClassNotFoundException cnfe) {
                 Output.print(cnfe);
@@ -289,4 +278,21 @@ public class JunitTester {
         return classes;
     }
 
+    /**
+     * @return the maximum number of bytes of test output to save (to each of {@literal tests-out.txt} and
+     *         {@literal tests-err.txt}) as specified by {@literal junit.output.limit}; zero for no limit
+     */
+    private static long getOutputLimit() {
+        String limit = Props.get("output.limit", Context.named("junit")).value();
+        if (limit.isEmpty()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(limit);
+        } catch (NumberFormatException nfe) {
+            Output.print("^warn^ Invalid junit.output.limit value ^b^%s^r^, not limiting test output.", limit);
+            return 0L;
+        }
+    }
+
 }
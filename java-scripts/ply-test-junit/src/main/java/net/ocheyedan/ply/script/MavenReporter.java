@@ -8,17 +8,9 @@ import org.junit.runner.Result;
 import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.io.*;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static net.ocheyedan.ply.props.PropFile.Prop;
 
@@ -28,6 +20,12 @@ import static net.ocheyedan.ply.props.PropFile.Prop;
  * Time: 2:41 PM
  *
  * Creates an XML report mimicking the format of the {@literal maven-surefire-plugin}.
+ * Each test case is streamed to disk as it finishes (into a {@literal .cases} file alongside the report) and the
+ * report itself is assembled once the test suite finishes (as the {@literal testsuite} element's attributes are only
+ * known then).  Only the running test suite is held in memory and so memory usage is independent of suite size.
+ * A test suite is considered finished when another starts; if it is subsequently resumed (i.e., its tests are
+ * interleaved with those of another suite) its test cases are appended and its report is assembled again.  The
+ * {@literal .cases} files are deleted once the test run finishes.
  */
 public class MavenReporter extends RunListener {
 
@@ -35,184 +33,155 @@ public class MavenReporter extends RunListener {
 
         private final String name;
 
-        private final AtomicInteger failureCount = new AtomicInteger(0);
+        private final File reportFile;
 
-        private final AtomicInteger errorsCount = new AtomicInteger(0);
+        private final File casesFile;
 
-        private final AtomicInteger skippedCount = new AtomicInteger(0);
+        private Writer cases;
 
-        private final AtomicInteger totalCount = new AtomicInteger(0);
+        private int failureCount;
 
-        private final long startTime;
+        private int errorsCount;
 
-        private final AtomicLong duration = new AtomicLong();
+        private int skippedCount;
 
-        private final List<ReportTest> tests = new ArrayList<ReportTest>();
+        private int totalCount;
 
-        private final Map<String, Integer> reportNameMap = new HashMap<String, Integer>();
+        private long startTime;
 
-        private ReportTestSuite(String name) {
+        private long duration;
+
+        private final Map<String, Long> testStartTimes = new HashMap<String, Long>(2, 1.0f);
+
+        private final Map<String, Failure> testFailures = new HashMap<String, Failure>(2, 1.0f);
+
+        private ReportTestSuite(String name, File reportDir) throws IOException {
             this.name = name;
+            this.reportFile = new File(reportDir, getReportName(name));
+            this.casesFile = new File(reportDir, getReportName(name) + ".cases");
+            open(false);
+        }
+
+        private void open(boolean append) throws IOException {
+            this.cases = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(casesFile, append), "UTF-8"));
             this.startTime = System.currentTimeMillis();
         }
 
-        private synchronized void startTest(Description description) {
-            int index = tests.size();
-            totalCount.addAndGet(1);
-            ReportTest test = new ReportTest(description);
-            tests.add(test);
-            reportNameMap.put(test.name, index);
+        /**
+         * Continues the test suite after it was finished (by the start of another test suite).
+         */
+        private void resume() throws IOException {
+            open(true);
         }
 
-        private synchronized void ignoreTest(Description description) {
-            int index = tests.size();
-            totalCount.addAndGet(1);
-            skippedCount.addAndGet(1);
-            ReportTest test = new ReportTest(description);
-            test.finishByIgnore();
-            tests.add(test);
-            reportNameMap.put(test.name, index);
+        private void startTest(Description description) {
+            totalCount++;
+            testStartTimes.put(description.getDisplayName(), System.currentTimeMillis());
         }
 
-        private synchronized void endTest(Description description) {
-            int index = reportNameMap.get(description.getDisplayName());
-            ReportTest test = tests.get(index);
-            test.finish();
+        private void ignoreTest(Description description) throws IOException {
+            totalCount++;
+            skippedCount++;
+            writeTest(description, 0L, null, true);
         }
 
-        private synchronized void endTest(Failure failure) {
-            int index = reportNameMap.get(failure.getDescription().getDisplayName());
+        private void failTest(Failure failure) {
             if (ReportTestFailure.isError(failure)) {
-                errorsCount.addAndGet(1);
+                errorsCount++;
             } else {
-                failureCount.addAndGet(1);
+                failureCount++;
             }
-            ReportTest test = tests.get(index);
-            test.finish(failure);
+            testFailures.put(failure.getDescription().getDisplayName(), failure);
         }
 
-        private synchronized void finish() {
-            duration.set(System.currentTimeMillis() - startTime);
+        private void endTest(Description description) throws IOException {
+            Long testStartTime = testStartTimes.remove(description.getDisplayName());
+            long duration = (testStartTime == null ? 0L : System.currentTimeMillis() - testStartTime);
+            writeTest(description, duration, testFailures.remove(description.getDisplayName()), false);
         }
 
-        private String toXml() {
-            StringBuilder xmlBuffer = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<testsuite failures=\"");
-            xmlBuffer.append(failureCount.get());
-            xmlBuffer.append("\" time=\"");
-            xmlBuffer.append(String.format("%.3f", (duration.get() / 1000.0f)));
-            xmlBuffer.append("\" errors=\"");
-            xmlBuffer.append(errorsCount.get());
-            xmlBuffer.append("\" skipped=\"");
-            xmlBuffer.append(skippedCount.get());
-            xmlBuffer.append("\" tests=\"");
-            xmlBuffer.append(totalCount.get());
-            xmlBuffer.append("\" name=\"");
-            xmlBuffer.append(name);
-            xmlBuffer.append("\">\n  <properties>\n");
-            for (String propertyName : System.getProperties().stringPropertyNames()) {
-                xmlBuffer.append("    <property name=\"");
-                xmlBuffer.append(XmlEscaper.escapeXml(propertyName));
-                xmlBuffer.append("\" value=\"");
-                xmlBuffer.append(XmlEscaper.escapeXml(System.getProperties().getProperty(propertyName)));
-                xmlBuffer.append("\"/>\n");
-            }
-            xmlBuffer.append("  </properties>");
-            for (ReportTest test : tests) {
-                xmlBuffer.append("\n  ");
-                xmlBuffer.append(test.toXml());
+        private void writeTest(Description description, long duration, Failure failure, boolean ignored) throws IOException {
+            cases.write("\n  <testcase time=\"");
+            cases.write(String.format("%.3f", (duration / 1000.0f)));
+            cases.write("\" classname=\"");
+            cases.write(description.getClassName());
+            cases.write("\" name=\"");
+            cases.write(description.getMethodName());
+            cases.write("\"");
+            if (failure != null) {
+                cases.write(">\n    ");
+                ReportTestFailure.writeXml(failure, cases);
+                cases.write("\n  </testcase>");
+            } else if (ignored) {
+                cases.write(">\n    <skipped/>\n  </testcase>");
+            } else {
+                cases.write("/>");
             }
-            xmlBuffer.append("\n</testsuite>");
-            return xmlBuffer.toString();
         }
-    }
-
-    private static class ReportTest {
-
-        private final String name;
 
-        private final String className;
-
-        private final String methodName;
-
-        private final long startTime;
-
-        private final AtomicLong duration = new AtomicLong();
-
-        private final AtomicReference<ReportTestFailure> failure = new AtomicReference<ReportTestFailure>(null);
-
-        private final AtomicBoolean ignored = new AtomicBoolean(false);
-
-        private ReportTest(Description description) {
-            this.name = description.getDisplayName();
-            this.className = description.getClassName();
-            this.methodName = description.getMethodName();
-            this.startTime = System.currentTimeMillis();
-        }
-
-        private void finish() {
-            duration.set(System.currentTimeMillis() - startTime);
-        }
-
-        private void finishByIgnore() {
-            finish();
-            ignored.set(true);
-        }
-
-        private void finish(Failure failure) {
-            finish();
-            this.failure.set(new ReportTestFailure(failure));
-        }
-
-        private String toXml() {
-            StringBuilder xmlBuffer = new StringBuilder("<testcase time=\"");
-            xmlBuffer.append(String.format("%.3f", (duration.get() / 1000.0f)));
-            xmlBuffer.append("\" classname=\"");
-            xmlBuffer.append(className);
-            xmlBuffer.append("\" name=\"");
-            xmlBuffer.append(methodName);
-            xmlBuffer.append("\"");
-            if (failure.get() != null) {
-                xmlBuffer.append(">\n    ");
-                xmlBuffer.append(failure.get().toXml());
-                xmlBuffer.append("\n  </testcase>");
-            } else if (ignored.get()) {
-                xmlBuffer.append(">\n    <skipped/>\n  </testcase>");
-            } else {
-                xmlBuffer.append("/>");
+        /**
+         * Writes the report file from the streamed test cases.
+         */
+        private void finish() throws IOException {
+            duration += System.currentTimeMillis() - startTime;
+            cases.close();
+            Writer report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8"));
+            Reader casesReader = null;
+            try {
+                report.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n<testsuite failures=\"");
+                report.write(String.valueOf(failureCount));
+                report.write("\" time=\"");
+                report.write(String.format("%.3f", (duration / 1000.0f)));
+                report.write("\" errors=\"");
+                report.write(String.valueOf(errorsCount));
+                report.write("\" skipped=\"");
+                report.write(String.valueOf(skippedCount));
+                report.write("\" tests=\"");
+                report.write(String.valueOf(totalCount));
+                report.write("\" name=\"");
+                report.write(name);
+                report.write("\">\n  <properties>\n");
+                for (String propertyName : System.getProperties().stringPropertyNames()) {
+                    report.write("    <property name=\"");
+                    XmlEscaper.escapeXml(propertyName, report);
+                    report.write("\" value=\"");
+                    XmlEscaper.escapeXml(System.getProperties().getProperty(propertyName), report);
+                    report.write("\"/>\n");
+                }
+                report.write("  </properties>");
+                casesReader = new InputStreamReader(new FileInputStream(casesFile), "UTF-8");
+                char[] buffer = new char[8192];
+                int read;
+                while ((read = casesReader.read(buffer)) != -1) {
+                    report.write(buffer, 0, read);
+                }
+                report.write("\n</testsuite>");
+            } finally {
+                report.close();
+                if (casesReader != null) {
+                    casesReader.close();
+                }
             }
-            return xmlBuffer.toString();
         }
     }
 
     private static class ReportTestFailure {
 
-        private final String message;
-
-        private final String exceptionType;
-
-        private final String trace;
-
-        private ReportTestFailure(Failure failure) {
-            this.message = failure.getMessage();
-            this.trace = failure.getTrace();
-            this.exceptionType = failure.getException().getClass().getName();
-        }
-
-        private String toXml() {
+        private static void writeXml(Failure failure, Writer into) throws IOException {
+            String exceptionType = failure.getException().getClass().getName();
             // be inline with surefire's 'error' notion (TODO - is this actually what surefire uses to distinguish an error?)
             String failureType = (isError(exceptionType) ? "error" : "failure");
-            StringBuilder xmlBuffer = new StringBuilder("<");
-            xmlBuffer.append(failureType);
-            xmlBuffer.append(" message=\"");
-            xmlBuffer.append(XmlEscaper.escapeXml(message));
-            xmlBuffer.append("\" type=\"");
-            xmlBuffer.append(XmlEscaper.escapeXml(exceptionType));
-            xmlBuffer.append("\">");
-            xmlBuffer.append(XmlEscaper.escapeXml(trace));
-            xmlBuffer.append("\n    </");
-            xmlBuffer.append(failureType);
-            xmlBuffer.append(">");
-            return xmlBuffer.toString();
+            into.write("<");
+            into.write(failureType);
+            into.write(" message=\"");
+            XmlEscaper.escapeXml(failure.getMessage(), into);
+            into.write("\" type=\"");
+            XmlEscaper.escapeXml(exceptionType, into);
+            into.write("\">");
+            XmlEscaper.escapeXml(failure.getTrace(), into);
+            into.write("\n    </");
+            into.write(failureType);
+            into.write(">");
         }
 
         private static boolean isError(Failure failure) {
@@ -238,99 +207,92 @@ public class MavenReporter extends RunListener {
             XML_ESCAPES.put((char) 62, "gt"); // > - greater-than
             XML_ESCAPES.put((char) 39, "apos"); // XML apostrophe
         }
-        private static String escapeXml(String str) {
+        private static void escapeXml(String str, Writer into) throws IOException {
             if (str == null) {
-                return null;
+                into.write("null");
+                return;
             }
-            // make the escaped buffer 10% larger to avoid resizing (which doubles the buffer)
-            StringBuilder buffer = new StringBuilder((int) (str.length() + (str.length() * 0.1)));
+            // written directly to the (buffered) writer to avoid creating a copy of large values (i.e., stack traces)
             int len = str.length();
             for (int i = 0; i < len; i++) {
                 char c = str.charAt(i);
                 String entityName = XML_ESCAPES.get(c);
                 if (entityName == null) {
                     if (c > 0x7F) {
-                        buffer.append("&#");
-                        buffer.append(Integer.toString(c, 10));
-                        buffer.append(';');
+                        into.write("&#");
+                        into.write(Integer.toString(c, 10));
+                        into.write(';');
                     } else {
-                        buffer.append(c);
+                        into.write(c);
                     }
                 } else {
-                    buffer.append('&');
-                    buffer.append(entityName);
-                    buffer.append(';');
+                    into.write('&');
+                    into.write(entityName);
+                    into.write(';');
                 }
             }
-            return buffer.toString();
         }
 
     }
 
-    private final Map<String, ReportTestSuite> testSuites = new HashMap<String, ReportTestSuite>();
+    /**
+     * The test suites of this run by name; retained (without their test cases) in case they are resumed.
+     */
+    private final Map<String, ReportTestSuite> suites = new HashMap<String, ReportTestSuite>();
+
+    private File reportDir;
+
+    private boolean reportDirResolved;
 
     private ReportTestSuite current;
 
-    @Override public void testRunFinished(Result result) throws Exception {
-        synchronized (this) {
-            if (current != null) {
-                current.finish();
-            }
-        }
-        // save the reports.
-        Prop reportDirProp = Props.get("reports.dir", Context.named("project"));
-        if (Prop.Empty.equals(reportDirProp)) {
-            PrivilegedOutput.print("^warn^ Could not find property project.reports.dir, skipping report save.");
-            return;
-        }
-        File reportDir = new File(reportDirProp.value());
-        reportDir.mkdirs();
-        for (ReportTestSuite testSuite : testSuites.values()) {
-            String fileName = getReportName(testSuite.name);
-            String xmlFileContent = testSuite.toXml();
-            File file = new File(reportDir.getPath() + File.separator + fileName);
-            FileWriter writer = null;
-            try {
-                file.createNewFile();
-                writer = new FileWriter(file);
-                writer.write(xmlFileContent);
-            } catch (IOException ioe) {
-                PrivilegedOutput.print(ioe);
-            } finally {
-                if (writer != null) {
-                    try {
-                        writer.close();
-                    } catch (IOException ioe) {
-                        throw new AssertionError(ioe);
-                    }
-                }
-            }
+    public MavenReporter() { }
+
+    /**
+     * @param reportDir into which to save reports
+     */
+    MavenReporter(File reportDir) {
+        this.reportDir = reportDir;
+        this.reportDirResolved = true;
+    }
+
+    @Override public synchronized void testRunFinished(Result result) throws Exception {
+        finishCurrent();
+        for (ReportTestSuite suite : suites.values()) {
+            suite.casesFile.delete();
         }
+        suites.clear();
     }
 
-    @Override public void testStarted(Description description) throws Exception {
-        synchronized (this) {
-            startTestSuiteIfNeeded(description);
+    @Override public synchronized void testStarted(Description description) throws Exception {
+        if (startTestSuiteIfNeeded(description)) {
             current.startTest(description);
         }
     }
 
-    @Override public void testFinished(Description description) throws Exception {
-        synchronized (this) {
-            current.endTest(description);
+    @Override public synchronized void testFinished(Description description) throws Exception {
+        if (isCurrent(description)) {
+            try {
+                current.endTest(description);
+            } catch (IOException ioe) {
+                PrivilegedOutput.print(ioe);
+            }
         }
     }
 
-    @Override public void testFailure(Failure failure) throws Exception {
-        synchronized (this) {
-            current.endTest(failure);
+    @Override public synchronized void testFailure(Failure failure) throws Exception {
+        if (isCurrent(failure.getDescription())) {
+            current.failTest(failure);
         }
     }
 
-    @Override public void testIgnored(Description description) throws Exception {
-        synchronized (this) {
-            startTestSuiteIfNeeded(description);
-            current.ignoreTest(description);
+    @Override public synchronized void testIgnored(Description description) throws Exception {
+        if (startTestSuiteIfNeeded(description)) {
+            try {
+                current.ignoreTest(description);
+            } catch (IOException ioe) {
+                PrivilegedOutput.print(ioe);
+            }
         }
     }
 
@@ -342,13 +304,64 @@ public class MavenReporter extends RunListener {
         return "TEST-" + test + ".xml";
     }
 
-    private synchronized void startTestSuiteIfNeeded(Description description) {
-        if (!testSuites.containsKey(description.getClassName())) {
-            if (current != null) {
-                current.finish();
+    private boolean isCurrent(Description description) {
+        return ((current != null) && current.name.equals(description.getClassName()));
+    }
+
+    /**
+     * @param description of the test
+     * @return true if there is a test suite for {@code description}
+     */
+    private boolean startTestSuiteIfNeeded(Description description) {
+        if (isCurrent(description)) {
+            return true;
+        }
+        finishCurrent();
+        File reportDir = getReportDir();
+        if (reportDir == null) {
+            return false;
+        }
+        String name = description.getClassName();
+        try {
+            ReportTestSuite suite = suites.get(name);
+            if (suite == null) {
+                suite = new ReportTestSuite(name, reportDir);
+                suites.put(name, suite);
+            } else {
+                PrivilegedOutput.print("^dbug^ Test suite ^b^%s^r^ resumed.", name);
+                suite.resume();
+            }
+            current = suite;
+            return true;
+        } catch (IOException ioe) {
+            PrivilegedOutput.print(ioe);
+            return false;
+        }
+    }
+
+    private void finishCurrent() {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.finish();
+        } catch (IOException ioe) {
+            PrivilegedOutput.print(ioe);
+        }
+        current = null;
+    }
+
+    private File getReportDir() {
+        if (!reportDirResolved) {
+            reportDirResolved = true;
+            Prop reportDirProp = Props.get("reports.dir", Context.named("project"));
+            if (Prop.Empty.equals(reportDirProp)) {
+                PrivilegedOutput.print("^warn^ Could not find property project.reports.dir, skipping report save.");
+            } else {
+                reportDir = new File(reportDirProp.value());
+                reportDir.mkdirs();
             }
-            current = new ReportTestSuite(description.getClassName());
-            testSuites.put(current.name, current);
         }
+        return reportDir;
     }
 }
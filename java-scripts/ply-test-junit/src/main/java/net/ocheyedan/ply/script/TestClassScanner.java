@@ -0,0 +1,210 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.Output;
+import org.objectweb.asm.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 1:40 PM
+ *
+ * Discovers test classes within a test artifact by reading the class files' bytecode (via {@literal asm}) rather than
+ * by loading (and initializing) every class within the artifact.  A class is considered a test class if it is
+ * concrete and it, or any of its super classes, is annotated with {@literal @RunWith} or has a public method annotated
+ * with {@literal @Test} or named {@literal test*} (junit 3 style).  Super classes outside of the test artifact are
+ * read as resources from the test class-loader (again without loading them).
+ */
+class TestClassScanner {
+
+    private static final String TEST_DESC = "Lorg/junit/Test;";
+
+    private static final String RUN_WITH_DESC = "Lorg/junit/runner/RunWith;";
+
+    /**
+     * The information gleaned from a class file's bytecode necessary to determine if it is a test class.
+     */
+    private static final class ClassInfo extends ClassVisitor {
+
+        private String superName;
+
+        private int access;
+
+        private boolean runWith;
+
+        private boolean testMethods;
+
+        private final MethodVisitor testAnnotationVisitor = new MethodVisitor(Opcodes.ASM5) {
+            @Override public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                if (TEST_DESC.equals(desc)) {
+                    testMethods = true;
+                }
+                return null;
+            }
+        };
+
+        private ClassInfo() {
+            super(Opcodes.ASM5);
+        }
+
+        @Override public void visit(int version, int access, String name, String signature, String superName,
+                                    String[] interfaces) {
+            this.access = access;
+            this.superName = superName;
+        }
+
+        @Override public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            if (RUN_WITH_DESC.equals(desc)) {
+                runWith = true;
+            }
+            return null;
+        }
+
+        @Override public MethodVisitor visitMethod(int access, String name, String desc, String signature,
+                                                   String[] exceptions) {
+            if (testMethods || ((access & Opcodes.ACC_PUBLIC) == 0)) {
+                return null;
+            }
+            if (name.startsWith("test")) {
+                testMethods = true;
+                return null;
+            }
+            return testAnnotationVisitor;
+        }
+
+        private boolean isConcrete() {
+            return ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE | Opcodes.ACC_ANNOTATION)) == 0);
+        }
+    }
+
+    private final ClassLoader loader;
+
+    /**
+     * Mapping of internal class name (i.e., {@literal net/ocheyedan/ply/script/TestClassScanner}) to its information
+     * or null if the class file could not be found/read.
+     */
+    private final Map<String, ClassInfo> infos;
+
+    private final Set<String> classNames;
+
+    private final Set<String> testClassNames;
+
+    /**
+     * @param loader from which to read super classes which are not within the scanned artifact
+     */
+    TestClassScanner(ClassLoader loader) {
+        this.loader = loader;
+        this.infos = new HashMap<String, ClassInfo>();
+        this.classNames = new HashSet<String>();
+        this.testClassNames = new HashSet<String>();
+    }
+
+    /**
+     * Reads every class file within {@code artifact}.
+     * @param artifact the test artifact to scan
+     * @return this scanner
+     */
+    TestClassScanner scan(File artifact) {
+        JarInputStream inputStream = null;
+        try {
+            inputStream = new JarInputStream(new FileInputStream(artifact));
+            JarEntry entry;
+            while ((entry = inputStream.getNextJarEntry()) != null) {
+                String name = entry.getName();
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+                String internalName = name.substring(0, name.length() - 6);
+                infos.put(internalName, read(inputStream));
+                classNames.add(internalName.replace('/', '.'));
+            }
+        } catch (IOException ioe) {
+            Output.print(ioe);
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException ioe) {
+                    throw new AssertionError(ioe);
+                }
+            }
+        }
+        for (String className : classNames) {
+            if (isTest(className.replace('.', '/'))) {
+                testClassNames.add(className);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return all class names within the scanned artifact
+     */
+    Set<String> getClassNames() {
+        return classNames;
+    }
+
+    /**
+     * @return the names of the test classes within the scanned artifact
+     */
+    Set<String> getTestClassNames() {
+        return testClassNames;
+    }
+
+    private boolean isTest(String internalName) {
+        ClassInfo info = getInfo(internalName);
+        if ((info == null) || !info.isConcrete()) {
+            return false;
+        }
+        while (info != null) {
+            if (info.runWith || info.testMethods) {
+                return true;
+            }
+            info = getInfo(info.superName);
+        }
+        return false;
+    }
+
+    private ClassInfo getInfo(String internalName) {
+        if ((internalName == null) || internalName.startsWith("java/")) {
+            return null;
+        }
+        if (infos.containsKey(internalName)) {
+            return infos.get(internalName);
+        }
+        ClassInfo info = null;
+        InputStream classFile = loader.getResourceAsStream(internalName + ".class");
+        if (classFile != null) {
+            try {
+                info = read(classFile);
+            } catch (IOException ioe) {
+                Output.print(ioe);
+            } finally {
+                try {
+                    classFile.close();
+                } catch (IOException ioe) {
+                    throw new AssertionError(ioe);
+                }
+            }
+        }
+        infos.put(internalName, info);
+        return info;
+    }
+
+    private static ClassInfo read(InputStream classFile) throws IOException {
+        ClassInfo info = new ClassInfo();
+        new ClassReader(classFile).accept(info, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return info;
+    }
+
+}
@@ -0,0 +1,164 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.FileUtil;
+import net.ocheyedan.ply.props.Context;
+import net.ocheyedan.ply.props.PropFile;
+import net.ocheyedan.ply.props.PropFiles;
+import net.ocheyedan.ply.props.Props;
+import org.junit.runner.Description;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 3:05 PM
+ *
+ * The outcome and duration of each test method (and, as an aggregate, each test class) from previous test runs.
+ * The history is stored in {@literal tests-history.properties} within {@literal project.reports.dir} with the format:
+ * class[#method]=success|failure,duration-in-millis
+ * The history is used to order subsequent test runs; tests which previously failed are run first, followed by
+ * the longest running tests.  Tests without history retain their existing order.
+ */
+class TestHistory {
+
+    private static final class Entry {
+
+        private final boolean failed;
+
+        private final long duration;
+
+        private Entry(boolean failed, long duration) {
+            this.failed = failed;
+            this.duration = duration;
+        }
+
+        private static Entry parse(String value) {
+            int index = value.indexOf(',');
+            if (index == -1) {
+                return null;
+            }
+            try {
+                return new Entry("failure".equals(value.substring(0, index)), Long.parseLong(value.substring(index + 1)));
+            } catch (NumberFormatException nfe) {
+                return null;
+            }
+        }
+
+        @Override public String toString() {
+            return (failed ? "failure" : "success") + "," + duration;
+        }
+    }
+
+    /**
+     * @return the history stored within {@literal project.reports.dir} (or an empty history which is never stored if
+     *         no such property exists)
+     */
+    static TestHistory load() {
+        PropFile.Prop reportDirProp = Props.get("reports.dir", Context.named("project"));
+        if (PropFile.Prop.Empty.equals(reportDirProp)) {
+            return new TestHistory(null);
+        }
+        return new TestHistory(FileUtil.fromParts(reportDirProp.value(), "tests-history.properties"));
+    }
+
+    private final File file;
+
+    private final Map<String, Entry> history;
+
+    private final Map<String, Entry> recorded;
+
+    private final Comparator<Description> comparator = new Comparator<Description>() {
+        @Override public int compare(Description o1, Description o2) {
+            Entry entry1 = history.get(getKey(o1));
+            Entry entry2 = history.get(getKey(o2));
+            if ((entry1 == null) || (entry2 == null)) {
+                return (entry1 == entry2 ? 0 : (entry1 == null ? 1 : -1));
+            }
+            if (entry1.failed != entry2.failed) {
+                return (entry1.failed ? -1 : 1);
+            }
+            return (entry1.duration < entry2.duration ? 1 : (entry1.duration == entry2.duration ? 0 : -1));
+        }
+    };
+
+    TestHistory(File file) {
+        this.file = file;
+        this.history = new HashMap<String, Entry>();
+        this.recorded = new LinkedHashMap<String, Entry>();
+        if ((file != null) && file.exists()) {
+            PropFile historyFile = PropFiles.load(file.getPath(), false, false);
+            for (PropFile.Prop prop : historyFile.props()) {
+                Entry entry = Entry.parse(prop.value());
+                if (entry != null) {
+                    history.put(prop.name, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a comparator ordering test classes and methods which previously failed first followed by those which
+     *         previously took the longest.  Tests without history are ordered last and are considered equal to one
+     *         another so that a stable sort retains their existing order.
+     */
+    Comparator<Description> getComparator() {
+        return comparator;
+    }
+
+    /**
+     * Records the outcome of a test method from the current run.
+     * @param description of the test method
+     * @param failed true if the test method failed
+     * @param duration in milliseconds of the test method
+     */
+    synchronized void record(Description description, boolean failed, long duration) {
+        recorded.put(getKey(description), new Entry(failed, duration));
+    }
+
+    /**
+     * Merges the test methods recorded from the current run into the history and saves it.  Each test class's entry
+     * is recomputed from the history of its test methods.
+     * @param replaceClasses true if every test method of the recorded test classes was run (i.e., no filtering was done)
+     *                       and so any previous history of other methods for those classes is stale and removed
+     */
+    synchronized void store(boolean replaceClasses) {
+        if ((file == null) || recorded.isEmpty()) {
+            return;
+        }
+        Set<String> recordedClasses = new HashSet<String>();
+        for (String key : recorded.keySet()) {
+            recordedClasses.add(key.substring(0, key.indexOf('#')));
+        }
+        Map<String, Entry> merged = new TreeMap<String, Entry>();
+        for (Map.Entry<String, Entry> entry : history.entrySet()) {
+            int index = entry.getKey().indexOf('#');
+            if ((index != -1) && !(replaceClasses && recordedClasses.contains(entry.getKey().substring(0, index)))) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+        }
+        merged.putAll(recorded);
+        // aggregate the class entries from the method entries
+        Map<String, Entry> classes = new HashMap<String, Entry>();
+        for (Map.Entry<String, Entry> entry : merged.entrySet()) {
+            String className = entry.getKey().substring(0, entry.getKey().indexOf('#'));
+            Entry existing = classes.get(className);
+            Entry method = entry.getValue();
+            classes.put(className, (existing == null ? method
+                    : new Entry(existing.failed || method.failed, existing.duration + method.duration)));
+        }
+        merged.putAll(classes);
+        PropFile historyFile = new PropFile(Context.named("tests-history"), PropFile.Loc.AdHoc);
+        for (Map.Entry<String, Entry> entry : merged.entrySet()) {
+            historyFile.add(entry.getKey(), entry.getValue().toString());
+        }
+        PropFiles.store(historyFile, file.getPath(), true);
+    }
+
+    private static String getKey(Description description) {
+        String methodName = description.getMethodName();
+        return (methodName == null ? description.getClassName() : description.getClassName() + "#" + methodName);
+    }
+
+}
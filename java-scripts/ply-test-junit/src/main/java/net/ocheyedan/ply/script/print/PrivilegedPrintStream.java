@@ -1,9 +1,6 @@
 package net.ocheyedan.ply.script.print;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintStream;
-import java.io.UnsupportedEncodingException;
+import java.io.*;
 
 /**
  * User: blangel
@@ -12,15 +9,96 @@ import java.io.UnsupportedEncodingException;
  *
  * All calls go to a file.  Calls to {@link #print(String)} and {@link #println(String)} go to a file unless the String
  * starts with {@link #PRIVILEGED_PREFIX} in which case the call is delegated to {@link #delegate}.
+ * The file is written as output occurs (nothing is retained in memory) and at most {@literal limit} bytes are written
+ * to it; any output beyond that is discarded after noting the truncation within the file.
  */
 public class PrivilegedPrintStream extends PrintStream {
 
     public static final String PRIVILEGED_PREFIX = "^priv^";
 
+    /**
+     * Writes at most {@link #limit} bytes to {@link #file} after which it notes the truncation and discards the rest.
+     */
+    private static class LimitedOutputStream extends OutputStream {
+
+        private final OutputStream file;
+
+        private final long limit;
+
+        private long written;
+
+        private boolean truncated;
+
+        private LimitedOutputStream(OutputStream file, long limit) {
+            this.file = file;
+            this.limit = limit;
+        }
+
+        @Override public void write(int b) throws IOException {
+            int allowed = ensureCapacity(1);
+            if (allowed == 1) {
+                file.write(b);
+            }
+            noteTruncation(allowed, 1);
+        }
+
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            int allowed = ensureCapacity(len);
+            if (allowed > 0) {
+                file.write(b, off, allowed);
+            }
+            noteTruncation(allowed, len);
+        }
+
+        @Override public void flush() throws IOException {
+            file.flush();
+        }
+
+        @Override public void close() throws IOException {
+            file.close();
+        }
+
+        /**
+         * @param len of bytes to write
+         * @return the number of bytes (of {@code len}) which may be written without exceeding {@link #limit}
+         */
+        private int ensureCapacity(int len) {
+            if (limit <= 0L) {
+                return len;
+            }
+            int allowed = (int) Math.min(len, Math.max(0L, limit - written));
+            written += allowed;
+            return allowed;
+        }
+
+        /**
+         * Notes the truncation (once) if not all of {@code len} bytes were {@code allowed}; called after writing
+         * the {@code allowed} bytes so that the note follows all the written output.
+         * @param allowed the number of bytes written
+         * @param len the number of bytes requested to be written
+         * @throws IOException if the truncation note could not be written
+         */
+        private void noteTruncation(int allowed, int len) throws IOException {
+            if ((allowed < len) && !truncated) {
+                truncated = true;
+                file.write(String.format("%n[output truncated after %d bytes; see property junit.output.limit]%n", limit).getBytes("UTF-8"));
+            }
+        }
+    }
+
     private final PrintStream delegate;
 
     public PrivilegedPrintStream(PrintStream delegate, File file) throws FileNotFoundException, UnsupportedEncodingException {
-        super(file);
+        this(delegate, file, 0L);
+    }
+
+    /**
+     * @param delegate to which privileged output is printed
+     * @param file to which all other output is written
+     * @param limit the maximum number of bytes to write to {@code file}; zero or less for no limit
+     */
+    public PrivilegedPrintStream(PrintStream delegate, File file, long limit) throws FileNotFoundException, UnsupportedEncodingException {
+        super(new LimitedOutputStream(new FileOutputStream(file), limit));
         this.delegate = new PrintStream(delegate, true, "UTF-8");
     }
 
@@ -0,0 +1,97 @@
+package net.ocheyedan.ply.script;
+
+import net.ocheyedan.ply.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 6:20 PM
+ */
+public class MavenReporterTest {
+
+    private static class A { }
+
+    private static class B { }
+
+    private File reportDir;
+
+    @Before public void setup() throws IOException {
+        reportDir = File.createTempFile("ply-reports", "");
+        reportDir.delete();
+        reportDir.mkdirs();
+    }
+
+    @After public void teardown() {
+        FileUtil.delete(reportDir);
+    }
+
+    @Test public void interleaved() throws Exception {
+        MavenReporter reporter = new MavenReporter(reportDir);
+        Description first = Description.createTestDescription(A.class, "first");
+        Description second = Description.createTestDescription(B.class, "second");
+        Description third = Description.createTestDescription(A.class, "third");
+        Description fourth = Description.createTestDescription(A.class, "fourth");
+        reporter.testStarted(first);
+        reporter.testFinished(first);
+        reporter.testStarted(second);
+        reporter.testFailure(new Failure(second, new IllegalStateException("second <failed>")));
+        reporter.testFinished(second);
+        reporter.testStarted(third);
+        reporter.testFinished(third);
+        reporter.testIgnored(fourth);
+        reporter.testRunFinished(new Result());
+
+        String report = read(new File(reportDir, MavenReporter.getReportName(A.class.getName())));
+        assertTrue(report.contains(" tests=\"3\" "));
+        assertTrue(report.contains(" skipped=\"1\" "));
+        assertTrue(report.contains(" failures=\"0\" "));
+        assertTrue(report.contains(" errors=\"0\" "));
+        assertTrue(report.indexOf("name=\"first\"/>") < report.indexOf("name=\"third\"/>"));
+        assertTrue(report.contains("name=\"fourth\">\n    <skipped/>"));
+        assertEquals(1, count(report, "<testsuite "));
+        assertTrue(report.endsWith("\n</testsuite>"));
+
+        report = read(new File(reportDir, MavenReporter.getReportName(B.class.getName())));
+        assertTrue(report.contains(" tests=\"1\" "));
+        assertTrue(report.contains(" errors=\"1\" "));
+        assertTrue(report.contains("<error message=\"second &lt;failed&gt;\" type=\"java.lang.IllegalStateException\">"));
+        assertFalse(report.contains("name=\"first\""));
+
+        // only the reports remain
+        assertEquals(2, reportDir.list().length);
+    }
+
+    private static int count(String value, String of) {
+        int count = 0;
+        for (int index = value.indexOf(of); index != -1; index = value.indexOf(of, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String read(File file) throws IOException {
+        StringBuilder content = new StringBuilder();
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+        } finally {
+            reader.close();
+        }
+        return content.toString();
+    }
+
+}
@@ -0,0 +1,110 @@
+package net.ocheyedan.ply.script;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 4:05 PM
+ */
+public class TestClassScannerTest {
+
+    public static abstract class AbstractFixture {
+        @Test public void inherited() { }
+    }
+
+    public static class InheritingFixture extends AbstractFixture { }
+
+    public static class AnnotatedFixture {
+        @Test public void annotated() { }
+    }
+
+    public static class NonTestFixture {
+        public void run() { }
+        @SuppressWarnings("unused") private void testPrivately() { }
+    }
+
+    @RunWith(JUnit4.class)
+    public static class RunWithFixture { }
+
+    public static class JunitThreeFixture extends TestCase {
+        public void testJunitThree() { }
+    }
+
+    public static class JunitThreeInheritingFixture extends JunitThreeFixture { }
+
+    public static class EmptyTestCaseFixture extends TestCase { }
+
+    public static interface InterfaceFixture {
+        @Test void annotated();
+    }
+
+    @Test public void scan() throws IOException {
+        Class<?>[] fixtures = { AbstractFixture.class, InheritingFixture.class, AnnotatedFixture.class,
+                                NonTestFixture.class, RunWithFixture.class, JunitThreeFixture.class,
+                                JunitThreeInheritingFixture.class, EmptyTestCaseFixture.class, InterfaceFixture.class };
+        // only the subclass is within the artifact, its super class is read from the class loader
+        File artifact = createArtifact(fixtures);
+        File partialArtifact = createArtifact(InheritingFixture.class);
+        try {
+            TestClassScanner scanner = new TestClassScanner(TestClassScannerTest.class.getClassLoader()).scan(artifact);
+            assertEquals(names(fixtures), scanner.getClassNames());
+            assertEquals(names(InheritingFixture.class, AnnotatedFixture.class, RunWithFixture.class,
+                               JunitThreeFixture.class, JunitThreeInheritingFixture.class), scanner.getTestClassNames());
+
+            scanner = new TestClassScanner(TestClassScannerTest.class.getClassLoader()).scan(partialArtifact);
+            assertEquals(names(InheritingFixture.class), scanner.getTestClassNames());
+        } finally {
+            artifact.delete();
+            partialArtifact.delete();
+        }
+    }
+
+    private static File createArtifact(Class<?> ... classes) throws IOException {
+        File artifact = File.createTempFile("scanner", ".jar");
+        JarOutputStream jar = new JarOutputStream(new FileOutputStream(artifact));
+        try {
+            for (Class<?> clazz : classes) {
+                String name = clazz.getName().replace('.', '/') + ".class";
+                jar.putNextEntry(new JarEntry(name));
+                InputStream classFile = TestClassScannerTest.class.getClassLoader().getResourceAsStream(name);
+                try {
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = classFile.read(buffer)) != -1) {
+                        jar.write(buffer, 0, read);
+                    }
+                } finally {
+                    classFile.close();
+                }
+                jar.closeEntry();
+            }
+        } finally {
+            jar.close();
+        }
+        return artifact;
+    }
+
+    private static Set<String> names(Class<?> ... classes) {
+        Set<String> names = new HashSet<String>(classes.length);
+        for (Class<?> clazz : classes) {
+            names.add(clazz.getName());
+        }
+        return names;
+    }
+
+}
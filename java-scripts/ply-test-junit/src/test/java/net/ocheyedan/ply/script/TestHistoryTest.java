@@ -0,0 +1,105 @@
+package net.ocheyedan.ply.script;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 4:30 PM
+ */
+public class TestHistoryTest {
+
+    private static class A { }
+
+    private static class B { }
+
+    private static class C { }
+
+    private static class D { }
+
+    private File file;
+
+    @Before public void setup() throws IOException {
+        file = File.createTempFile("tests-history", ".properties");
+        file.delete();
+    }
+
+    @After public void teardown() {
+        file.delete();
+    }
+
+    @Test public void order() {
+        List<Description> methods = Arrays.asList(method(A.class, "fast"), method(A.class, "slow"), method(B.class, "ok"),
+                method(C.class, "slowest"), method(B.class, "failing"), method(D.class, "unknown"));
+        TestHistory history = new TestHistory(file);
+        // without history the existing order is retained
+        assertEquals(methods, sort(methods, history));
+
+        history.record(method(A.class, "fast"), false, 5L);
+        history.record(method(A.class, "slow"), false, 50L);
+        history.record(method(B.class, "ok"), false, 10L);
+        history.record(method(B.class, "failing"), true, 1L);
+        history.record(method(C.class, "slowest"), false, 100L);
+        history.store(true);
+        assertTrue(file.exists());
+
+        TestHistory loaded = new TestHistory(file);
+        // failed first, then slowest first, then those without history
+        assertEquals(Arrays.asList(method(B.class, "failing"), method(C.class, "slowest"), method(A.class, "slow"),
+                method(B.class, "ok"), method(A.class, "fast"), method(D.class, "unknown")), sort(methods, loaded));
+        // classes are ordered by the aggregate of their methods
+        List<Description> classes = Arrays.asList(Description.createSuiteDescription(A.class),
+                Description.createSuiteDescription(B.class), Description.createSuiteDescription(C.class),
+                Description.createSuiteDescription(D.class));
+        assertEquals(Arrays.asList(classes.get(1), classes.get(2), classes.get(0), classes.get(3)), sort(classes, loaded));
+    }
+
+    @Test public void store() {
+        TestHistory history = new TestHistory(file);
+        history.store(true);
+        assertFalse(file.exists()); // nothing recorded
+        history.record(method(A.class, "fast"), false, 5L);
+        history.record(method(A.class, "slow"), true, 50L);
+        history.store(true);
+
+        // a filtered run retains the history of the methods which were not run
+        history = new TestHistory(file);
+        history.record(method(A.class, "fast"), false, 7L);
+        history.store(false);
+        history = new TestHistory(file);
+        assertEquals(Arrays.asList(method(A.class, "slow"), method(A.class, "fast")),
+                sort(Arrays.asList(method(A.class, "fast"), method(A.class, "slow")), history));
+
+        // a complete run replaces the history of the class's methods
+        history.record(method(A.class, "fast"), false, 7L);
+        history.store(true);
+        history = new TestHistory(file);
+        assertEquals(Arrays.asList(method(A.class, "fast"), method(A.class, "slow")),
+                sort(Arrays.asList(method(A.class, "slow"), method(A.class, "fast")), history));
+    }
+
+    private static List<Description> sort(List<Description> descriptions, TestHistory history) {
+        List<Description> sorted = new ArrayList<Description>(descriptions);
+        Collections.sort(sorted, history.getComparator());
+        return sorted;
+    }
+
+    private static Description method(Class<?> clazz, String name) {
+        return Description.createTestDescription(clazz, name);
+    }
+
+}
@@ -0,0 +1,80 @@
+package net.ocheyedan.ply.script.print;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 9:40 AM
+ */
+public class PrivilegedPrintStreamTest {
+
+    private static final String NOTE = "[output truncated after 10 bytes; see property junit.output.limit]";
+
+    private File file;
+
+    private ByteArrayOutputStream privileged;
+
+    @Before public void setup() throws IOException {
+        file = File.createTempFile("ply-output", ".txt");
+        privileged = new ByteArrayOutputStream();
+    }
+
+    @After public void teardown() {
+        file.delete();
+    }
+
+    @Test public void truncatedWithinWrite() throws IOException {
+        PrivilegedPrintStream stream = new PrivilegedPrintStream(new PrintStream(privileged), file, 10L);
+        stream.print("12345");
+        stream.print("67890abcdef"); // crosses the limit
+        stream.print(PrivilegedPrintStream.PRIVILEGED_PREFIX + "privileged");
+        stream.print("discarded");
+        stream.write('x');
+        stream.close();
+        String newline = System.getProperty("line.separator");
+        assertEquals("1234567890" + newline + NOTE + newline, read(file));
+        assertEquals("privileged", privileged.toString("UTF-8"));
+    }
+
+    @Test public void truncatedAtLimit() throws IOException {
+        PrivilegedPrintStream stream = new PrivilegedPrintStream(new PrintStream(privileged), file, 10L);
+        stream.print("1234567890"); // exactly the limit
+        stream.flush();
+        assertEquals("1234567890", read(file));
+        stream.write('x');
+        stream.print("discarded");
+        stream.close();
+        String newline = System.getProperty("line.separator");
+        assertEquals("1234567890" + newline + NOTE + newline, read(file));
+    }
+
+    @Test public void unlimited() throws IOException {
+        PrivilegedPrintStream stream = new PrivilegedPrintStream(new PrintStream(privileged), file);
+        stream.print("1234567890abcdef");
+        stream.close();
+        assertEquals("1234567890abcdef", read(file));
+    }
+
+    private static String read(File file) throws IOException {
+        StringBuilder content = new StringBuilder();
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            char[] buffer = new char[1024];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                content.append(buffer, 0, read);
+            }
+        } finally {
+            reader.close();
+        }
+        return content.toString();
+    }
+
+}
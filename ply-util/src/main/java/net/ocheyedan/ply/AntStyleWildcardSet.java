@@ -0,0 +1,202 @@
+package net.ocheyedan.ply;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * User: blangel
+ * Date: 10/20/14
+ * Time: 8:15 AM
+ *
+ * An ordered set of {@literal Ant} style wildcard expressions, each either including or excluding what it matches,
+ * compiled so that a path is matched against every expression in one pass; the first expression (in the order added)
+ * matching the path wins.  Each expression has the same meaning as the {@literal regex} produced by
+ * {@link AntStyleWildcardUtil#regexString(String)}.
+ *
+ * The literal prefix of each expression (i.e., the characters preceding its first wildcard) is stored within a
+ * character trie.  Matching walks the path through the trie once, collecting only those expressions whose literal
+ * prefix is a prefix of the path.  Expressions without any wildcard are compared for equality and only the remaining
+ * candidates are matched via {@literal regex}, in order, stopping at the first match.  The trie also allows
+ * determining whether anything within a directory could be included (see {@link #mayIncludeWithin(String)}) so that
+ * callers may skip walking directories entirely.
+ */
+public final class AntStyleWildcardSet {
+
+    /**
+     * A single wildcard expression along with its position within the set.
+     */
+    private static final class Expression {
+
+        private final int index;
+
+        private final String literal;
+
+        private final Pattern pattern;
+
+        private final boolean include;
+
+        private Expression(int index, String literal, Pattern pattern, boolean include) {
+            this.index = index;
+            this.literal = literal;
+            this.pattern = pattern;
+            this.include = include;
+        }
+
+        private boolean matches(String path) {
+            return (pattern == null ? literal.equals(path) : pattern.matcher(path).matches());
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<Character, Node>(4);
+
+        /**
+         * The expressions whose literal prefix ends at this node, in the order added.
+         */
+        private final List<Expression> expressions = new ArrayList<Expression>(1);
+
+        /**
+         * True if any including expression's literal prefix ends at or below this node.
+         */
+        private boolean includesBelow;
+
+    }
+
+    /**
+     * Characters which have special meaning within the converted {@literal regex} (and so end a literal prefix).
+     */
+    private static final String SPECIAL = "?*\\^$.()[]{}+";
+
+    private final Node root = new Node();
+
+    private int size;
+
+    /**
+     * Adds {@code antStyleWildcard} to the end of this set.
+     * @param antStyleWildcard to add
+     * @param include true if paths matching {@code antStyleWildcard} are to be included; false to exclude them
+     * @return this set
+     */
+    public AntStyleWildcardSet add(String antStyleWildcard, boolean include) {
+        String prefix = literalPrefix(antStyleWildcard);
+        boolean exact = prefix.equals(antStyleWildcard);
+        Expression expression = new Expression(size++, antStyleWildcard,
+                (exact ? null : AntStyleWildcardUtil.regex(antStyleWildcard)), include);
+        Node node = root;
+        node.includesBelow |= include;
+        for (int i = 0; i < prefix.length(); i++) {
+            Character character = prefix.charAt(i);
+            Node child = node.children.get(character);
+            if (child == null) {
+                child = new Node();
+                node.children.put(character, child);
+            }
+            node = child;
+            node.includesBelow |= include;
+        }
+        node.expressions.add(expression);
+        return this;
+    }
+
+    /**
+     * @param path to match
+     * @return true if the first expression matching {@code path} includes it; false if it excludes it or if no
+     *         expression matches {@code path}
+     */
+    public boolean includes(String path) {
+        Expression expression = firstMatch(path);
+        return ((expression != null) && expression.include);
+    }
+
+    /**
+     * @param path to match
+     * @return true if any expression matches {@code path}
+     */
+    public boolean matches(String path) {
+        return (firstMatch(path) != null);
+    }
+
+    /**
+     * @param directoryPath the path of a directory (without a trailing separator)
+     * @param separator the path separator
+     * @return false if no path within {@code directoryPath} could be included by this set; true otherwise
+     */
+    public boolean mayIncludeWithin(String directoryPath, char separator) {
+        Node node = root;
+        int length = directoryPath.length();
+        for (int i = 0; i <= length; i++) {
+            for (Expression expression : node.expressions) {
+                if (expression.include && (expression.pattern != null)) {
+                    return true; // wildcard expression whose literal prefix is a prefix of the directory
+                }
+            }
+            node = node.children.get(i < length ? directoryPath.charAt(i) : separator);
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.includesBelow;
+    }
+
+    /**
+     * @param directoryPath the path of a directory (without a trailing separator)
+     * @return false if no path within {@code directoryPath} could be included by this set; true otherwise
+     * @see #mayIncludeWithin(String, char)
+     */
+    public boolean mayIncludeWithin(String directoryPath) {
+        return mayIncludeWithin(directoryPath, '/');
+    }
+
+    /**
+     * @return the number of expressions within this set
+     */
+    public int size() {
+        return size;
+    }
+
+    private Expression firstMatch(String path) {
+        Expression first = null;
+        Node node = root;
+        int length = path.length();
+        for (int i = 0; (node != null); i++) {
+            for (Expression expression : node.expressions) {
+                if ((first != null) && (first.index < expression.index)) {
+                    break; // expressions are in order within a node, so none remaining precede the current match
+                }
+                if (expression.matches(path)) {
+                    first = expression;
+                    break;
+                }
+            }
+            node = (i < length ? node.children.get(path.charAt(i)) : null);
+        }
+        return first;
+    }
+
+    /**
+     * @param antStyleWildcard from which to extract the literal prefix
+     * @return the leading characters of {@code antStyleWildcard} which can only match themselves, which is all of
+     *         {@code antStyleWildcard} if it contains no wildcards nor {@literal regex} characters
+     */
+    static String literalPrefix(String antStyleWildcard) {
+        if (antStyleWildcard.indexOf('|') != -1) {
+            return ""; // alternation; any part may match
+        }
+        for (int i = 0; i < antStyleWildcard.length(); i++) {
+            char character = antStyleWildcard.charAt(i);
+            if (SPECIAL.indexOf(character) != -1) {
+                if ((character == '+') || (character == '{')) {
+                    // quantifiers apply to the preceding character
+                    return antStyleWildcard.substring(0, Math.max(0, i - 1));
+                }
+                return antStyleWildcard.substring(0, i);
+            }
+        }
+        return antStyleWildcard;
+    }
+
+}
@@ -0,0 +1,236 @@
+package net.ocheyedan.ply;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * User: blangel
+ * Date: 10/23/14
+ * Time: 1:30 PM
+ *
+ * Records a machine-readable stream of the events of a build as newline-delimited {@literal JSON} (one object per
+ * line).  The stream is enabled for a build via {@literal -Pply.events=<file>}; ply itself creates the file (see
+ * {@link #init(String)}) and every script invoked by ply appends its events to the same file, the absolute path of
+ * which is exported as the {@literal ply.events} property.  When the stream is not enabled, events are no-ops.
+ *
+ * Events are queued by the emitting thread and written (in batches, each with one write) by a dedicated daemon thread
+ * so that emitting an event never waits upon the file.  Every line is an object starting with the fields
+ * {@literal event} (its type), {@literal ts} (milliseconds since the epoch) and {@literal pid} (of the emitting
+ * process) followed by the fields of its type; see {@literal docs/Logging.md} for the types and their fields.  Lines
+ * of one process are in order of emission but lines of concurrent processes may interleave (i.e., lines of the file
+ * are not ordered by {@literal ts}).
+ */
+public final class Events {
+
+    /**
+     * The version of the format of the events, included within the {@literal build.start} event.  It is incremented
+     * only if an existing event type or field changes meaning; new event types and fields may be added without an
+     * increment.
+     */
+    public static final int FORMAT = 1;
+
+    /**
+     * Signals the writer thread to exit.
+     */
+    private static final String STOP = new String("stop");
+
+    /**
+     * Matches paths of descriptors of this process.
+     */
+    private static final Pattern DESCRIPTOR = Pattern.compile("^/(?:dev|proc/self)/fd/([0-9]+)$");
+
+    private static final Object lock = new Object();
+
+    private static final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+
+    /**
+     * The process id of this {@literal JVM}; resolved when the stream is enabled.
+     */
+    private static volatile long PID;
+
+    /**
+     * The absolute path of the events file; null if the stream is not enabled.
+     */
+    private static volatile String path;
+
+    /**
+     * Writes queued events to the file; null if the stream is not enabled.  Guarded by {@link #lock} for writing.
+     */
+    private static Thread writer;
+
+    static {
+        // if this is a script invoked by ply, append to ply's events (if any)
+        if ("ply".equals(System.getenv("ply_ply.invoker"))) {
+            String eventsPath = System.getenv("ply_ply.events");
+            if ((eventsPath != null) && !eventsPath.isEmpty() && open(new File(eventsPath), false)) {
+                Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                    @Override public void run() {
+                        close();
+                    }
+                }));
+            }
+        }
+    }
+
+    /**
+     * Creates the events file at {@code eventsPath} (resolved against the working directory if relative), replacing
+     * any existing file, and enables the stream.  This is a no-op if {@code eventsPath} is empty or if the stream is
+     * already enabled (i.e., this process was invoked by a ply recording events).
+     * @param eventsPath the path of the events file
+     */
+    public static void init(String eventsPath) {
+        if ((eventsPath == null) || eventsPath.isEmpty() || isEnabled()) {
+            return;
+        }
+        open(new File(eventsPath).getAbsoluteFile(), true);
+    }
+
+    /**
+     * @return true if events are being recorded
+     */
+    public static boolean isEnabled() {
+        return (path != null);
+    }
+
+    /**
+     * @return the absolute path of the events file (as opened by scripts invoked by ply) or null if the stream is not
+     *         enabled
+     */
+    public static String getPath() {
+        return path;
+    }
+
+    /**
+     * Records an event of type {@code event} with fields {@code keyValuePairs}, which alternate between a field's
+     * name and its value.  Values which are {@link Number} or {@link Boolean} are recorded as such, null as
+     * {@literal null} and all others as strings.
+     * @param event the type of the event (e.g., {@literal module.start})
+     * @param keyValuePairs the fields of the event
+     */
+    public static void emit(String event, Object ... keyValuePairs) {
+        if (!isEnabled()) {
+            return;
+        }
+        StringBuilder line = new StringBuilder(64 + (keyValuePairs.length * 16));
+        line.append("{\"event\":");
+        Json.quote(event, line);
+        line.append(",\"ts\":").append(System.currentTimeMillis()).append(",\"pid\":").append(PID);
+        for (int i = 0; (i + 1) < keyValuePairs.length; i += 2) {
+            line.append(',');
+            Json.quote(String.valueOf(keyValuePairs[i]), line);
+            line.append(':');
+            Json.value(keyValuePairs[i + 1], line);
+        }
+        line.append("}\n");
+        queue.offer(line.toString());
+    }
+
+    /**
+     * Writes all queued events and disables the stream.  Events emitted after this call are not recorded.
+     */
+    public static void close() {
+        Thread stopping;
+        synchronized (lock) {
+            stopping = writer;
+            if (stopping == null) {
+                return;
+            }
+            path = null;
+            writer = null;
+            queue.offer(STOP);
+        }
+        try {
+            stopping.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean open(File eventsFile, boolean create) {
+        synchronized (lock) {
+            try {
+                if (create) {
+                    new FileOutputStream(eventsFile, false).close(); // truncate
+                }
+                // always append; the events of every process are written to the end of the file
+                final FileOutputStream out = new FileOutputStream(eventsFile, true);
+                PID = PlyUtil.getPid();
+                writer = new Thread(new Runnable() {
+                    @Override public void run() {
+                        drain(out);
+                    }
+                }, "ply-events");
+                writer.setDaemon(true);
+                writer.start();
+                path = getSharedPath(eventsFile.getPath());
+                return true;
+            } catch (IOException ioe) {
+                Output.printFromPly("^warn^ Could not create events file ^b^%s^r^ [ %s ].", eventsFile.getPath(), ioe.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * A descriptor of this process (e.g., {@literal /dev/fd/3}, as given by a shell redirect) is not inherited by the
+     * scripts ply invokes; they instead open it through {@literal /proc} via this process's id.
+     * @param eventsPath the absolute path of the events file
+     * @return the path by which other processes may open {@code eventsPath}
+     */
+    static String getSharedPath(String eventsPath) {
+        Matcher matcher = DESCRIPTOR.matcher(eventsPath);
+        if (matcher.matches() && new File("/proc").isDirectory()) {
+            return "/proc/" + PID + "/fd/" + matcher.group(1);
+        }
+        return eventsPath;
+    }
+
+    /**
+     * Writes queued events to {@code out} until {@link #STOP} is taken.  Events already queued when one is taken are
+     * written together so that the events of concurrent processes are not interleaved within a line.
+     * @param out to which to write
+     */
+    private static void drain(FileOutputStream out) {
+        StringBuilder batch = new StringBuilder(4096);
+        boolean stopped = false, failed = false;
+        try {
+            while (!stopped) {
+                String line = queue.take();
+                do {
+                    if (line == STOP) {
+                        stopped = true;
+                        break;
+                    }
+                    batch.append(line);
+                } while ((line = queue.poll()) != null);
+                if (!failed && (batch.length() > 0)) {
+                    try {
+                        out.write(batch.toString().getBytes("UTF-8"));
+                    } catch (UnsupportedEncodingException uee) {
+                        throw new AssertionError(uee);
+                    } catch (IOException ioe) {
+                        failed = true; // the stream is best-effort; drop events rather than fail the build
+                    }
+                }
+                batch.setLength(0);
+            }
+        } catch (InterruptedException ie) {
+            // stopped
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+        }
+    }
+
+    private Events() { }
+
+}
@@ -0,0 +1,110 @@
+package net.ocheyedan.ply;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 2:10 PM
+ *
+ * Statistics of a script's {@literal JVM} which are only observable from within it (i.e., not from {@literal /proc}):
+ * the time spent in garbage collection and the peak and maximum heap.  As a script's {@literal JVM} exits, these are
+ * reported to ply as a line of its stdout prefixed with {@link #STATS_TOKEN} (see {@link #reportOnExit()}) which ply
+ * parses (see {@link #parse(String)}) rather than prints.  As the script's last output may not have ended its line
+ * (e.g., progress printed via {@literal ^no_line^}) the token may follow other output on the same line; that output
+ * is still printed (see {@link #stripStats(String)}).
+ */
+public final class ExitStats {
+
+    public static final String STATS_TOKEN = "^exit-stats^";
+    private static final int STATS_TOKEN_LENGTH = STATS_TOKEN.length();
+
+    /**
+     * Total time spent in garbage collection, in milliseconds.
+     */
+    public final long gcMillis;
+
+    /**
+     * The peak heap usage, in bytes, excluding the eden space (which is expected to fill before each young
+     * collection and so would otherwise make every heap look full).
+     */
+    public final long heapPeakBytes;
+
+    /**
+     * The maximum heap, in bytes (i.e., {@literal -Xmx}).
+     */
+    public final long heapMaxBytes;
+
+    public ExitStats(long gcMillis, long heapPeakBytes, long heapMaxBytes) {
+        this.gcMillis = gcMillis;
+        this.heapPeakBytes = heapPeakBytes;
+        this.heapMaxBytes = heapMaxBytes;
+    }
+
+    /**
+     * Registers a shutdown hook which prints this {@literal JVM}'s statistics for ply.
+     */
+    static void reportOnExit() {
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override public void run() {
+                System.out.println(STATS_TOKEN + current().toString());
+                System.out.flush();
+            }
+        }, "ply-exit-stats"));
+    }
+
+    /**
+     * @return the statistics of this {@literal JVM} as of now
+     */
+    static ExitStats current() {
+        long gcMillis = 0L;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcMillis += Math.max(0L, collector.getCollectionTime());
+        }
+        long heapPeakBytes = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if ((pool.getType() == MemoryType.HEAP) && !pool.getName().contains("Eden")) {
+                heapPeakBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return new ExitStats(gcMillis, heapPeakBytes, Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * @param line of a script's output
+     * @return the statistics reported by {@code line} or null if {@code line} does not end with {@link #STATS_TOKEN}
+     *         followed by the statistics (or they are malformed)
+     */
+    public static ExitStats parse(String line) {
+        int index = line.lastIndexOf(STATS_TOKEN);
+        if (index == -1) {
+            return null;
+        }
+        String[] values = line.substring(index + STATS_TOKEN_LENGTH).split(" ");
+        if (values.length != 3) {
+            return null;
+        }
+        try {
+            return new ExitStats(Long.parseLong(values[0]), Long.parseLong(values[1]), Long.parseLong(values[2]));
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * @param line of a script's output for which {@link #parse(String)} returned statistics
+     * @return the output preceding the statistics within {@code line}; empty if {@code line} was only the statistics
+     */
+    public static String stripStats(String line) {
+        int index = line.lastIndexOf(STATS_TOKEN);
+        return (index == -1 ? line : line.substring(0, index));
+    }
+
+    @Override public String toString() {
+        return gcMillis + " " + heapPeakBytes + " " + heapMaxBytes;
+    }
+
+}
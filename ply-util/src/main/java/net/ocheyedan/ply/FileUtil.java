@@ -122,7 +122,7 @@ public final class FileUtil {
             }
             return true;
         } catch (IOException ioe) {
-            Output.print("^error^ Could not copy stream to %s", to.getAbsolutePath());
+            Output.printFromPly("^error^ Could not copy stream to %s", to.getAbsolutePath());
             Output.print(ioe);
         } finally {
             try {
@@ -160,6 +160,17 @@ public final class FileUtil {
         if ("file".equals(protocol)) {
             return url.getFile();
         } else {
+            HttpTransport transport = HttpTransport.get();
+            if (transport.caches(url)) {
+                // revalidate the cached copy rather than downloading anew
+                try {
+                    File cached = transport.getCached(url, headers);
+                    return (cached == null ? null : cached.getPath());
+                } catch (IOException ioe) {
+                    Output.printFromPly("^dbug^ Could not download %s [ %s ].", name, ioe.getMessage());
+                    return null;
+                }
+            }
             try {
                 File tmp = File.createTempFile("ply-", ".tmp");
                 if (download(url, headers, tmp, name, intoName, true)) {
@@ -184,36 +195,39 @@ public final class FileUtil {
      * @return true if the file was successfully downloaded and saved {@code into}, false otherwise
      */
     public static boolean download(URL remoteUrl, Map<String, String> headers, File into, String name, String intoName, boolean ignoreFNF) {
-        if (remoteUrl == null) {
+        if ((remoteUrl == null) || (into == null)) {
             return false;
         }
-        InputStream stream;
+        long start = System.currentTimeMillis();
+        boolean success = copyFrom(remoteUrl, headers, into, name, intoName, ignoreFNF);
+        Events.emit("download", "name", name, "url", remoteUrl.toString(), "bytes", (success ? into.length() : 0L),
+                    "millis", (System.currentTimeMillis() - start), "success", success);
+        return success;
+    }
+
+    private static boolean copyFrom(URL remoteUrl, Map<String, String> headers, File into, String name, String intoName, boolean ignoreFNF) {
         try {
-            // TODO - proxy info (see http://download.oracle.com/javase/6/docs/technotes/guides/net/proxies.html)
-            URLConnection urlConnection = remoteUrl.openConnection();
-            if (headers != null) {
-                for (String key : headers.keySet()) {
-                    urlConnection.addRequestProperty(key, headers.get(key));
+            HttpTransport.Result result = HttpTransport.get().download(remoteUrl, headers, into);
+            if (result == HttpTransport.Result.NotFound) {
+                Output.printFromPly("^dbug^ Failed to download URL [ %s ] - not found", remoteUrl.toString());
+                if (!ignoreFNF) {
+                    Output.print(new FileNotFoundException(remoteUrl.toString()));
                 }
+                return false;
+            } else if (result == HttpTransport.Result.Downloaded) {
+                Output.printFromPly("^info^ Downloaded %s from %s.", name, intoName);
             }
-            stream = urlConnection.getInputStream();
-        } catch (FileNotFoundException fnfe) {
-            Output.print("^dbug^ Failed to download URL [ %s ] - FileNotFoundException - %s", remoteUrl.toString(), fnfe.getMessage());
-            if (!ignoreFNF) {
-                Output.print(fnfe);
-            }
-            return false;
+            return true;
         } catch (UnknownHostException uhe) {
-            Output.print("^error^ Could not download %s; remote URL %s not accessible", name, intoName, remoteUrl.getHost());
+            Output.printFromPly("^error^ Could not download %s; remote URL %s not accessible", name, intoName, remoteUrl.getHost());
             Output.print(uhe);
-            Output.print("");
+            Output.printFromPly("");
             return false;
         } catch (IOException ioe) {
-            Output.print(ioe); // TODO - parse exception and more gracefully handle http-errors.
+            Output.printFromPly("^error^ Could not download %s from %s.", name, intoName);
+            Output.print(ioe);
             return false;
         }
-        Output.print("^info^ Downloading %s from %s...", name, intoName);
-        return FileUtil.copy(stream, into);
     }
 
     /**
@@ -357,10 +371,26 @@ public final class FileUtil {
             }
         }
         if (!file.delete()) {
-            Output.print("^error^ could not delete file ^b^%s^r^", file.getPath());
+            Output.printFromPly("^error^ could not delete file ^b^%s^r^", file.getPath());
         }
     }
 
+    /**
+     * Gives {@code to} (typically a file created via {@link File#createTempFile(String, String, File)}, which is
+     * accessible to its owner only, that is to replace {@code from}) the permissions of {@code from}, as far as
+     * they are observable: readable by all if {@code from} is readable, writable (by the owner) if {@code from} is
+     * writable and executable by all if {@code from} is executable.  If {@code from} does not exist, {@code to} is made
+     * readable by all and writable by the owner.
+     * @param from the file whose permissions to copy
+     * @param to the file to which to apply them
+     */
+    public static void copyPermissions(File from, File to) {
+        boolean exists = from.exists();
+        to.setReadable(!exists || from.canRead(), false);
+        to.setWritable(!exists || from.canWrite(), true);
+        to.setExecutable(exists && from.canExecute(), false);
+    }
+
     /**
      * @param file of which to get the canonical path
      * @return the result of calling {@link java.io.File#getCanonicalPath()}
@@ -369,7 +399,7 @@ public final class FileUtil {
         try {
             return file.getCanonicalPath();
         } catch (IOException ioe) {
-            Output.print("^error^ Could not get the canonical path of file %s", file.getPath());
+            Output.printFromPly("^error^ Could not get the canonical path of file %s", file.getPath());
             throw new RuntimeException(ioe);
         }
     }
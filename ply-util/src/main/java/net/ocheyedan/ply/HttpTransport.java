@@ -0,0 +1,547 @@
+package net.ocheyedan.ply;
+
+import net.ocheyedan.ply.props.Context;
+import net.ocheyedan.ply.props.Props;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * User: blangel
+ * Date: 10/24/14
+ * Time: 4:15 PM
+ *
+ * Downloads {@literal http} and {@literal https} resources for {@link FileUtil#download(URL, Map, File, String, String, boolean)},
+ * {@link FileUtil#getLocalPath(URL, Map, String, String)} and {@link net.ocheyedan.ply.input.UrlResource}.
+ *
+ * Connections are pooled per host and kept alive by the {@literal JDK}'s {@link HttpURLConnection} so long as each
+ * response is read to its end and closed (never disconnected), which this class ensures for every response including
+ * errors.  Connections and reads time out (see {@literal ply.http.connect.timeout} and {@literal ply.http.read.timeout})
+ * and failed requests (i.e., timeouts, connection failures, {@literal 408}, {@literal 429} and {@literal 5xx}
+ * responses) are retried {@literal ply.http.retries} times, backing off exponentially from
+ * {@literal ply.http.retry.backoff} milliseconds (or as requested via {@literal Retry-After}).
+ *
+ * A download is written to a uniquely named {@literal .part} file (alongside the file) and renamed over the file once
+ * complete so that concurrent downloads (by other threads or processes) into the same file never share a partial
+ * download and readers never observe a missing or incomplete file.  An interrupted transfer is resumed
+ * ({@literal Range}/{@literal If-Range}) rather than restarted when retried.  The {@literal ETag} and
+ * {@literal Last-Modified} validators of each download are retained (by url) so that a subsequent download of an
+ * unchanged resource into the same file is revalidated ({@literal If-None-Match}/{@literal If-Modified-Since}) rather
+ * than transferred.  Validators are held within {@literal ply.http.cache} (if set) which is also where resources opened
+ * via {@link #open(URL, Map)} and {@link #getCached(URL, Map)} are cached; otherwise validators are held for the life
+ * of the process and resources are not cached.
+ */
+public final class HttpTransport {
+
+    /**
+     * The outcome of {@link HttpTransport#download(URL, Map, File)}.
+     */
+    public static enum Result {
+        Downloaded,
+        NotModified,
+        NotFound
+    }
+
+    /**
+     * An unsuccessful response.
+     */
+    @SuppressWarnings("serial")
+    private static final class HttpStatusException extends IOException {
+        private final boolean retryable;
+        private final long retryAfterMillis;
+        private HttpStatusException(String message, boolean retryable, long retryAfterMillis) {
+            super(message);
+            this.retryable = retryable;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+    }
+
+    /**
+     * The validators of a resource and the length of the file into which it was downloaded.
+     */
+    private static final class Validators {
+        private final String etag;
+        private final String lastModified;
+        private final long length;
+        private Validators(String etag, String lastModified, long length) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+        private boolean isEmpty() {
+            return ((etag == null) && (lastModified == null));
+        }
+    }
+
+    private static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+
+    private static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    private static final int DEFAULT_RETRIES = 2;
+
+    private static final long DEFAULT_BACKOFF = 500L;
+
+    private static final long MAX_BACKOFF = 30000L;
+
+    private static final AtomicReference<HttpTransport> DEFAULT = new AtomicReference<HttpTransport>();
+
+    /**
+     * @return the transport configured by the {@literal http.*} properties of context {@literal ply}
+     */
+    public static HttpTransport get() {
+        HttpTransport transport = DEFAULT.get();
+        if (transport == null) {
+            Context ply = Context.named("ply");
+            String cache = Props.get("http.cache", ply).value();
+            File cacheDirectory = (((cache == null) || cache.isEmpty()) ? null : new File(FileUtil.resolveUnixTilde(cache)));
+            transport = new HttpTransport((int) getLong(Props.get("http.connect.timeout", ply).value(), DEFAULT_CONNECT_TIMEOUT),
+                                          (int) getLong(Props.get("http.read.timeout", ply).value(), DEFAULT_READ_TIMEOUT),
+                                          (int) getLong(Props.get("http.retries", ply).value(), DEFAULT_RETRIES),
+                                          getLong(Props.get("http.retry.backoff", ply).value(), DEFAULT_BACKOFF),
+                                          cacheDirectory);
+            DEFAULT.compareAndSet(null, transport);
+            transport = DEFAULT.get();
+        }
+        return transport;
+    }
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    private final int retries;
+
+    private final long backoffMillis;
+
+    /**
+     * The directory in which to cache resources and their validators; null if not caching.
+     */
+    private final File cacheDirectory;
+
+    /**
+     * Validators by url, if not caching.
+     */
+    private final Map<String, Validators> validators;
+
+    /**
+     * @param connectTimeout in milliseconds
+     * @param readTimeout in milliseconds
+     * @param retries the number of times to retry a failed request
+     * @param backoffMillis the delay before the first retry, doubled for each subsequent retry
+     * @param cacheDirectory the directory in which to cache resources and their validators or null to not cache
+     */
+    public HttpTransport(int connectTimeout, int readTimeout, int retries, long backoffMillis, File cacheDirectory) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.retries = Math.max(0, retries);
+        this.backoffMillis = Math.max(0L, backoffMillis);
+        this.cacheDirectory = cacheDirectory;
+        this.validators = new ConcurrentHashMap<String, Validators>();
+    }
+
+    /**
+     * Downloads {@code url} into {@code into}.
+     * @param url to download
+     * @param headers to send with the request, may be null
+     * @param into the file into which to download
+     * @return {@link Result#NotModified} if {@code into} was already downloaded from {@code url} and is unchanged,
+     *         {@link Result#NotFound} if there is no resource at {@code url} and otherwise {@link Result#Downloaded}
+     * @throws IOException if the download failed (after retrying)
+     */
+    public Result download(URL url, Map<String, String> headers, File into) throws IOException {
+        if (!isHttp(url)) {
+            InputStream stream;
+            try {
+                stream = url.openConnection().getInputStream();
+            } catch (FileNotFoundException fnfe) {
+                return Result.NotFound;
+            }
+            if (!FileUtil.copy(stream, into)) {
+                throw new IOException(String.format("Could not copy %s to %s", url, into.getPath()));
+            }
+            return Result.Downloaded;
+        }
+        File parent = into.getAbsoluteFile().getParentFile();
+        if ((parent != null) && !parent.exists()) {
+            parent.mkdirs();
+        }
+        // unique to this download; retries resume into it, concurrent downloads of the same file use their own
+        File partial = File.createTempFile(into.getName() + ".ply-", ".part", parent);
+        AtomicReference<Validators> resumable = new AtomicReference<Validators>();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return attempt(url, headers, into, partial, resumable);
+                } catch (UnknownHostException uhe) {
+                    throw uhe; // not transient
+                } catch (IOException ioe) {
+                    backoff(url, attempt, ioe);
+                }
+            }
+        } finally {
+            if (partial.exists()) {
+                partial.delete();
+            }
+        }
+    }
+
+    /**
+     * @param url to check
+     * @return true if {@code url} is cached by {@link #getCached(URL, Map)} and {@link #open(URL, Map)}
+     */
+    public boolean caches(URL url) {
+        return ((cacheDirectory != null) && isHttp(url));
+    }
+
+    /**
+     * @param url to download
+     * @param headers to send with the request, may be null
+     * @return the cached copy of {@code url} (downloaded or revalidated) or null if there is no resource at
+     *         {@code url} or if this transport does not cache
+     * @throws IOException if the download failed (after retrying)
+     */
+    public File getCached(URL url, Map<String, String> headers) throws IOException {
+        if (!caches(url)) {
+            return null;
+        }
+        File cached = new File(cacheDirectory, getKey(url));
+        if (download(url, headers, cached) == Result.NotFound) {
+            cached.delete();
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * @param url to open
+     * @param headers to send with the request, may be null
+     * @return a stream of the content of {@code url}
+     * @throws FileNotFoundException if there is no resource at {@code url}
+     * @throws IOException if the request failed (after retrying)
+     */
+    public InputStream open(URL url, Map<String, String> headers) throws IOException {
+        if (!isHttp(url)) {
+            return url.openConnection().getInputStream();
+        }
+        if (caches(url)) {
+            File cached = getCached(url, headers);
+            if (cached == null) {
+                throw new FileNotFoundException(url.toString());
+            }
+            return new FileInputStream(cached);
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                HttpURLConnection connection = connect(url, headers);
+                int code = connection.getResponseCode();
+                if (code == HttpURLConnection.HTTP_OK) {
+                    return connection.getInputStream();
+                }
+                throw fail(connection, code, url);
+            } catch (UnknownHostException uhe) {
+                throw uhe;
+            } catch (FileNotFoundException fnfe) {
+                throw fnfe;
+            } catch (IOException ioe) {
+                backoff(url, attempt, ioe);
+            }
+        }
+    }
+
+    /**
+     * @param resumable the validators of the resource partially downloaded into {@code partial}, if any
+     */
+    private Result attempt(URL url, Map<String, String> headers, File into, File partial,
+                           AtomicReference<Validators> resumable) throws IOException {
+        HttpURLConnection connection = connect(url, headers);
+        Validators partialValidators = resumable.get();
+        long resumeFrom = ((partial.length() > 0L) && (partialValidators != null) && !partialValidators.isEmpty())
+                ? partial.length() : 0L;
+        Validators previous = getValidators(url);
+        if (resumeFrom > 0L) {
+            // If-Range ensures the remainder is of the same resource; otherwise the whole resource is sent
+            connection.setRequestProperty("Range", "bytes=" + resumeFrom + "-");
+            connection.setRequestProperty("If-Range", (partialValidators.etag != null ? partialValidators.etag
+                                                                                      : partialValidators.lastModified));
+        } else if ((previous != null) && into.exists() && (into.length() == previous.length)) {
+            if (previous.etag != null) {
+                connection.setRequestProperty("If-None-Match", previous.etag);
+            }
+            if (previous.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", previous.lastModified);
+            }
+        }
+        int code = connection.getResponseCode();
+        switch (code) {
+            case HttpURLConnection.HTTP_NOT_MODIFIED:
+                drain(connection);
+                Output.printFromPly("^dbug^ Resource ^b^%s^r^ not modified.", url.toString());
+                return Result.NotModified;
+            case HttpURLConnection.HTTP_OK:
+                // retained first so that an interrupted transfer may resume
+                resumable.set(new Validators(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), -1L));
+                write(connection, url, partial, false);
+                break;
+            case HttpURLConnection.HTTP_PARTIAL:
+                String contentRange = connection.getHeaderField("Content-Range");
+                if ((resumeFrom == 0L) || (contentRange == null) || !contentRange.startsWith("bytes " + resumeFrom + "-")) {
+                    drain(connection);
+                    partial.delete();
+                    throw new HttpStatusException(String.format("Unexpected range [ %s ] for URL: %s", contentRange, url), true, 0L);
+                }
+                Output.printFromPly("^dbug^ Resuming download of ^b^%s^r^ from byte %d.", url.toString(), resumeFrom);
+                write(connection, url, partial, true);
+                break;
+            case 416: // range not satisfiable; the partial download is not of the current resource
+                drain(connection);
+                partial.delete();
+                throw new HttpStatusException(String.format("Range not satisfiable for URL: %s", url), true, 0L);
+            default:
+                IOException failure = fail(connection, code, url);
+                if (failure instanceof FileNotFoundException) {
+                    return Result.NotFound;
+                }
+                throw failure;
+        }
+        long length = partial.length();
+        partial.setReadable(true, false); // temp files are created readable by the owner only
+        replace(partial, into);
+        Validators downloaded = resumable.get();
+        if (downloaded != null) {
+            putValidators(url, new Validators(downloaded.etag, downloaded.lastModified, length));
+        }
+        return Result.Downloaded;
+    }
+
+    /**
+     * Renames {@code from} over {@code to}; atomically replacing {@code to} where the platform allows (otherwise,
+     * i.e. on {@literal Windows}, {@code to} is first deleted).
+     * @throws IOException if {@code from} could not be moved to {@code to}
+     */
+    private static void replace(File from, File to) throws IOException {
+        if (from.renameTo(to)) {
+            return;
+        }
+        if (to.exists() && !to.delete() && to.exists()) {
+            throw new IOException(String.format("Could not replace %s", to.getPath()));
+        }
+        if (!from.renameTo(to) && (!FileUtil.copy(from, to) || !from.delete())) {
+            throw new IOException(String.format("Could not move %s to %s", from.getPath(), to.getPath()));
+        }
+    }
+
+    private HttpURLConnection connect(URL url, Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                connection.setRequestProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Consumes the unsuccessful response of {@code connection} (so that the connection may be reused).
+     * @return a {@link FileNotFoundException} if the resource does not exist or otherwise an
+     *         {@link HttpStatusException}, retryable if the failure may be transient
+     */
+    private static IOException fail(HttpURLConnection connection, int code, URL url) {
+        drain(connection);
+        String message = String.format("Server returned HTTP response code: %d for URL: %s", code, url);
+        if ((code == HttpURLConnection.HTTP_NOT_FOUND) || (code == HttpURLConnection.HTTP_GONE)) {
+            return new FileNotFoundException(message);
+        }
+        boolean retryable = ((code == HttpURLConnection.HTTP_CLIENT_TIMEOUT) || (code == 429) || (code >= 500));
+        long retryAfterMillis = 1000L * getLong(connection.getHeaderField("Retry-After"), 0L);
+        return new HttpStatusException(message, retryable, retryAfterMillis);
+    }
+
+    /**
+     * Waits before retrying a request which failed with {@code failure} or throws {@code failure} if the request is not
+     * to be retried.
+     */
+    private void backoff(URL url, int attempt, IOException failure) throws IOException {
+        if ((attempt >= retries) || ((failure instanceof HttpStatusException) && !((HttpStatusException) failure).retryable)) {
+            throw failure;
+        }
+        long delay = Math.min(MAX_BACKOFF, backoffMillis << attempt);
+        if (failure instanceof HttpStatusException) {
+            delay = Math.max(delay, Math.min(MAX_BACKOFF, ((HttpStatusException) failure).retryAfterMillis));
+        }
+        Output.printFromPly("^dbug^ Retrying ^b^%s^r^ in %d ms [ %s ].", url.toString(), delay, failure.getMessage());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Interrupted while retrying %s", url));
+        }
+    }
+
+    /**
+     * Writes the response body of {@code connection} to {@code to}, failing (retryably, with the bytes received
+     * retained in {@code to}) if the connection ended before the {@literal Content-Length} was received.
+     */
+    private static void write(HttpURLConnection connection, URL url, File to, boolean append) throws IOException {
+        long expected = getLong(connection.getHeaderField("Content-Length"), -1L);
+        InputStream from = connection.getInputStream();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(to, append));
+        try {
+            byte[] buffer = new byte[8192];
+            long written = 0L;
+            int read;
+            while ((read = from.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                written += read;
+            }
+            if ((expected >= 0L) && (written != expected)) {
+                throw new HttpStatusException(String.format("Received %d of %d bytes for URL: %s", written, expected, url),
+                                              true, 0L);
+            }
+        } finally {
+            try {
+                from.close();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static void drain(HttpURLConnection connection) {
+        InputStream stream;
+        try {
+            stream = connection.getInputStream();
+        } catch (IOException ioe) {
+            stream = connection.getErrorStream();
+        }
+        if (stream == null) {
+            return;
+        }
+        try {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) != -1) {
+                // discard
+            }
+        } catch (IOException ioe) {
+            // the connection will not be reused
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+        }
+    }
+
+    private Validators getValidators(URL url) {
+        if (cacheDirectory == null) {
+            return validators.get(url.toString());
+        }
+        File file = new File(cacheDirectory, getKey(url) + ".properties");
+        if (!file.exists()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream stream = null;
+        try {
+            stream = new FileInputStream(file);
+            properties.load(stream);
+        } catch (IOException ioe) {
+            return null;
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+        }
+        return new Validators(properties.getProperty("etag"), properties.getProperty("lastModified"),
+                              getLong(properties.getProperty("length"), -1L));
+    }
+
+    private void putValidators(URL url, Validators resource) {
+        if (cacheDirectory == null) {
+            validators.put(url.toString(), resource);
+            return;
+        }
+        Properties properties = new Properties();
+        if (resource.etag != null) {
+            properties.setProperty("etag", resource.etag);
+        }
+        if (resource.lastModified != null) {
+            properties.setProperty("lastModified", resource.lastModified);
+        }
+        properties.setProperty("length", String.valueOf(resource.length));
+        cacheDirectory.mkdirs();
+        String key = getKey(url);
+        File tmp = null;
+        OutputStream stream = null;
+        try {
+            // written aside and renamed so that concurrent readers never see a partially written file
+            tmp = File.createTempFile(key + "-", ".properties.tmp", cacheDirectory);
+            stream = new FileOutputStream(tmp);
+            properties.store(stream, url.toString());
+            stream.close();
+            stream = null;
+            replace(tmp, new File(cacheDirectory, key + ".properties"));
+        } catch (IOException ioe) {
+            // validators are an optimization; the resource will be downloaded in full next time
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+            if ((tmp != null) && tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static boolean isHttp(URL url) {
+        return "http".equals(url.getProtocol()) || "https".equals(url.getProtocol());
+    }
+
+    /**
+     * @return the name of the cache entry of {@code url}; the hex-encoded {@literal SHA-1} hash of {@code url}
+     */
+    private static String getKey(URL url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA1").digest(url.toString().getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte value : hash) {
+                key.append(String.format("%02x", value));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new AssertionError(nsae);
+        } catch (UnsupportedEncodingException uee) {
+            throw new AssertionError(uee);
+        }
+    }
+
+    private static long getLong(String value, long defaultValue) {
+        if ((value == null) || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            return defaultValue;
+        }
+    }
+
+}
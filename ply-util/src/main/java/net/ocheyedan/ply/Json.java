@@ -0,0 +1,61 @@
+package net.ocheyedan.ply;
+
+/**
+ * User: blangel
+ * Date: 10/23/14
+ * Time: 1:30 PM
+ *
+ * Minimal {@literal JSON} encoding for the files written by {@link Trace} and {@link Events}.
+ */
+final class Json {
+
+    /**
+     * Appends {@code value} as a {@literal JSON} string (i.e., quoted and escaped) to {@code into}.
+     * @param value to append
+     * @param into which to append
+     */
+    static void quote(String value, StringBuilder into) {
+        into.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    into.append("\\\""); break;
+                case '\\':
+                    into.append("\\\\"); break;
+                case '\n':
+                    into.append("\\n"); break;
+                case '\r':
+                    into.append("\\r"); break;
+                case '\t':
+                    into.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        into.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        into.append(c);
+                    }
+            }
+        }
+        into.append('"');
+    }
+
+    /**
+     * Appends {@code value} as a {@literal JSON} value to {@code into}; numbers and booleans as is, null as
+     * {@literal null} and everything else as a string of its {@link Object#toString()}.
+     * @param value to append
+     * @param into which to append
+     */
+    static void value(Object value, StringBuilder into) {
+        if (value == null) {
+            into.append("null");
+        } else if ((value instanceof Number) || (value instanceof Boolean)) {
+            into.append(value);
+        } else {
+            quote(value.toString(), into);
+        }
+    }
+
+    private Json() { }
+
+}
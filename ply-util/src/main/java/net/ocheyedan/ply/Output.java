@@ -5,12 +5,8 @@ import net.ocheyedan.ply.props.Props;
 
 import java.io.*;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * User: blangel
@@ -87,20 +83,6 @@ public final class Output {
         }
     }
 
-    /**
-     * A regex {@link java.util.regex.Pattern} paired with its corresponding output string.
-     */
-    private static final class TermCode {
-        private final Pattern pattern;
-        private final String output;
-        private final String nonColoredOutput;
-        private TermCode(Pattern pattern, String output, String nonColoredOutput) {
-            this.pattern = pattern;
-            this.output = output;
-            this.nonColoredOutput = nonColoredOutput;
-        }
-    }
-
     /**
      * Used to queue messages before {@link Output#init()} has been called.
      */
@@ -145,18 +127,27 @@ public final class Output {
     private static final AtomicBoolean beingPiped = new AtomicBoolean(false);
 
     /**
-     * A mapping of easily identifiable words to a {@link TermCode} object for colored output.
+     * Renders the terminal codes (i.e., {@literal ^red^}) within messages; null until {@link #init()} is called.
+     */
+    private static volatile TermCodeRenderer renderer;
+
+    /**
+     * True if this is a script's process (i.e., invoked by ply) as opposed to ply's own process, in which every
+     * statement is printed on behalf of ply.
      */
-    private static final Map<String, TermCode> TERM_CODES = new HashMap<String, TermCode>();
+    private static final boolean withinScript = "ply".equals(System.getenv("ply_ply.invoker"));
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
     /**
      * Set to true when {@link #init()} has been called.
      */
     private static AtomicBoolean inited = new AtomicBoolean(false);
     static {
-        // if this is not ply itself - init straight-away
-        if ("ply".equals(System.getenv("ply_ply.invoker"))) {
+        // if this is not ply itself - init straight-away and report statistics to ply on exit
+        if (withinScript) {
             init();
+            ExitStats.reportOnExit();
         }
     }
 
@@ -209,26 +200,7 @@ public final class Output {
         beingPiped.set((piped != null) && "true".equalsIgnoreCase(piped));
         boolean useColor = withinTerminal.get() && !"false".equalsIgnoreCase(coloredOutput) && !beingPiped.get();
         Output.coloredOutput.set(useColor);
-        // TODO - what are the range of terminal values and what looks best for each?
-        String terminalBold = ("xterm".equals(terminal) ? "1" : "0");
-        TERM_CODES.put("ply", new TermCode(Pattern.compile("\\^ply\\^"), "[\u001b[0;33mply\u001b[0m]", "[ply]"));
-        TERM_CODES.put("error", new TermCode(Pattern.compile("\\^error\\^"), "[\u001b[1;31merr!\u001b[0m]", "[err!]"));
-        TERM_CODES.put("warn", new TermCode(Pattern.compile("\\^warn\\^"), "[\u001b[1;33mwarn\u001b[0m]", "[warn]"));
-        TERM_CODES.put("info", new TermCode(Pattern.compile("\\^info\\^"), "[\u001b[1;34minfo\u001b[0m]", "[info]"));
-        TERM_CODES.put("dbug", new TermCode(Pattern.compile("\\^dbug\\^"), "[\u001b[1;30mdbug\u001b[0m]", "[dbug]"));
-        TERM_CODES.put("reset", new TermCode(Pattern.compile("\\^r\\^"), "\u001b[0m", ""));
-        TERM_CODES.put("bold", new TermCode(Pattern.compile("\\^b\\^"), "\u001b[1m", ""));
-        TERM_CODES.put("normal", new TermCode(Pattern.compile("\\^n\\^"), "\u001b[2m", ""));
-        TERM_CODES.put("inverse", new TermCode(Pattern.compile("\\^i\\^"), "\u001b[7m", ""));
-        TERM_CODES.put("black", new TermCode(Pattern.compile("\\^black\\^"), "\u001b[" + terminalBold + ";30m", ""));
-        TERM_CODES.put("grey", new TermCode(Pattern.compile("\\^grey\\^"), "\u001b[1;30m", ""));
-        TERM_CODES.put("red", new TermCode(Pattern.compile("\\^red\\^"),  "\u001b[" + terminalBold + ";31m", ""));
-        TERM_CODES.put("green", new TermCode(Pattern.compile("\\^green\\^"), "\u001b[" + terminalBold + ";32m", ""));
-        TERM_CODES.put("yellow", new TermCode(Pattern.compile("\\^yellow\\^"), "\u001b[" + terminalBold + ";33m", ""));
-        TERM_CODES.put("blue", new TermCode(Pattern.compile("\\^blue\\^"), "\u001b[" + terminalBold + ";34m", ""));
-        TERM_CODES.put("magenta", new TermCode(Pattern.compile("\\^magenta\\^"), "\u001b[" + terminalBold + ";35m", ""));
-        TERM_CODES.put("cyan", new TermCode(Pattern.compile("\\^cyan\\^"), "\u001b[" + terminalBold + ";36m", ""));
-        TERM_CODES.put("white", new TermCode(Pattern.compile("\\^white\\^"), "\u001b[" + terminalBold + ";37m", ""));
+        renderer = new TermCodeRenderer(terminal);
         drainQueue();
     }
 
@@ -239,9 +211,9 @@ public final class Output {
         for (Message message : queue) {
             switch (message.type) {
                 case Line:
-                    print(message.message, message.args); break;
                 case NoLine:
-                    printNoLine(message.message, message.args); break;
+                    // messages are only queued within ply's own process
+                    print(message.message, message.args, message.type, true); break;
                 case Exec:
                     printFromExec(message.message, message.args); break;
                 default:
@@ -250,40 +222,56 @@ public final class Output {
         }
     }
 
+    /**
+     * Prints {@code message} formatted with {@code args} followed by a new line.  Within ply's own process the
+     * statement is attributed to ply (see {@link #printFromPly(String, Object...)}), otherwise to the script.
+     */
     public static void print(String message, Object ... args) {
-        if (!inited.get()) {
-            queue.add(new Message(message, Message.Type.Line, args));
-            return;
-        }
-        String formatted = resolve(message, args);
-        if ((formatted == null) || (!decorated.get() && isPrintFromPly())) {
-            return;
-        }
-        System.out.println(formatted);
+        print(message, args, Message.Type.Line, !withinScript);
     }
 
+    /**
+     * Prints {@code message} formatted with {@code args}.  Within ply's own process the statement is attributed to
+     * ply (see {@link #printNoLineFromPly(String, Object...)}), otherwise to the script.
+     */
     public static void printNoLine(String message, Object ... args) {
+        print(message, args, Message.Type.NoLine, !withinScript);
+    }
+
+    /**
+     * Prints on behalf of ply itself (i.e., from within {@literal ply-util}) which, unlike statements printed by
+     * scripts, are skipped when ply is not decorated.
+     * @see #print(String, Object...)
+     */
+    public static void printFromPly(String message, Object ... args) {
+        print(message, args, Message.Type.Line, true);
+    }
+
+    /**
+     * @see #printFromPly(String, Object...)
+     * @see #printNoLine(String, Object...)
+     */
+    public static void printNoLineFromPly(String message, Object ... args) {
+        print(message, args, Message.Type.NoLine, true);
+    }
+
+    private static void print(String message, Object[] args, Message.Type type, boolean fromPly) {
         if (!inited.get()) {
-            queue.add(new Message(message, Message.Type.NoLine, args));
+            queue.add(new Message(message, type, args));
+            return;
+        }
+        if (fromPly && !decorated.get()) {
             return;
         }
         String formatted = resolve(message, args);
-        if ((formatted == null) || (!decorated.get() && isPrintFromPly())) {
+        if (formatted == null) {
             return;
         }
-        System.out.print(formatted);
-    }
-    
-    private static boolean isPrintFromPly() {
-        // skip ply/ply-util print statements
-        StackTraceElement[] stackTrace = new RuntimeException().getStackTrace(); // TODO - better (generic) way?
-        if (stackTrace.length > 2) { // two internal calls within Output to get to this point
-            String className = stackTrace[2].getClassName();
-            if (className.startsWith("net.ocheyedan.ply") && !className.startsWith("net.ocheyedan.ply.script")) {
-                return true;
-            }
+        if (type == Message.Type.NoLine) {
+            System.out.print(formatted);
+        } else {
+            System.out.println(formatted);
         }
-        return false;
     }
 
     static void printFromExec(String message, Object ... args) {
@@ -291,53 +279,65 @@ public final class Output {
             queue.add(new Message(message, Message.Type.Exec, args));
             return;
         }
+        String formatted = resolveFromExec(message, args);
+        if (formatted != null) {
+            System.out.print(formatted);
+        }
+    }
+
+    /**
+     * @param message the format string for a line of a script's output
+     * @param args the script's name and the line of its output
+     * @return what {@link #printFromExec(String, Object...)} would print for the line (including the line separator
+     *         unless the line is {@literal ^no_line^}) or null if nothing would be printed
+     */
+    static String resolveFromExec(String message, Object[] args) {
         String scriptArg = (String) args[1];
         if (!decorated.get()) {
-            System.out.println(scriptArg);
-            return;
+            return scriptArg + LINE_SEPARATOR;
         }
         boolean noLine = scriptArg.contains("^no_line^");
         boolean noPrefix = scriptArg.contains("^no_prefix^");
+        String formatted;
         if (noPrefix && noLine) {
-            printNoLine("%s", scriptArg.replaceFirst("\\^no_line\\^", "").replaceFirst("\\^no_prefix\\^", ""));
+            formatted = resolve("%s", new Object[] { removeFirst(removeFirst(scriptArg, "^no_line^"), "^no_prefix^") });
         } else if (noPrefix) {
-            print("%s", scriptArg.replaceFirst("\\^no_prefix\\^", ""));
+            formatted = resolve("%s", new Object[] { removeFirst(scriptArg, "^no_prefix^") });
         } else if (noLine) {
-            printNoLine(message, args[0], scriptArg.replaceFirst("\\^no_line\\^", ""));
+            formatted = resolve(message, new Object[] { args[0], removeFirst(scriptArg, "^no_line^") });
         } else {
-            print(message, args);
+            formatted = resolve(message, args);
         }
+        return ((formatted == null) || noLine ? formatted : formatted + LINE_SEPARATOR);
     }
 
     public static void print(Throwable t) {
-        print("^error^ %s: ^i^^red^%s^r^", (t == null ? "Message" : t.getClass().getSimpleName()), (t == null ? "" : t.getMessage()));
+        printFromPly("^error^ %s: ^i^^red^%s^r^", (t == null ? "Message" : t.getClass().getSimpleName()), (t == null ? "" : t.getMessage()));
         if (isDebug()) {
-            print(StackTraceWriter.convertStackTrace(t, true));
+            printFromPly(StackTraceWriter.convertStackTrace(t, true));
         } else {
-            print("^error^  run with log.levels to see detailed error information: ^b^-Pply.log.levels=+debug^b^");
+            printFromPly("^error^  run with log.levels to see detailed error information: ^b^-Pply.log.levels=+debug^b^");
         }
     }
 
     static String resolve(String message, Object[] args) {
-        String formatted = String.format(message, args);
-        // TODO - fix!  this case fails: ^cyan^warn^r^ if ^warn^ is evaluated first...really meant for ^cyan^ and ^r^
-        // TODO - to be resolved
-        for (String key : TERM_CODES.keySet()) {
-            TermCode termCode = TERM_CODES.get(key);
-            Matcher matcher = termCode.pattern.matcher(formatted);
-            if (matcher.find()) {
-                if (("warn".equals(key) && !warnLevel.get()) || ("info".equals(key) && !infoLevel.get())
-                        || ("dbug".equals(key) && !dbugLevel.get())) {
-                    // this is a log statement for a disabled log-level, skip.
-                    return null;
-                }
-                if (decorated.get()) {
-                    String output = isColoredOutput() ? termCode.output : termCode.nonColoredOutput;
-                    formatted = matcher.replaceAll(output);
-                }
-            }
+        TermCodeRenderer renderer = Output.renderer;
+        if (renderer == null) {
+            return String.format(message, args);
         }
-        return formatted;
+        int disabledLevels = (warnLevel.get() ? 0 : TermCodeRenderer.WARN) | (infoLevel.get() ? 0 : TermCodeRenderer.INFO)
+                | (dbugLevel.get() ? 0 : TermCodeRenderer.DBUG);
+        return renderer.resolve(message, args, isColoredOutput(), decorated.get(), disabledLevels);
+    }
+
+    /**
+     * @param value from which to remove
+     * @param remove the literal to remove
+     * @return {@code value} without the first occurrence of {@code remove}
+     */
+    private static String removeFirst(String value, String remove) {
+        int index = value.indexOf(remove);
+        return (index == -1 ? value : value.substring(0, index) + value.substring(index + remove.length()));
     }
 
     /**
@@ -7,6 +7,7 @@ import net.ocheyedan.ply.props.Props;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
@@ -81,7 +82,7 @@ public final class PlyUtil {
         }
         String path = Props.get("ply.invocation.dir", Context.named("project")).value();
         if ((path == null) || path.isEmpty()) {
-            Output.print("^warn^ Property ^b^ply.invocation.dir^r^ not correctly setup in context ^b^project^r^");
+            Output.printFromPly("^warn^ Property ^b^ply.invocation.dir^r^ not correctly setup in context ^b^project^r^");
             return;
         }
         PropFile propFile = new PropFile(Context.named(""), PropFile.Loc.AdHoc);
@@ -225,6 +226,19 @@ public final class PlyUtil {
         return (inetAddress == null ? "<unknown>" : inetAddress.getHostAddress());
     }
 
+    /**
+     * @return the process id of this {@literal JVM} (the runtime's name is by convention {@literal pid@host})
+     */
+    public static long getPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int index = name.indexOf('@');
+        try {
+            return Long.parseLong(index == -1 ? name : name.substring(0, index));
+        } catch (NumberFormatException nfe) {
+            return name.hashCode() & 0x7fffffffL;
+        }
+    }
+
     private PlyUtil() { }
 
 }
@@ -224,16 +224,16 @@ public final class SlowTaskThread {
                 if (alreadyAnsweredResult) {
                     return;
                 }
-                Output.print(message);
+                Output.printFromPly(message);
                 final AtomicBoolean printedNewLine = new AtomicBoolean(false); // @see {@link #setupOutput()}
                 if (PlyUtil.isHeadless()) {
-                    Output.print(logMessage);
+                    Output.printFromPly(logMessage);
                 } else {
                     if (invokedByPly) {
                         // need to go directly to stdout to avoid Output parsing prior to Exec handling
                         System.out.println(String.format("^no_line^%s Enable now? [Y/n] ", logMessage));
                     } else {
-                        Output.printNoLine("%s Enable now? [Y/n] ", logMessage);
+                        Output.printNoLineFromPly("%s Enable now? [Y/n] ", logMessage);
                     }
                     // cursor's hanging on the last line of output, if more output comes need to prefix with newline
                     setupOutput(printedNewLine, invokedByPly);
@@ -281,7 +281,7 @@ public final class SlowTaskThread {
                         if (invokedByPly) {
                             old.print(String.format("^no_prefix^%n%s", out));
                         } else {
-                            Output.printNoLine(String.format("%n%s", out));
+                            Output.printNoLineFromPly(String.format("%n%s", out));
                         }
                         System.setOut(old);
                     }
@@ -293,7 +293,7 @@ public final class SlowTaskThread {
                         if (invokedByPly) {
                             old.println(String.format("^no_prefix^%n%s", out));
                         } else {
-                            Output.print(String.format("%n%s", out));
+                            Output.printFromPly(String.format("%n%s", out));
                         }
                         System.setOut(old);
                     }
@@ -0,0 +1,308 @@
+package net.ocheyedan.ply;
+
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 8:40 AM
+ *
+ * Resolves the terminal codes (i.e., {@literal ^ply^}, {@literal ^b^}, {@literal ^red^}) within messages printed
+ * by {@link Output}.  Each formatted message is scanned once, left to right, for {@literal ^code^} tokens; a token
+ * is replaced by its colored (or non-colored) output and anything else is copied as-is.
+ *
+ * Format strings are parsed once and cached.  Those consisting solely of literal text and {@literal %s},
+ * {@literal %%} and {@literal %n} specifiers (which is nearly every message within ply) are formatted by
+ * concatenation; any other format string is given to {@link String#format(String, Object...)}.  Format strings
+ * without any specifiers have their rendered form cached as well.
+ */
+final class TermCodeRenderer {
+
+    /**
+     * The log levels which a {@link TermCode} may denote.
+     */
+    static final int WARN = 1;
+    static final int INFO = 2;
+    static final int DBUG = 4;
+
+    /**
+     * A terminal code name paired with its corresponding output string and the log level (if any) it denotes.
+     */
+    private static final class TermCode {
+        private final String name;
+        private final String output;
+        private final String nonColoredOutput;
+        private final int level;
+        private TermCode(String name, String output, String nonColoredOutput, int level) {
+            this.name = name;
+            this.output = output;
+            this.nonColoredOutput = nonColoredOutput;
+            this.level = level;
+        }
+    }
+
+    /**
+     * A parsed format string; the literal text surrounding each {@literal %s} specifier (with {@literal %%} and
+     * {@literal %n} already converted).
+     */
+    private static final class Template {
+        private final String[] literals;
+        /**
+         * For templates without specifiers, the log levels denoted within the literal text and its rendered form
+         * (colored and non-colored), computed on first use.
+         */
+        private int levels = -1;
+        private volatile String colored;
+        private volatile String nonColored;
+        private Template(String[] literals) {
+            this.literals = literals;
+        }
+    }
+
+    /**
+     * Placeholder for format strings which must be given to {@link String#format(String, Object...)}.
+     */
+    private static final Template FORMATTER = new Template(null);
+
+    /**
+     * The maximum number of format strings cached.
+     */
+    private static final int MAX_TEMPLATES = 1024;
+
+    /**
+     * Longer format strings (i.e., stack traces) are unlikely to repeat and are not cached.
+     */
+    private static final int MAX_TEMPLATE_LENGTH = 256;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * The {@link TermCode} objects indexed by the length of their name.
+     */
+    private final TermCode[][] codes;
+
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<String, Template>();
+
+    /**
+     * @param terminal the value of the {@literal TERM} environment variable, may be null
+     */
+    TermCodeRenderer(String terminal) {
+        // only xterm renders the colors bold (i.e., bright); any other (or no) terminal uses the normal colors
+        String terminalBold = ("xterm".equals(terminal) ? "1" : "0");
+        List<TermCode> codes = new ArrayList<TermCode>();
+        codes.add(new TermCode("ply", "[\u001b[0;33mply\u001b[0m]", "[ply]", 0));
+        codes.add(new TermCode("error", "[\u001b[1;31merr!\u001b[0m]", "[err!]", 0));
+        codes.add(new TermCode("warn", "[\u001b[1;33mwarn\u001b[0m]", "[warn]", WARN));
+        codes.add(new TermCode("info", "[\u001b[1;34minfo\u001b[0m]", "[info]", INFO));
+        codes.add(new TermCode("dbug", "[\u001b[1;30mdbug\u001b[0m]", "[dbug]", DBUG));
+        codes.add(new TermCode("r", "\u001b[0m", "", 0));
+        codes.add(new TermCode("b", "\u001b[1m", "", 0));
+        codes.add(new TermCode("n", "\u001b[2m", "", 0));
+        codes.add(new TermCode("i", "\u001b[7m", "", 0));
+        codes.add(new TermCode("black", "\u001b[" + terminalBold + ";30m", "", 0));
+        codes.add(new TermCode("grey", "\u001b[1;30m", "", 0));
+        codes.add(new TermCode("red", "\u001b[" + terminalBold + ";31m", "", 0));
+        codes.add(new TermCode("green", "\u001b[" + terminalBold + ";32m", "", 0));
+        codes.add(new TermCode("yellow", "\u001b[" + terminalBold + ";33m", "", 0));
+        codes.add(new TermCode("blue", "\u001b[" + terminalBold + ";34m", "", 0));
+        codes.add(new TermCode("magenta", "\u001b[" + terminalBold + ";35m", "", 0));
+        codes.add(new TermCode("cyan", "\u001b[" + terminalBold + ";36m", "", 0));
+        codes.add(new TermCode("white", "\u001b[" + terminalBold + ";37m", "", 0));
+        int maxLength = 0;
+        for (TermCode code : codes) {
+            maxLength = Math.max(maxLength, code.name.length());
+        }
+        this.codes = new TermCode[maxLength + 1][];
+        for (int length = 0; length <= maxLength; length++) {
+            List<TermCode> ofLength = new ArrayList<TermCode>();
+            for (TermCode code : codes) {
+                if (code.name.length() == length) {
+                    ofLength.add(code);
+                }
+            }
+            this.codes[length] = ofLength.toArray(new TermCode[ofLength.size()]);
+        }
+    }
+
+    /**
+     * @param message the format string
+     * @param args the format arguments
+     * @param colored true to render terminal codes with color
+     * @param decorated false to leave terminal codes as-is
+     * @param disabledLevels the log levels which are disabled
+     * @return the formatted {@code message} with its terminal codes rendered or null if {@code message} denotes a
+     *         disabled log level
+     */
+    String resolve(String message, Object[] args, boolean colored, boolean decorated, int disabledLevels) {
+        Template template = template(message);
+        if ((template != FORMATTER) && (template.literals.length == 1)) {
+            return resolve(template, colored, decorated, disabledLevels);
+        }
+        String formatted = format(template, message, args);
+        if (!decorated) {
+            return ((render(formatted, colored, null) & disabledLevels) != 0 ? null : formatted);
+        }
+        StringBuilder rendered = new StringBuilder(formatted.length() + 32);
+        return ((render(formatted, colored, rendered) & disabledLevels) != 0 ? null : rendered.toString());
+    }
+
+    /**
+     * @param message the format string
+     * @param args the format arguments
+     * @return the same as {@link String#format(String, Object...)}
+     */
+    String format(String message, Object[] args) {
+        return format(template(message), message, args);
+    }
+
+    private String resolve(Template template, boolean colored, boolean decorated, int disabledLevels) {
+        String literal = template.literals[0];
+        if (template.levels == -1) {
+            template.levels = render(literal, colored, null);
+        }
+        if ((template.levels & disabledLevels) != 0) {
+            return null;
+        }
+        if (!decorated) {
+            return literal;
+        }
+        String rendered = (colored ? template.colored : template.nonColored);
+        if (rendered == null) {
+            StringBuilder buffer = new StringBuilder(literal.length() + 32);
+            render(literal, colored, buffer);
+            rendered = buffer.toString();
+            if (colored) {
+                template.colored = rendered;
+            } else {
+                template.nonColored = rendered;
+            }
+        }
+        return rendered;
+    }
+
+    /**
+     * Scans {@code formatted} for terminal codes, appending it with each rendered into {@code into}.
+     * @param formatted to render
+     * @param colored true to render terminal codes with color
+     * @param into to which to append the rendered {@code formatted} or null to only scan
+     * @return the log levels denoted by terminal codes within {@code formatted}
+     */
+    int render(String formatted, boolean colored, StringBuilder into) {
+        int levels = 0;
+        int copied = 0;
+        int open = formatted.indexOf('^');
+        while (open != -1) {
+            int close = formatted.indexOf('^', open + 1);
+            if (close == -1) {
+                break;
+            }
+            TermCode code = code(formatted, open + 1, close);
+            if (code == null) {
+                open = close; // the closing '^' may open a terminal code
+                continue;
+            }
+            levels |= code.level;
+            if (into != null) {
+                into.append(formatted, copied, open).append(colored ? code.output : code.nonColoredOutput);
+            }
+            copied = close + 1;
+            open = formatted.indexOf('^', copied);
+        }
+        if (into != null) {
+            into.append(formatted, copied, formatted.length());
+        }
+        return levels;
+    }
+
+    private TermCode code(String formatted, int start, int end) {
+        int length = end - start;
+        if (length >= codes.length) {
+            return null;
+        }
+        for (TermCode code : codes[length]) {
+            if (formatted.regionMatches(start, code.name, 0, length)) {
+                return code;
+            }
+        }
+        return null;
+    }
+
+    private Template template(String message) {
+        Template template = templates.get(message);
+        if (template != null) {
+            return template;
+        }
+        template = parse(message);
+        if ((message.length() <= MAX_TEMPLATE_LENGTH) && (templates.size() < MAX_TEMPLATES)) {
+            Template existing = templates.putIfAbsent(message, template);
+            return (existing == null ? template : existing);
+        }
+        return template;
+    }
+
+    private static String format(Template template, String message, Object[] args) {
+        if ((template == FORMATTER) || (args == null) || (args.length < (template.literals.length - 1))) {
+            return String.format(message, args);
+        }
+        String[] literals = template.literals;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        StringBuilder formatted = new StringBuilder(length + 64);
+        formatted.append(literals[0]);
+        for (int i = 1; i < literals.length; i++) {
+            Object arg = args[i - 1];
+            if (arg instanceof Formattable) {
+                return String.format(message, args);
+            }
+            formatted.append(String.valueOf(arg)).append(literals[i]);
+        }
+        return formatted.toString();
+    }
+
+    /**
+     * @param message the format string
+     * @return the parsed {@code message} or {@link #FORMATTER} if {@code message} has specifiers other than
+     *         {@literal %s}, {@literal %%} and {@literal %n}
+     */
+    private static Template parse(String message) {
+        int percent = message.indexOf('%');
+        if (percent == -1) {
+            return new Template(new String[] { message });
+        }
+        List<String> literals = new ArrayList<String>(4);
+        StringBuilder literal = new StringBuilder(message.length());
+        int copied = 0;
+        while (percent != -1) {
+            if (percent == (message.length() - 1)) {
+                return FORMATTER;
+            }
+            literal.append(message, copied, percent);
+            switch (message.charAt(percent + 1)) {
+                case 's':
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    break;
+                case '%':
+                    literal.append('%');
+                    break;
+                case 'n':
+                    literal.append(LINE_SEPARATOR);
+                    break;
+                default:
+                    return FORMATTER;
+            }
+            copied = percent + 2;
+            percent = message.indexOf('%', copied);
+        }
+        literal.append(message, copied, message.length());
+        literals.add(literal.toString());
+        return new Template(literals.toArray(new String[literals.size()]));
+    }
+
+}
@@ -0,0 +1,311 @@
+package net.ocheyedan.ply;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 9:20 AM
+ *
+ * Records a timeline of a build as spans within a file of the Chrome trace event format (viewable within
+ * {@literal chrome://tracing} or {@literal https://ui.perfetto.dev}).  Tracing is enabled for a build via
+ * {@literal -Pply.trace=<file>}; ply itself creates the file (see {@link #init(String)}) and every script invoked by
+ * ply appends its spans to the same file, the absolute path of which is exported as the {@literal ply.trace}
+ * property.  When tracing is not enabled, spans are no-ops.
+ *
+ * The file is a {@literal JSON} array with one event per line.  Each event is a complete event
+ * ({@literal "ph":"X"}) written as its span ends; events of a process share its {@literal pid} and events of a thread
+ * (or of a lane, see {@link #start(String, String, String)}) share a {@literal tid}.  The array is terminated by ply
+ * as the build completes (see {@link #close()}); a trace of an aborted build is missing only the terminating
+ * {@literal ]} (which trace viewers tolerate).  Scripts not written in Java may append events themselves, each
+ * being one line ending with a comma, e.g.:
+ * <pre>
+ * {"name":"sleep","cat":"script","ph":"X","ts":1413984000000000,"dur":1000000,"pid":123,"tid":123},
+ * </pre>
+ * where {@literal ts} and {@literal dur} are in microseconds and {@literal ts} is relative to the epoch.
+ */
+public final class Trace {
+
+    /**
+     * A span of time started by {@link Trace#start(String, String)} and recorded by {@link #end()}.
+     */
+    public static final class Span {
+
+        private final String category;
+
+        private final String name;
+
+        private final long tid;
+
+        private final long start;
+
+        private Span(String category, String name, long tid, long start) {
+            this.category = category;
+            this.name = name;
+            this.tid = tid;
+            this.start = start;
+        }
+
+        /**
+         * Records this span as ending now.  Ending a span more than once records it more than once.
+         */
+        public void end() {
+            if (this == DISABLED) {
+                return;
+            }
+            long end = now();
+            StringBuilder event = new StringBuilder(96 + name.length());
+            event.append("{\"name\":");
+            Json.quote(name, event);
+            event.append(",\"cat\":");
+            Json.quote(category, event);
+            event.append(",\"ph\":\"X\",\"ts\":").append(start).append(",\"dur\":").append(end - start);
+            event.append(",\"pid\":").append(PID).append(",\"tid\":").append(tid).append("},\n");
+            write(event);
+        }
+    }
+
+    /**
+     * The span returned when tracing is not enabled.
+     */
+    private static final Span DISABLED = new Span("", "", 0L, 0L);
+
+    /**
+     * Lanes are given {@literal tid} values from this base so as not to collide with thread ids.
+     */
+    private static final long LANE_TID_BASE = 1L << 20;
+
+    private static final long EPOCH_MICROS = System.currentTimeMillis() * 1000L;
+
+    private static final long NANO_ORIGIN = System.nanoTime();
+
+    private static final Object lock = new Object();
+
+    /**
+     * The process id of this {@literal JVM}; resolved when tracing is enabled.
+     */
+    private static volatile long PID;
+
+    /**
+     * The stream to which events are appended; null if tracing is not enabled.  Guarded by {@link #lock} for writing.
+     */
+    private static volatile FileOutputStream out;
+
+    /**
+     * The absolute path of the trace file; null if tracing is not enabled.
+     */
+    private static volatile String path;
+
+    /**
+     * True if this process created the trace file (i.e., is ply itself) and so terminates it; guarded by {@link #lock}.
+     */
+    private static boolean owner;
+
+    /**
+     * Mapping of lane name to its {@literal tid}; guarded by {@link #lock}.
+     */
+    private static final Map<String, Long> lanes = new HashMap<String, Long>(4, 1.0f);
+
+    /**
+     * The {@literal tid} values for which the thread's name has been recorded; guarded by {@link #lock}.
+     */
+    private static final Set<Long> namedTids = new HashSet<Long>(4, 1.0f);
+
+    static {
+        // if this is a script invoked by ply, append to ply's trace (if any)
+        if ("ply".equals(System.getenv("ply_ply.invoker"))) {
+            String tracePath = System.getenv("ply_ply.trace");
+            if ((tracePath != null) && !tracePath.isEmpty()) {
+                open(new File(tracePath), false);
+            }
+        }
+    }
+
+    /**
+     * Creates the trace file at {@code tracePath} (resolved against the working directory if relative), replacing
+     * any existing file, and enables tracing.  This is a no-op if {@code tracePath} is empty or if tracing is
+     * already enabled (i.e., this process was invoked by a tracing ply).
+     * @param tracePath the path of the trace file
+     */
+    public static void init(String tracePath) {
+        if ((tracePath == null) || tracePath.isEmpty() || isEnabled()) {
+            return;
+        }
+        open(new File(tracePath).getAbsoluteFile(), true);
+    }
+
+    /**
+     * @return true if spans are being recorded
+     */
+    public static boolean isEnabled() {
+        return (out != null);
+    }
+
+    /**
+     * @return the absolute path of the trace file or null if tracing is not enabled
+     */
+    public static String getPath() {
+        return path;
+    }
+
+    /**
+     * Starts a span on the current thread.  Spans of a thread are expected to nest (i.e., a span started within
+     * another ends before it).
+     * @param category of the span (e.g., {@literal execution})
+     * @param name of the span
+     * @return the started span which is recorded upon {@link Span#end()}
+     */
+    public static Span start(String category, String name) {
+        if (!isEnabled()) {
+            return DISABLED;
+        }
+        Thread thread = Thread.currentThread();
+        long tid = thread.getId();
+        name(tid, thread.getName());
+        return new Span(category, name, tid, now());
+    }
+
+    /**
+     * Starts a span on the lane named {@code lane} rather than on the current thread.  Lanes are for spans which do
+     * not nest within those of the thread which starts and ends them (e.g., the run of an execution which overlaps
+     * the preparation of the next execution).
+     * @param category of the span (e.g., {@literal execution})
+     * @param name of the span
+     * @param lane on which to record the span
+     * @return the started span which is recorded upon {@link Span#end()}
+     */
+    public static Span start(String category, String name, String lane) {
+        if (!isEnabled()) {
+            return DISABLED;
+        }
+        long tid;
+        synchronized (lock) {
+            Long laneTid = lanes.get(lane);
+            if (laneTid == null) {
+                laneTid = (LANE_TID_BASE + lanes.size());
+                lanes.put(lane, laneTid);
+            }
+            tid = laneTid;
+        }
+        name(tid, lane);
+        return new Span(category, name, tid, now());
+    }
+
+    /**
+     * Terminates the trace file if it was created by {@link #init(String)}.  Spans ended after this call are not
+     * recorded.
+     */
+    public static void close() {
+        synchronized (lock) {
+            if ((out == null) || !owner) {
+                return;
+            }
+            // the last event is not followed by a comma; use it to name ply's own process
+            StringBuilder event = new StringBuilder(96);
+            appendMetadata("process_name", 0L, "ply", event);
+            event.setLength(event.length() - 2);
+            event.append("\n]\n");
+            write(event);
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+            out = null;
+            path = null;
+        }
+    }
+
+    private static void open(File traceFile, boolean create) {
+        synchronized (lock) {
+            try {
+                if (create) {
+                    new FileOutputStream(traceFile, false).close(); // truncate
+                }
+                // always append; the events of every process are written to the end of the file
+                out = new FileOutputStream(traceFile, true);
+                path = traceFile.getPath();
+                owner = create;
+                PID = PlyUtil.getPid();
+                StringBuilder header = new StringBuilder(128);
+                if (create) {
+                    header.append("[\n");
+                } else {
+                    appendMetadata("process_name", 0L, getProcessName(), header);
+                }
+                write(header);
+            } catch (IOException ioe) {
+                Output.printFromPly("^warn^ Could not create trace file ^b^%s^r^ [ %s ].", traceFile.getPath(), ioe.getMessage());
+                out = null;
+                path = null;
+            }
+        }
+    }
+
+    private static void name(long tid, String name) {
+        synchronized (lock) {
+            if (namedTids.add(tid)) {
+                StringBuilder event = new StringBuilder(96);
+                appendMetadata("thread_name", tid, name, event);
+                write(event);
+            }
+        }
+    }
+
+    private static void appendMetadata(String type, long tid, String name, StringBuilder into) {
+        into.append("{\"name\":\"").append(type).append("\",\"ph\":\"M\",\"pid\":").append(PID);
+        into.append(",\"tid\":").append(tid).append(",\"args\":{\"name\":");
+        Json.quote(name, into);
+        into.append("}},\n");
+    }
+
+    /**
+     * Writes {@code event} with one write so that the events of concurrent processes are not interleaved.
+     * @param event to write
+     */
+    private static void write(StringBuilder event) {
+        synchronized (lock) {
+            FileOutputStream stream = out;
+            if (stream == null) {
+                return;
+            }
+            try {
+                stream.write(event.toString().getBytes("UTF-8"));
+            } catch (UnsupportedEncodingException uee) {
+                throw new AssertionError(uee);
+            } catch (IOException ioe) {
+                // tracing is best-effort; stop rather than fail the build
+                out = null;
+                path = null;
+            }
+        }
+    }
+
+    private static long now() {
+        return EPOCH_MICROS + ((System.nanoTime() - NANO_ORIGIN) / 1000L);
+    }
+
+    /**
+     * @return the simple name of the main class of this script (skipping the {@literal JvmPrimer} if used)
+     */
+    private static String getProcessName() {
+        String command = System.getProperty("sun.java.command", "");
+        String[] split = command.split(" ");
+        String main = split[0];
+        if (main.endsWith("JvmPrimer") && (split.length > 1)) {
+            main = split[1];
+        }
+        int index = (main.endsWith(".jar") ? main.lastIndexOf(File.separatorChar) : main.lastIndexOf('.'));
+        return (index == -1 ? main : main.substring(index + 1));
+    }
+
+    private Trace() { }
+
+}
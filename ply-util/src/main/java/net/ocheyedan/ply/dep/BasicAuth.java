@@ -71,9 +71,9 @@ final class BasicAuth implements Auth {
     @Override public void acquireAccess(Auth.Acquisition acquisition) {
         String password = acquisition.getAccess(username, encryptedPwd);
         if (!head(repositoryAtom.getPreResolvedUri(), username, password)) {
-            Output.print("^error^ Could not create auth token for ^b^%s^r^ in repo ^b^%s^r^", username,
+            Output.printFromPly("^error^ Could not create auth token for ^b^%s^r^ in repo ^b^%s^r^", username,
                     repositoryAtom.getPreResolvedUri());
-            Output.print("^error^ Perhaps you entered the wrong password?");
+            Output.printFromPly("^error^ Perhaps you entered the wrong password?");
             System.exit(1);
         }
     }
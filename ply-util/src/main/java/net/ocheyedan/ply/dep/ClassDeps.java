@@ -14,7 +14,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -68,7 +70,7 @@ public class ClassDeps {
         File classDepsDirectory = new File(classDepsPath);
         if (!classDepsDirectory.exists()) {
             if (!classDepsDirectory.mkdirs()) {
-                Output.print("^error^Could not create directory ^b^%s^r^", classDepsPath);
+                Output.printFromPly("^error^Could not create directory ^b^%s^r^", classDepsPath);
                 SystemExit.exit(1);
             }
         }
@@ -88,6 +90,63 @@ public class ClassDeps {
         }
     }
 
+    /**
+     * Walks the class-dependency files within {@code classDepsPath} (as stored by {@link #processClassDependencies(String, Set)})
+     * to find every class which transitively depends upon any of {@code classNames}.  As inner classes have their own
+     * class-dependency files but share their outer class's source file, any class-dependency file for an inner class
+     * of a class within {@code classNames} is walked as well.
+     * @param classDepsPath the class-dependency directory (i.e., {@literal compiler.class.deps} for a given scope)
+     * @param classNames the fully qualified class names from which to start
+     * @return {@code classNames} along with every class name which transitively depends upon any of {@code classNames}
+     */
+    public Set<String> getTransitiveDependents(String classDepsPath, Set<String> classNames) {
+        Set<String> dependents = new HashSet<String>(classNames);
+        File[] classDepFiles = new File(classDepsPath).listFiles();
+        if (classDepFiles == null) {
+            return dependents;
+        }
+        // index the class-dependency files by outer class name so that inner classes are walked with their outer class
+        Map<String, Set<String>> byOuterClass = new HashMap<String, Set<String>>(classDepFiles.length, 1.0f);
+        for (File classDepFile : classDepFiles) {
+            String name = classDepFile.getName();
+            if (!name.endsWith(".properties")) {
+                continue;
+            }
+            String className = name.substring(0, name.length() - 11);
+            int innerIndex = className.indexOf('$');
+            String outerClassName = (innerIndex == -1 ? className : className.substring(0, innerIndex));
+            Set<String> classes = byOuterClass.get(outerClassName);
+            if (classes == null) {
+                classes = new HashSet<String>(2);
+                byOuterClass.put(outerClassName, classes);
+            }
+            classes.add(className);
+        }
+        LinkedList<String> toVisit = new LinkedList<String>(classNames);
+        Set<String> visited = new HashSet<String>(classNames.size());
+        while (!toVisit.isEmpty()) {
+            String className = toVisit.removeFirst();
+            int innerIndex = className.indexOf('$');
+            String outerClassName = (innerIndex == -1 ? className : className.substring(0, innerIndex));
+            if (!visited.add(outerClassName)) {
+                continue;
+            }
+            Set<String> classes = byOuterClass.get(outerClassName);
+            if (classes == null) {
+                continue;
+            }
+            for (String classWithDeps : classes) {
+                PropFile classDeps = PropFiles.load(FileUtil.pathFromParts(classDepsPath, classWithDeps + ".properties"), false, false);
+                for (PropFile.Prop dependent : classDeps.props()) {
+                    if (dependents.add(dependent.name)) {
+                        toVisit.add(dependent.name);
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
     /**
      * Reads {@code pathToJar} as a JAR file and returns all {@literal .class} files
      * @param pathToJar to read as JAR
@@ -107,7 +166,7 @@ public class ClassDeps {
             }
             return jarClasses;
         } catch (IOException ioe) {
-            Output.print("^error^Could not load JAR file ^b^%s^r^", pathToJar);
+            Output.printFromPly("^error^Could not load JAR file ^b^%s^r^", pathToJar);
             SystemExit.exit(1);
             return Collections.emptySet();
         } finally {
@@ -115,7 +174,7 @@ public class ClassDeps {
                 try {
                     jarInputStream.close();
                 } catch (IOException ioe) {
-                    Output.print("^warn^Could not close JAR file ^b^%s^r^", pathToJar);
+                    Output.printFromPly("^warn^Could not close JAR file ^b^%s^r^", pathToJar);
                 }
             }
         }
@@ -153,7 +212,7 @@ public class ClassDeps {
         Map<String, String> files = new ConcurrentHashMap<String, String>(filePaths.size(), 1.0f);
         for (String filePath : filePaths) {
             if (!filePath.endsWith(".class")) {
-                Output.print("^warn^Given non-class file for dependency capture [ ^b^%s^r^ ]", filePath);
+                Output.printFromPly("^warn^Given non-class file for dependency capture [ ^b^%s^r^ ]", filePath);
                 continue;
             }
             int pathStart = filePath.indexOf(classBaseDir);
@@ -1,9 +1,11 @@
 package net.ocheyedan.ply.dep;
 
+import net.ocheyedan.ply.Events;
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.PlyUtil;
 import net.ocheyedan.ply.SystemExit;
+import net.ocheyedan.ply.Trace;
 import net.ocheyedan.ply.graph.DirectedAcyclicGraph;
 import net.ocheyedan.ply.graph.Graph;
 import net.ocheyedan.ply.graph.Graphs;
@@ -211,8 +213,10 @@ public final class Deps {
                                                                ConflictingVersionVisitor conflictingVersionVisitor) {
         DirectedAcyclicGraph<Dep> dependencyDAG = new DirectedAcyclicGraph<Dep>();
         Set<String> alreadyPrinted = new HashSet<String>((exclusionAtoms == null ? 16 : exclusionAtoms.size()));
+        Trace.Span span = Trace.start("deps", "dependency graph");
         fillDependencyGraph(null, dependencyAtoms, exclusionAtoms, classifier, repositoryRegistry, dependencyDAG, new FillGraphState(),
                 alreadyPrinted, false, failMissingDependency, conflictingVersionVisitor);
+        span.end();
         return dependencyDAG;
     }
 
@@ -248,7 +252,7 @@ public final class Deps {
                                             boolean pomSufficient, boolean failMissingDependency,
                                             ConflictingVersionVisitor conflictingVersionVisitor) {
         if (repositoryRegistry.isEmpty()) {
-            Output.print("^error^ No repositories found, cannot resolve dependencies.");
+            Output.printFromPly("^error^ No repositories found, cannot resolve dependencies.");
             SystemExit.exit(1);
         }
         for (DependencyAtom dependencyAtom : dependencyAtoms) {
@@ -261,11 +265,11 @@ public final class Deps {
                 String key = String.format("exclusions:%s", dependencyAtom.toString());
                 if (!alreadyPrinted.contains(key)) {
                     alreadyPrinted.add(key);
-                    Output.print("^info^ Skipping excluded dependency ^b^%s^r^.", dependencyAtom.toString());
+                    Output.printFromPly("^info^ Skipping excluded dependency ^b^%s^r^.", dependencyAtom.toString());
                 }
                 continue; // non-direct dependency listed in exclusions, skip
             } else if ((parentVertex == null) && exclusionAtoms.contains(dependencyAtom)) {
-                Output.print("^error^ Direct dependency ^b^%s^r^ listed in exclusions, remove as dependency or as exclusion.",
+                Output.printFromPly("^error^ Direct dependency ^b^%s^r^ listed in exclusions, remove as dependency or as exclusion.",
                         dependencyAtom.toString());
                 SystemExit.exit(1);
             }
@@ -290,10 +294,10 @@ public final class Deps {
                 }
                 if ((resolvedDep == null) && !failMissingDependency) {
                     if (Output.isInfo()) {
-                        Output.print("^info^ Could not resolve dependency ^b^%s^r^.", dependencyAtom.toString());
+                        Output.printFromPly("^info^ Could not resolve dependency ^b^%s^r^.", dependencyAtom.toString());
                         String path = getPathAsString(parentVertex, dependencyAtom);
                         if (path != null) {
-                            Output.print("^info^ path to unresolved dependency [ %s ].", path);
+                            Output.printFromPly("^info^ path to unresolved dependency [ %s ].", path);
                         }
                     }
                     continue;
@@ -305,7 +309,7 @@ public final class Deps {
             if (resolvedDep == null) {
                 String path = getPathAsString(parentVertex, dependencyAtom);
                 if (path != null) {
-                    Output.print("^error^ path to missing dependency [ %s ].", path);
+                    Output.printFromPly("^error^ path to missing dependency [ %s ].", path);
                 }
                 SystemExit.exit(1);
             }
@@ -314,7 +318,7 @@ public final class Deps {
                 try {
                     graph.addEdge(parentVertex, vertex);
                 } catch (Graph.CycleException gce) {
-                    Output.print("^error^ circular dependency [ %s ].", getCycleAsString(gce));
+                    Output.printFromPly("^error^ circular dependency [ %s ].", getCycleAsString(gce));
                     SystemExit.exit(1);
                 }
             }
@@ -346,11 +350,11 @@ public final class Deps {
         Vertex<Dep> diffVersionParent = graph.getVertex(diffVersionDep).getAnyParent();
         String diffVersionPath = getPathAsString(diffVersionParent, diffVersionDep.dependencyAtom);
         String path = getPathAsString(parentVertex, dependencyAtom);
-        Output.print("^warn^ Dependency graph contains conflicting versions for ^b^%s^r^ [ ^yellow^%s^r^ ] and [ ^yellow^%s^r^ ].",
+        Output.printFromPly("^warn^ Dependency graph contains conflicting versions for ^b^%s^r^ [ ^yellow^%s^r^ ] and [ ^yellow^%s^r^ ].",
                 resolvedDep.toString(), diffVersionDep.dependencyAtom.getPropertyValue(), resolvedDep.dependencyAtom.getPropertyValue());
-        Output.print("^warn^   ^b^%s^r^ => %s", diffVersionDep.dependencyAtom.getPropertyValue(), (diffVersionPath == null ? "<direct dependency>" : diffVersionPath));
-        Output.print("^warn^   ^b^%s^r^ => %s", resolvedDep.dependencyAtom.getPropertyValue(), (path == null ? "<direct dependency>" : path));
-        Output.print("^warn^ You can resolve this warning by excluding one of these versions from your project's dependency graph: ^b^ply dep exclude^r^ [ ^b^%s^r^ | ^b^%s^r^ ]",
+        Output.printFromPly("^warn^   ^b^%s^r^ => %s", diffVersionDep.dependencyAtom.getPropertyValue(), (diffVersionPath == null ? "<direct dependency>" : diffVersionPath));
+        Output.printFromPly("^warn^   ^b^%s^r^ => %s", resolvedDep.dependencyAtom.getPropertyValue(), (path == null ? "<direct dependency>" : path));
+        Output.printFromPly("^warn^ You can resolve this warning by excluding one of these versions from your project's dependency graph: ^b^ply dep exclude^r^ [ ^b^%s^r^ | ^b^%s^r^ ]",
                 diffVersionDep.toVersionString(), resolvedDep.toVersionString());
     }
 
@@ -450,10 +454,10 @@ public final class Deps {
         }
 
         if (failMissingDependency) {
-            Output.print("^error^ Dependency ^b^%s^r^ not found in any repository; ensure repositories are accessible.", dependencyAtom.toString());
-            Output.print("^error^ Project's local repository is ^b^%s^r^.", localRepo.toString());
+            Output.printFromPly("^error^ Dependency ^b^%s^r^ not found in any repository; ensure repositories are accessible.", dependencyAtom.toString());
+            Output.printFromPly("^error^ Project's local repository is ^b^%s^r^.", localRepo.toString());
             int remoteRepoSize = repositoryRegistry.remoteRepositories.size();
-            Output.print("^error^ Project has ^b^%d^r^ other repositor%s %s", remoteRepoSize, (remoteRepoSize != 1 ? "ies" : "y"),
+            Output.printFromPly("^error^ Project has ^b^%d^r^ other repositor%s %s", remoteRepoSize, (remoteRepoSize != 1 ? "ies" : "y"),
                     (remoteRepoSize > 0 ? repositoryRegistry.remoteRepositories.toString() : ""));
         }
         return null;
@@ -469,8 +473,10 @@ public final class Deps {
         File localDepFile = new File(localPaths.localUrl.getFile());
         File localPomDepFile = new File(localPomPaths.localUrl.getFile());
         if (localDepFile.exists()) {
+            Events.emit("dependency.resolve", "dependency", dependencyAtom.toString(), "cached", true);
             return resolveDependency(dependencyAtom, classifier, localRepo, localPaths.localDirUrlPath, localPaths.localDirPath);
         } else if (pomSufficient && localPomDepFile.exists()) {
+            Events.emit("dependency.resolve", "dependency", dependencyAtom.toString(), "cached", true);
             return resolveDependency(pomDependencyAtom, classifier, localRepo, localPomPaths.localDirUrlPath, localPomPaths.localDirPath);
         }
         // not in the local repository, check each other repository.
@@ -478,6 +484,9 @@ public final class Deps {
         if ((resolved == null) && pomSufficient) {
             resolved = resolveDependencyFromRemoteRepos(pomDependencyAtom, classifier, repositoryRegistry, localPomPaths, localPomDepFile);
         }
+        if (resolved != null) {
+            Events.emit("dependency.resolve", "dependency", dependencyAtom.toString(), "cached", false);
+        }
         return resolved;
     }
 
@@ -507,7 +516,10 @@ public final class Deps {
             remotePath = unauthRemotePath;
         }
         URL remoteUrl = getUrl(remotePath);
-        if (!FileUtil.download(remoteUrl, headers, localDepFile, dependencyAtom.toString(), remoteRepo.toString(), true)) {
+        Trace.Span span = Trace.start("deps", "download " + dependencyAtom.toString());
+        boolean downloaded = FileUtil.download(remoteUrl, headers, localDepFile, dependencyAtom.toString(), remoteRepo.toString(), true);
+        span.end();
+        if (!downloaded) {
             return false;
         }
         // TODO - verify checksum
@@ -530,7 +542,7 @@ public final class Deps {
         AtomicReference<String> dependenciesFileName = new AtomicReference<String>("dependencies.properties");
         PropFile dependenciesFile = getDependenciesFile(dependencyAtom, repositoryAtom, repoDirPath, dependenciesFileName);
         if (dependenciesFile == null) {
-            Output.print("^dbug^ No dependencies file found for %s in repo %s.", dependencyAtom.toString(), repositoryAtom.toString());
+            Output.printFromPly("^dbug^ No dependencies file found for %s in repo %s.", dependencyAtom.toString(), repositoryAtom.toString());
             dependenciesFile = new PropFile(Context.named("dependencies"), PropFile.Loc.Local);
         }
         // TODO - only store if necessary (also add force-update command like Maven's -U)
@@ -580,7 +592,7 @@ public final class Deps {
     private static DependencyAtom parse(String name, String value, AtomicReference<String> error) {
         DependencyAtom dependency = DependencyAtom.parse(name + ":" + value, error);
         if (dependency == null) {
-            Output.print("^warn^ Invalid dependency %s:%s; %s", name, value, error.get());
+            Output.printFromPly("^warn^ Invalid dependency %s:%s; %s", name, value, error.get());
             return null;
         }
         return dependency;
@@ -632,7 +644,7 @@ public final class Deps {
      *         + {@link Dep#dependencyAtom#getArtifactName()}).
      *
      */
-    public static PropFile convertToResolvedPropertiesFile(DirectedAcyclicGraph<Dep> graph) {
+    public static PropFile convertToResolvedPropertiesFile(Graph<Dep> graph) {
         final PropFile props = new PropFile(Context.named("resolved-deps"), PropFile.Loc.Local);
         Graphs.visit(graph, new Graphs.Visitor<Dep>() {
             @Override public void visit(Vertex<Dep> vertex) {
@@ -668,7 +680,7 @@ public final class Deps {
      * @param scope the scope of the resolved-deps property file.
      * @param nullOnFNF if true then null is returned if the file is not found; otherwise, an empty {@link Properties}
      *                  is returned
-     * @return the contents of ${project.build.dir}/${resolved-deps.properties} relative to {@code projectConfigDir} or
+     * @return the (read-only) contents of ${project.build.dir}/${resolved-deps.properties} relative to {@code projectConfigDir} or
      *         an empty {@link Properties} if no such file is found and {@code nullOnFNF} is false otherwise null if no
      *         such file is found and {@code nullOnFNF} is true.
      */
@@ -680,7 +692,8 @@ public final class Deps {
         if (!dependenciesFile.exists()) {
             return (nullOnFNF ? null : resolvedDeps);
         }
-        return PropFiles.load(dependenciesFile.getPath(), false, nullOnFNF);
+        PropFile loaded = PropFiles.load(dependenciesFile.getPath(), false, nullOnFNF);
+        return (loaded == null ? null : loaded.readOnly());
     }
 
     /**
@@ -799,7 +812,7 @@ public final class Deps {
         String storePath = getBuildDirStorePath("changed-deps", scope);
         PropFile propFile = new PropFile(Context.named("changed-deps"), PropFile.Loc.AdHoc);
         if (!PropFiles.load(storePath, propFile, true, false)) {
-            Output.print("^error^Could not load ^b^%s^r^", storePath);
+            Output.printFromPly("^error^Could not load ^b^%s^r^", storePath);
             System.exit(1);
         }
         return propFile;
@@ -824,13 +837,13 @@ public final class Deps {
             return new URI(path.replaceAll("\\\\", "/")).toURL();
         } catch (URISyntaxException urise) {
             Output.print(urise);
-            Output.print("^error^ for %s", path);
+            Output.printFromPly("^error^ for %s", path);
         } catch (MalformedURLException murle) {
             Output.print(murle);
-            Output.print("^error^ for %s", path);
+            Output.printFromPly("^error^ for %s", path);
         } catch (IllegalArgumentException iae) {
             Output.print(iae);
-            Output.print("^error^ for %s", path);
+            Output.printFromPly("^error^ for %s", path);
         }
         return null;
     }
@@ -896,7 +909,7 @@ public final class Deps {
         try {
             mavenPom = mavenPomParser.parsePom(pomUrlPath, repositoryAtom);
         } catch (RuntimeException re) {
-            Output.print("^error^ Error parsing POM [ %s ]", pomUrlPath);
+            Output.printFromPly("^error^ Error parsing POM [ %s ]", pomUrlPath);
             throw re;
         }
         return (mavenPom == null ? new PropFile(Context.named("dependencies"), PropFile.Loc.Local) : mavenPom.dependencies);
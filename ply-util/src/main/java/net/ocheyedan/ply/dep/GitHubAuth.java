@@ -70,8 +70,8 @@ final class GitHubAuth implements Auth {
         if (headers.isEmpty()) {
             String authToken = getAuthToken(configDir, scope);
             if ((authToken == null) || authToken.isEmpty()) {
-                Output.print("^error^ Could not get git-hub auth token for ^b^%s^r^ in repo ^b^%s^r^", username, repositoryAtom.getPreResolvedUri());
-                Output.print("^error^ Fix by running command: ^b^ply repo auth %s git %s^r^", repositoryAtom.getPreResolvedUri(), username);
+                Output.printFromPly("^error^ Could not get git-hub auth token for ^b^%s^r^ in repo ^b^%s^r^", username, repositoryAtom.getPreResolvedUri());
+                Output.printFromPly("^error^ Fix by running command: ^b^ply repo auth %s git %s^r^", repositoryAtom.getPreResolvedUri(), username);
                 System.exit(1);
             }
             headers.put("Authorization", String.format("token %s", authToken));
@@ -82,8 +82,8 @@ final class GitHubAuth implements Auth {
 
     @Override public void acquireAccess(Auth.Acquisition acquisition) {
         if (!createAuthToken(acquisition)) {
-            Output.print("^error^ Could not create git-hub auth token for ^b^%s^r^ in repo ^b^%s^r^", username, repositoryAtom.getPreResolvedUri());
-            Output.print("^error^ Perhaps you entered the wrong password?");
+            Output.printFromPly("^error^ Could not create git-hub auth token for ^b^%s^r^ in repo ^b^%s^r^", username, repositoryAtom.getPreResolvedUri());
+            Output.printFromPly("^error^ Perhaps you entered the wrong password?");
             System.exit(1);
         }
     }
@@ -158,7 +158,7 @@ public final class Repos {
         PropFile resolvedDependencies = Deps.getResolvedProperties(true);
         if (resolvedDependencies == null) {
             if ((dependenciesFile != null) && dependenciesFile.exists()) {
-                Output.print("^error^ Could not find the resolved-deps.properties file; dependencies must be resolved to compute checksum.");
+                Output.printFromPly("^error^ Could not find the resolved-deps.properties file; dependencies must be resolved to compute checksum.");
                 return false;
             } else {
                 return true; // project has no dependencies
@@ -218,9 +218,9 @@ public final class Repos {
         RepositoryAtom localRepo = RepositoryAtom.parse(localRepoProp.value());
         if (localRepo == null) {
             if (PropFile.Prop.Empty.equals(localRepoProp)) {
-                Output.print("^error^ No ^b^localRepo^r^ property defined (^b^ply set localRepo=xxxx in depmngr^r^).");
+                Output.printFromPly("^error^ No ^b^localRepo^r^ property defined (^b^ply set localRepo=xxxx in depmngr^r^).");
             } else {
-                Output.print("^error^ Could not resolve directory for ^b^localRepo^r^ property [ is ^b^%s^r^ ].", localRepoProp.value());
+                Output.printFromPly("^error^ Could not resolve directory for ^b^localRepo^r^ property [ is ^b^%s^r^ ].", localRepoProp.value());
             }
             throw new SystemExit(1);
         }
@@ -236,7 +236,7 @@ public final class Repos {
                 String repoAtom = repoType + ":" + repoUri;
                 RepositoryAtom repo = RepositoryAtom.parse(repoAtom);
                 if (repo == null) {
-                    Output.print("^warn^ Invalid repository declared %s, ignoring.", repoAtom);
+                    Output.printFromPly("^warn^ Invalid repository declared %s, ignoring.", repoAtom);
                 } else {
                     Auth auth = getAuth(configDirectory, scope, repo);
                     repo.setAuth(auth);
@@ -265,7 +265,7 @@ public final class Repos {
     public static RepositoryAtom getExistingRepo(File configDir, Scope scope, String repository) throws SystemExit {
         RepositoryAtom atom = RepositoryAtom.parse(repository);
         if (atom == null) {
-            Output.print("^error^ Repository %s not of format [type:]repoUri.", repository);
+            Output.printFromPly("^error^ Repository %s not of format [type:]repoUri.", repository);
             throw new SystemExit(1);
         }
 
@@ -277,7 +277,7 @@ public final class Repos {
             found = (toTryAtom == null ? PropFile.Prop.Empty :
                     Props.get(toTryAtom.getPreResolvedUri(), Context.named("repositories"), scope, configDir));
             if (PropFile.Prop.Empty.equals(found)) {
-                Output.print("^warn^ Repository not found; given %s", repository);
+                Output.printFromPly("^warn^ Repository not found; given %s", repository);
                 return null;
             } else {
                 atom = toTryAtom;
@@ -342,7 +342,7 @@ public final class Repos {
             String value = prop.value();
             int index = value.indexOf(':');
             if (index == -1) {
-                Output.print("^warn^ Found auth setting for repo [ %s ] but could not parse it [ %s ], ignoring", repository, value);
+                Output.printFromPly("^warn^ Found auth setting for repo [ %s ] but could not parse it [ %s ], ignoring", repository, value);
                 return null;
             }
             String type = value.substring(0, index);
@@ -350,17 +350,17 @@ public final class Repos {
             try {
                 authType = AuthType.valueOf(type);
             } catch (Exception e) {
-                Output.print("^warn^ Found auth setting for repo [ %s ] but invalid auth-type [ %s ], ignoring", repository, value);
+                Output.printFromPly("^warn^ Found auth setting for repo [ %s ] but invalid auth-type [ %s ], ignoring", repository, value);
                 return null;
             }
             int usernameIndex = value.indexOf(':', index + 1);
             if (usernameIndex == -1) {
-                Output.print("^warn^ Found auth setting for repo [ %s ] but could not parse it [ %s ], ignoring", repository, value);
+                Output.printFromPly("^warn^ Found auth setting for repo [ %s ] but could not parse it [ %s ], ignoring", repository, value);
                 return null;
             }
             String username = value.substring(index + 1, usernameIndex);
             if (usernameIndex >= (value.length() - 1)) {
-                Output.print("^warn^ Found auth setting for repo [ %s ] but could not parse it [ %s ], ignoring", repository, value);
+                Output.printFromPly("^warn^ Found auth setting for repo [ %s ] but could not parse it [ %s ], ignoring", repository, value);
                 return null;
             }
             String encryptedPwd = value.substring(usernameIndex + 1);
@@ -0,0 +1,520 @@
+package net.ocheyedan.ply.graph;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * User: blangel
+ * Date: 10/24/14
+ * Time: 11:20 AM
+ *
+ * An immutable graph whose vertices are identified by {@code int} ids (from 0 to {@link #size()} exclusive) and whose
+ * edges are held in compressed sparse row form; i.e., the children of vertex {@code id} are
+ * {@code children[childOffsets[id]]} to {@code children[childOffsets[id + 1]]} exclusive (and likewise for parents).
+ * Traversals track visited vertices within a {@link BitSet} rather than a map of states.  This makes large graphs
+ * (e.g., the dependencies of every module and scope of a project) cheap to hold and to traverse repeatedly.
+ *
+ * Create via {@link #of(Graph)} (a snapshot of another graph) or via {@link Builder}.  As a {@link Graph} its
+ * vertices are views, each created upon first use, whose parents and children are read from the id arrays (so no
+ * second copy of the edges is made); the mutating methods throw {@link UnsupportedOperationException} unless they
+ * would not change the graph.
+ */
+public final class CompactGraph<T> implements Graph<T> {
+
+    /**
+     * Builds a {@link CompactGraph}.
+     */
+    public static final class Builder<T> {
+
+        private final Map<T, Integer> ids = new HashMap<T, Integer>();
+
+        private final List<T> values = new ArrayList<T>();
+
+        private int[] edges = new int[32];
+
+        private int edgeCount = 0;
+
+        /**
+         * @param of the value to add into the graph
+         * @return the id of the vertex for {@code of} (the existing id if {@code of} was already added)
+         */
+        public int addVertex(T of) {
+            Integer id = ids.get(of);
+            if (id == null) {
+                id = values.size();
+                ids.put(of, id);
+                values.add(of);
+            }
+            return id;
+        }
+
+        /**
+         * Adds an edge from vertex {@code from} to vertex {@code to}; adding an edge more than once adds it once.
+         * @param from id of the source vertex
+         * @param to id of the target vertex
+         */
+        public void addEdge(int from, int to) {
+            if ((from < 0) || (from >= values.size()) || (to < 0) || (to >= values.size())) {
+                throw new IndexOutOfBoundsException(String.format("Edge %d -> %d of a graph of %d vertices.", from, to,
+                        values.size()));
+            }
+            if ((edgeCount * 2) == edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+            }
+            edges[edgeCount * 2] = from;
+            edges[(edgeCount * 2) + 1] = to;
+            edgeCount++;
+        }
+
+        public CompactGraph<T> build() {
+            int size = values.size();
+            int[] childOffsets = new int[size + 1];
+            int[] parentOffsets = new int[size + 1];
+            for (int i = 0; i < edgeCount; i++) {
+                childOffsets[edges[i * 2] + 1]++;
+                parentOffsets[edges[(i * 2) + 1] + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                childOffsets[i + 1] += childOffsets[i];
+                parentOffsets[i + 1] += parentOffsets[i];
+            }
+            int[] children = new int[edgeCount];
+            int[] parents = new int[edgeCount];
+            int[] childFill = Arrays.copyOf(childOffsets, size);
+            int[] parentFill = Arrays.copyOf(parentOffsets, size);
+            for (int i = 0; i < edgeCount; i++) {
+                int from = edges[i * 2], to = edges[(i * 2) + 1];
+                if (contains(children, childOffsets[from], childFill[from], to)) {
+                    continue; // duplicate edge
+                }
+                children[childFill[from]++] = to;
+                parents[parentFill[to]++] = from;
+            }
+            // compact away the space reserved for duplicate edges, if any
+            int[] compactChildOffsets = compact(children, childOffsets, childFill);
+            int[] compactParentOffsets = compact(parents, parentOffsets, parentFill);
+            int distinctEdges = compactChildOffsets[size];
+            @SuppressWarnings("unchecked")
+            T[] vertexValues = (T[]) values.toArray();
+            return new CompactGraph<T>(vertexValues, new HashMap<T, Integer>(ids),
+                    compactChildOffsets, Arrays.copyOf(children, distinctEdges),
+                    compactParentOffsets, Arrays.copyOf(parents, distinctEdges));
+        }
+
+        private static boolean contains(int[] array, int from, int to, int value) {
+            for (int i = from; i < to; i++) {
+                if (array[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Shifts the filled portion of each row of {@code adjacency} to be contiguous.
+         * @return the offsets of the rows after shifting
+         */
+        private static int[] compact(int[] adjacency, int[] offsets, int[] fill) {
+            int size = fill.length;
+            int[] compacted = new int[size + 1];
+            int index = 0;
+            for (int i = 0; i < size; i++) {
+                compacted[i] = index;
+                for (int j = offsets[i]; j < fill[i]; j++) {
+                    adjacency[index++] = adjacency[j];
+                }
+            }
+            compacted[size] = index;
+            return compacted;
+        }
+    }
+
+    /**
+     * @param graph of which to create a snapshot
+     * @param <T> type of the value of the vertices of {@code graph}
+     * @return a {@link CompactGraph} with the vertices of {@code graph} (with ids in the order of
+     *         {@link Graph#getVertices()}) and its edges (in the order of {@link Vertex#getChildren()})
+     */
+    public static <T> CompactGraph<T> of(Graph<T> graph) {
+        if (graph instanceof CompactGraph) {
+            return (CompactGraph<T>) graph;
+        }
+        Builder<T> builder = new Builder<T>();
+        List<Vertex<T>> vertices = graph.getVertices();
+        for (Vertex<T> vertex : vertices) {
+            builder.addVertex(vertex.getValue());
+        }
+        for (Vertex<T> vertex : vertices) {
+            int from = builder.addVertex(vertex.getValue());
+            for (Vertex<T> child : vertex.getChildren()) {
+                builder.addEdge(from, builder.addVertex(child.getValue()));
+            }
+        }
+        return builder.build();
+    }
+
+    private final T[] values;
+
+    private final Map<T, Integer> ids;
+
+    private final int[] childOffsets;
+
+    private final int[] children;
+
+    private final int[] parentOffsets;
+
+    private final int[] parents;
+
+    /**
+     * The {@link Vertex} views of the vertices, by id; each created upon first use.
+     */
+    private final AtomicReferenceArray<Vertex<T>> views;
+
+    private CompactGraph(T[] values, Map<T, Integer> ids, int[] childOffsets, int[] children, int[] parentOffsets,
+                         int[] parents) {
+        this.values = values;
+        this.ids = ids;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.parentOffsets = parentOffsets;
+        this.parents = parents;
+        this.views = new AtomicReferenceArray<Vertex<T>>(values.length);
+    }
+
+    /**
+     * @return the number of vertices
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the number of edges
+     */
+    public int getEdgeCount() {
+        return children.length;
+    }
+
+    /**
+     * @param of the value of which to get the id
+     * @return the id of the vertex of {@code of} or -1 if there is none
+     */
+    public int getId(T of) {
+        Integer id = ids.get(of);
+        return (id == null ? -1 : id);
+    }
+
+    public T getValue(int id) {
+        return values[id];
+    }
+
+    public int getChildCount(int id) {
+        return childOffsets[id + 1] - childOffsets[id];
+    }
+
+    /**
+     * @param id of the vertex
+     * @param index of the child, from 0 to {@link #getChildCount(int)} exclusive
+     * @return the id of the {@code index}-th child of vertex {@code id}
+     */
+    public int getChild(int id, int index) {
+        return children[childOffsets[id] + index];
+    }
+
+    public int getParentCount(int id) {
+        return parentOffsets[id + 1] - parentOffsets[id];
+    }
+
+    /**
+     * @param id of the vertex
+     * @param index of the parent, from 0 to {@link #getParentCount(int)} exclusive
+     * @return the id of the {@code index}-th parent of vertex {@code id}
+     */
+    public int getParent(int id, int index) {
+        return parents[parentOffsets[id] + index];
+    }
+
+    /**
+     * @return the ids of all vertices such that each vertex precedes its children (ties broken by id)
+     * @throws CycleException if the graph is cyclic
+     */
+    public int[] topologicalSort() throws CycleException {
+        int size = size();
+        int[] order = new int[size];
+        int[] remainingParents = new int[size];
+        int count = 0;
+        for (int id = 0; id < size; id++) {
+            remainingParents[id] = getParentCount(id);
+            if (remainingParents[id] == 0) {
+                order[count++] = id;
+            }
+        }
+        for (int index = 0; index < count; index++) {
+            int id = order[index];
+            for (int i = childOffsets[id]; i < childOffsets[id + 1]; i++) {
+                if (--remainingParents[children[i]] == 0) {
+                    order[count++] = children[i];
+                }
+            }
+        }
+        if (count < size) {
+            List<Vertex<T>> cycle = findCycle(remainingParents);
+            throw new CycleException(String.format("Graph contains a cycle through '%s'.", cycle.get(0).toString()),
+                    cycle, Collections.emptyList());
+        }
+        return order;
+    }
+
+    /**
+     * @param from id of the source vertex
+     * @param to id of the target vertex
+     * @return true if there is a path from vertex {@code from} to vertex {@code to} (a vertex is reachable from itself)
+     */
+    public boolean isReachable(int from, int to) {
+        return (from == to) || traverse(from, to).get(to);
+    }
+
+    /**
+     * @param from id of the source vertex
+     * @return the ids of the vertices reachable from vertex {@code from} (including {@code from} itself)
+     */
+    public BitSet getReachable(int from) {
+        return traverse(from, -1);
+    }
+
+    /**
+     * A vertex's level is 0 if it has no children and otherwise one more than the greatest level of its children.  All
+     * vertices of a level depend only upon vertices of lower levels and so may be processed in parallel once the lower
+     * levels have been.
+     * @return the level of each vertex, by id
+     * @throws CycleException if the graph is cyclic
+     */
+    public int[] getLevels() throws CycleException {
+        int[] order = topologicalSort();
+        int[] levels = new int[size()];
+        for (int index = order.length - 1; index >= 0; index--) {
+            int id = order[index], level = 0;
+            for (int i = childOffsets[id]; i < childOffsets[id + 1]; i++) {
+                level = Math.max(level, levels[children[i]] + 1);
+            }
+            levels[id] = level;
+        }
+        return levels;
+    }
+
+    /**
+     * @return the ids of the vertices of each level (see {@link #getLevels()}), lowest level first, each in order of id
+     * @throws CycleException if the graph is cyclic
+     */
+    public int[][] getWaves() throws CycleException {
+        int[] levels = getLevels();
+        int maxLevel = -1;
+        for (int level : levels) {
+            maxLevel = Math.max(maxLevel, level);
+        }
+        int[] counts = new int[maxLevel + 1];
+        for (int level : levels) {
+            counts[level]++;
+        }
+        int[][] waves = new int[maxLevel + 1][];
+        for (int level = 0; level <= maxLevel; level++) {
+            waves[level] = new int[counts[level]];
+            counts[level] = 0;
+        }
+        for (int id = 0; id < levels.length; id++) {
+            waves[levels[id]][counts[levels[id]]++] = id;
+        }
+        return waves;
+    }
+
+    @Override public Vertex<T> addVertex(T of) {
+        Vertex<T> vertex = getVertex(of);
+        if (vertex == null) {
+            throw new UnsupportedOperationException("CompactGraph is immutable; use a CompactGraph.Builder.");
+        }
+        return vertex;
+    }
+
+    @Override public void addEdge(Vertex<T> from, Vertex<T> to) throws CycleException {
+        if ((from == null) || (to == null) || !hasVertex(from.getValue()) || !hasVertex(to.getValue())
+                || hasEdge(from, to)) {
+            return;
+        }
+        throw new UnsupportedOperationException("CompactGraph is immutable; use a CompactGraph.Builder.");
+    }
+
+    @Override public void removeEdge(Vertex<T> from, Vertex<T> to) {
+        if (hasEdge(from, to)) {
+            throw new UnsupportedOperationException("CompactGraph is immutable; use a CompactGraph.Builder.");
+        }
+    }
+
+    @Override public Vertex<T> getVertex(T of) {
+        int id = getId(of);
+        return (id == -1 ? null : getView(id));
+    }
+
+    @Override public boolean hasVertex(T of) {
+        return ids.containsKey(of);
+    }
+
+    @Override public boolean hasEdge(Vertex<T> from, Vertex<T> to) {
+        if ((from == null) || (to == null)) {
+            return false;
+        }
+        int fromId = getId(from.getValue()), toId = getId(to.getValue());
+        if ((fromId == -1) || (toId == -1)) {
+            return false;
+        }
+        for (int i = childOffsets[fromId]; i < childOffsets[fromId + 1]; i++) {
+            if (children[i] == toId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override public boolean isCyclic() {
+        try {
+            topologicalSort();
+            return false;
+        } catch (CycleException ce) {
+            return true;
+        }
+    }
+
+    @Override public List<Vertex<T>> getVertices() {
+        List<Vertex<T>> vertices = new ArrayList<Vertex<T>>(size());
+        for (int id = 0; id < size(); id++) {
+            vertices.add(getView(id));
+        }
+        return vertices;
+    }
+
+    @Override public List<Vertex<T>> getRootVertices() {
+        List<Vertex<T>> roots = new ArrayList<Vertex<T>>();
+        for (int id = 0; id < size(); id++) {
+            if (getParentCount(id) == 0) {
+                roots.add(getView(id));
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * @param id of the vertex
+     * @return the {@link Vertex} view of vertex {@code id}, created if this is its first use
+     */
+    Vertex<T> getView(int id) {
+        Vertex<T> view = views.get(id);
+        if (view == null) {
+            Edges parentEdges = new Edges(parents, parentOffsets[id], parentOffsets[id + 1]);
+            Edges childEdges = new Edges(children, childOffsets[id], childOffsets[id + 1]);
+            views.compareAndSet(id, null, new Vertex<T>(values[id], parentEdges, childEdges, parentEdges.asSet(),
+                                                        childEdges.asSet()));
+            view = views.get(id);
+        }
+        return view;
+    }
+
+    /**
+     * @param from id of the vertex from which to traverse
+     * @param to id of the vertex at which to stop, if reached, or -1 to traverse all reachable vertices
+     * @return the vertices visited
+     */
+    private BitSet traverse(int from, int to) {
+        BitSet visited = new BitSet(size());
+        int[] stack = new int[Math.max(1, size())];
+        int depth = 0;
+        stack[depth++] = from;
+        visited.set(from);
+        while (depth > 0) {
+            int id = stack[--depth];
+            for (int i = childOffsets[id]; i < childOffsets[id + 1]; i++) {
+                int child = children[i];
+                if (!visited.get(child)) {
+                    visited.set(child);
+                    if (child == to) {
+                        return visited;
+                    }
+                    stack[depth++] = child;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * @param remainingParents as left by {@link #topologicalSort()}; non-zero for vertices on or after a cycle
+     * @return a cycle, starting and ending with the same vertex
+     */
+    private List<Vertex<T>> findCycle(int[] remainingParents) {
+        // every vertex left has a parent which is also left; walking parents must revisit a vertex
+        int id = 0;
+        while (remainingParents[id] == 0) {
+            id++;
+        }
+        int[] seenAt = new int[size()];
+        Arrays.fill(seenAt, -1);
+        List<Integer> walk = new ArrayList<Integer>();
+        while (seenAt[id] == -1) {
+            seenAt[id] = walk.size();
+            walk.add(id);
+            for (int i = parentOffsets[id]; i < parentOffsets[id + 1]; i++) {
+                if (remainingParents[parents[i]] != 0) {
+                    id = parents[i];
+                    break;
+                }
+            }
+        }
+        // the walk is along parents; reverse it to follow edges
+        List<Integer> ids = walk.subList(seenAt[id], walk.size());
+        List<Vertex<T>> cycle = new ArrayList<Vertex<T>>(ids.size() + 1);
+        cycle.add(getView(id));
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            cycle.add(getView(ids.get(i)));
+        }
+        return cycle;
+    }
+
+    /**
+     * The parents (or children) of a vertex view; {@code ids[from]} to {@code ids[to]} exclusive.
+     */
+    private final class Edges extends AbstractList<Vertex<T>> {
+
+        private final int[] ids;
+
+        private final int from;
+
+        private final int to;
+
+        private Edges(int[] ids, int from, int to) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override public Vertex<T> get(int index) {
+            if ((index < 0) || (index >= size())) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return getView(ids[from + index]);
+        }
+
+        @Override public int size() {
+            return to - from;
+        }
+
+        private Set<Vertex<T>> asSet() {
+            return new AbstractSet<Vertex<T>>() {
+                @Override public Iterator<Vertex<T>> iterator() {
+                    return Edges.this.iterator();
+                }
+                @Override public int size() {
+                    return Edges.this.size();
+                }
+            };
+        }
+    }
+
+}
@@ -9,9 +9,23 @@ import java.util.*;
  *
  * A directed acyclic graph data structure.
  * Code influenced by {@see org.codehaus.plexus.util.dag.DAG}
+ *
+ * A topological order of the vertices is maintained as edges are added (see {@link Vertex#order}) via the
+ * dynamic topological sort of Pearce and Kelly.  An edge from a vertex to one after it within the order cannot
+ * introduce a cycle and so is added without any search.  Otherwise only the vertices between the two within the order
+ * (the affected region) are searched for a cycle and, if there is none, reordered.
  */
 public class DirectedAcyclicGraph<T> implements Graph<T> {
 
+    /**
+     * Orders vertices by their position within the topological order.
+     */
+    private static final Comparator<Vertex<?>> TOPOLOGICAL_ORDER = new Comparator<Vertex<?>>() {
+        @Override public int compare(Vertex<?> left, Vertex<?> right) {
+            return (left.order < right.order ? -1 : (left.order == right.order ? 0 : 1));
+        }
+    };
+
     private final Map<T, Vertex<T>> vertices;
 
     public DirectedAcyclicGraph() {
@@ -24,6 +38,7 @@ public class DirectedAcyclicGraph<T> implements Graph<T> {
             vertex = vertices.get(of);
         } else {
             vertex = new Vertex<T>(of);
+            vertex.order = vertices.size(); // a vertex without edges may be last within the order
             vertices.put(of, vertex);
         }
         return vertex;
@@ -34,10 +49,19 @@ public class DirectedAcyclicGraph<T> implements Graph<T> {
                 || !vertices.containsKey(to.getValue())) {
             return;
         }
+        if (from.hasEdgeTo(to)) {
+            return;
+        }
         from.addEdgeTo(to);
         to.addEdgeFrom(from);
-        List<Vertex<T>> cycle = CycleDetector.introducesCycle(to);
-        if (cycle != null) {
+        if (from.order < to.order) {
+            return; // the order remains topological
+        }
+        Set<Vertex<T>> forward = new HashSet<Vertex<T>>();
+        List<Vertex<T>> cycle = introducesCycle(to, from.order, forward);
+        if (cycle == null) {
+            reorder(forward, getAffectedAncestors(from, to.order));
+        } else {
             removeEdge(from, to);
             List<Vertex<T>> path = getAnyPathToRoot(to); // a path, not necessarily the only or shortest
             String message = String.format("Edge between '%s' and '%s' would introduce a cycle into the graph.",
@@ -47,6 +71,92 @@ public class DirectedAcyclicGraph<T> implements Graph<T> {
         }
     }
 
+    /**
+     * Searches, as does {@link CycleDetector#introducesCycle(Vertex)}, for a cycle from {@code to} (the target of the
+     * edge just added) but only through vertices at most {@code upperBound} within the order.  Any cycle must
+     * include the added edge and so its source, which is at {@code upperBound}, and vertices after it within the order
+     * cannot reach it.  Consequently the cycle found, if any, is the same as that found by searching all vertices.
+     * @param to the target of the edge just added
+     * @param upperBound the position within the order of the source of the edge just added
+     * @param visited into which the vertices searched are collected, if there is no cycle
+     * @return the cycle, starting and ending with {@code to}, or null if there is none
+     */
+    private List<Vertex<T>> introducesCycle(Vertex<T> to, int upperBound, Set<Vertex<T>> visited) {
+        LinkedList<Vertex<T>> cycleStack = new LinkedList<Vertex<T>>();
+        if (!dfsVisit(to, upperBound, cycleStack, new HashSet<Vertex<T>>(), visited)) {
+            return null;
+        }
+        // as with CycleDetector; the stack is [to, ..., to], innermost first
+        Vertex<T> first = cycleStack.getFirst();
+        int pos = cycleStack.lastIndexOf(first);
+        List<Vertex<T>> cycle = cycleStack.subList(0, pos + 1);
+        Collections.reverse(cycle);
+        return cycle;
+    }
+
+    private boolean dfsVisit(Vertex<T> vertex, int upperBound, LinkedList<Vertex<T>> cycle, Set<Vertex<T>> visiting,
+                             Set<Vertex<T>> visited) {
+        cycle.addFirst(vertex);
+        visiting.add(vertex);
+        for (Vertex<T> child : vertex.getChildren()) {
+            if (child.order > upperBound) {
+                continue;
+            }
+            if (visiting.contains(child)) {
+                cycle.addFirst(child);
+                return true;
+            } else if (!visited.contains(child) && dfsVisit(child, upperBound, cycle, visiting, visited)) {
+                return true;
+            }
+        }
+        visiting.remove(vertex);
+        visited.add(vertex);
+        cycle.removeFirst();
+        return false;
+    }
+
+    /**
+     * @param from the source of the edge just added
+     * @param lowerBound the position within the order of the target of the edge just added
+     * @return {@code from} and its ancestors which are after {@code lowerBound} within the order
+     */
+    private Set<Vertex<T>> getAffectedAncestors(Vertex<T> from, int lowerBound) {
+        Set<Vertex<T>> ancestors = new HashSet<Vertex<T>>();
+        LinkedList<Vertex<T>> stack = new LinkedList<Vertex<T>>();
+        ancestors.add(from);
+        stack.add(from);
+        while (!stack.isEmpty()) {
+            for (Vertex<T> parent : stack.removeFirst().getParents()) {
+                if ((parent.order > lowerBound) && ancestors.add(parent)) {
+                    stack.addFirst(parent);
+                }
+            }
+        }
+        return ancestors;
+    }
+
+    /**
+     * Reassigns the positions within the order held by {@code forward} and {@code backward} so that all of
+     * {@code backward} precede all of {@code forward}, each retaining its relative order.
+     * @param forward the target of the edge just added and its descendants before the edge's source within the order
+     * @param backward the source of the edge just added and its ancestors after the edge's target within the order
+     */
+    private void reorder(Set<Vertex<T>> forward, Set<Vertex<T>> backward) {
+        List<Vertex<T>> affected = new ArrayList<Vertex<T>>(backward.size() + forward.size());
+        affected.addAll(backward);
+        affected.addAll(forward);
+        Collections.sort(affected.subList(0, backward.size()), TOPOLOGICAL_ORDER);
+        Collections.sort(affected.subList(backward.size(), affected.size()), TOPOLOGICAL_ORDER);
+        int[] positions = new int[affected.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = affected.get(i).order;
+        }
+        Arrays.sort(positions);
+        for (int i = 0; i < positions.length; i++) {
+            affected.get(i).order = positions[i];
+        }
+    }
+
     protected List<Vertex<T>> getAnyPathToRoot(Vertex<T> from) {
         List<Vertex<T>> path = new ArrayList<Vertex<T>>();
         while ((from != null) && !from.isRoot()) {
@@ -1,5 +1,7 @@
 package net.ocheyedan.ply.graph;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,10 @@ public final class Graphs {
      * @param <T> type of the value of {@link Vertex} objects within {@code graph}
      */
     public static <T> void visit(Graph<T> graph, Visitor<T> visitor) {
+        if (graph instanceof CompactGraph) {
+            visit((CompactGraph<T>) graph, visitor);
+            return;
+        }
         final List<Vertex<T>> vertices = graph.getVertices();
         final Map<Vertex<T>, Integer> vertexStateMap = new HashMap<Vertex<T>, Integer>();
         for (final Vertex<T> vertex : vertices) {
@@ -36,6 +42,62 @@ public final class Graphs {
         }
     }
 
+    /**
+     * Visits as does {@link #visit(Graph, Visitor)} (i.e., in the same order) but traverses, and tracks visited vertices,
+     * by id; only the view of the vertex handed to {@code visitor} is created (see {@link CompactGraph#getView(int)}).
+     * @param graph to visit
+     * @param visitor the visitor object
+     * @param <T> type of the value of {@link Vertex} objects within {@code graph}
+     */
+    private static <T> void visit(CompactGraph<T> graph, Visitor<T> visitor) {
+        int size = graph.size();
+        BitSet visited = new BitSet(size);
+        // the stack holds each vertex being visited and the index of its next child to visit
+        int[] stack = new int[size * 2];
+        for (int root = 0; root < size; root++) {
+            if (visited.get(root)) {
+                continue;
+            }
+            visited.set(root);
+            visitor.visit(graph.getView(root));
+            int depth = 0;
+            stack[0] = root;
+            stack[1] = 0;
+            while (depth >= 0) {
+                int id = stack[depth * 2], index = stack[(depth * 2) + 1];
+                if (index == graph.getChildCount(id)) {
+                    depth--;
+                    continue;
+                }
+                stack[(depth * 2) + 1] = index + 1;
+                int child = graph.getChild(id, index);
+                if (!visited.get(child)) {
+                    visited.set(child);
+                    visitor.visit(graph.getView(child));
+                    depth++;
+                    stack[depth * 2] = child;
+                    stack[(depth * 2) + 1] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param graph of which to sort the values
+     * @param <T> type of the value of {@link Vertex} objects within {@code graph}
+     * @return the values of {@code graph} such that each precedes the values of its children
+     * @throws Graph.CycleException if {@code graph} is cyclic
+     */
+    public static <T> List<T> topologicalSort(Graph<T> graph) throws Graph.CycleException {
+        CompactGraph<T> compact = CompactGraph.of(graph);
+        int[] order = compact.topologicalSort();
+        List<T> sorted = new ArrayList<T>(order.length);
+        for (int id : order) {
+            sorted.add(compact.getValue(id));
+        }
+        return sorted;
+    }
+
     private static <T> void visit(Vertex<T> vertex, Visitor<T> visitor, Map<Vertex<T>, Integer> vertexStateMap) {
         if (isNotVisited(vertex, vertexStateMap)) {
             vertexStateMap.put(vertex, VISITING);
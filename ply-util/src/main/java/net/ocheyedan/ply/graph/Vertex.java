@@ -2,7 +2,9 @@ package net.ocheyedan.ply.graph;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * User: blangel
@@ -14,44 +16,75 @@ import java.util.List;
  */
 public final class Vertex<T> {
 
+    /**
+     * The parents and children in the order in which their edges were added; membership is tested against
+     * {@link #parentSet} and {@link #childSet} respectively.
+     */
     private final List<Vertex<T>> parents;
 
     private final List<Vertex<T>> children;
 
+    private final Set<Vertex<T>> parentSet;
+
+    private final Set<Vertex<T>> childSet;
+
     private final T value;
 
+    /**
+     * The position of this vertex within the topological order maintained by {@link DirectedAcyclicGraph}.
+     */
+    int order;
+
     Vertex(T value) {
-        this.parents = new ArrayList<Vertex<T>>();
-        this.children = new ArrayList<Vertex<T>>();
+        this.parents = new ArrayList<Vertex<T>>(2);
+        this.children = new ArrayList<Vertex<T>>(4);
+        this.parentSet = new HashSet<Vertex<T>>(4);
+        this.childSet = new HashSet<Vertex<T>>(8);
+        this.value = value;
+    }
+
+    /**
+     * Creates a read-only vertex whose edges are those given (e.g., views backed by a {@link CompactGraph}).
+     */
+    Vertex(T value, List<Vertex<T>> parents, List<Vertex<T>> children, Set<Vertex<T>> parentSet,
+           Set<Vertex<T>> childSet) {
+        this.parents = parents;
+        this.children = children;
+        this.parentSet = parentSet;
+        this.childSet = childSet;
         this.value = value;
     }
 
     void addEdgeTo(Vertex<T> vertex) {
-        if (!children.contains(vertex)) {
+        if (childSet.add(vertex)) {
             children.add(vertex);
         }
     }
 
     void addEdgeFrom(Vertex<T> vertex) {
-        if (!parents.contains(vertex)) {
+        if (parentSet.add(vertex)) {
             parents.add(vertex);
         }
     }
 
     void removeEdgeTo(Vertex<T> vertex) {
-        children.remove(vertex);
+        if (childSet.remove(vertex)) {
+            children.remove(vertex);
+        }
     }
 
     void removeEdgeFrom(Vertex<T> vertex) {
-        parents.remove(vertex);
+        if (parentSet.remove(vertex)) {
+            parents.remove(vertex);
+        }
     }
 
     public boolean hasEdgeTo(Vertex<T> to) {
-        return children.contains(to);
+        return childSet.contains(to);
     }
 
     public boolean hasEdgeFrom(Vertex<T> from) {
-        return parents.contains(from);
+        return parentSet.contains(from);
     }
 
     public boolean isLeaf() {
@@ -78,6 +111,10 @@ public final class Vertex<T> {
         return Collections.unmodifiableList(children);
     }
 
+    List<Vertex<T>> getParents() {
+        return parents;
+    }
+
     @Override public String toString() {
         return (value == null ? "" : value.toString());
     }
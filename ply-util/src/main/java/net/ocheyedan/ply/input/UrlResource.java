@@ -1,11 +1,11 @@
 package net.ocheyedan.ply.input;
 
+import net.ocheyedan.ply.HttpTransport;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -36,14 +36,7 @@ public class UrlResource implements Resource {
     }
 
     @Override public InputStream open() throws IOException {
-        URLConnection urlConnection = url.openConnection();
-        if ((headers != null) && (urlConnection instanceof HttpURLConnection)) {
-            HttpURLConnection httpURLConnection = (HttpURLConnection) urlConnection;
-            for (Map.Entry<String, String> entry : headers.entrySet()) {
-                httpURLConnection.setRequestProperty(entry.getKey(), entry.getValue());
-            }
-        }
-        ref.set(urlConnection.getInputStream());
+        ref.set(HttpTransport.get().open(url, headers));
         return ref.get();
     }
 
@@ -78,7 +78,7 @@ public class MavenPomParser {
                     version = parseResult.mavenProperties.get("project.version");
                 }
                 if ((version == null) || version.isEmpty()) {
-                    Output.print("^warn^ Encountered dependency without a version - %s:%s%s", groupId, artifactId,
+                    Output.printFromPly("^warn^ Encountered dependency without a version - %s:%s%s", groupId, artifactId,
                             String.format("%s%s", (((classifier != null) && !classifier.isEmpty()) ? ":" + classifier : ""),
                                     (((type != null) && !type.isEmpty()) ? ":" + type : "")));
                 }
@@ -192,7 +192,7 @@ public class MavenPomParser {
             for (Incomplete incomplete : mavenIncompleteDeps.values()) {
                 if ("import".equals(incomplete.scope)) {
                     String filteredVersion = filterVersion(incomplete.version, this);
-                    Output.print("^dbug^ Dependency has import scope - importing dependencyManagement deps for %s:%s:%s [ pre-filtered version %s ]",
+                    Output.printFromPly("^dbug^ Dependency has import scope - importing dependencyManagement deps for %s:%s:%s [ pre-filtered version %s ]",
                             incomplete.groupId, incomplete.artifactId, filteredVersion, incomplete.version);
                     PomUri pomUri = parser.createPomUriWithoutRelativePath(repositoryAtom, true, incomplete.groupId, incomplete.artifactId, filteredVersion);
                     ParseResult importParse = new ParseResult();
@@ -400,10 +400,10 @@ public class MavenPomParser {
                 parseResult.mavenProperties.put("project.version", version);
             }
         } catch (SAXParseException saxpe) {
-            Output.print("^error^ Could not parse %s", pomUrlPath);
+            Output.printFromPly("^error^ Could not parse %s", pomUrlPath);
             InputStream stream = pomResource.open();
             if (stream != null) {
-                Output.print("^dbug^   From content:");
+                Output.printFromPly("^dbug^   From content:");
                 BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
                 boolean likelyRedirect = false;
                 String line;
@@ -411,10 +411,10 @@ public class MavenPomParser {
                     if ((line != null) && line.contains("<html>")) {
                         likelyRedirect = true;
                     }
-                    Output.print("^dbug^   %s", line);
+                    Output.printFromPly("^dbug^   %s", line);
                 }
                 if (likelyRedirect) {
-                    Output.print("^error^ Received unexpected response from host; ^red^perhaps internet is not connected.^r^");
+                    Output.printFromPly("^error^ Received unexpected response from host; ^red^perhaps internet is not connected.^r^");
                     throw new RuntimeException(saxpe);
                 }
             }
@@ -550,7 +550,7 @@ public class MavenPomParser {
             if (parseResult.containsDep(groupId, artifactId, classifier, type)) {
                 version = Version.resolve(version, getMetadataBaseUrl(repositoryAtom, groupId, artifactId), repositoryAtom.getAuthHeaders());
                 String filteredVersion = filterVersion(version, importParse);
-                Output.print("^dbug^ Importing version %s for %s:%s (from import scope dependency %s:%s)", filteredVersion, groupId, artifactId, incomplete.groupId, incomplete.artifactId);
+                Output.printFromPly("^dbug^ Importing version %s for %s:%s (from import scope dependency %s:%s)", filteredVersion, groupId, artifactId, incomplete.groupId, incomplete.artifactId);
                 parseResult.replaceVersion(groupId, artifactId, classifier, type, filteredVersion);
             }
         }
@@ -581,7 +581,7 @@ public class MavenPomParser {
             if (!repoUrl.isEmpty() && (layout.isEmpty() || "default".equals(layout))) {
                 parseResult.addRepo(repoUrl);
             } else if (!layout.isEmpty()) {
-                Output.print("^warn^ Found a repository [ %s ] however its layout [ ^b^%s^r^ ] is not supported, skipping.", repoUrl, layout);
+                Output.printFromPly("^warn^ Found a repository [ %s ] however its layout [ ^b^%s^r^ ] is not supported, skipping.", repoUrl, layout);
             }
         }
     }
@@ -656,7 +656,7 @@ public class MavenPomParser {
                 return toFilter.replaceAll(Pattern.quote("${" + filterValue + "}"), Matcher
                         .quoteReplacement(replacementMap.get(filterValue)));
             } catch (IllegalArgumentException iae) {
-                Output.print("^error^ Error filtering '^b^%s^r^' with '^b^%s^r^'.", filterValue,
+                Output.printFromPly("^error^ Error filtering '^b^%s^r^' with '^b^%s^r^'.", filterValue,
                         replacementMap.get(filterValue));
                 Output.print(iae);
             }
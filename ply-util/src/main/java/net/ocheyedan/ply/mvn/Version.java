@@ -176,7 +176,7 @@ public final class Version {
         MavenMetadataParser parser = new MavenMetadataParser();
         MavenMetadataParser.Metadata metadata = parser.parseMetadata(baseResource, headers);
         if ((metadata == null) || ((metadata.latest == null) && (metadata.versions == null))) {
-            Output.print("^warn^ Could not resolve the 'maven-metadata.xml' file from the repository at %s", baseResource);
+            Output.printFromPly("^warn^ Could not resolve the 'maven-metadata.xml' file from the repository at %s", baseResource);
             return null;
         }
 
@@ -184,7 +184,7 @@ public final class Version {
         String latest = (metadata.latest == null ? metadata.versions.get(metadata.versions.size() - 1) : metadata.latest);
         // ensure the lower bound is satisfied with this latest
         if (!lower.isEmpty() && !withinLowerBound(inclusiveStart, lower, latest)) {
-            Output.print("^warn^ Version ^b^%s^r^ falls outside of lower bound restriction: ^b^%s%s^r^", latest,
+            Output.printFromPly("^warn^ Version ^b^%s^r^ falls outside of lower bound restriction: ^b^%s%s^r^", latest,
                     (inclusiveStart ? "[" :"("), lower);
             return null;
         }
@@ -202,7 +202,7 @@ public final class Version {
                         latest = metadata.versions.get(i);
                         if (MAVEN_VERSION_COMPARATOR.compare(upper, latest) > 0) {
                             if (!lower.isEmpty() && !withinLowerBound(inclusiveStart, lower, latest)) {
-                                Output.print("^warn^ All available versions fall outside of lower bound restriction: ^b^%s%s^r^",
+                                Output.printFromPly("^warn^ All available versions fall outside of lower bound restriction: ^b^%s%s^r^",
                                     (inclusiveStart ? "[" :"("), lower);
                                 return null; // lower bound violated
                             }
@@ -210,7 +210,7 @@ public final class Version {
                         }
                     }
                 }
-                Output.print("^warn^ All available versions fall outside of upper bound restriction: ^b^%s%s^r^",
+                Output.printFromPly("^warn^ All available versions fall outside of upper bound restriction: ^b^%s%s^r^",
                         upper, (inclusiveEnd ? "[" : "("));
                 return null;
             }
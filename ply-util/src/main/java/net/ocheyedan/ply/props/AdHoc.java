@@ -153,13 +153,16 @@ public final class AdHoc {
             }
             if (adHocPropFile.contains(propName)) {
                 PropFile.Prop adHocProp = adHocPropFile.get(propName);
-                Output.print("^warn^ Found two ad-hoc property values for ^b^%s%s.%s^r^ [ ^b^%s^r^ and ^b^%s^r^ ] using first encountered, ^b^%s^r^",
+                Output.printFromPly("^warn^ Found two ad-hoc property values for ^b^%s%s.%s^r^ [ ^b^%s^r^ and ^b^%s^r^ ] using first encountered, ^b^%s^r^",
                              context, propScope.getAdHocSuffix(), propName, adHocProp.value(), propValue, adHocProp.value());
             } else {
+                // the ad-hoc prop file may already be within a chain
+                PropFileChain.unseal();
                 adHocPropFile.add(propName, propValue);
+                FilterDependencies.invalidate(propContext, propName);
             }
         } catch (Exception e) {
-            Output.print("^error^ Could not parse ad-hoc property ^b^%s^r^.", prop);
+            Output.printFromPly("^error^ Could not parse ad-hoc property ^b^%s^r^.", prop);
         }
     }
 
@@ -2,12 +2,11 @@ package net.ocheyedan.ply.props;
 
 import net.ocheyedan.ply.Output;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * User: blangel
@@ -24,6 +23,34 @@ public final class Filter {
     @SuppressWarnings("serial")
     public static final class Circular extends RuntimeException { }
 
+    private static final class CacheKey {
+        private final String unfiltered;
+        private final Context context;
+        private final String uniqueIdentifier;
+        private CacheKey(String unfiltered, Context context, String uniqueIdentifier) {
+            this.unfiltered = unfiltered;
+            this.context = context;
+            this.uniqueIdentifier = uniqueIdentifier;
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            CacheKey cacheKey = (CacheKey) o;
+            return unfiltered.equals(cacheKey.unfiltered) && context.equals(cacheKey.context)
+                    && uniqueIdentifier.equals(cacheKey.uniqueIdentifier);
+        }
+        @Override public int hashCode() {
+            int result = unfiltered.hashCode();
+            result = 31 * result + context.hashCode();
+            result = 31 * result + uniqueIdentifier.hashCode();
+            return result;
+        }
+    }
+
     private static final class FilterResult {
         private final String filteredResult;
         private final String filteredResultMarked;
@@ -35,19 +62,96 @@ public final class Filter {
         }
     }
 
+    /**
+     * A value compiled into its literal and property placeholder segments.  The value is the concatenation of
+     * {@literal literals[0]}, {@literal ${placeholders[0]}}, {@literal literals[1]}, ... {@literal literals[n]} where
+     * {@literal n} is the number of placeholders.
+     */
+    private static final class Template {
+
+        /**
+         * @param value to compile
+         * @return the compiled template; placeholders are matched as {@literal \$\{(.*?)\}} (i.e., they cannot span
+         *         lines).
+         */
+        private static Template compile(String value) {
+            List<String> literals = new ArrayList<String>(4);
+            List<String> placeholders = new ArrayList<String>(4);
+            int literalStart = 0;
+            int index = value.indexOf("${");
+            while (index != -1) {
+                int end = value.indexOf('}', index + 2);
+                if (end == -1) {
+                    break;
+                }
+                if (containsLineTerminator(value, index + 2, end)) {
+                    index = value.indexOf("${", index + 1);
+                    continue;
+                }
+                literals.add(value.substring(literalStart, index));
+                placeholders.add(value.substring(index + 2, end));
+                literalStart = end + 1;
+                index = value.indexOf("${", literalStart);
+            }
+            literals.add(value.substring(literalStart));
+            return new Template(literals.toArray(new String[literals.size()]),
+                                placeholders.toArray(new String[placeholders.size()]));
+        }
+
+        private static boolean containsLineTerminator(String value, int from, int to) {
+            for (int i = from; i < to; i++) {
+                switch (value.charAt(i)) {
+                    case '\n':
+                    case '\r':
+                    case '\u0085':
+                    case '\u2028':
+                    case '\u2029':
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        private final String[] literals;
+
+        private final String[] placeholders;
+
+        private Template(String[] literals, String[] placeholders) {
+            this.literals = literals;
+            this.placeholders = placeholders;
+        }
+    }
+
     public static final String DECORATOR = "_^$f$^_";
     public static final String DECORATOR_SCOPED = "_^$fs$^_";
     public static final String DECORATOR_END = "_$^f^$_";
 
-    private static final Map<String, String> cache = new ConcurrentHashMap<String, String>();
-    private static final Map<String, String> cacheDecorated = new ConcurrentHashMap<String, String>();
+    /**
+     * The maximum number of filtered values (and compiled templates) retained.
+     */
+    private static final int MAX_CACHE_SIZE = 4096;
 
-    private static final Pattern propertyPlaceholderRegex = Pattern.compile("\\$\\{(.*?)\\}");
+    /**
+     * Filtered values keyed by the value, its context and the unique identifier; valid for the current
+     * {@link PropFileChain#getGeneration()} and until any property upon which they depend changes.
+     */
+    private static final GenerationalCache<CacheKey, FilterDependencies.Tracked<FilterResult>> cache
+            = new GenerationalCache<CacheKey, FilterDependencies.Tracked<FilterResult>>(MAX_CACHE_SIZE);
+
+    /**
+     * Compiled templates keyed by value; as these are independent of property values they never expire (i.e., are
+     * always of generation zero).
+     */
+    private static final GenerationalCache<String, Template> templates = new GenerationalCache<String, Template>(MAX_CACHE_SIZE);
 
     /**
-     * Contains cache-keys currently being resolved - used to detect circular references.
+     * Contains cache-keys currently being resolved by the current thread - used to detect circular references.
      */
-    private static final Set<String> resolvingCacheKeys = new HashSet<String>(2, 1.0f);
+    private static final ThreadLocal<Set<CacheKey>> resolvingCacheKeys = new ThreadLocal<Set<CacheKey>>() {
+        @Override protected Set<CacheKey> initialValue() {
+            return new HashSet<CacheKey>(2, 1.0f);
+        }
+    };
 
     /**
      * Filters {@code unfiltered} with the property values within {@code filterConsultant} and returns a copy
@@ -71,7 +175,7 @@ public final class Filter {
             String truncatedToFilter = (toFilter.length() > 80) ? toFilter.substring(0, 80) + " [truncated]" : toFilter;
             String truncatedFiltered = (filterResult.filteredResult.length() > 80)
                     ? filterResult.filteredResult.substring(0, 80) + " [truncated]" : filterResult.filteredResult;
-            Output.print("^dbug^ filtered ^b^%s^r^ to ^b^%s^r^ [ in %s%s ].", truncatedToFilter, truncatedFiltered,
+            Output.printFromPly("^dbug^ filtered ^b^%s^r^ to ^b^%s^r^ [ in %s%s ].", truncatedToFilter, truncatedFiltered,
                     unfiltered.context(), (Scope.Default.equals(unfiltered.scope())
                     ? "" : String.format(" with %s scope", unfiltered.scope().name)));
         }
@@ -102,85 +206,129 @@ public final class Filter {
         if (!toFilter.contains("${")) {
             return new FilterResult(toFilter, toFilter, false);
         }
-        String cacheKey = getKey(toFilter, uniqueIdentifier);
-        if (cache.containsKey(cacheKey)) {
-            return new FilterResult(cache.get(cacheKey), cacheDecorated.get(cacheKey), false);
+        long generation = PropFileChain.getGeneration();
+        CacheKey cacheKey = new CacheKey(toFilter, context, uniqueIdentifier);
+        FilterResult cached = FilterDependencies.get(cache.get(cacheKey, generation));
+        if (cached != null) {
+            return cached;
         }
-        if (!resolvingCacheKeys.add(cacheKey)) {
+        Set<CacheKey> resolving = resolvingCacheKeys.get();
+        if (!resolving.add(cacheKey)) {
             throw new Circular();
         }
-        String filtered = toFilter;
-        String filteredMarked = toFilter;
-        Matcher matcher = propertyPlaceholderRegex.matcher(toFilter);
-        while (matcher.find()) {
-            String propertyPlaceholder = matcher.group(1);
-            // first, check the {@code context} directly
-            PropFileChain chain = filterConsultant.get(context);
+        Template template = templates.get(toFilter, 0L);
+        if (template == null) {
+            template = Template.compile(toFilter);
+            templates.put(toFilter, template, 0L);
+        }
+        StringBuilder filtered = new StringBuilder(toFilter.length() + 16);
+        StringBuilder filteredMarked = new StringBuilder(toFilter.length() + 16 + (template.placeholders.length * 16));
+        long version = FilterDependencies.getVersion();
+        Set<FilterDependencies.Key> dependencies;
+        FilterDependencies.begin();
+        try {
+            for (int i = 0; i < template.placeholders.length; i++) {
+                filtered.append(template.literals[i]);
+                filteredMarked.append(template.literals[i]);
+                resolve(template.placeholders[i], context, filterConsultant, filtered, filteredMarked);
+            }
+            String lastLiteral = template.literals[template.placeholders.length];
+            filtered.append(lastLiteral);
+            filteredMarked.append(lastLiteral);
+        } finally {
+            dependencies = FilterDependencies.end();
+            resolving.remove(cacheKey);
+        }
+        String filteredResult = filtered.toString();
+        String filteredResultMarked = filteredMarked.toString();
+        cache.put(cacheKey, new FilterDependencies.Tracked<FilterResult>(new FilterResult(filteredResult, filteredResultMarked, false),
+                dependencies, version), generation);
+        return new FilterResult(filteredResult, filteredResultMarked, true);
+    }
+
+    /**
+     * Resolves {@code propertyPlaceholder} and appends its value to {@code filtered} and its decorated value to
+     * {@code filteredMarked}.  The value is resolved by first checking {@code context}, then the context prefixing
+     * {@code propertyPlaceholder} (if any), then the system properties and lastly the environment variables.  If the
+     * value cannot be resolved, the placeholder itself is appended.
+     * @param propertyPlaceholder the property name within the placeholder (i.e., 'xxxx' from '${xxxx}')
+     * @param context to consult for non-context prefixed property values
+     * @param filterConsultant the property values which to use to resolve {@code propertyPlaceholder}
+     * @param filtered to which to append the resolved value
+     * @param filteredMarked to which to append the decorated resolved value
+     */
+    private static void resolve(String propertyPlaceholder, Context context, Map<Context, PropFileChain> filterConsultant,
+                                StringBuilder filtered, StringBuilder filteredMarked) {
+        // first, check the {@code context} directly
+        FilterDependencies.record(context, propertyPlaceholder);
+        PropFileChain chain = filterConsultant.get(context);
+        if (chain != null) {
+            PropFile.Prop resolved = chain.get(propertyPlaceholder);
+            if (resolved != PropFile.Prop.Empty) {
+                append(resolved.value(), isScoped(resolved), filtered, filteredMarked);
+                return; // found!
+            }
+        }
+        // next, parse propertyPlaceholder for a context and, if one exists, check against that
+        int contextIndex = propertyPlaceholder.indexOf(".");
+        if (contextIndex != -1) {
+            Context contextWithinPropertyPlaceholder = Context.named(propertyPlaceholder.substring(0, contextIndex));
+            String propertyPlaceholderWithoutContext = propertyPlaceholder.substring(contextIndex + 1);
+            FilterDependencies.record(contextWithinPropertyPlaceholder, propertyPlaceholderWithoutContext);
+            chain = filterConsultant.get(contextWithinPropertyPlaceholder);
             if (chain != null) {
-                PropFile.Prop resolved = chain.get(propertyPlaceholder);
+                PropFile.Prop resolved = chain.get(propertyPlaceholderWithoutContext);
                 if (resolved != PropFile.Prop.Empty) {
-                    filtered = filtered.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                            Matcher.quoteReplacement(resolved.value()));
-                    boolean scoped = isScoped(resolved);
-                    filteredMarked = filteredMarked.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                            Matcher.quoteReplacement(String.format("%s%s%s", (scoped ? DECORATOR_SCOPED : DECORATOR), resolved.value(), DECORATOR_END)));
-                    continue; // found!
-                }
-            }
-            // next, parse propertyPlaceholder for a context and, if one exists, check against that
-            int contextIndex = propertyPlaceholder.indexOf(".");
-            if (contextIndex != -1) {
-                Context contextWithinPropertyPlaceholder = Context.named(propertyPlaceholder.substring(0, contextIndex));
-                String propertyPlaceholderWithoutContext = propertyPlaceholder.substring(contextIndex + 1);
-                chain = filterConsultant.get(contextWithinPropertyPlaceholder);
-                if (chain != null) {
-                    PropFile.Prop resolved = chain.get(propertyPlaceholderWithoutContext);
-                    if (resolved != PropFile.Prop.Empty) {
-                        filtered = filtered.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                                Matcher.quoteReplacement(resolved.value()));
-                        boolean scoped = isScoped(resolved);
-                        filteredMarked = filteredMarked.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                                Matcher.quoteReplacement(String.format("%s%s%s", (scoped ? DECORATOR_SCOPED : DECORATOR), resolved.value(), DECORATOR_END)));
-                        continue; // found!
-                    }
+                    append(resolved.value(), isScoped(resolved), filtered, filteredMarked);
+                    return; // found!
                 }
             }
-            // next, check if the property is a system property
-            String replacement = System.getProperty(propertyPlaceholder);
-            if (replacement != null) {
-                filtered = filtered.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                        Matcher.quoteReplacement(replacement));
-                filteredMarked = filteredMarked.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                        Matcher.quoteReplacement(String.format("%s%s%s", DECORATOR, replacement, DECORATOR_END)));
-                continue;
-            }
-            // lastly, check if the property is an environment variable
-            replacement = System.getenv(propertyPlaceholder);
-            if (replacement != null) {
-                filtered = filtered.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                        Matcher.quoteReplacement(replacement));
-                filteredMarked = filteredMarked.replaceAll(Pattern.quote("${" + propertyPlaceholder + "}"),
-                        Matcher.quoteReplacement(String.format("%s%s%s", DECORATOR, replacement, DECORATOR_END)));
-            } else {
-                Output.print("^warn^ No filter-value found for property ^b^%s^r^", propertyPlaceholder);
-            }
         }
-        cache.put(cacheKey, filtered);
-        cacheDecorated.put(cacheKey, filteredMarked);
-        resolvingCacheKeys.remove(cacheKey);
-        return new FilterResult(filtered, filteredMarked, true);
+        // next, check if the property is a system property
+        String replacement = System.getProperty(propertyPlaceholder);
+        if (replacement != null) {
+            append(replacement, false, filtered, filteredMarked);
+            return;
+        }
+        // lastly, check if the property is an environment variable
+        replacement = System.getenv(propertyPlaceholder);
+        if (replacement != null) {
+            append(replacement, false, filtered, filteredMarked);
+        } else {
+            Output.printFromPly("^warn^ No filter-value found for property ^b^%s^r^", propertyPlaceholder);
+            filtered.append("${").append(propertyPlaceholder).append('}');
+            filteredMarked.append("${").append(propertyPlaceholder).append('}');
+        }
     }
 
-    private static boolean isScoped(PropFile.Prop prop) {
-        return !Scope.Default.equals(prop.scope());
+    private static void append(String value, boolean scoped, StringBuilder filtered, StringBuilder filteredMarked) {
+        filtered.append(value);
+        filteredMarked.append(scoped ? DECORATOR_SCOPED : DECORATOR).append(value).append(DECORATOR_END);
     }
 
-    private static String getKey(String unfiltered, String uniqueIdentifier) {
-        return String.format("%s#%s", unfiltered, uniqueIdentifier);
+    /**
+     * @return the number of times a filtered value was found within a cache
+     */
+    public static long getCacheHits() {
+        return FilterDependencies.hits.get();
     }
 
-    static void clearCache() {
-        cache.clear();
+    /**
+     * @return the number of times a filtered value was not found within a cache (or was found but was invalid)
+     */
+    public static long getCacheMisses() {
+        return FilterDependencies.misses.get();
+    }
+
+    /**
+     * @return the number of times a cached filtered value was discarded as a property upon which it depends changed
+     */
+    public static long getCacheInvalidations() {
+        return FilterDependencies.invalidations.get();
+    }
+
+    private static boolean isScoped(PropFile.Prop prop) {
+        return !Scope.Default.equals(prop.scope());
     }
 
     private Filter() { }
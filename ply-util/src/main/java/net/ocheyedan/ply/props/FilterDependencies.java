@@ -0,0 +1,176 @@
+package net.ocheyedan.ply.props;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 7:45 PM
+ *
+ * Tracks the properties (by context and name) upon which each cached filtered value depends so that a change to a
+ * property (i.e., an ad-hoc property added during alias resolution) invalidates only those cached values which
+ * depended upon it.  Dependencies are transitive; a value depending upon a property whose value in turn depends upon
+ * other properties depends upon all of them.
+ *
+ * Dependencies are collected per thread while a value is filtered (see {@link #begin()} and {@link #end()}) and stored
+ * with the cached value along with the version at which filtering began.  Invalidation is lazy; {@link #invalidate(Context, String)}
+ * records the version at which a property changed and a cached value is discarded upon retrieval if any of its
+ * dependencies changed after it was computed.
+ */
+final class FilterDependencies {
+
+    /**
+     * A property upon which a filtered value depends.
+     */
+    static final class Key {
+        private final Context context;
+        private final String name;
+        private Key(Context context, String name) {
+            this.context = context;
+            this.name = name;
+        }
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            Key key = (Key) o;
+            return context.equals(key.context) && name.equals(key.name);
+        }
+        @Override public int hashCode() {
+            return 31 * context.hashCode() + name.hashCode();
+        }
+    }
+
+    /**
+     * A cached filtered value along with the properties upon which it depends.
+     */
+    static final class Tracked<V> {
+        private final V value;
+        private final Set<Key> dependencies;
+        private final long version;
+        Tracked(V value, Set<Key> dependencies, long version) {
+            this.value = value;
+            this.dependencies = dependencies;
+            this.version = version;
+        }
+    }
+
+    private static final AtomicLong version = new AtomicLong(0L);
+
+    /**
+     * Mapping of property to the version at which it was last invalidated.
+     */
+    private static final Map<Key, Long> invalidated = new ConcurrentHashMap<Key, Long>();
+
+    private static final ThreadLocal<LinkedList<Set<Key>>> collecting = new ThreadLocal<LinkedList<Set<Key>>>() {
+        @Override protected LinkedList<Set<Key>> initialValue() {
+            return new LinkedList<Set<Key>>();
+        }
+    };
+
+    static final AtomicLong hits = new AtomicLong(0L);
+
+    static final AtomicLong misses = new AtomicLong(0L);
+
+    static final AtomicLong invalidations = new AtomicLong(0L);
+
+    /**
+     * @return the current version; to be read prior to filtering a value and stored with it via {@link Tracked}
+     */
+    static long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Starts collecting the dependencies of a value to be filtered by the current thread.
+     */
+    static void begin() {
+        collecting.get().addFirst(new HashSet<Key>(4));
+    }
+
+    /**
+     * Stops collecting the dependencies started by the last call to {@link #begin()}.  The dependencies are also added
+     * to those of any enclosing value being filtered (as dependencies are transitive).
+     * @return the collected dependencies
+     */
+    static Set<Key> end() {
+        LinkedList<Set<Key>> stack = collecting.get();
+        Set<Key> dependencies = stack.removeFirst();
+        if (!stack.isEmpty()) {
+            stack.getFirst().addAll(dependencies);
+        }
+        return (dependencies.isEmpty() ? Collections.<Key>emptySet() : dependencies);
+    }
+
+    /**
+     * Records that the value currently being filtered (if any) depends upon the property {@code name} within
+     * {@code context}.
+     * @param context of the property
+     * @param name of the property
+     */
+    static void record(Context context, String name) {
+        LinkedList<Set<Key>> stack = collecting.get();
+        if (!stack.isEmpty()) {
+            stack.getFirst().add(new Key(context, name));
+        }
+    }
+
+    /**
+     * Invalidates every cached value depending upon the property {@code name} within {@code context}.  This must be
+     * called after the property has changed (the chains must have been unsealed, see {@link PropFileChain#unseal()},
+     * prior to the change).
+     * @param context of the property
+     * @param name of the property
+     */
+    static void invalidate(Context context, String name) {
+        invalidated.put(new Key(context, name), version.incrementAndGet());
+    }
+
+    /**
+     * Clears all recorded invalidations; called when a new generation starts (as then no cached values remain).
+     */
+    static void reset() {
+        invalidated.clear();
+    }
+
+    /**
+     * @param tracked the cached value, may be null
+     * @return the value of {@code tracked} or null if {@code tracked} is null or any of its dependencies have changed
+     *         since it was computed.  A returned value's dependencies are added to those of any value currently being
+     *         filtered.
+     */
+    static <V> V get(Tracked<V> tracked) {
+        if (tracked == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!invalidated.isEmpty()) {
+            for (Key dependency : tracked.dependencies) {
+                Long invalidatedAt = invalidated.get(dependency);
+                if ((invalidatedAt != null) && (invalidatedAt > tracked.version)) {
+                    invalidations.incrementAndGet();
+                    misses.incrementAndGet();
+                    return null;
+                }
+            }
+        }
+        hits.incrementAndGet();
+        LinkedList<Set<Key>> stack = collecting.get();
+        if (!stack.isEmpty()) {
+            stack.getFirst().addAll(tracked.dependencies);
+        }
+        return tracked.value;
+    }
+
+    private FilterDependencies() { }
+
+}
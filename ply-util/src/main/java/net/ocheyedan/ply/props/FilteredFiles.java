@@ -0,0 +1,235 @@
+package net.ocheyedan.ply.props;
+
+import net.ocheyedan.ply.BitUtil;
+import net.ocheyedan.ply.FileUtil;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 9:05 PM
+ *
+ * A record of the files filtered in place by the {@literal ply-filter-file} script, used to skip re-filtering (and
+ * re-copying by the {@literal ply-resources} script) files whose filtered output would not change.  For each filtered
+ * file the following is recorded:
+ * <pre>
+ *   - the size and last modified time of the file prior to filtering (the template)
+ *   - the size and last modified time of the file after filtering (the output)
+ *   - the SHA1 hash of the template
+ *   - the property placeholders used within the template
+ *   - a fingerprint; the SHA1 hash of the template's hash and the value of each of its property placeholders
+ * </pre>
+ * The output is current if the file still has the output's size and last modified time and the fingerprint, when
+ * recomputed with the current property values, is unchanged.
+ *
+ * The record is stored in {@literal filtered[.scope].properties} within {@literal project.build.dir} with the format:
+ * file-path=template-size,template-last-modified,output-size,output-last-modified,template-hash,fingerprint,placeholders
+ * where {@literal placeholders} is each placeholder concatenated together (i.e., ${a}${b}).
+ */
+public final class FilteredFiles {
+
+    /**
+     * The recorded information of a filtered file.
+     */
+    public static final class Fingerprint {
+
+        private final long templateSize;
+
+        private final long templateLastModified;
+
+        private final long outputSize;
+
+        private final long outputLastModified;
+
+        private final String templateHash;
+
+        private final String fingerprint;
+
+        private final Set<String> placeholders;
+
+        /**
+         * @param templateSize the size of the file prior to filtering
+         * @param templateLastModified the last modified time of the file prior to filtering
+         * @param filtered the file after filtering
+         * @param templateHash the SHA1 hash of the file prior to filtering
+         * @param placeholders the property placeholders (i.e., ${xxxx}) used within the file prior to filtering
+         */
+        public Fingerprint(long templateSize, long templateLastModified, File filtered, String templateHash,
+                           Set<String> placeholders) {
+            this(templateSize, templateLastModified, filtered, templateHash, placeholders, Props.get());
+        }
+
+        Fingerprint(long templateSize, long templateLastModified, File filtered, String templateHash,
+                    Set<String> placeholders, Map<Context, PropFileChain> props) {
+            this(templateSize, templateLastModified, filtered.length(), filtered.lastModified(), templateHash,
+                 computeFingerprint(templateHash, placeholders, props), placeholders);
+        }
+
+        private Fingerprint(long templateSize, long templateLastModified, long outputSize, long outputLastModified,
+                            String templateHash, String fingerprint, Set<String> placeholders) {
+            this.templateSize = templateSize;
+            this.templateLastModified = templateLastModified;
+            this.outputSize = outputSize;
+            this.outputLastModified = outputLastModified;
+            this.templateHash = templateHash;
+            this.fingerprint = fingerprint;
+            this.placeholders = placeholders;
+        }
+
+        private boolean isUnchanged(Map<Context, PropFileChain> props) {
+            return fingerprint.equals(computeFingerprint(templateHash, placeholders, props));
+        }
+
+        private static Fingerprint parse(String value) {
+            String[] split = value.split(",", 7);
+            if (split.length != 7) {
+                return null;
+            }
+            try {
+                Set<String> placeholders = new TreeSet<String>();
+                for (String placeholder : split[6].split("\\}")) {
+                    if (!placeholder.isEmpty()) {
+                        placeholders.add(placeholder + "}");
+                    }
+                }
+                return new Fingerprint(Long.parseLong(split[0]), Long.parseLong(split[1]), Long.parseLong(split[2]),
+                                       Long.parseLong(split[3]), split[4], split[5], placeholders);
+            } catch (NumberFormatException nfe) {
+                return null;
+            }
+        }
+
+        @Override public String toString() {
+            StringBuilder value = new StringBuilder();
+            value.append(templateSize).append(',').append(templateLastModified).append(',').append(outputSize)
+                 .append(',').append(outputLastModified).append(',').append(templateHash).append(',')
+                 .append(fingerprint).append(',');
+            for (String placeholder : placeholders) {
+                value.append(placeholder);
+            }
+            return value.toString();
+        }
+    }
+
+    /**
+     * @return the record for the current scope
+     */
+    public static FilteredFiles load() {
+        Scope scope = Scope.named(Props.get("scope", Context.named("ply")).value());
+        String buildDirPath = Props.get("build.dir", Context.named("project")).value();
+        return new FilteredFiles(FileUtil.fromParts(buildDirPath, "filtered" + scope.getFileSuffix() + ".properties"),
+                                 Props.get());
+    }
+
+    /**
+     * @param placeholder a property placeholder (i.e., ${xxxx})
+     * @return the current value of {@code placeholder}, filtered as done by the {@literal ply-filter-file} script
+     */
+    public static String getValue(String placeholder) {
+        return getValue(placeholder, Props.get());
+    }
+
+    private static String getValue(String placeholder, Map<Context, PropFileChain> props) {
+        return Filter.filter(placeholder, Context.named("ply"), String.valueOf(System.identityHashCode(FilteredFiles.class)), props);
+    }
+
+    private static String computeFingerprint(String templateHash, Set<String> placeholders,
+                                             Map<Context, PropFileChain> props) {
+        try {
+            MessageDigest hash = MessageDigest.getInstance("SHA1");
+            hash.update(templateHash.getBytes("UTF-8"));
+            for (String placeholder : placeholders) {
+                hash.update(placeholder.getBytes("UTF-8"));
+                hash.update((byte) '=');
+                hash.update(getValue(placeholder, props).getBytes("UTF-8"));
+                hash.update((byte) '\n');
+            }
+            return BitUtil.toHexString(hash.digest());
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new AssertionError(nsae);
+        } catch (UnsupportedEncodingException uee) {
+            throw new AssertionError(uee);
+        }
+    }
+
+    private final File file;
+
+    private final Map<String, Fingerprint> fingerprints;
+
+    /**
+     * The property values with which fingerprints are recomputed.
+     */
+    private final Map<Context, PropFileChain> props;
+
+    FilteredFiles(File file, Map<Context, PropFileChain> props) {
+        this.file = file;
+        this.props = props;
+        this.fingerprints = new ConcurrentHashMap<String, Fingerprint>();
+        if (file.exists()) {
+            PropFile filtered = PropFiles.load(file.getPath(), false, false);
+            for (PropFile.Prop prop : filtered.props()) {
+                Fingerprint fingerprint = Fingerprint.parse(prop.value());
+                if (fingerprint != null) {
+                    fingerprints.put(prop.name, fingerprint);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file the filtered file
+     * @return true if {@code file} is the unmodified output of filtering and filtering its template again would
+     *         produce the same output
+     */
+    public boolean isCurrentOutput(File file) {
+        Fingerprint fingerprint = fingerprints.get(file.getAbsolutePath());
+        return ((fingerprint != null) && (fingerprint.outputSize == file.length())
+                && (fingerprint.outputLastModified == file.lastModified()) && fingerprint.isUnchanged(props));
+    }
+
+    /**
+     * @param template from which {@code file} was copied (prior to being filtered)
+     * @param file the filtered file
+     * @return true if {@code template} is unchanged since {@code file} was filtered from a copy of it and
+     *         {@code file} is current (see {@link #isCurrentOutput(File)})
+     */
+    public boolean isCurrentOutput(File template, File file) {
+        Fingerprint fingerprint = fingerprints.get(file.getAbsolutePath());
+        return ((fingerprint != null) && (fingerprint.templateSize == template.length())
+                && (fingerprint.templateLastModified == template.lastModified()) && isCurrentOutput(file));
+    }
+
+    /**
+     * Records {@code fingerprint} for {@code file}.
+     * @param file the filtered file
+     * @param fingerprint of {@code file}
+     */
+    public void put(File file, Fingerprint fingerprint) {
+        fingerprints.put(file.getAbsolutePath(), fingerprint);
+    }
+
+    /**
+     * Saves the record, retaining only those files within {@code files}.
+     * @param files the filtered files to retain
+     */
+    public void store(Set<File> files) {
+        PropFile filtered = new PropFile(Context.named("filtered"), PropFile.Loc.AdHoc);
+        for (File filteredFile : files) {
+            String path = filteredFile.getAbsolutePath();
+            Fingerprint fingerprint = fingerprints.get(path);
+            if (fingerprint != null) {
+                filtered.add(path, fingerprint.toString());
+            }
+        }
+        PropFiles.store(filtered, file.getPath(), true);
+    }
+
+}
@@ -0,0 +1,101 @@
+package net.ocheyedan.ply.props;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 6:10 PM
+ *
+ * A bounded, least-recently-used cache whose entries are only valid for the generation in which they were computed
+ * (see {@link PropFileChain#getGeneration()}).  Once a newer generation is requested all entries are discarded.
+ * Callers read the generation prior to computing a value and put the value with that generation; a value computed
+ * across a generation change is therefore never visible to the newer generation.
+ */
+final class GenerationalCache<K, V> {
+
+    @SuppressWarnings("serial")
+    private static final class Entries<K, V> extends LinkedHashMap<K, V> {
+
+        private final long generation;
+
+        private final int maxSize;
+
+        private Entries(long generation, int maxSize) {
+            super(16, 0.75f, true);
+            this.generation = generation;
+            this.maxSize = maxSize;
+        }
+
+        @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return (size() > maxSize);
+        }
+    }
+
+    private final int maxSize;
+
+    private volatile Entries<K, V> entries;
+
+    /**
+     * @param maxSize the maximum number of entries retained after which the least-recently-used entry is discarded
+     */
+    GenerationalCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new Entries<K, V>(0L, maxSize);
+    }
+
+    /**
+     * @param key to retrieve
+     * @param generation of the caller
+     * @return the value for {@code key} computed within {@code generation} or null if there is none
+     */
+    V get(K key, long generation) {
+        Entries<K, V> entries = getEntries(generation);
+        if (entries == null) {
+            return null;
+        }
+        synchronized (entries) {
+            return entries.get(key);
+        }
+    }
+
+    /**
+     * Caches {@code value} for {@code key} unless {@code generation} is no longer the current generation of this cache.
+     * @param key to cache
+     * @param value to cache
+     * @param generation in which {@code value} was computed
+     */
+    void put(K key, V value, long generation) {
+        Entries<K, V> entries = getEntries(generation);
+        if (entries == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * @param generation of the caller
+     * @return the entries for {@code generation} (discarding the existing entries if they're from an older generation)
+     *         or null if {@code generation} is older than the entries' generation
+     */
+    private Entries<K, V> getEntries(long generation) {
+        Entries<K, V> current = entries;
+        if (current.generation == generation) {
+            return current;
+        } else if (current.generation > generation) {
+            return null;
+        }
+        synchronized (this) {
+            current = entries;
+            if (current.generation < generation) {
+                current = new Entries<K, V>(generation, maxSize);
+                entries = current;
+            }
+            return (current.generation == generation ? current : null);
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package net.ocheyedan.ply.props;
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.PlyUtil;
+import net.ocheyedan.ply.Trace;
 
 import java.io.File;
 import java.io.FilenameFilter;
@@ -59,11 +60,15 @@ final class Loader {
             return cache.get(cacheKey);
         }
         Map<Scope, Map<Context, PropFileChain>> loaded;
+        Trace.Span span;
         if (!ignoreCache && shouldLoadFromEnv(configurationDirectory)) {
+            span = Trace.start("props", "load from env");
             loaded = loadFromEnv();
         } else {
+            span = Trace.start("props", "load " + cacheKey);
             loaded = loadChain(configurationDirectory);
         }
+        span.end();
         if (!ignoreCache) {
             cache.put(cacheKey, loaded);
         }
@@ -75,6 +80,7 @@ final class Loader {
      * @param configurationDirectory from which to invalidate properties
      */
     static void invalidateCaches(File configurationDirectory) {
+        PropFileChain.unseal();
         String cacheKey = FileUtil.getCanonicalPath(configurationDirectory);
         cache.remove(cacheKey);
     }
@@ -123,6 +129,8 @@ final class Loader {
             chain.set(propFile, PropFile.Loc.System);
             contexts.put(context, chain);
         }
+        // properties from the environment are fully resolved by ply itself and are not subsequently modified
+        PropFileChain.seal();
         return props;
     }
 
@@ -3,9 +3,12 @@ package net.ocheyedan.ply.props;
 import net.ocheyedan.ply.EmptyConcurrentMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -81,6 +84,13 @@ public final class PropFile {
             return this;
         }
 
+        final Prop copyTo(Impl owner) {
+            Prop copy = new Prop(owner, this.name, this.unfilteredValue, this.comments.get());
+            copy.filteredValue.set(this.filteredValue.get());
+            copy.filteredValueMarked.set(this.filteredValueMarked.get());
+            return copy;
+        }
+
         final Prop with(String filteredValue, String filteredValueMarked) {
             Prop filtered = new Prop(this.owner, this.name, this.unfilteredValue, this.comments.get());
             filtered.filteredValue.set(filteredValue);
@@ -178,7 +188,7 @@ public final class PropFile {
             this.order = order;
         }
 
-        private Prop add(String name, String value, String comments, Integer at) {
+        protected Prop add(String name, String value, String comments, Integer at) {
             name = name.trim();
             Prop prop = new Prop(this, name, value, comments);
             Prop existing;
@@ -194,7 +204,7 @@ public final class PropFile {
             return prop;
         }
         
-        private Prop set(String name, String value) {
+        protected Prop set(String name, String value) {
             Prop newlyAdded;
             if (props.containsKey(name)) {
                 int index = order.indexOf(props.get(name));
@@ -211,7 +221,8 @@ public final class PropFile {
         }
 
         protected Prop get(String name) {
-            return (props.containsKey(name) ? props.get(name) : Prop.Empty);
+            Prop prop = props.get(name);
+            return (prop == null ? Prop.Empty : prop);
         }
         
         protected int size() {
@@ -222,7 +233,7 @@ public final class PropFile {
             return order.isEmpty();
         }
         
-        private Prop remove(String name) {
+        protected Prop remove(String name) {
             Prop removed = props.remove(name);
             if (removed != null) {
                 order.remove(removed);       
@@ -238,8 +249,8 @@ public final class PropFile {
             if (this == o) {
                 return true;
             }
-            if ((o == null) || (getClass() != o.getClass())) {
-                return false;
+            if (!(o instanceof Impl)) {
+                return false; // note, read-only copies are equal to the file from which they were copied
             }
             if (o == Empty) {
                 return false; // (this == Empty); but we know from above that's false as (this != o)
@@ -256,6 +267,58 @@ public final class PropFile {
         }
     }
 
+    /**
+     * An immutable {@link Impl} for properties files which are only read once loaded.  The properties are held within
+     * a pre-sized {@link HashMap} and an array (for order) rather than the concurrent structures needed for mutation.
+     */
+    private static final class ReadOnly extends Impl {
+
+        private final Map<String, Prop> lookup;
+
+        private final List<Prop> ordered;
+
+        private ReadOnly(Impl from) {
+            super(from.context, from.scope, from.loc, EmptyConcurrentMap.<String, Prop>get(), Collections.<Prop>emptyList());
+            List<Prop> copies = new ArrayList<Prop>(from.size());
+            Iterator<Prop> iterator = from.iterator();
+            while (iterator.hasNext()) {
+                copies.add(iterator.next().copyTo(this));
+            }
+            Prop[] props = copies.toArray(new Prop[copies.size()]);
+            Map<String, Prop> lookup = new HashMap<String, Prop>((int) (props.length / 0.75f) + 1, 0.75f);
+            for (Prop prop : props) {
+                lookup.put(prop.name, prop);
+            }
+            this.lookup = lookup;
+            this.ordered = Collections.unmodifiableList(Arrays.asList(props));
+        }
+        @Override protected Prop add(String name, String value, String comments, Integer at) {
+            throw new UnsupportedOperationException("Read-only properties file.");
+        }
+        @Override protected Prop set(String name, String value) {
+            throw new UnsupportedOperationException("Read-only properties file.");
+        }
+        @Override protected Prop remove(String name) {
+            throw new UnsupportedOperationException("Read-only properties file.");
+        }
+        @Override protected boolean contains(String name) {
+            return lookup.containsKey(name);
+        }
+        @Override protected Prop get(String name) {
+            Prop prop = lookup.get(name);
+            return (prop == null ? Prop.Empty : prop);
+        }
+        @Override protected int size() {
+            return ordered.size();
+        }
+        @Override protected boolean isEmpty() {
+            return ordered.isEmpty();
+        }
+        @Override protected Iterator<Prop> iterator() {
+            return ordered.iterator();
+        }
+    }
+
     /**
      * An empty, immutable, properties file.
      */
@@ -401,6 +464,18 @@ public final class PropFile {
         return delegate.remove(name);
     }
 
+    /**
+     * @return an immutable copy of this properties file optimized for reading (or this properties file if it is
+     *         already immutable).  Adding, setting or removing properties of the copy throws an
+     *         {@link UnsupportedOperationException}.
+     */
+    public final PropFile readOnly() {
+        if ((delegate instanceof ReadOnly) || (delegate == Impl.Empty)) {
+            return this;
+        }
+        return new PropFile(delegate.context, delegate.scope, delegate.loc, new ReadOnly(delegate));
+    }
+
     /**
      * @return an {@link Iterable} of type {@link Prop} over the properties file's properties.
      */
@@ -1,7 +1,8 @@
 package net.ocheyedan.ply.props;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * User: blangel
@@ -32,10 +33,129 @@ import java.util.concurrent.ConcurrentHashMap;
  * within the {@literal AdHoc} it is returned, otherwise, the check continues down the chain.
  * <p/>
  * Additionally, since filtering is applied against chains of the same {@link Context}, this class contains a mapping
- * to the filtered value for each given {@link PropFile.Prop} object within the chain.
+ * to the filtered value for each given {@link PropFile.Prop} object within the chain.  As a filtered value may depend
+ * upon values within any other chain, every modification of any chain starts a new generation (see
+ * {@link #getGeneration()}) and filtered values are only cached for the generation in which they were computed.
+ * <p/>
+ * Once all modifications are done (i.e., after ad-hoc properties are resolved) the chains may be sealed (see
+ * {@link #seal()}).  While sealed, each chain is read from a {@link Snapshot}; its properties flattened into an
+ * open-addressing table (so that a lookup no longer walks the chain) whose filtered values are computed once.  Any
+ * subsequent modification unseals the chains (and starts a new generation).
  */
 public final class PropFileChain {
 
+    /**
+     * A flattened, immutable view of a chain's properties in which each property name maps directly to the property
+     * found first when consulting the chain top down.  The filtered value of each property is computed upon first
+     * retrieval and then retained.
+     */
+    public static final class Snapshot {
+
+        private final Impl chain;
+
+        private final long epoch;
+
+        /**
+         * Open-addressing table (linear probing) of property names to their index within {@link #props}.
+         */
+        private final String[] names;
+
+        private final int[] indices;
+
+        /**
+         * The unfiltered properties in chain order.
+         */
+        private final PropFile.Prop[] props;
+
+        private final AtomicReferenceArray<PropFile.Prop> filtered;
+
+        private final Iterable<PropFile.Prop> iterable;
+
+        private Snapshot(Impl chain, long epoch) {
+            this.chain = chain;
+            this.epoch = epoch;
+            Map<String, PropFile.Prop> flattened = new LinkedHashMap<String, PropFile.Prop>();
+            chain.flatten(flattened);
+            this.props = flattened.values().toArray(new PropFile.Prop[flattened.size()]);
+            int capacity = Integer.highestOneBit(Math.max(2, props.length * 2 - 1)) << 1;
+            this.names = new String[capacity];
+            this.indices = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < props.length; i++) {
+                int slot = (spread(props[i].name.hashCode()) & mask);
+                while (names[slot] != null) {
+                    slot = ((slot + 1) & mask);
+                }
+                names[slot] = props[i].name;
+                indices[slot] = i;
+            }
+            this.filtered = new AtomicReferenceArray<PropFile.Prop>(props.length);
+            this.iterable = new Iterable<PropFile.Prop>() {
+                @Override public Iterator<PropFile.Prop> iterator() {
+                    return new Iterator<PropFile.Prop>() {
+                        int index = 0;
+                        @Override public boolean hasNext() {
+                            return (index < props.length);
+                        }
+                        @Override public PropFile.Prop next() {
+                            if (index >= props.length) {
+                                throw new NoSuchElementException();
+                            }
+                            return get(index++);
+                        }
+                        @Override public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * @param named the name of the property to retrieve
+         * @return the filtered property named {@code named} or {@link PropFile.Prop#Empty} if there is none
+         */
+        public PropFile.Prop get(String named) {
+            int mask = names.length - 1;
+            int slot = (spread(named.hashCode()) & mask);
+            String name;
+            while ((name = names[slot]) != null) {
+                if (name.equals(named)) {
+                    return get(indices[slot]);
+                }
+                slot = ((slot + 1) & mask);
+            }
+            return PropFile.Prop.Empty;
+        }
+
+        /**
+         * @return the filtered properties in the order in which they'd be iterated from the chain
+         */
+        public Iterable<PropFile.Prop> props() {
+            return iterable;
+        }
+
+        /**
+         * @return the number of properties
+         */
+        public int size() {
+            return props.length;
+        }
+
+        private PropFile.Prop get(int index) {
+            PropFile.Prop prop = filtered.get(index);
+            if (prop == null) {
+                prop = chain.filter(props[index].name);
+                filtered.set(index, prop);
+            }
+            return prop;
+        }
+
+        private static int spread(int hash) {
+            return (hash ^ (hash >>> 16));
+        }
+    }
+
     /**
      * Internal representation of the chain's data.  This nested class exists so that {@link PropFileChain}
      * can be marked final but yet the root, empty, default delegate can be an extension which always returns
@@ -56,6 +176,7 @@ public final class PropFileChain {
             @Override protected Iterator<PropFile.Prop> iterator() {
                 return PropFile.EmptyIterator;
             }
+            @Override protected void flatten(Map<String, PropFile.Prop> into) { }
         };
 
         /**
@@ -108,7 +229,9 @@ public final class PropFileChain {
 
         private final Map<Context, PropFileChain> filterConsultant;
         
-        private final Map<String, PropFile.Prop> filteredCache;
+        private final GenerationalCache<String, FilterDependencies.Tracked<PropFile.Prop>> filteredCache;
+
+        private volatile Snapshot snapshot;
         
         private Impl(Impl defaultChain, Map<Context, PropFileChain> filterConsultant) {
             chain = new ArrayList<PropFile>(3);
@@ -117,11 +240,10 @@ public final class PropFileChain {
             chain.add(PropFile.Empty); // system
             this.defaultChain = defaultChain;
             this.filterConsultant = filterConsultant;
-            this.filteredCache = new ConcurrentHashMap<String, PropFile.Prop>();
+            this.filteredCache = new GenerationalCache<String, FilterDependencies.Tracked<PropFile.Prop>>(MAX_FILTERED_CACHE_SIZE);
         }
         
         private void set(PropFile propFile, PropFile.Loc at) {
-            filteredCache.clear(); // invalidation of filter cache
             switch (at) {
                 case AdHoc:
                     chain.set(0, propFile); break;
@@ -132,18 +254,42 @@ public final class PropFileChain {
                 default:
                     throw new AssertionError(String.format("Unsupported PropFile.Loc value %s", at.name()));
             }
+            nextGeneration(); // invalidation of filter caches
         }
         
         protected PropFile.Prop get(String named) {
-            if (filteredCache.containsKey(named)) {
-                return filteredCache.get(named);
+            if (sealed) {
+                return snapshot().get(named);
             }
-            PropFile.Prop unfiltered = internalGet(named);
-            PropFile.Prop filtered = unfiltered;
-            if (PropFile.Prop.Empty != unfiltered) {
-                filtered = Filter.filter(unfiltered, String.valueOf(System.identityHashCode(this)), filterConsultant);
+            return filter(named);
+        }
+
+        /**
+         * @param named the name of the property to retrieve
+         * @return the filtered property named {@code named}, retrieved from the chain itself (and not a {@link Snapshot})
+         */
+        protected PropFile.Prop filter(String named) {
+            long generation = getGeneration();
+            PropFile.Prop cached = FilterDependencies.get(filteredCache.get(named, generation));
+            if (cached != null) {
+                return cached;
             }
-            filteredCache.put(named, filtered);
+            long version = FilterDependencies.getVersion();
+            PropFile.Prop filtered;
+            Set<FilterDependencies.Key> dependencies;
+            FilterDependencies.begin();
+            try {
+                filtered = internalGet(named);
+                if (PropFile.Prop.Empty == filtered) {
+                    // not cached as the property may be subsequently added (i.e., as an ad-hoc property)
+                    return filtered;
+                }
+                FilterDependencies.record(filtered.context(), named);
+                filtered = Filter.filter(filtered, String.valueOf(System.identityHashCode(this)), filterConsultant);
+            } finally {
+                dependencies = FilterDependencies.end();
+            }
+            filteredCache.put(named, new FilterDependencies.Tracked<PropFile.Prop>(filtered, dependencies, version), generation);
             return filtered;
         }
         
@@ -160,7 +306,41 @@ public final class PropFileChain {
             return defaultChain.get(named);
         }
 
+        /**
+         * @return the {@link Snapshot} of this chain for the current seal, creating it if necessary
+         */
+        protected Snapshot snapshot() {
+            long epoch = sealedEpoch.get();
+            Snapshot current = snapshot;
+            if ((current == null) || (current.epoch != epoch)) {
+                current = new Snapshot(this, epoch);
+                snapshot = current;
+            }
+            return current;
+        }
+
+        /**
+         * Adds each unfiltered property of this chain not already within {@code into} (as properties higher in the
+         * chain take precedence).
+         * @param into which to add the properties
+         */
+        protected void flatten(Map<String, PropFile.Prop> into) {
+            for (PropFile propFile : chain) {
+                for (PropFile.Prop prop : propFile.props()) {
+                    if (!into.containsKey(prop.name)) {
+                        into.put(prop.name, prop);
+                    }
+                }
+            }
+            if (defaultChain != null) {
+                defaultChain.flatten(into);
+            }
+        }
+
         protected Iterator<PropFile.Prop> iterator() {
+            if (sealed) {
+                return snapshot().props().iterator();
+            }
             return new ImplIterator(chain, defaultChain) {
                 @Override public PropFile.Prop next() {
                     if (!incremented) {
@@ -174,6 +354,78 @@ public final class PropFileChain {
         
     }
     
+    /**
+     * The maximum number of filtered values retained per chain.
+     */
+    private static final int MAX_FILTERED_CACHE_SIZE = 1024;
+
+    /**
+     * The generation of all chains' property values; incremented upon any modification.
+     */
+    private static final AtomicLong generation = new AtomicLong(1L);
+
+    /**
+     * @return the current generation of all chains' property values.  Filtered values computed within an older
+     *         generation are stale.
+     */
+    static long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Starts a new generation of property values, invalidating all cached filtered values.  This must be called
+     * after a modification is made to any {@link PropFile} within a chain.
+     */
+    static void nextGeneration() {
+        sealed = false;
+        generation.incrementAndGet();
+        FilterDependencies.reset();
+    }
+
+    /**
+     * Whether the chains are sealed; i.e., read from their {@link Snapshot}.
+     */
+    private static volatile boolean sealed = false;
+
+    /**
+     * Incremented upon each seal so that snapshots from a prior seal are not used.
+     */
+    private static final AtomicLong sealedEpoch = new AtomicLong(0L);
+
+    /**
+     * Seals all chains; subsequent reads are from each chain's {@link Snapshot} until a modification is made to any
+     * chain (see {@link #unseal()}).  This is to be called once no further modifications are expected.
+     */
+    static void seal() {
+        sealedEpoch.incrementAndGet();
+        sealed = true;
+    }
+
+    /**
+     * Unseals all chains (if sealed), starting a new generation as filtered values computed while sealed did not
+     * track their dependencies upon values read from snapshots.  This must be called prior to any modification to a
+     * {@link PropFile} within a chain.
+     */
+    static void unseal() {
+        if (sealed) {
+            nextGeneration();
+        }
+    }
+
+    /**
+     * @return true if the chains are sealed
+     */
+    static boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * @return the current seal's epoch (only meaningful if {@link #isSealed()})
+     */
+    static long getSealedEpoch() {
+        return sealedEpoch.get();
+    }
+
     private final Impl delegate;
 
     private final Iterable<PropFile.Prop> props;
@@ -228,17 +480,20 @@ public final class PropFileChain {
     }
 
     /**
-     * @return an {@link Iterable} of type {@link PropFile.Prop} over the chain's properties.
+     * @return a flattened, immutable view of this chain with every property filtered.  If the chains are sealed
+     *         the snapshot is that from which this chain is read.
      */
-    public final Iterable<PropFile.Prop> props() {
-        return props;
+    public Snapshot snapshot() {
+        Snapshot snapshot = (sealed ? delegate.snapshot() : new Snapshot(delegate, -1L));
+        for (PropFile.Prop ignored : snapshot.props()) { } // filters every property
+        return snapshot;
     }
 
     /**
-     * Clears the filtered cache of property values.
+     * @return an {@link Iterable} of type {@link PropFile.Prop} over the chain's properties.
      */
-    final void invalidateFilteredCache() {
-        delegate.filteredCache.clear();
+    public final Iterable<PropFile.Prop> props() {
+        return props;
     }
     
 }
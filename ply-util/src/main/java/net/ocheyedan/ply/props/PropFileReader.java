@@ -3,6 +3,8 @@ package net.ocheyedan.ply.props;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * User: blangel
@@ -12,7 +14,7 @@ import java.io.InputStreamReader;
  * Loads a {@link PropFile} from an {@link InputStreamReader}.
  */
 public interface PropFileReader {
-    
+
     @SuppressWarnings("serial")
     static final class Invalid extends RuntimeException {
 
@@ -28,112 +30,249 @@ public interface PropFileReader {
     }
 
     /**
-     * Reads lines from from a {@link java.io.BufferedReader} according to {@link java.io.BufferedReader#readLine()}.  
+     * Reads lines from from a {@link java.io.BufferedReader}, terminated as with {@link java.io.BufferedReader#readLine()}.
      * Each line is trimmed according to {@link String#trim()} and then each escaped '=' character is un-escaped.
      * Note, in this implementation only lines starting with '#' are considered to be comments (as opposed to
      * the {@link java.util.Properties} class which also considers '!' characters).
-     * Additionally, only the '=' character is considered to separate key from value (as opposed to the 
+     * Additionally, only the '=' character is considered to separate key from value (as opposed to the
      * {@link java.util.Properties} class which also considers ':' characters).
      * The file is encoded via the {@link BufferedReader} and not forced to be {@literal ISO-8859-1} as it is with
      * the {@link java.util.Properties} class.
      * Also, the only thing one needs to escape is the '#' character, spaces within a key do not need to be
      * escaped as the only key to value delimiter is the '#' character.  However, like {@link java.util.Properties},
      * whitespace is not allowed as the start of the key (it will be trimmed by this implementation).
+     * Characters are scanned directly from a per-thread buffer rather than allocating a {@link String} per line and
+     * keys are shared across loaded files.
      */
     static final PropFileReader Default = new PropFileReader() {
-        
-        class ParseResult {
-            private final Boolean complete;
-            private final String key;
-            private final String value;
-            private ParseResult(Boolean complete, String key, String value) {
-                this.complete = complete;
-                this.key = key;
-                this.value = value;
+
+        /**
+         * The maximum number of distinct keys retained for sharing amongst loaded files.
+         */
+        private static final int MAX_SHARED_KEYS = 8192;
+
+        private static final int BUFFER_SIZE = 8192;
+
+        /**
+         * Keys repeat across the many small files (i.e., {@literal dependencies.properties}) loaded during resolution,
+         * so each distinct key is shared rather than retained once per file.
+         */
+        private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<String, String>();
+
+        private final ThreadLocal<char[]> buffers = new ThreadLocal<char[]>() {
+            @Override protected char[] initialValue() {
+                return new char[BUFFER_SIZE];
             }
-        }
+        };
 
-        @Override public void load(BufferedReader reader, PropFile into) throws IOException {
-            if ((reader == null) || (into == null)) {
-                throw new NullPointerException("The BufferedReader and PropFile cannot be null.");
+        /**
+         * The state of a single load; the key and value being parsed (which may span lines via continuation) and the
+         * comments preceding them.
+         */
+        class Scanner {
+            private final PropFile into;
+            private final StringBuilder comments = new StringBuilder();
+            private final StringBuilder value = new StringBuilder();
+            private char[] buffer = new char[128];
+            private int length;
+            private String key;
+            private boolean parsing;
+            private Scanner(PropFile into) {
+                this.into = into;
             }
-            String line;
-            StringBuilder commentsBuffer = new StringBuilder();
-            ParseResult parsing = null;
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() && (parsing == null)) {
+
+            /**
+             * Scans the line within {@code chars} between {@code start} and {@code end}.
+             */
+            private void scanLine(char[] chars, int start, int end) {
+                while ((start < end) && (chars[start] <= ' ')) {
+                    start++;
+                }
+                while ((start < end) && (chars[end - 1] <= ' ')) {
+                    end--;
+                }
+                if ((start == end) && !parsing) {
                     // continue;
-                } else if (line.startsWith("#")) {
-                    if (commentsBuffer.length() > 0) {
-                        commentsBuffer.append("\n");
+                } else if ((start < end) && (chars[start] == '#')) {
+                    if (comments.length() > 0) {
+                        comments.append('\n');
                     }
-                    commentsBuffer.append(line.substring(1));
+                    comments.append(chars, start + 1, end - start - 1);
                 } else {
-                    ParseResult parsedLine = parse(line);
-                    if (parsing != null) {
-                        if (!parsedLine.key.isEmpty()) {
-                            throw new Invalid(parsedLine.key, into.context().name, "Properties may only have one key.");
+                    String lineKey = parse(chars, start, end);
+                    boolean complete = ((length == 0) || (buffer[length - 1] != '\\'));
+                    if (!complete) {
+                        length--;
+                    }
+                    if (parsing) {
+                        if (!lineKey.isEmpty()) {
+                            throw new Invalid(lineKey, into.context().name, "Properties may only have one key.");
                         }
-                        parsing = new ParseResult(false, parsing.key, String.format("%s%s", parsing.value, parsedLine.value));
+                        value.append(buffer, 0, length);
                     } else {
-                        parsing = parsedLine;
+                        key = lineKey;
+                        if (!complete) {
+                            value.setLength(0);
+                            value.append(buffer, 0, length);
+                            parsing = true;
+                        }
                     }
-                    if (parsedLine.complete) {
-                        if (parsing.key.isEmpty()) {
-                            throw new Invalid(line, into.context().name, "Keys must be non-empty.");
-                        } else if (into.contains(parsing.key)) {
-                            throw new Invalid(parsing.key, into.context().name, "Keys must be unique.");
+                    if (complete) {
+                        if (key.isEmpty()) {
+                            throw new Invalid(new String(chars, start, end - start), into.context().name, "Keys must be non-empty.");
+                        } else if (into.contains(key)) {
+                            throw new Invalid(key, into.context().name, "Keys must be unique.");
                         }
-                        into.add(parsing.key.trim(), parsing.value.trim(), commentsBuffer.toString());
-                        parsing = null;
-                        commentsBuffer = new StringBuilder();
+                        String propValue = (parsing ? trim(value) : trim(buffer, length));
+                        into.add(share(key.trim()), propValue, comments.toString());
+                        parsing = false;
+                        comments.setLength(0);
+                    }
+                }
+            }
+
+            /**
+             * Parses the line within {@code chars} between {@code start} and {@code end} into {@link #buffer} (the
+             * value) un-escaping as it goes.
+             * @return the key of the line (the characters prior to the first un-escaped '=') or the empty string if
+             *         there is none
+             */
+            @SuppressWarnings("fallthrough")
+            private String parse(char[] chars, int start, int end) {
+                if (buffer.length < (end - start) + 1) {
+                    buffer = new char[(end - start) * 2];
+                }
+                length = 0;
+                String key = "";
+                boolean isEscaped = false;
+                for (int i = start; i < end; i++) {
+                    char character = chars[i];
+                    switch (character) {
+                        case '\\':
+                            isEscaped = true;
+                            break;
+                        case '=':
+                            if (isEscaped || !key.isEmpty()) {
+                                buffer[length++] = '=';
+                            } else {
+                                key = new String(buffer, 0, length);
+                                length = 0;
+                            }
+                            isEscaped = false;
+                            break;
+                        case ':':
+                        case ' ':
+                            if (isEscaped && key.isEmpty()) {
+                                isEscaped = false; // eliminate ':' and ' ' escapes within key to conform to {@link Properties}
+                            }
+                        default:
+                            if (isEscaped) {
+                                buffer[length++] = '\\';
+                            }
+                            buffer[length++] = character;
+                            isEscaped = false;
                     }
                 }
+                if (isEscaped) {
+                    buffer[length++] = '\\';
+                }
+                return key;
             }
         }
 
-        @SuppressWarnings("fallthrough")
-        private ParseResult parse(String line) {
-            StringBuilder buffer = new StringBuilder();
-            String key = "", value;
-            boolean isEscaped = false;
-            for (char character : line.toCharArray()) {
-                switch (character) {
-                    case '\\':
-                        isEscaped = true;
-                        break;
-                    case '=':
-                        if (isEscaped || !key.isEmpty()) {
-                            buffer.append('=');
-                        } else {
-                            key = buffer.toString();
-                            buffer = new StringBuilder();
-                        }
-                        isEscaped = false;
-                        break;
-                    case ':':
-                    case ' ':
-                        if (isEscaped && key.isEmpty()) {
-                            isEscaped = false; // eliminate ':' and ' ' escapes within key to conform to {@link Properties}
-                        }
-                    default:
-                        if (isEscaped) {
-                            buffer.append('\\');
-                        }
-                        buffer.append(character);
-                        isEscaped = false;
+        @Override public void load(BufferedReader reader, PropFile into) throws IOException {
+            if ((reader == null) || (into == null)) {
+                throw new NullPointerException("The BufferedReader and PropFile cannot be null.");
+            }
+            char[] chars = buffers.get();
+            Scanner scanner = new Scanner(into);
+            // lines spanning reads are carried over into a separate buffer
+            char[] carry = null;
+            int carried = 0;
+            boolean skipLineFeed = false, pending = false;
+            int read;
+            while ((read = reader.read(chars, 0, chars.length)) != -1) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    char character = chars[i];
+                    if ((character != '\n') && (character != '\r')) {
+                        skipLineFeed = false;
+                        pending = true;
+                        continue;
+                    }
+                    if ((character == '\n') && skipLineFeed) {
+                        // second half of a '\r\n' line terminator
+                        skipLineFeed = false;
+                        lineStart = i + 1;
+                        continue;
+                    }
+                    if (carried > 0) {
+                        carry = append(carry, carried, chars, lineStart, i);
+                        carried += (i - lineStart);
+                        scanner.scanLine(carry, 0, carried);
+                        carried = 0;
+                    } else {
+                        scanner.scanLine(chars, lineStart, i);
+                    }
+                    pending = false;
+                    skipLineFeed = (character == '\r');
+                    lineStart = i + 1;
+                }
+                if (lineStart < read) {
+                    carry = append(carry, carried, chars, lineStart, read);
+                    carried += (read - lineStart);
                 }
             }
-            if (isEscaped) {
-                buffer.append('\\');
+            if (pending) {
+                scanner.scanLine(carry, 0, carried);
+            }
+        }
+
+        private char[] append(char[] to, int length, char[] from, int start, int end) {
+            int needed = length + (end - start);
+            if ((to == null) || (to.length < needed)) {
+                char[] grown = new char[Math.max(needed, (to == null ? BUFFER_SIZE : to.length * 2))];
+                if (to != null) {
+                    System.arraycopy(to, 0, grown, 0, length);
+                }
+                to = grown;
+            }
+            System.arraycopy(from, start, to, length, end - start);
+            return to;
+        }
+
+        private String share(String key) {
+            String shared = keys.get(key);
+            if (shared != null) {
+                return shared;
+            }
+            if (keys.size() >= MAX_SHARED_KEYS) {
+                return key;
+            }
+            shared = keys.putIfAbsent(key, key);
+            return (shared == null ? key : shared);
+        }
+
+        private String trim(StringBuilder value) {
+            int start = 0, end = value.length();
+            while ((start < end) && (value.charAt(start) <= ' ')) {
+                start++;
+            }
+            while ((start < end) && (value.charAt(end - 1) <= ' ')) {
+                end--;
+            }
+            return value.substring(start, end);
+        }
+
+        private String trim(char[] value, int length) {
+            int start = 0, end = length;
+            while ((start < end) && (value[start] <= ' ')) {
+                start++;
             }
-            value = buffer.toString();
-            if (value.endsWith("\\")) {
-                return new ParseResult(false, key, value.substring(0, value.length() - 1));
-            } else {
-                return new ParseResult(true, key, value);
+            while ((start < end) && (value[end - 1] <= ' ')) {
+                end--;
             }
+            return new String(value, start, end - start);
         }
     };
 
@@ -5,6 +5,7 @@ import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.SystemExit;
 
 import java.io.*;
+import java.nio.charset.Charset;
 
 /**
  * User: blangel
@@ -122,12 +123,12 @@ public final class PropFiles {
                 propFileReader.load(reader, into);
                 return true;
             } catch (PropFileReader.Invalid pfri) {
-                Output.print("^error^ %s Property in question '%s' from %s", pfri.getMessage(), pfri.invalidEntry, pfri.fileName);
+                Output.printFromPly("^error^ %s Property in question '%s' from %s", pfri.getMessage(), pfri.invalidEntry, pfri.fileName);
                 SystemExit.exit(1);
             }
         } catch (FileNotFoundException fnfe) {
             if (printOnFNF) {
-                Output.print("Cannot load properties file, %s, it does not exist.", path);
+                Output.printFromPly("Cannot load properties file, %s, it does not exist.", path);
                 Output.print(fnfe);
             }
         } catch (IOException ioe) {
@@ -180,52 +181,128 @@ public final class PropFiles {
         return store(propFile, propFileWriter, to, create, false);
     }
 
+    /**
+     * Calls {@link #store(PropFile, PropFileWriter, String, boolean, boolean, boolean)} with true for the
+     * onlyIfChanged argument.
+     *
+     * @param propFile       to store
+     * @param propFileWriter to use to store the {@code propFile} to {@code to}.
+     * @param to             which to store {@code propFile}
+     * @param create         the {@code to} file if it doesn't exist (including it's sub-directories).
+     * @param useFiltered true to use the filtered property value when saving
+     * @return true on success; false otherwise
+     */
+    public static boolean store (PropFile propFile, PropFileWriter propFileWriter, String to,boolean create, boolean useFiltered){
+        return store(propFile, propFileWriter, to, create, useFiltered, true);
+    }
+
     /**
      * Stores {@code propFile} into {@code to} with the given {@code comment}.  If {@code create} is true
      * then {@code to} will be created if it does not exist (including necessary directories).
+     * The contents are written to a temporary file within the same directory which then replaces {@code to} so that
+     * readers (i.e., concurrent builds) never see a partially written file.  If {@code onlyIfChanged} is true and
+     * {@code to} already has exactly the contents to be written then nothing is written (leaving its last modified
+     * time untouched).
      *
      * @param propFile       to store
      * @param propFileWriter to use to store the {@code propFile} to {@code to}.
      * @param to             which to store {@code propFile}
      * @param create         the {@code to} file if it doesn't exist (including it's sub-directories).
      * @param useFiltered true to use the filtered property value when saving
+     * @param onlyIfChanged true to skip writing if {@code to} already has the contents to be written
      * @return true on success; false otherwise
      */
-    public static boolean store (PropFile propFile, PropFileWriter propFileWriter, String to,boolean create, boolean useFiltered){
+    public static boolean store(PropFile propFile, PropFileWriter propFileWriter, String to, boolean create,
+                                boolean useFiltered, boolean onlyIfChanged) {
         if ((propFile == null) || (propFileWriter == null) || (to == null)) {
             return false;
         }
         to = FileUtil.stripFileUriPrefix(to);
         File propertiesFile = new File(to);
-        BufferedWriter writer = null;
+        if (!create && !propertiesFile.exists()) {
+            return false;
+        }
+        File storing = null;
+        FileOutputStream output = null;
         try {
-            if (create && !propertiesFile.exists()) {
-                propertiesFile.getParentFile().mkdirs();
-                propertiesFile.createNewFile();
-            } else if (!create && !propertiesFile.exists()) {
-                return false;
-            }
-            writer = new BufferedWriter(new FileWriter(propertiesFile));
+            StringWriter contentsWriter = new StringWriter();
+            BufferedWriter writer = new BufferedWriter(contentsWriter);
             propFileWriter.store(writer, propFile, useFiltered);
-            return true;
+            writer.flush();
+            byte[] contents = contentsWriter.toString().getBytes(Charset.defaultCharset().name());
+            if (onlyIfChanged && hasContents(propertiesFile, contents)) {
+                return true;
+            }
+            File directory = propertiesFile.getAbsoluteFile().getParentFile();
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            storing = File.createTempFile("." + propertiesFile.getName() + ".", ".storing", directory);
+            output = new FileOutputStream(storing);
+            output.write(contents);
+            // durable before the rename so that a crash never leaves the renamed file without its contents
+            output.getFD().sync();
+            output.close();
+            output = null;
+            FileUtil.copyPermissions(propertiesFile, storing);
+            // rename is atomic on most platforms but fails on some (i.e., windows) if the destination exists
+            if (storing.renameTo(propertiesFile) || (propertiesFile.delete() && storing.renameTo(propertiesFile))) {
+                storing = null;
+                return true;
+            }
+            Output.printFromPly("^error^ Cannot store properties file, %s", to);
         } catch (FileNotFoundException fnfe) {
-            Output.print("Cannot store properties file, %s, it does not exist.", to);
+            Output.printFromPly("Cannot store properties file, %s, it does not exist.", to);
             Output.print(fnfe);
         } catch (IOException ioe) {
-            Output.print("^error^ Cannot store properties file, %s", to);
+            Output.printFromPly("^error^ Cannot store properties file, %s", to);
             Output.print(ioe);
         } finally {
-            if (writer != null) {
+            if (output != null) {
                 try {
-                    writer.close();
+                    output.close();
                 } catch (IOException ioe) {
                     throw new AssertionError(ioe);
                 }
             }
+            if (storing != null) {
+                storing.delete();
+            }
         }
         return false;
     }
 
+    /**
+     * @param file to check
+     * @param contents the expected contents
+     * @return true if {@code file} exists and consists of exactly {@code contents}
+     */
+    private static boolean hasContents(File file, byte[] contents) {
+        if (!file.isFile() || (file.length() != contents.length)) {
+            return false;
+        }
+        InputStream input = null;
+        try {
+            input = new BufferedInputStream(new FileInputStream(file));
+            for (byte expected : contents) {
+                if (input.read() != (expected & 0xFF)) {
+                    return false;
+                }
+            }
+            return (input.read() == -1);
+        } catch (IOException ioe) {
+            return false;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ioe) {
+                    Output.print(ioe);
+                }
+            }
+        }
+    }
+
     /**
      * Returns the base file name for {@code propFile}.  For instance, if {@code propFile} has the default scope,
      * context of 'project' then this method will return "project.properties".  If {@code propFile} has
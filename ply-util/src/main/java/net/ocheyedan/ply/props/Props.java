@@ -18,6 +18,30 @@ import static net.ocheyedan.ply.props.PropFile.Prop;
  */
 public final class Props {
 
+    /**
+     * The most recently retrieved chains while sealed (see {@link PropFileChain#seal()}), retained so that repeated
+     * retrievals need not resolve the configuration directory.
+     */
+    private static final class SealedView {
+
+        private final long epoch;
+
+        private final File configurationDirectory;
+
+        private final Scope scope;
+
+        private final Map<Context, PropFileChain> contexts;
+
+        private SealedView(long epoch, File configurationDirectory, Scope scope, Map<Context, PropFileChain> contexts) {
+            this.epoch = epoch;
+            this.configurationDirectory = configurationDirectory;
+            this.scope = scope;
+            this.contexts = contexts;
+        }
+    }
+
+    private static volatile SealedView sealedView;
+
     /**
      * @return a mapping of {@link Context} to {@link PropFileChain} for the current scope and the local configuration
      *         directory. The result will never be null.
@@ -60,15 +84,28 @@ public final class Props {
      *         {@code configurationDirectory}. The result will never be null.
      */
     public static Map<Context, PropFileChain> get (Scope scope, File configurationDirectory, boolean ignoreCache) {
+        boolean sealed = (!ignoreCache && PropFileChain.isSealed());
+        long epoch = PropFileChain.getSealedEpoch();
+        SealedView view = sealedView;
+        if (sealed && (view != null) && (view.epoch == epoch) && (view.configurationDirectory == configurationDirectory)
+                && view.scope.equals(scope)) {
+            return view.contexts;
+        }
+        Map<Context, PropFileChain> contexts;
         Map<Scope, Map<Context, PropFileChain>> loaded = Loader.load(configurationDirectory, ignoreCache);
         if ((loaded == null) || !loaded.containsKey(scope)) {
             if ((loaded != null) && !Scope.Default.equals(scope) && loaded.containsKey(Scope.Default)) {
-                return loaded.get(Scope.Default);
+                contexts = loaded.get(Scope.Default);
             } else {
-                return Collections.emptyMap();
+                contexts = Collections.emptyMap();
             }
+        } else {
+            contexts = loaded.get(scope);
         }
-        return loaded.get(scope);
+        if (sealed) {
+            sealedView = new SealedView(epoch, configurationDirectory, scope, contexts);
+        }
+        return contexts;
     }
 
     /**
@@ -235,21 +272,21 @@ public final class Props {
     }
 
     /**
-     * For each {@link PropFileChain} associated with {@code configDirectory}, clears the filtered cache of property
-     * values.  This is done to force filter of property values when ad-hoc properties are added via alias
-     * resolution.
-     * @param configDirectory for which to clear the filtered cache of all associated {@link PropFileChain} objects.
+     * Invalidates the filtered cache of property values of every {@link PropFileChain} (by starting a new generation,
+     * see {@link PropFileChain#nextGeneration()}).  This is done to force filter of property values when ad-hoc
+     * properties are added via alias resolution.
+     * @param configDirectory unused; as filtered values may depend upon any chain, all chains are invalidated.
      */
     static void invalidateFilteredCaches(File configDirectory) {
-        Map<Scope, Map<Context, PropFileChain>> loaded = Loader.load(configDirectory);
-        for (Scope scope : loaded.keySet()) {
-            Map<Context, PropFileChain> contexts = loaded.get(scope);
-            for (Context context : contexts.keySet()) {
-                PropFileChain chain = contexts.get(context);
-                chain.invalidateFilteredCache();
-            }
-        }
-        Filter.clearCache();
+        PropFileChain.nextGeneration();
+    }
+
+    /**
+     * Seals every {@link PropFileChain} so that property values are read from flattened snapshots until the next
+     * modification (see {@link PropFileChain#seal()}).  This is done once ad-hoc properties have been resolved.
+     */
+    static void seal() {
+        PropFileChain.seal();
     }
     
     private Props() { }
@@ -0,0 +1,79 @@
+package net.ocheyedan.ply;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/20/14
+ * Time: 8:55 AM
+ */
+public class AntStyleWildcardSetTest {
+
+    @Test
+    public void literalPrefix() {
+        assertEquals("src/", AntStyleWildcardSet.literalPrefix("src/**/*Test.???"));
+        assertEquals("", AntStyleWildcardSet.literalPrefix("**/*.xml"));
+        assertEquals("src/main/resources/app", AntStyleWildcardSet.literalPrefix("src/main/resources/app.properties"));
+        assertEquals("ab", AntStyleWildcardSet.literalPrefix("abc+"));
+        assertEquals("", AntStyleWildcardSet.literalPrefix("src/a|b"));
+        assertEquals("src/config", AntStyleWildcardSet.literalPrefix("src/config"));
+    }
+
+    @Test
+    public void firstMatchWins() {
+        AntStyleWildcardSet set = new AntStyleWildcardSet();
+        set.add("/build/resources/secret.properties", false)
+           .add("/build/resources/**", true)
+           .add("**/*.bin", false)
+           .add("/build/classes/app.properties", true);
+        assertEquals(4, set.size());
+
+        assertFalse(set.includes("/build/resources/secret.properties"));
+        assertTrue(set.matches("/build/resources/secret.properties"));
+        assertTrue(set.includes("/build/resources/app.properties"));
+        assertTrue(set.includes("/build/resources/nested/data.bin"));
+        assertFalse(set.includes("/build/other/data.bin"));
+        assertTrue(set.matches("/build/other/data.bin"));
+        assertTrue(set.includes("/build/classes/app.properties"));
+        assertFalse(set.includes("/build/classes/other.properties"));
+        assertFalse(set.matches("/build/classes/other.properties"));
+        assertFalse(set.includes("/build/resources"));
+    }
+
+    @Test
+    public void sameAsRegex() {
+        String[] expressions = { "**/*Test.???", "a/b/*.txt", "a/**", "a/b/c.txt", "?/x" };
+        String[] paths = { "/more/and/more/somethingTest.xml", "a/b/c.txt", "a/b/d.txt", "a/b/c/d.txt", "a/", "b/x",
+                           "bb/x", "aTest.xml", "a/testTest.cvs", "a" };
+        for (int i = 0; i < expressions.length; i++) {
+            AntStyleWildcardSet set = new AntStyleWildcardSet().add(expressions[i], true);
+            for (String path : paths) {
+                assertEquals(expressions[i] + " ~ " + path, AntStyleWildcardUtil.regex(expressions[i]).matcher(path).matches(),
+                             set.includes(path));
+            }
+        }
+    }
+
+    @Test
+    public void mayIncludeWithin() {
+        AntStyleWildcardSet set = new AntStyleWildcardSet();
+        set.add("/build/resources/conf/*.properties", true)
+           .add("/build/classes/**", false)
+           .add("/build/web/index.html", true);
+        assertTrue(set.mayIncludeWithin("/build"));
+        assertTrue(set.mayIncludeWithin("/build/resources"));
+        assertTrue(set.mayIncludeWithin("/build/resources/conf"));
+        assertTrue(set.mayIncludeWithin("/build/resources/conf/nested"));
+        assertFalse(set.mayIncludeWithin("/build/resources/other"));
+        assertFalse(set.mayIncludeWithin("/build/classes"));
+        assertTrue(set.mayIncludeWithin("/build/web"));
+        assertFalse(set.mayIncludeWithin("/build/web/WEB-INF"));
+        assertFalse(set.mayIncludeWithin("/other"));
+
+        set.add("**/*.xml", true);
+        assertTrue(set.mayIncludeWithin("/other"));
+    }
+
+}
@@ -0,0 +1,71 @@
+package net.ocheyedan.ply;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/23/14
+ * Time: 3:10 PM
+ */
+public class EventsTest {
+
+    @Test public void events() throws IOException {
+        assertFalse(Events.isEnabled());
+        // disabled events are no-ops
+        Events.emit("test", "disabled", true);
+
+        File eventsFile = File.createTempFile("events", ".json");
+        eventsFile.deleteOnExit();
+        Events.init(eventsFile.getPath());
+        try {
+            assertTrue(Events.isEnabled());
+            assertEquals(eventsFile.getAbsolutePath(), Events.getPath());
+            Events.emit("test.start");
+            Events.emit("test.finish", "name", "\"quoted\"\n", "count", 3, "success", false, "missing", null);
+        } finally {
+            Events.close();
+        }
+        assertFalse(Events.isEnabled());
+        assertNull(Events.getPath());
+        Events.emit("test", "after close", true);
+
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(eventsFile));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(2, lines.size());
+        String prefix = "{\"event\":\"test.start\",\"ts\":";
+        assertTrue(lines.get(0).startsWith(prefix));
+        assertTrue(lines.get(0).endsWith(",\"pid\":" + PlyUtil.getPid() + "}"));
+        assertTrue(lines.get(1).startsWith("{\"event\":\"test.finish\",\"ts\":"));
+        assertTrue(lines.get(1).endsWith(",\"pid\":" + PlyUtil.getPid()
+                + ",\"name\":\"\\\"quoted\\\"\\n\",\"count\":3,\"success\":false,\"missing\":null}"));
+        long ts = Long.parseLong(lines.get(0).substring(prefix.length(), lines.get(0).indexOf(',', prefix.length())));
+        assertTrue(Math.abs(System.currentTimeMillis() - ts) < 60000L);
+    }
+
+    @Test public void getSharedPath() {
+        assertEquals("/tmp/events.json", Events.getSharedPath("/tmp/events.json"));
+        if (new File("/proc").isDirectory()) {
+            assertTrue(Events.getSharedPath("/dev/fd/3").matches("^/proc/[0-9]+/fd/3$"));
+            assertTrue(Events.getSharedPath("/proc/self/fd/12").matches("^/proc/[0-9]+/fd/12$"));
+        }
+        assertEquals("/dev/fd/3/x", Events.getSharedPath("/dev/fd/3/x"));
+    }
+
+}
@@ -0,0 +1,46 @@
+package net.ocheyedan.ply;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 4:20 PM
+ */
+public class ExitStatsTest {
+
+    @Test public void parse() {
+        assertNull(ExitStats.parse("Compiling 12 source files"));
+        assertNull(ExitStats.parse(ExitStats.STATS_TOKEN + "1 2"));
+        assertNull(ExitStats.parse(ExitStats.STATS_TOKEN + "1 2 three"));
+
+        ExitStats current = ExitStats.current();
+        assertTrue(current.gcMillis >= 0L);
+        assertTrue(current.heapPeakBytes >= 0L); // eden is excluded and so is 0 prior to any collection
+        assertEquals(Runtime.getRuntime().maxMemory(), current.heapMaxBytes);
+
+        ExitStats parsed = ExitStats.parse(ExitStats.STATS_TOKEN + current.toString());
+        assertNotNull(parsed);
+        assertEquals(current.gcMillis, parsed.gcMillis);
+        assertEquals(current.heapPeakBytes, parsed.heapPeakBytes);
+        assertEquals(current.heapMaxBytes, parsed.heapMaxBytes);
+        assertEquals("", ExitStats.stripStats(ExitStats.STATS_TOKEN + current.toString()));
+    }
+
+    @Test public void parseGluedToOutput() {
+        // the script's last output did not end its line (e.g., progress printed with ^no_line^)
+        String line = "Downloading 50%" + ExitStats.STATS_TOKEN + "12 1024 4096";
+        ExitStats parsed = ExitStats.parse(line);
+        assertNotNull(parsed);
+        assertEquals(12L, parsed.gcMillis);
+        assertEquals(1024L, parsed.heapPeakBytes);
+        assertEquals(4096L, parsed.heapMaxBytes);
+        assertEquals("Downloading 50%", ExitStats.stripStats(line));
+
+        assertNull(ExitStats.parse("Downloading 50%" + ExitStats.STATS_TOKEN + "12 1024"));
+        assertEquals("no statistics", ExitStats.stripStats("no statistics"));
+    }
+
+}
@@ -0,0 +1,331 @@
+package net.ocheyedan.ply;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/24/14
+ * Time: 6:10 PM
+ *
+ * Exercises {@link HttpTransport} against a local {@link HttpServer} serving {@link #CONTENT} at {@literal /artifact}
+ * (supporting validators and ranges) and failing as configured by each test.
+ */
+public class HttpTransportTest {
+
+    private static final byte[] CONTENT = createContent();
+
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private File directory;
+
+    /**
+     * Requests to fail (with {@link #failWith}) before succeeding.
+     */
+    private final AtomicInteger failures = new AtomicInteger(0);
+
+    /**
+     * The status with which to fail or -1 to stall (i.e., exceed the read timeout).
+     */
+    private volatile int failWith = 503;
+
+    /**
+     * If positive, the number of bytes of the body to send before closing the connection (once).
+     */
+    private volatile int truncateAt = -1;
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before public void start() throws IOException {
+        directory = File.createTempFile("ply-http", "");
+        directory.delete();
+        directory.mkdirs();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @After public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        FileUtil.delete(directory);
+    }
+
+    @Test public void downloadAndRevalidate() throws IOException {
+        HttpTransport transport = new HttpTransport(1000, 1000, 0, 1L, null);
+        File into = new File(directory, "artifact.jar");
+        assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, into));
+        assertTrue(Arrays.equals(CONTENT, read(into)));
+        assertEquals(Collections.singletonList("artifact.jar"), Arrays.asList(directory.list()));
+        assertEquals(HttpTransport.Result.NotModified, transport.download(url("/artifact"), null, into));
+        assertEquals("GET /artifact If-None-Match=\"v1\"", requests.get(1));
+        // a modified file is downloaded anew
+        FileUtil.copy(new ByteArrayInputStream(new byte[] { 1 }), into);
+        assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, into));
+        assertEquals("GET /artifact", requests.get(2));
+        assertTrue(Arrays.equals(CONTENT, read(into)));
+
+        assertEquals(HttpTransport.Result.NotFound, transport.download(url("/missing"), null, new File(directory, "missing")));
+        assertFalse(new File(directory, "missing").exists());
+    }
+
+    @Test public void keepAlive() throws IOException {
+        HttpTransport transport = new HttpTransport(1000, 1000, 0, 1L, null);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, new File(directory, "a" + i)));
+        }
+        assertEquals(HttpTransport.Result.NotFound, transport.download(url("/missing"), null, new File(directory, "missing")));
+        assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, new File(directory, "a3")));
+        assertEquals(5, requests.size());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test public void retry() throws IOException {
+        HttpTransport transport = new HttpTransport(1000, 1000, 2, 1L, null);
+        File into = new File(directory, "artifact.jar");
+        failures.set(2);
+        assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, into));
+        assertEquals(3, requests.size());
+        assertTrue(Arrays.equals(CONTENT, read(into)));
+
+        // retries exhausted
+        failures.set(3);
+        try {
+            transport.download(url("/artifact"), null, new File(directory, "other.jar"));
+            fail("Expected an IOException");
+        } catch (IOException ioe) {
+            assertTrue(ioe.getMessage().contains("503"));
+        }
+        assertEquals(6, requests.size());
+
+        // client errors are not retried
+        failures.set(1);
+        failWith = 403;
+        try {
+            transport.download(url("/artifact"), null, new File(directory, "other.jar"));
+            fail("Expected an IOException");
+        } catch (IOException ioe) {
+            assertTrue(ioe.getMessage().contains("403"));
+        }
+        assertEquals(7, requests.size());
+    }
+
+    @Test public void readTimeout() throws IOException {
+        HttpTransport transport = new HttpTransport(1000, 200, 1, 1L, null);
+        failures.set(1);
+        failWith = -1;
+        File into = new File(directory, "artifact.jar");
+        assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, into));
+        assertEquals(2, requests.size());
+        assertTrue(Arrays.equals(CONTENT, read(into)));
+    }
+
+    @Test public void resume() throws IOException {
+        HttpTransport transport = new HttpTransport(1000, 1000, 1, 1L, null);
+        truncateAt = 1000;
+        File into = new File(directory, "artifact.jar");
+        assertEquals(HttpTransport.Result.Downloaded, transport.download(url("/artifact"), null, into));
+        assertEquals(2, requests.size());
+        assertEquals("GET /artifact Range=bytes=1000- If-Range=\"v1\"", requests.get(1));
+        assertTrue(Arrays.equals(CONTENT, read(into)));
+    }
+
+    @Test public void cache() throws IOException {
+        File cacheDirectory = new File(directory, "cache");
+        HttpTransport transport = new HttpTransport(1000, 1000, 0, 1L, cacheDirectory);
+        assertTrue(transport.caches(url("/artifact")));
+        assertFalse(transport.caches(new File(directory, "local").toURI().toURL()));
+        File cached = transport.getCached(url("/artifact"), null);
+        assertNotNull(cached);
+        assertEquals(cacheDirectory, cached.getParentFile());
+        assertTrue(Arrays.equals(CONTENT, read(cached)));
+        InputStream stream = transport.open(url("/artifact"), null);
+        try {
+            assertTrue(Arrays.equals(CONTENT, read(stream)));
+        } finally {
+            stream.close();
+        }
+        assertEquals("GET /artifact If-None-Match=\"v1\"", requests.get(1));
+        // validators are persisted; a new transport (i.e., process) revalidates as well
+        assertEquals(cached, new HttpTransport(1000, 1000, 0, 1L, cacheDirectory).getCached(url("/artifact"), null));
+        assertEquals("GET /artifact If-None-Match=\"v1\"", requests.get(2));
+
+        assertNull(transport.getCached(url("/missing"), null));
+        try {
+            transport.open(url("/missing"), null);
+            fail("Expected a FileNotFoundException");
+        } catch (FileNotFoundException fnfe) {
+            // expected
+        }
+    }
+
+    @Test public void concurrentCache() throws Exception {
+        final File cacheDirectory = new File(directory, "cache");
+        // a partial download left by another process is neither resumed nor removed
+        File other = new File(directory, "artifact.jar.part");
+        FileUtil.copy(new ByteArrayInputStream(new byte[] { 1, 2, 3 }), other);
+        File into = new File(directory, "artifact.jar");
+        assertEquals(HttpTransport.Result.Downloaded, new HttpTransport(1000, 1000, 0, 1L, null).download(url("/artifact"), null, into));
+        assertEquals("GET /artifact", requests.get(0));
+        assertTrue(Arrays.equals(CONTENT, read(into)));
+        assertEquals(3L, other.length());
+
+        // concurrent processes (i.e., transports) sharing the cache
+        int threads = 8;
+        ExecutorService downloaders = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<byte[]>> results = new ArrayList<Future<byte[]>>(threads);
+            for (int i = 0; i < threads; i++) {
+                results.add(downloaders.submit(new Callable<byte[]>() {
+                    @Override public byte[] call() throws Exception {
+                        File cached = new HttpTransport(1000, 1000, 0, 1L, cacheDirectory).getCached(url("/artifact"), null);
+                        return read(cached);
+                    }
+                }));
+            }
+            for (Future<byte[]> result : results) {
+                assertTrue(Arrays.equals(CONTENT, result.get()));
+            }
+        } finally {
+            downloaders.shutdownNow();
+        }
+        // only the resource and its validators remain
+        String[] cached = cacheDirectory.list();
+        assertEquals(2, cached.length);
+        Arrays.sort(cached);
+        assertEquals(cached[0] + ".properties", cached[1]);
+    }
+
+    @Test public void open() throws IOException {
+        HttpTransport transport = new HttpTransport(1000, 1000, 1, 1L, null);
+        failures.set(1);
+        InputStream stream = transport.open(url("/artifact"), Collections.singletonMap("X-Test", "true"));
+        try {
+            assertTrue(Arrays.equals(CONTENT, read(stream)));
+        } finally {
+            stream.close();
+        }
+        assertEquals(2, requests.size());
+        try {
+            transport.open(url("/missing"), null);
+            fail("Expected a FileNotFoundException");
+        } catch (FileNotFoundException fnfe) {
+            // expected
+        }
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        requests.add("GET " + exchange.getRequestURI().getPath() + (ifNoneMatch == null ? "" : " If-None-Match=" + ifNoneMatch)
+                + (range == null ? "" : " Range=" + range) + (ifRange == null ? "" : " If-Range=" + ifRange));
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        try {
+            if (failures.getAndDecrement() > 0) {
+                if (failWith == -1) {
+                    Thread.sleep(1000L);
+                    exchange.close();
+                    return;
+                }
+                respond(exchange, failWith, new byte[] { 'n', 'o' });
+                return;
+            }
+            if (!"/artifact".equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404, "not found".getBytes("UTF-8"));
+                return;
+            }
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            if (ETAG.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            if ((range != null) && ETAG.equals(ifRange)) {
+                int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                exchange.getResponseHeaders().add("Content-Range",
+                        String.format("bytes %d-%d/%d", from, CONTENT.length - 1, CONTENT.length));
+                respond(exchange, 206, Arrays.copyOfRange(CONTENT, from, CONTENT.length));
+                return;
+            }
+            int truncate = truncateAt;
+            if (truncate > 0) {
+                truncateAt = -1;
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(CONTENT, 0, truncate);
+                body.flush();
+                // ends the exchange, and closes the connection, before the remaining bytes are sent
+                try {
+                    body.close();
+                } catch (IOException ioe) {
+                    // expected, insufficient bytes written
+                }
+                return;
+            }
+            respond(exchange, 200, CONTENT);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(code, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private URL url(String path) throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private static byte[] read(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        stream.close();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] createContent() {
+        byte[] content = new byte[8192 * 3];
+        new Random(3L).nextBytes(content);
+        return content;
+    }
+
+}
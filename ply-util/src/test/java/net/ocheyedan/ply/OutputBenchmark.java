@@ -0,0 +1,61 @@
+package net.ocheyedan.ply;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 9:05 AM
+ *
+ * Measures {@link Output#printFromExec(String, Object...)} as used by {@literal Execution#waitFor} for each line
+ * of a child script's output.  Lines are a mix of plain test output and decorated script statements.  Output is
+ * discarded so only resolution of the message is measured.
+ * With {@literal undecorated} as the second argument, measures instead the per-message cost of ply's own
+ * statements via {@link Output#print(String, Object...)} when ply is not decorated (i.e., {@literal ply.decorated=false}).
+ * Run via {@link #main(String[])}; the optional first argument is the number of measured lines.
+ */
+public final class OutputBenchmark {
+
+    private static final String[] LINES = {
+        "Running net.ocheyedan.ply.graph.DirectedAcyclicGraphTest",
+        "^info^ Running ^b^45^r^ tests in ^b^net.ocheyedan.ply.dep^r^",
+        "    at org.junit.runners.ParentRunner.run(ParentRunner.java:300)",
+        "^dbug^ Resolved ^b^junit:junit:4.10^r^ from ^b^/home/user/.ply/repo^r^",
+        "Tests run: 12, Failures: 0, Errors: 0, Skipped: 0, Time elapsed: 0.041 sec",
+        "^no_line^^b^.^r^"
+    };
+
+    public static void main(String[] args) {
+        int lines = (args.length > 0 ? Integer.parseInt(args[0]) : 1000000);
+        boolean undecorated = ((args.length > 1) && "undecorated".equals(args[1]));
+        Output.init("true", (undecorated ? "false" : "true"), "+debug", false);
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override public void write(int b) { }
+            @Override public void write(byte[] b, int off, int len) { }
+        }));
+        try {
+            run(lines / 4, undecorated); // warm-up
+            long start = System.nanoTime();
+            run(lines, undecorated);
+            long elapsed = System.nanoTime() - start;
+            out.printf("%d lines: %.1f ns/line%n", lines, ((double) elapsed / lines));
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static void run(int lines, boolean undecorated) {
+        for (int i = 0; i < lines; i++) {
+            if (undecorated) {
+                Output.print("^dbug^ %s", LINES[i % LINES.length]);
+            } else {
+                Output.printFromExec("[^green^%s^r^] %s", "test", LINES[i % LINES.length]);
+            }
+        }
+    }
+
+    private OutputBenchmark() { }
+
+}
@@ -0,0 +1,69 @@
+package net.ocheyedan.ply;
+
+import org.junit.Test;
+
+import java.util.Date;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 9:30 AM
+ */
+public class TermCodeRendererTest {
+
+    @Test public void resolve() {
+        TermCodeRenderer renderer = new TermCodeRenderer("xterm");
+        assertEquals("[\u001b[0;33mply\u001b[0m] \u001b[1mbuild\u001b[0m", renderer.resolve("^ply^ ^b^%s^r^", new Object[] { "build" }, true, true, 0));
+        assertEquals("[ply] build", renderer.resolve("^ply^ ^b^%s^r^", new Object[] { "build" }, false, true, 0));
+        assertEquals("^ply^ ^b^build^r^", renderer.resolve("^ply^ ^b^%s^r^", new Object[] { "build" }, false, false, 0));
+        // codes within arguments are rendered as well
+        assertEquals("[\u001b[1;32mtest\u001b[0m] [\u001b[1;34minfo\u001b[0m] done", renderer.resolve("[^green^%s^r^] %s", new Object[] { "test", "^info^ done" }, true, true, 0));
+        assertEquals("[test] [info] done", renderer.resolve("[^green^%s^r^] %s", new Object[] { "test", "^info^ done" }, false, true, 0));
+        // non-codes are left as-is, and their closing '^' may open a code
+        assertEquals("^foo 2^3 ^bar", renderer.resolve("^foo %s^3 ^bar", new Object[] { 2 }, false, true, 0));
+        assertEquals("^x[err!]^", renderer.resolve("^x^error^^", new Object[0], false, true, 0));
+        // resolved left to right
+        assertEquals("\u001b[1;36mwarn\u001b[0m", renderer.resolve("^cyan^warn^r^", new Object[0], true, true, TermCodeRenderer.WARN));
+        // colors are bold only within xterm
+        assertEquals("\u001b[0;31mred", new TermCodeRenderer(null).resolve("^red^red", new Object[0], true, true, 0));
+    }
+
+    @Test public void disabledLevels() {
+        TermCodeRenderer renderer = new TermCodeRenderer("xterm");
+        int disabled = (TermCodeRenderer.INFO | TermCodeRenderer.DBUG);
+        assertNull(renderer.resolve("^dbug^ %s", new Object[] { "hidden" }, true, true, disabled));
+        assertNull(renderer.resolve("%s", new Object[] { "^info^ hidden" }, false, true, disabled));
+        assertNull(renderer.resolve("^info^ constant", new Object[0], false, false, disabled));
+        assertEquals("[warn] shown", renderer.resolve("^warn^ %s", new Object[] { "shown" }, false, true, disabled));
+        assertEquals("[info] constant", renderer.resolve("^info^ constant", new Object[0], false, true, 0));
+    }
+
+    @Test public void format() {
+        TermCodeRenderer renderer = new TermCodeRenderer("xterm");
+        Date date = new Date(0L);
+        Object[][] args = { new Object[0], new Object[] { "a" }, new Object[] { "a", null }, new Object[] { 1, 2.5, date } };
+        String[] messages = { "plain", "100%%", "%s", "%s%n%s", "[%s] %s!", "%d of %.1f", "%2$s %1$s", "%-5s|",
+                              "%s %s %tY", "%%s", "%n" };
+        for (String message : messages) {
+            for (Object[] arg : args) {
+                String expected;
+                try {
+                    expected = String.format(message, arg);
+                } catch (RuntimeException re) {
+                    expected = re.getClass().getName();
+                }
+                String actual;
+                try {
+                    actual = renderer.format(message, arg);
+                } catch (RuntimeException re) {
+                    actual = re.getClass().getName();
+                }
+                assertEquals(message, expected, actual);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package net.ocheyedan.ply;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 11:05 AM
+ */
+public class TraceTest {
+
+    @Test public void trace() throws IOException {
+        assertFalse(Trace.isEnabled());
+        // disabled spans are no-ops
+        Trace.start("test", "disabled").end();
+
+        File traceFile = File.createTempFile("trace", ".json");
+        traceFile.deleteOnExit();
+        Trace.init(traceFile.getPath());
+        try {
+            assertTrue(Trace.isEnabled());
+            assertEquals(traceFile.getAbsolutePath(), Trace.getPath());
+            Trace.Span outer = Trace.start("test", "outer");
+            Trace.Span lane = Trace.start("test", "\"quoted\"\n", "lane");
+            lane.end();
+            outer.end();
+        } finally {
+            Trace.close();
+        }
+        assertFalse(Trace.isEnabled());
+        assertNull(Trace.getPath());
+        Trace.start("test", "after close").end();
+
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(traceFile));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(7, lines.size());
+        assertEquals("[", lines.get(0));
+        assertTrue(lines.get(1).startsWith("{\"name\":\"thread_name\",\"ph\":\"M\","));
+        assertTrue(lines.get(2).startsWith("{\"name\":\"thread_name\",\"ph\":\"M\","));
+        assertTrue(lines.get(2).endsWith(",\"tid\":1048576,\"args\":{\"name\":\"lane\"}},"));
+        assertTrue(lines.get(3).startsWith("{\"name\":\"\\\"quoted\\\"\\n\",\"cat\":\"test\",\"ph\":\"X\",\"ts\":"));
+        assertTrue(lines.get(3).endsWith(",\"tid\":1048576},"));
+        assertTrue(lines.get(4).startsWith("{\"name\":\"outer\",\"cat\":\"test\",\"ph\":\"X\",\"ts\":"));
+        assertTrue(lines.get(4).endsWith(",\"tid\":" + Thread.currentThread().getId() + "},"));
+        assertTrue(lines.get(5).startsWith("{\"name\":\"process_name\",\"ph\":\"M\","));
+        assertTrue(lines.get(5).endsWith("\"args\":{\"name\":\"ply\"}}"));
+        assertEquals("]", lines.get(6));
+    }
+
+}
@@ -0,0 +1,60 @@
+package net.ocheyedan.ply.dep;
+
+import net.ocheyedan.ply.FileUtil;
+import net.ocheyedan.ply.props.Context;
+import net.ocheyedan.ply.props.PropFile;
+import net.ocheyedan.ply.props.PropFiles;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 10:02 AM
+ */
+public class ClassDepsTest {
+
+    @Test
+    public void getTransitiveDependents() throws IOException {
+        File classDepsDir = File.createTempFile("classdeps", "");
+        classDepsDir.delete();
+        classDepsDir.mkdirs();
+        String classDepsPath = classDepsDir.getPath();
+
+        // a <- b <- c ; a$Inner <- d ; e <- f
+        store(classDepsPath, "a", "b");
+        store(classDepsPath, "b", "c");
+        store(classDepsPath, "a$Inner", "d");
+        store(classDepsPath, "e", "f");
+
+        ClassDeps classDeps = new ClassDeps();
+        Set<String> dependents = classDeps.getTransitiveDependents(classDepsPath, Collections.singleton("a"));
+        assertEquals(new HashSet<String>(Arrays.asList("a", "b", "c", "d")), dependents);
+
+        dependents = classDeps.getTransitiveDependents(classDepsPath, Collections.singleton("c"));
+        assertEquals(Collections.singleton("c"), dependents);
+
+        dependents = classDeps.getTransitiveDependents(classDepsPath, Collections.singleton("e$1"));
+        assertEquals(new HashSet<String>(Arrays.asList("e$1", "f")), dependents);
+
+        dependents = classDeps.getTransitiveDependents(FileUtil.pathFromParts(classDepsPath, "dne"), Collections.singleton("a"));
+        assertEquals(Collections.singleton("a"), dependents);
+    }
+
+    private static void store(String classDepsPath, String className, String ... dependents) {
+        PropFile propFile = new PropFile(Context.named("classdeps"), PropFile.Loc.AdHoc);
+        for (String dependent : dependents) {
+            propFile.add(dependent, "");
+        }
+        PropFiles.store(propFile, FileUtil.pathFromParts(classDepsPath, className + ".properties"), true);
+    }
+
+}
@@ -0,0 +1,237 @@
+package net.ocheyedan.ply.graph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/24/14
+ * Time: 2:05 PM
+ */
+public class CompactGraphTest {
+
+    @Test public void builder() {
+        CompactGraph.Builder<String> builder = new CompactGraph.Builder<String>();
+        int a = builder.addVertex("a");
+        int b = builder.addVertex("b");
+        int c = builder.addVertex("c");
+        assertEquals(a, builder.addVertex("a"));
+        builder.addEdge(a, b);
+        builder.addEdge(a, c);
+        builder.addEdge(a, b); // duplicate
+        builder.addEdge(b, c);
+        try {
+            builder.addEdge(a, 3);
+            fail("Expected an IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ioobe) {
+            // expected
+        }
+        CompactGraph<String> graph = builder.build();
+        assertEquals(3, graph.size());
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(b, graph.getId("b"));
+        assertEquals(-1, graph.getId("d"));
+        assertEquals("c", graph.getValue(c));
+        assertEquals(2, graph.getChildCount(a));
+        assertEquals(b, graph.getChild(a, 0));
+        assertEquals(c, graph.getChild(a, 1));
+        assertEquals(0, graph.getParentCount(a));
+        assertEquals(2, graph.getParentCount(c));
+        assertEquals(a, graph.getParent(c, 0));
+        assertEquals(b, graph.getParent(c, 1));
+    }
+
+    @Test public void of() {
+        DirectedAcyclicGraph<String> dag = new DirectedAcyclicGraph<String>();
+        Vertex<String> a = dag.addVertex("a");
+        Vertex<String> b = dag.addVertex("b");
+        Vertex<String> c = dag.addVertex("c");
+        Vertex<String> d = dag.addVertex("d");
+        dag.addEdge(a, c);
+        dag.addEdge(a, b);
+        dag.addEdge(b, d);
+        CompactGraph<String> graph = CompactGraph.of(dag);
+        assertSame(graph, CompactGraph.of(graph));
+        assertEquals(4, graph.size());
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(Arrays.asList("a", "b", "c", "d"), values(graph, new int[] { 0, 1, 2, 3 }));
+        assertEquals("c", graph.getValue(graph.getChild(0, 0)));
+        assertEquals("b", graph.getValue(graph.getChild(0, 1)));
+
+        // as a Graph
+        assertFalse(graph.isCyclic());
+        assertTrue(graph.hasVertex("a"));
+        assertFalse(graph.hasVertex("e"));
+        assertTrue(graph.hasEdge(a, b));
+        assertFalse(graph.hasEdge(b, a));
+        assertEquals(a, graph.getVertex("a"));
+        assertEquals(Arrays.asList("c", "b"), values(graph.getVertex("a").getChildren()));
+        // views are created once and their edges lead to the other views
+        assertSame(graph.getVertex("c"), graph.getVertex("a").getChildren().get(0));
+        assertSame(graph.getVertex("a"), graph.getVertex("b").getAnyParent());
+        assertTrue(graph.getVertex("a").hasEdgeTo(graph.getVertex("b")));
+        assertFalse(graph.getVertex("b").hasEdgeTo(graph.getVertex("a")));
+        assertTrue(graph.getVertex("b").hasEdgeFrom(graph.getVertex("a")));
+        assertTrue(graph.getVertex("a").isRoot());
+        assertFalse(graph.getVertex("b").isRoot());
+        assertTrue(graph.getVertex("c").isLeaf());
+        assertEquals(Arrays.asList("d"), values(graph.getVertex("a").getChildren().get(1).getChildren()));
+        assertEquals(dag.getVertices(), graph.getVertices());
+        assertEquals(dag.getRootVertices(), graph.getRootVertices());
+        assertSame(graph.getVertex("a"), graph.addVertex("a"));
+        graph.addEdge(a, b); // existing, no-op
+        graph.removeEdge(b, a); // non-existent, no-op
+        try {
+            graph.addVertex("e");
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+        try {
+            graph.addEdge(c, d);
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+        try {
+            graph.removeEdge(a, b);
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+    }
+
+    @Test public void topologicalSort() {
+        CompactGraph.Builder<String> builder = new CompactGraph.Builder<String>();
+        int d = builder.addVertex("d");
+        int c = builder.addVertex("c");
+        int b = builder.addVertex("b");
+        int a = builder.addVertex("a");
+        builder.addEdge(a, b);
+        builder.addEdge(b, c);
+        builder.addEdge(a, d);
+        builder.addEdge(c, d);
+        CompactGraph<String> graph = builder.build();
+        assertEquals(Arrays.asList("a", "b", "c", "d"), values(graph, graph.topologicalSort()));
+
+        // cyclic
+        builder.addEdge(d, b);
+        graph = builder.build();
+        assertTrue(graph.isCyclic());
+        try {
+            graph.topologicalSort();
+            fail("Expected a Graph.CycleException");
+        } catch (Graph.CycleException gce) {
+            List<Vertex<?>> cycle = gce.getCycle();
+            assertEquals(4, cycle.size());
+            assertEquals(cycle.get(0), cycle.get(3));
+            for (int i = 0; i < (cycle.size() - 1); i++) {
+                assertTrue(graph.hasEdge(graph.getVertex((String) cycle.get(i).getValue()),
+                                         graph.getVertex((String) cycle.get(i + 1).getValue())));
+            }
+        }
+    }
+
+    @Test public void reachability() {
+        CompactGraph.Builder<Integer> builder = new CompactGraph.Builder<Integer>();
+        for (int i = 0; i < 6; i++) {
+            builder.addVertex(i);
+        }
+        builder.addEdge(0, 1);
+        builder.addEdge(1, 2);
+        builder.addEdge(3, 4);
+        builder.addEdge(2, 4);
+        CompactGraph<Integer> graph = builder.build();
+        assertTrue(graph.isReachable(0, 4));
+        assertTrue(graph.isReachable(5, 5));
+        assertFalse(graph.isReachable(4, 0));
+        assertFalse(graph.isReachable(3, 2));
+        assertFalse(graph.isReachable(0, 5));
+        BitSet reachable = graph.getReachable(1);
+        assertEquals("{1, 2, 4}", reachable.toString());
+    }
+
+    @Test public void levels() {
+        CompactGraph.Builder<String> builder = new CompactGraph.Builder<String>();
+        int app = builder.addVertex("app");
+        int web = builder.addVertex("web");
+        int core = builder.addVertex("core");
+        int util = builder.addVertex("util");
+        int docs = builder.addVertex("docs");
+        builder.addEdge(app, web);
+        builder.addEdge(app, core);
+        builder.addEdge(web, core);
+        builder.addEdge(core, util);
+        CompactGraph<String> graph = builder.build();
+        int[] levels = graph.getLevels();
+        assertEquals(3, levels[app]);
+        assertEquals(2, levels[web]);
+        assertEquals(1, levels[core]);
+        assertEquals(0, levels[util]);
+        assertEquals(0, levels[docs]);
+        int[][] waves = graph.getWaves();
+        assertEquals(4, waves.length);
+        assertEquals(Arrays.asList("util", "docs"), values(graph, waves[0]));
+        assertEquals(Arrays.asList("core"), values(graph, waves[1]));
+        assertEquals(Arrays.asList("web"), values(graph, waves[2]));
+        assertEquals(Arrays.asList("app"), values(graph, waves[3]));
+        assertEquals(0, new CompactGraph.Builder<String>().build().getWaves().length);
+    }
+
+    @Test public void visit() {
+        Random random = new Random(7L);
+        DirectedAcyclicGraph<Integer> dag = new DirectedAcyclicGraph<Integer>();
+        for (int i = 0; i < 50; i++) {
+            dag.addVertex(i);
+        }
+        for (int i = 0; i < 120; i++) {
+            int from = random.nextInt(50), to = random.nextInt(50);
+            if (from < to) {
+                dag.addEdge(dag.getVertex(from), dag.getVertex(to));
+            }
+        }
+        CompactGraph<Integer> graph = CompactGraph.of(dag);
+        assertEquals(visitOrder(dag), visitOrder(graph));
+        List<Integer> sorted = Graphs.topologicalSort(dag);
+        assertEquals(50, sorted.size());
+        for (Vertex<Integer> vertex : dag.getVertices()) {
+            for (Vertex<Integer> child : vertex.getChildren()) {
+                assertTrue(sorted.indexOf(vertex.getValue()) < sorted.indexOf(child.getValue()));
+            }
+        }
+    }
+
+    private static List<Integer> visitOrder(Graph<Integer> graph) {
+        final List<Integer> order = new ArrayList<Integer>();
+        Graphs.visit(graph, new Graphs.Visitor<Integer>() {
+            @Override public void visit(Vertex<Integer> vertex) {
+                order.add(vertex.getValue());
+            }
+        });
+        return order;
+    }
+
+    private static <T> List<T> values(List<Vertex<T>> vertices) {
+        List<T> values = new ArrayList<T>(vertices.size());
+        for (Vertex<T> vertex : vertices) {
+            values.add(vertex.getValue());
+        }
+        return values;
+    }
+
+    private static <T> List<T> values(CompactGraph<T> graph, int[] ids) {
+        List<T> values = new ArrayList<T>(ids.length);
+        for (int id : ids) {
+            values.add(graph.getValue(id));
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,93 @@
+package net.ocheyedan.ply.graph;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * User: blangel
+ * Date: 10/24/14
+ * Time: 9:40 AM
+ *
+ * Measures building a {@link DirectedAcyclicGraph} shaped like a dependency graph: each vertex has edges to a few
+ * vertices added before it (i.e., its dependencies), and edges are added in a random order so that many are
+ * against the current topological order.  Every tenth vertex also attempts an edge back to one of its ancestors,
+ * which is rejected as a cycle.  The same edges are then measured with a full search per edge (via
+ * {@link CycleDetector#introducesCycle(Vertex)}), as was done for every edge prior to the incremental order.
+ * Run via {@link #main(String[])}; the optional arguments are the number of vertices and of dependencies per vertex.
+ */
+public final class DirectedAcyclicGraphBenchmark {
+
+    public static void main(String[] args) {
+        int vertices = (args.length > 0 ? Integer.parseInt(args[0]) : 3000);
+        int dependencies = (args.length > 1 ? Integer.parseInt(args[1]) : 4);
+        int[][] edges = edges(vertices, dependencies, new Random(42L));
+        run(vertices, edges, false); // warm-up
+        run(vertices, edges, true);
+        long start = System.nanoTime();
+        int cycles = run(vertices, edges, false);
+        long incremental = System.nanoTime() - start;
+        start = System.nanoTime();
+        run(vertices, edges, true);
+        long full = System.nanoTime() - start;
+        System.out.printf("%d vertices, %d edges (%d cycles rejected)%n", vertices, edges.length, cycles);
+        System.out.printf("incremental: %.1f ms%n", (incremental / 1000000.0d));
+        System.out.printf("full search: %.1f ms%n", (full / 1000000.0d));
+    }
+
+    /**
+     * @return the number of edges rejected as cycles
+     */
+    private static int run(int vertices, int[][] edges, boolean fullSearch) {
+        DirectedAcyclicGraph<Integer> graph = new DirectedAcyclicGraph<Integer>();
+        // add vertices in reverse so that the initial order is against that of the dependencies
+        for (int i = vertices - 1; i >= 0; i--) {
+            graph.addVertex(i);
+        }
+        int cycles = 0;
+        for (int[] edge : edges) {
+            Vertex<Integer> from = graph.getVertex(edge[0]);
+            Vertex<Integer> to = graph.getVertex(edge[1]);
+            try {
+                graph.addEdge(from, to);
+            } catch (Graph.CycleException gce) {
+                cycles++;
+            }
+            if (fullSearch && graph.hasEdge(from, to)) {
+                List<Vertex<Integer>> cycle = CycleDetector.introducesCycle(to);
+                if (cycle != null) {
+                    throw new AssertionError("Cycle within a directed acyclic graph: " + cycle);
+                }
+            }
+        }
+        return cycles;
+    }
+
+    private static int[][] edges(int vertices, int dependencies, Random random) {
+        int cycleEdges = (vertices / 10);
+        int[][] edges = new int[(vertices * dependencies) + cycleEdges][];
+        int index = 0;
+        for (int i = 1; i < vertices; i++) {
+            for (int j = 0; j < dependencies; j++) {
+                edges[index++] = new int[] { random.nextInt(i), i };
+            }
+        }
+        // shuffle so that edges are not added in topological order
+        for (int i = index - 1; i > 0; i--) {
+            int swap = random.nextInt(i + 1);
+            int[] edge = edges[i];
+            edges[i] = edges[swap];
+            edges[swap] = edge;
+        }
+        // edges from a vertex to an earlier one; rejected if the earlier is by then an ancestor
+        for (int i = 0; i < cycleEdges; i++) {
+            int to = 1 + random.nextInt(vertices - 1);
+            edges[index++] = new int[] { to, random.nextInt(to) };
+        }
+        int[][] trimmed = new int[index][];
+        System.arraycopy(edges, 0, trimmed, 0, index);
+        return trimmed;
+    }
+
+    private DirectedAcyclicGraphBenchmark() { }
+
+}
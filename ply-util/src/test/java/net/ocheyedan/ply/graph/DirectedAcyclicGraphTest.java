@@ -4,7 +4,10 @@ import org.junit.Test;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static junit.framework.Assert.*;
 
@@ -110,6 +113,52 @@ public class DirectedAcyclicGraphTest {
 
     }
 
+    @Test
+    public void addEdgeMatchesCycleDetector() {
+        Random random = new Random(42L);
+        for (int run = 0; run < 20; run++) {
+            DirectedAcyclicGraph<Integer> graph = new DirectedAcyclicGraph<Integer>();
+            int size = 5 + random.nextInt(60);
+            for (int i = 0; i < size; i++) {
+                graph.addVertex(i);
+            }
+            for (int i = 0; i < (size * 3); i++) {
+                Vertex<Integer> from = graph.getVertex(random.nextInt(size));
+                Vertex<Integer> to = graph.getVertex(random.nextInt(size));
+                // the cycle (if any) as found by a full search of the graph with the edge added
+                List<Vertex<Integer>> expected = null;
+                if (!from.hasEdgeTo(to)) {
+                    from.addEdgeTo(to);
+                    to.addEdgeFrom(from);
+                    expected = CycleDetector.introducesCycle(to);
+                    from.removeEdgeTo(to);
+                    to.removeEdgeFrom(from);
+                }
+                try {
+                    graph.addEdge(from, to);
+                    assertNull(expected);
+                    assertTrue(graph.hasEdge(from, to));
+                } catch (Graph.CycleException gce) {
+                    assertEquals(expected, gce.getCycle());
+                    assertFalse(graph.hasEdge(from, to));
+                }
+                assertTopologicallyOrdered(graph);
+            }
+            graph.removeEdge(graph.getVertex(0), graph.getVertex(1));
+            assertTopologicallyOrdered(graph);
+        }
+    }
+
+    private static void assertTopologicallyOrdered(DirectedAcyclicGraph<Integer> graph) {
+        Set<Integer> orders = new HashSet<Integer>();
+        for (Vertex<Integer> vertex : graph.getVertices()) {
+            assertTrue(orders.add(vertex.order));
+            for (Vertex<Integer> child : vertex.getChildren()) {
+                assertTrue(vertex.order < child.order);
+            }
+        }
+    }
+
     @Test
     public void hasEdge() {
         DirectedAcyclicGraph<String> graph = new DirectedAcyclicGraph<String>();
@@ -0,0 +1,86 @@
+package net.ocheyedan.ply.props;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * User: blangel
+ * Date: 10/20/14
+ * Time: 11:15 AM
+ *
+ * Measures {@link Filter#filter(String, Context, String, Map)} over a generated, filter-heavy configuration resembling
+ * that of a large project; values referencing other (themselves filtered) values, placeholders of other contexts and
+ * values with many placeholders.  Each value is measured uncached (a new generation is started before each pass, see
+ * {@link PropFileChain#nextGeneration()}) and cached.
+ * Run via {@link #main(String[])}; the optional argument is the number of measured iterations.
+ */
+public final class FilterBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : 2000);
+        Map<Context, PropFileChain> props = new ConcurrentHashMap<Context, PropFileChain>();
+        List<String> values = new ArrayList<String>();
+        PropFile project = new PropFile(Context.named("project"), PropFile.Loc.System);
+        project.add("name", "benchmark");
+        project.add("version", "1.0");
+        project.add("build.dir", "target");
+        project.add("src.dir", "src/main/java");
+        project.add("artifact.name", "${name}-${version}.jar");
+        PropFile compiler = new PropFile(Context.named("compiler"), PropFile.Loc.System);
+        for (int i = 0; i < 100; i++) {
+            compiler.add("dir." + i, "${project.build.dir}/classes-" + i);
+            compiler.add("path." + i, "${project.src.dir}:${dir." + i + "}:${project.build.dir}/${project.artifact.name}");
+            values.add("${dir." + i + "}");
+            values.add("${path." + i + "}");
+        }
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            many.append("${dir.").append(i).append("}:");
+        }
+        compiler.add("classpath", many.toString());
+        values.add("${classpath}");
+        values.add("no placeholders at all, just a reasonably long literal value to scan");
+        values.add("unresolved ${missing} and ${project.missing} placeholders");
+        setChain(props, project);
+        setChain(props, compiler);
+        Context context = Context.named("compiler");
+
+        run(values, context, props, iterations / 4, true); // warm-up
+        long start = System.nanoTime();
+        run(values, context, props, iterations, true);
+        long uncached = System.nanoTime() - start;
+        start = System.nanoTime();
+        run(values, context, props, iterations, false);
+        long cached = System.nanoTime() - start;
+        System.out.printf("%d values x %d iterations: %.1f ns/value uncached, %.1f ns/value cached%n", values.size(),
+                iterations, ((double) uncached / (iterations * values.size())),
+                ((double) cached / (iterations * values.size())));
+    }
+
+    private static void run(List<String> values, Context context, Map<Context, PropFileChain> props, int iterations,
+                            boolean uncached) {
+        long length = 0L;
+        for (int i = 0; i < iterations; i++) {
+            if (uncached) {
+                PropFileChain.nextGeneration();
+            }
+            for (String value : values) {
+                length += Filter.filter(value, context, "benchmark", props).length();
+            }
+        }
+        if (length == 0L) {
+            throw new AssertionError("Nothing filtered");
+        }
+    }
+
+    private static void setChain(Map<Context, PropFileChain> props, PropFile propFile) {
+        PropFileChain chain = new PropFileChain(props);
+        chain.set(propFile, PropFile.Loc.System);
+        props.put(propFile.context(), chain);
+    }
+
+    private FilterBenchmark() { }
+
+}
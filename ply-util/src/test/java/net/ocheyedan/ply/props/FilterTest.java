@@ -338,7 +338,7 @@ public class FilterTest {
         // ensure there's nothing vestigial in the resolvingCacheKeys property
         Field resolvingCacheKeysField = Filter.class.getDeclaredField("resolvingCacheKeys");
         resolvingCacheKeysField.setAccessible(true);
-        Set<String> resolvingCacheKeys = (Set<String>) resolvingCacheKeysField.get(null);
+        Set<?> resolvingCacheKeys = ((ThreadLocal<Set<?>>) resolvingCacheKeysField.get(null)).get();
         Assert.assertEquals(0, resolvingCacheKeys.size());
 
         // test circular reference
@@ -379,4 +379,62 @@ public class FilterTest {
 
     }
 
+    @Test
+    public void filterTemplate() {
+        Map<Context, PropFileChain> filterConsultant = new ConcurrentHashMap<Context, PropFileChain>(2, 1.0f);
+        PropFileChain chain = new PropFileChain(filterConsultant);
+        PropFile container = new PropFile(Context.named("template"), PropFile.Loc.System);
+        container.add("name", "ply");
+        container.add("dollar", "$1 ${");
+        chain.set(container, PropFile.Loc.System);
+        filterConsultant.put(Context.named("template"), chain);
+        Context context = Context.named("template");
+
+        // repeated placeholders
+        assertEquals("ply-ply-ply", Filter.filter("${name}-${name}-${template.name}", context, "template", filterConsultant));
+        // values are not re-interpreted
+        assertEquals("$1 ${ and ply", Filter.filter("${dollar} and ${name}", context, "template", filterConsultant));
+        // unresolved placeholders are left as is
+        assertEquals("ply ${template-dne} ply", Filter.filter("${name} ${template-dne} ${name}", context, "template", filterConsultant));
+        // unterminated placeholder
+        assertEquals("ply ${name", Filter.filter("${name} ${name", context, "template", filterConsultant));
+        // placeholders do not span lines
+        assertEquals("${na\nme} ply", Filter.filter("${na\nme} ${name}", context, "template", filterConsultant));
+        assertEquals("${\n ply", Filter.filter("${\n ${name}", context, "template", filterConsultant));
+    }
+
+    @Test
+    public void filterInvalidatedByDependency() {
+        Map<Context, PropFileChain> filterConsultant = new ConcurrentHashMap<Context, PropFileChain>(2, 1.0f);
+        PropFileChain projectChain = new PropFileChain(filterConsultant);
+        PropFile project = new PropFile(Context.named("dep-project"), PropFile.Loc.System);
+        project.add("name", "first");
+        project.add("version", "1.0");
+        PropFile adHoc = new PropFile(Context.named("dep-project"), PropFile.Loc.AdHoc);
+        projectChain.set(project, PropFile.Loc.System);
+        projectChain.set(adHoc, PropFile.Loc.AdHoc);
+        filterConsultant.put(Context.named("dep-project"), projectChain);
+        PropFileChain packageChain = new PropFileChain(filterConsultant);
+        PropFile packageFile = new PropFile(Context.named("dep-package"), PropFile.Loc.System);
+        packageFile.add("name", "${dep-project.name}.jar");
+        packageFile.add("version", "${dep-project.version}");
+        packageFile.add("full", "${name}-${version}");
+        packageChain.set(packageFile, PropFile.Loc.System);
+        filterConsultant.put(Context.named("dep-package"), packageChain);
+
+        assertEquals("first.jar-1.0", packageChain.get("full").value());
+        assertEquals("1.0", packageChain.get("version").value());
+
+        // modify the ad-hoc file in place (as ad-hoc alias properties do); only dependent values are invalidated
+        adHoc.add("name", "second");
+        long invalidations = Filter.getCacheInvalidations();
+        FilterDependencies.invalidate(Context.named("dep-project"), "name");
+        long hits = Filter.getCacheHits();
+        assertEquals("1.0", packageChain.get("version").value());
+        assertEquals(hits + 1, Filter.getCacheHits());
+        assertEquals("second.jar-1.0", packageChain.get("full").value());
+        assertEquals("second.jar", packageChain.get("name").value());
+        Assert.assertTrue(Filter.getCacheInvalidations() > invalidations);
+    }
+
 }
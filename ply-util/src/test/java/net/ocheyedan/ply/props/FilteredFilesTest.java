@@ -0,0 +1,126 @@
+package net.ocheyedan.ply.props;
+
+import net.ocheyedan.ply.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/19/14
+ * Time: 9:40 PM
+ */
+public class FilteredFilesTest {
+
+    private static final Set<String> PLACEHOLDERS = Collections.singleton("${version}");
+
+    private File directory;
+
+    private File template;
+
+    private File output;
+
+    private File record;
+
+    private Map<Context, PropFileChain> props;
+
+    private PropFileChain chain;
+
+    @Before public void setup() throws IOException {
+        directory = File.createTempFile("ply-filtered", "");
+        directory.delete();
+        directory.mkdirs();
+        template = new File(directory, "template.properties");
+        output = new File(directory, "output.properties");
+        record = new File(directory, "filtered.properties");
+        write(template, "version=${version}", 1000L);
+        write(output, "version=1.0", 2000L);
+        props = new ConcurrentHashMap<Context, PropFileChain>();
+        chain = new PropFileChain(props);
+        props.put(Context.named("ply"), chain);
+        setVersion("1.0");
+    }
+
+    @After public void teardown() {
+        FileUtil.delete(directory);
+    }
+
+    @Test public void unchanged() {
+        FilteredFiles filteredFiles = createFilteredFiles();
+        assertTrue(filteredFiles.isCurrentOutput(output));
+        assertTrue(filteredFiles.isCurrentOutput(template, output));
+        // and once stored and loaded
+        filteredFiles.store(Collections.singleton(output));
+        filteredFiles = new FilteredFiles(record, props);
+        assertTrue(filteredFiles.isCurrentOutput(output));
+        assertTrue(filteredFiles.isCurrentOutput(template, output));
+        // files not retained by store are not current
+        filteredFiles.store(Collections.<File>emptySet());
+        assertFalse(new FilteredFiles(record, props).isCurrentOutput(output));
+    }
+
+    @Test public void changedTemplate() throws IOException {
+        FilteredFiles filteredFiles = createFilteredFiles();
+        write(template, "version=${version}\n", 1000L);
+        assertFalse(filteredFiles.isCurrentOutput(template, output));
+        write(template, "version=${version}", 1500L);
+        assertFalse(filteredFiles.isCurrentOutput(template, output));
+        // the output itself is still current
+        assertTrue(filteredFiles.isCurrentOutput(output));
+    }
+
+    @Test public void changedPropValue() {
+        FilteredFiles filteredFiles = createFilteredFiles();
+        setVersion("2.0");
+        assertFalse(filteredFiles.isCurrentOutput(output));
+        assertFalse(filteredFiles.isCurrentOutput(template, output));
+        setVersion("1.0");
+        assertTrue(filteredFiles.isCurrentOutput(output));
+    }
+
+    @Test public void changedOutput() throws IOException {
+        FilteredFiles filteredFiles = createFilteredFiles();
+        write(output, "version=1.1", 2000L);
+        assertTrue(filteredFiles.isCurrentOutput(output)); // same size and last modified time
+        write(output, "version=1.1", 3000L);
+        assertFalse(filteredFiles.isCurrentOutput(output));
+        assertFalse(filteredFiles.isCurrentOutput(template, output));
+        write(output, "version=1.0.1", 2000L);
+        assertFalse(filteredFiles.isCurrentOutput(output));
+        write(output, "version=1.0", 2000L);
+        assertTrue(filteredFiles.isCurrentOutput(output));
+        assertTrue(output.delete());
+        assertFalse(filteredFiles.isCurrentOutput(output));
+        assertFalse(filteredFiles.isCurrentOutput(template, output));
+    }
+
+    private FilteredFiles createFilteredFiles() {
+        FilteredFiles filteredFiles = new FilteredFiles(record, props);
+        assertFalse(filteredFiles.isCurrentOutput(output));
+        filteredFiles.put(output, new FilteredFiles.Fingerprint(template.length(), template.lastModified(), output,
+                "template-hash", PLACEHOLDERS, props));
+        return filteredFiles;
+    }
+
+    private void setVersion(String version) {
+        PropFile propFile = new PropFile(Context.named("ply"), PropFile.Loc.System);
+        propFile.add("version", version);
+        chain.set(propFile, PropFile.Loc.System);
+    }
+
+    private static void write(File file, String content, long lastModified) throws IOException {
+        assertTrue(FileUtil.copy(new ByteArrayInputStream(content.getBytes("UTF-8")), file));
+        assertTrue(file.setLastModified(lastModified));
+    }
+
+}
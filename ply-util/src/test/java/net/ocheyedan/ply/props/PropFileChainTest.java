@@ -4,6 +4,8 @@ import org.junit.Test;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static junit.framework.Assert.*;
 
@@ -118,5 +120,91 @@ public class PropFileChainTest {
         assertFalse(iterator.hasNext());
 
     }
-    
+
+    @Test
+    public void filteredAcrossChains() {
+        Map<Context, PropFileChain> filterConsultant = new ConcurrentHashMap<Context, PropFileChain>(2, 1.0f);
+        PropFileChain projectChain = new PropFileChain(filterConsultant);
+        PropFile project = new PropFile(Context.named("project"), PropFile.Loc.System);
+        project.add("name", "first");
+        projectChain.set(project, PropFile.Loc.System);
+        filterConsultant.put(Context.named("project"), projectChain);
+        PropFileChain packageChain = new PropFileChain(filterConsultant);
+        PropFile packageFile = new PropFile(Context.named("package"), PropFile.Loc.System);
+        packageFile.add("name", "${project.name}.jar");
+        packageChain.set(packageFile, PropFile.Loc.System);
+        filterConsultant.put(Context.named("package"), packageChain);
+
+        assertEquals("first.jar", packageChain.get("name").value());
+
+        // modifying another chain invalidates the filtered value
+        PropFile adHoc = new PropFile(Context.named("project"), PropFile.Loc.AdHoc);
+        adHoc.add("name", "second");
+        projectChain.set(adHoc, PropFile.Loc.AdHoc);
+        assertEquals("second.jar", packageChain.get("name").value());
+    }
+
+    @Test
+    public void sealed() {
+        Map<Context, PropFileChain> filterConsultant = new ConcurrentHashMap<Context, PropFileChain>(2, 1.0f);
+        PropFileChain defaultChain = new PropFileChain(filterConsultant);
+        PropFile defaultFile = new PropFile(Context.named("project"), PropFile.Loc.System);
+        defaultFile.add("name", "default");
+        defaultFile.add("version", "1.0");
+        defaultChain.set(defaultFile, PropFile.Loc.System);
+        PropFileChain projectChain = new PropFileChain(defaultChain, filterConsultant);
+        PropFile project = new PropFile(Context.named("project"), PropFile.Loc.Local);
+        project.add("name", "first");
+        project.add("artifact", "${project.name}-${project.version}.jar");
+        projectChain.set(project, PropFile.Loc.Local);
+        filterConsultant.put(Context.named("project"), projectChain);
+
+        try {
+            PropFileChain.seal();
+            assertTrue(PropFileChain.isSealed());
+            assertEquals("first", projectChain.get("name").value());
+            assertEquals("1.0", projectChain.get("version").value());
+            assertEquals("first-1.0.jar", projectChain.get("artifact").value());
+            assertSame(PropFile.Prop.Empty, projectChain.get("missing"));
+            assertSame(projectChain.get("artifact"), projectChain.get("artifact"));
+
+            PropFileChain.Snapshot snapshot = projectChain.snapshot();
+            assertEquals(3, snapshot.size());
+            Iterator<PropFile.Prop> iterator = snapshot.props().iterator();
+            assertEquals("name", iterator.next().name);
+            assertEquals("first-1.0.jar", iterator.next().value());
+            assertEquals("version", iterator.next().name);
+            assertFalse(iterator.hasNext());
+            iterator = projectChain.props().iterator();
+            assertEquals("first", iterator.next().value());
+            assertEquals("first-1.0.jar", iterator.next().value());
+            assertEquals("1.0", iterator.next().value());
+            assertFalse(iterator.hasNext());
+
+            // an in-place ad-hoc modification unseals (as AdHoc does) and then invalidates
+            PropFile adHoc = new PropFile(Context.named("project"), PropFile.Loc.AdHoc);
+            projectChain.set(adHoc, PropFile.Loc.AdHoc);
+            assertFalse(PropFileChain.isSealed());
+            PropFileChain.seal();
+            assertEquals("first-1.0.jar", projectChain.get("artifact").value());
+            FilterDependencies.invalidate(Context.named("project"), "unrelated");
+            assertTrue(PropFileChain.isSealed()); // invalidation alone is limited to the filter-dependency cache
+            PropFileChain.unseal();
+            adHoc.add("version", "2.0");
+            FilterDependencies.invalidate(Context.named("project"), "version");
+            assertFalse(PropFileChain.isSealed());
+            assertEquals("first-2.0.jar", projectChain.get("artifact").value());
+
+            // snapshots while unsealed are independent
+            snapshot = projectChain.snapshot();
+            assertEquals("2.0", snapshot.get("version").value());
+            adHoc.add("name", "second");
+            FilterDependencies.invalidate(Context.named("project"), "name");
+            assertEquals("first", snapshot.get("name").value());
+            assertEquals("second", projectChain.get("name").value());
+        } finally {
+            PropFileChain.unseal();
+        }
+    }
+
 }
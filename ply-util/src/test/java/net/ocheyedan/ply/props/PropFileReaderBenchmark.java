@@ -0,0 +1,90 @@
+package net.ocheyedan.ply.props;
+
+import net.ocheyedan.ply.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User: blangel
+ * Date: 10/20/14
+ * Time: 10:40 AM
+ *
+ * Measures {@link PropFileReader#Default} over the valid properties files within the test resources (i.e., the
+ * {@literal dependencies.properties} files of the mock repository) as well as a generated file resembling a large
+ * {@literal resolved-deps.properties}.  The files are read into memory first so only parsing is measured.
+ * Run via {@link #main(String[])}; the optional argument is the number of measured iterations.
+ */
+public final class PropFileReaderBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int iterations = (args.length > 0 ? Integer.parseInt(args[0]) : 20000);
+        File base = (FileUtil.getCanonicalPath(new File("./")).contains("ply-util") ? new File("./") : new File("ply-util/"));
+        List<String> fixtures = new ArrayList<String>();
+        collect(FileUtil.fromParts(base.getPath(), "src/test/resources"), fixtures);
+        StringBuilder generated = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            generated.append("# resolved dependency ").append(i).append('\n');
+            generated.append("net.ocheyedan.ply:artifact-").append(i).append(":1.0.").append(i).append("=")
+                     .append("/home/user/.ply/repo/net.ocheyedan.ply/artifact-").append(i).append("/1.0.").append(i)
+                     .append("/artifact-").append(i).append("-1.0.").append(i).append(".jar\n");
+        }
+        fixtures.add(generated.toString());
+
+        run(fixtures, iterations / 4); // warm-up
+        long start = System.nanoTime();
+        long props = run(fixtures, iterations);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d fixtures x %d iterations: %.1f ns/file, %.1f ns/property%n", fixtures.size(), iterations,
+                ((double) elapsed / (iterations * fixtures.size())), ((double) elapsed / props));
+    }
+
+    private static long run(List<String> fixtures, int iterations) throws IOException {
+        long props = 0L;
+        for (int i = 0; i < iterations; i++) {
+            for (String fixture : fixtures) {
+                PropFile propFile = new PropFile(Context.named("benchmark"), PropFile.Loc.Local);
+                PropFileReader.Default.load(new BufferedReader(new StringReader(fixture)), propFile);
+                props += propFile.size();
+            }
+        }
+        return props;
+    }
+
+    private static void collect(File dir, List<String> into) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collect(file, into);
+            } else if (file.getName().endsWith(".properties") && !file.getName().startsWith("mock-invalid")) {
+                into.add(read(file));
+            }
+        }
+    }
+
+    private static String read(File file) throws IOException {
+        StringBuilder contents = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            char[] buffer = new char[4096];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                contents.append(buffer, 0, read);
+            }
+        } finally {
+            reader.close();
+        }
+        return contents.toString();
+    }
+
+    private PropFileReaderBenchmark() { }
+
+}
@@ -7,6 +7,7 @@ import java.io.*;
 import java.util.Iterator;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.fail;
 
 /**
@@ -109,4 +110,28 @@ public class PropFileReaderTest {
         assertEquals("", prop.comments());
     }
 
+    @Test
+    public void continuationsAndLineTerminators() throws IOException {
+        String contents = "# first\r\nkey_1 = value \\\r\n  continued\\\n and again\r\r"
+                + "key_2=escaped\\=equals \\\\ backslash\n\n#second\nkey\\ 3=last";
+        PropFile propFile = new PropFile(Context.named("test"), PropFile.Loc.Local);
+        PropFileReader.Default.load(new BufferedReader(new StringReader(contents)), propFile);
+        Iterator<PropFile.Prop> iterator = propFile.props().iterator();
+        PropFile.Prop prop = iterator.next();
+        assertEquals("key_1", prop.name);
+        assertEquals("value continuedand again", prop.value());
+        assertEquals(" first", prop.comments());
+
+        prop = iterator.next();
+        assertEquals("key_2", prop.name);
+        assertEquals("escaped=equals \\ backslash", prop.value());
+        assertEquals("", prop.comments());
+
+        prop = iterator.next();
+        assertEquals("key 3", prop.name);
+        assertEquals("last", prop.value());
+        assertEquals("second", prop.comments());
+        assertFalse(iterator.hasNext());
+    }
+
 }
@@ -239,4 +239,43 @@ public class PropFileTest {
         assertFalse(iter.hasNext());
     }
     
+    @Test
+    public void readOnly() {
+        PropFile systemProps = new PropFile(Context.named("context"), Scope.named("test"), Loc.System);
+        systemProps.add("one", "one-value", "comment");
+        systemProps.add("two", "two-value");
+        PropFile readOnly = systemProps.readOnly();
+        assertNotSame(systemProps, readOnly);
+        assertSame(readOnly, readOnly.readOnly());
+        assertSame(PropFile.Empty, PropFile.Empty.readOnly());
+        assertEquals(systemProps, readOnly);
+        assertEquals(2, readOnly.size());
+        assertTrue(readOnly.contains("one"));
+        assertFalse(readOnly.contains("three"));
+        assertEquals("one-value", readOnly.get("one").value());
+        assertEquals("comment", readOnly.get("one").comments());
+        assertEquals(Context.named("context"), readOnly.get("one").context());
+        assertEquals(Scope.named("test"), readOnly.get("one").scope());
+        assertSame(PropFile.Prop.Empty, readOnly.get("three"));
+        Iterator<PropFile.Prop> iter = readOnly.props().iterator();
+        assertEquals("one", iter.next().name);
+        assertEquals("two", iter.next().name);
+        assertFalse(iter.hasNext());
+        try {
+            readOnly.add("three", "three-value");
+            fail("Expecting an UnsupportedOperationException");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+        try {
+            readOnly.remove("one");
+            fail("Expecting an UnsupportedOperationException");
+        } catch (UnsupportedOperationException uoe) {
+            // expected
+        }
+        // the copy is independent of the original
+        systemProps.add("three", "three-value");
+        assertFalse(readOnly.contains("three"));
+    }
+
 }
@@ -38,6 +38,42 @@ public class PropFilesTest {
         assertEquals(now, (long) Long.valueOf(loaded.get("test").value()));
     }
 
+    @Test
+    public void storeOnlyIfChanged() throws IOException {
+        File dir = File.createTempFile("test", "store");
+        assertTrue(dir.delete() && dir.mkdir());
+        File tmp = new File(dir, "test.properties");
+        PropFile props = new PropFile(Context.named("test"), PropFile.Loc.Local);
+        props.add("test", "value");
+        assertTrue(PropFiles.store(props, tmp.getPath(), true));
+        assertTrue(tmp.setLastModified(1000L));
+
+        // identical contents are not rewritten
+        assertTrue(PropFiles.store(props, tmp.getPath(), true));
+        assertEquals(1000L, tmp.lastModified());
+
+        // unless requested
+        assertTrue(PropFiles.store(props, PropFileWriter.Default, tmp.getPath(), true, false, false));
+        assertTrue(1000L != tmp.lastModified());
+        assertTrue(tmp.setLastModified(1000L));
+
+        // changed contents are written (retaining the file's permissions)
+        assertTrue(tmp.setExecutable(true, false));
+        props.set("test", "changed");
+        assertTrue(PropFiles.store(props, tmp.getPath(), true));
+        assertTrue(1000L != tmp.lastModified());
+        assertTrue(tmp.canRead() && tmp.canWrite() && tmp.canExecute());
+        PropFile loaded = new PropFile(Context.named("test"), PropFile.Loc.Local);
+        assertTrue(PropFiles.load(tmp.getPath(), loaded, false, false));
+        assertEquals("changed", loaded.get("test").value());
+
+        // no temporary files remain
+        String[] files = dir.list();
+        assertEquals(1, files.length);
+        assertEquals("test.properties", files[0]);
+        assertTrue(tmp.delete() && dir.delete());
+    }
+
     @Test
     public void load() throws IOException {
 
@@ -13,6 +13,10 @@ public class OutputExt {
         Output.printFromExec(message, args);
     }
 
+    public static String resolveFromExec(String message, Object ... args) {
+        return Output.resolveFromExec(message, args);
+    }
+
     public static String resolve(String message, Object[] args) {
         return Output.resolve(message, args);
     }
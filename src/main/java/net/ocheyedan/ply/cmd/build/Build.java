@@ -5,12 +5,15 @@ import net.ocheyedan.ply.cmd.Args;
 import net.ocheyedan.ply.cmd.Command;
 import net.ocheyedan.ply.exec.Exec;
 import net.ocheyedan.ply.exec.Execution;
+import net.ocheyedan.ply.exec.ExecutionStats;
 import net.ocheyedan.ply.props.Context;
+import net.ocheyedan.ply.props.Filter;
 import net.ocheyedan.ply.props.Props;
 import net.ocheyedan.ply.submodules.Submodule;
 import net.ocheyedan.ply.submodules.Submodules;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,7 +38,27 @@ public final class Build extends Command.ProjectReliant {
     }
 
     @Override protected void runAfterAssumptionsCheck() {
+        Trace.init(Props.get("trace", Context.named("ply")).value());
+        Events.init(Props.get("events", Context.named("ply")).value());
+        Events.emit("build.start", "project", Props.get("name", Context.named("project")).value(),
+                    "version", Props.get("version", Context.named("project")).value(), "format", Events.FORMAT);
         long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            build();
+            success = true;
+        } finally {
+            Events.emit("cache", "cache", "filter", "hits", Filter.getCacheHits(), "misses", Filter.getCacheMisses(),
+                        "invalidations", Filter.getCacheInvalidations());
+            Events.emit("build.finish", "success", success, "millis", (System.currentTimeMillis() - start));
+            Events.close();
+            Trace.close();
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        Trace.Span projectSpan = Trace.start("module", Props.get("name", Context.named("project")).value());
         List<Execution> executions = Module.resolve(args, PlyUtil.LOCAL_CONFIG_DIR);
         // enough has been resolved to allow printing, so init the output
         OutputExt.init();
@@ -49,11 +72,19 @@ public final class Build extends Command.ProjectReliant {
 
         List<Submodule> orderedSubmodules = Submodules.getSubmodules(PlyUtil.LOCAL_CONFIG_DIR);
 
+        List<ExecutionStats> executionStats = new ArrayList<ExecutionStats>();
         if ((orderedSubmodules == null) || orderedSubmodules.isEmpty()) {
             Output.print("");
-            if (!Exec.invoke(PlyUtil.LOCAL_PROJECT_DIR, executions)) {
+            boolean invoked;
+            try {
+                invoked = invoke(projectName, PlyUtil.LOCAL_PROJECT_DIR, executions);
+            } finally {
+                projectSpan.end();
+            }
+            if (!invoked) {
                 throw new SystemExit(1);
             }
+            executionStats.addAll(ExecutionStats.drain());
         } else {
             Output.print(" and its submodules:");
             for (Submodule submodule : orderedSubmodules) {
@@ -65,9 +96,16 @@ public final class Build extends Command.ProjectReliant {
             Output.print("^ply^");
             Output.print("^ply^ building ^b^%s^r^ itself before its submodules", projectName);
             long projectStart = System.currentTimeMillis();
-            if (!Exec.invoke(PlyUtil.LOCAL_PROJECT_DIR, executions)) {
+            boolean invoked;
+            try {
+                invoked = invoke(projectName, PlyUtil.LOCAL_PROJECT_DIR, executions);
+            } finally {
+                projectSpan.end();
+            }
+            if (!invoked) {
                 throw new SystemExit(1);
             }
+            executionStats.addAll(prefix(projectName, ExecutionStats.drain()));
             int maxSubmoduleName = projectName.length();
             float seconds = printTime(projectStart, String.format("^b^%s^r^ ", projectName));
             float maxSubmoduleTime = seconds;
@@ -92,11 +130,18 @@ public final class Build extends Command.ProjectReliant {
                     Output.print("^ply^");
                     continue;
                 }
-                File submoduleConfigDir = FileUtil.fromParts(FileUtil.getCanonicalPath(submodulePlyDir), "config");
-                List<Execution> submoduleExecutions = Module.resolve(args, submoduleConfigDir);
-                if (!Exec.invoke(submodulePlyDir, submoduleExecutions)) {
+                Trace.Span submoduleSpan = Trace.start("module", submodule.name);
+                try {
+                    File submoduleConfigDir = FileUtil.fromParts(FileUtil.getCanonicalPath(submodulePlyDir), "config");
+                    List<Execution> submoduleExecutions = Module.resolve(args, submoduleConfigDir);
+                    invoked = invoke(submodule.name, submodulePlyDir, submoduleExecutions);
+                } finally {
+                    submoduleSpan.end(); // also upon failure, so that the trace of a failed build includes the module
+                }
+                if (!invoked) {
                     throw new SystemExit(1);
                 }
+                executionStats.addAll(prefix(submodule.name, ExecutionStats.drain()));
                 seconds = printTime(submoduleStart, String.format("^b^%s^r^ ", submodule.name));
                 if (seconds > maxSubmoduleTime) {
                     maxSubmoduleTime = seconds;
@@ -119,8 +164,70 @@ public final class Build extends Command.ProjectReliant {
 
         }
 
+        printExecutionStats(executionStats);
         printTime(start, "");
     }
+
+    /**
+     * Invokes {@code executions} of {@code module} (see {@link Exec#invoke(File, List)}) between its
+     * {@literal module.start} and {@literal module.finish} events.
+     * @param module the name of the module
+     * @param projectDir the ply directory of the module
+     * @param executions to invoke
+     * @return the result of {@link Exec#invoke(File, List)}
+     */
+    private static boolean invoke(String module, File projectDir, List<Execution> executions) {
+        Events.emit("module.start", "module", module);
+        long start = System.currentTimeMillis();
+        boolean success = Exec.invoke(projectDir, executions);
+        Events.emit("module.finish", "module", module, "success", success, "millis", (System.currentTimeMillis() - start));
+        return success;
+    }
+
+    /**
+     * Prints the resources used by each execution (see {@link ExecutionStats}) and warns of those scripts whose heap was
+     * near its limit.
+     * @param executionStats to print
+     */
+    private void printExecutionStats(List<ExecutionStats> executionStats) {
+        if (Output.isInfo() && !executionStats.isEmpty()) {
+            int maxScriptName = 6;
+            for (ExecutionStats stats : executionStats) {
+                maxScriptName = Math.max(maxScriptName, stats.script.length());
+            }
+            maxScriptName = Math.min(maxScriptName, 80); // don't be ridiculous
+            String format = "^info^ %-" + maxScriptName + "s %9s %9s %9s %9s %13s";
+            Output.print(format, "script", "time", "cpu", "peak rss", "gc", "heap peak/max");
+            for (ExecutionStats stats : executionStats) {
+                Output.print(format, stats.script, seconds(stats.elapsedMillis), seconds(stats.cpuMillis),
+                        megabytes(stats.peakRssKb * 1024L), seconds(stats.gcMillis),
+                        megabytes(stats.heapPeakBytes) + "/" + megabytes(stats.heapMaxBytes));
+            }
+        }
+        for (ExecutionStats stats : executionStats) {
+            if (stats.isNearHeapLimit()) {
+                Output.print("^warn^ Script ^b^%s^r^ used ^b^%s^r^ of its ^b^%s^r^ heap and spent ^b^%s^r^ of ^b^%s^r^ collecting garbage; consider increasing its ^b^-Xmx^r^ within the ^b^options^r^ of context ^b^scripts-jar^r^.",
+                        stats.script, megabytes(stats.heapPeakBytes), megabytes(stats.heapMaxBytes),
+                        seconds(stats.gcMillis), seconds(stats.elapsedMillis));
+            }
+        }
+    }
+
+    private static List<ExecutionStats> prefix(String module, List<ExecutionStats> executionStats) {
+        List<ExecutionStats> prefixed = new ArrayList<ExecutionStats>(executionStats.size());
+        for (ExecutionStats stats : executionStats) {
+            prefixed.add(stats.with(module + " " + stats.script));
+        }
+        return prefixed;
+    }
+
+    private static String seconds(long millis) {
+        return (millis < 0L ? "-" : String.format("%.3fs", (millis / 1000.0f)));
+    }
+
+    private static String megabytes(long bytes) {
+        return (bytes < 0L ? "-" : String.format("%dMB", (bytes / 1024L / 1024L)));
+    }
     
     /**
      * Prints the amount of time used since {@code start} along with the memory usage.
@@ -48,10 +48,13 @@ final class Module {
     List<Execution> resolve() {
         List<Script> scripts = convertArgsToScripts();
         // resolve ad-hoc properties before creating executions (as execution may depend upon a value of an ad-hoc prop).
-        // must invalidate filtered-cache (as ad-hoc props may have changed the filtered values).
-        if (handleAdHoc(scripts)) {
-            PropsExt.invalidateFilteredCaches(configDirectory);
+        // adding ad-hoc props invalidates those filtered values which depended upon them.
+        if (handleAdHoc(scripts) && Output.isDebug()) {
+            Output.print("^dbug^ Filter cache after ad-hoc properties: %d hits, %d misses, %d invalidations.",
+                    Filter.getCacheHits(), Filter.getCacheMisses(), Filter.getCacheInvalidations());
         }
+        // no further modifications are made to the properties while this module executes; read from snapshots
+        PropsExt.seal();
         // now that all ad-hoc props are accounted for, convert scripts to executions
         return convertScriptsToExecutions(scripts);
     }
@@ -3,6 +3,7 @@ package net.ocheyedan.ply.exec;
 import net.ocheyedan.ply.FileUtil;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.OutputExt;
+import net.ocheyedan.ply.Trace;
 import net.ocheyedan.ply.cmd.build.ShellScript;
 import net.ocheyedan.ply.props.PropsExt;
 
@@ -37,6 +38,9 @@ public final class Exec {
         // track the running and queued callbacks
         ExecutionWrapper running = null;
         ExecutionWrapper queued = null;
+        // track the alias of the queued task, if any, for tracing
+        String alias = null;
+        Trace.Span aliasSpan = null;
         for (Execution execution : executions) {
             // wait for the running task, if any
             if (!waitFor(running, queued)) {
@@ -44,9 +48,21 @@ public final class Exec {
             }
             // the running task has now completed, invoke the queued task
             running = invoke(queued);
+            // an alias ends with the last of its executions
+            String executionAlias = getAlias(execution);
+            if ((alias != null) && !alias.equals(executionAlias)) {
+                running.endWith(aliasSpan);
+            }
+            if ((executionAlias != null) && !executionAlias.equals(alias)) {
+                aliasSpan = Trace.start("alias", executionAlias, "aliases");
+            }
+            alias = executionAlias;
             // create a new queued task
             queued = preInvoke(execution, projectRoot);
         }
+        if (alias != null) {
+            queued.endWith(aliasSpan);
+        }
         // finish up the running/queued processes
         if (!waitFor(running, queued)) {
             return false;
@@ -56,13 +72,24 @@ public final class Exec {
     }
 
     private static ExecutionWrapper preInvoke(Execution execution, File projectRoot) {
+        Trace.Span span = Trace.start("execution", "pre-invoke " + execution.name);
         File projectConfigDir = FileUtil.fromParts(projectRoot.getPath(), ".ply", "config");
         execution = handleNonNativeExecutable(execution, projectConfigDir);
         long start = System.currentTimeMillis();
         execution.preInvoke(projectRoot, PropsExt.getPropsForEnv(execution, projectConfigDir, execution.script.scope));
+        span.end();
         return new ExecutionWrapper(execution, start);
     }
 
+    /**
+     * @param execution for which to find its alias
+     * @return the name of the alias from which {@code execution} was converted or null if it was not converted from
+     *         an alias
+     */
+    private static String getAlias(Execution execution) {
+        return (execution.name.equals(execution.script.name) ? null : execution.name);
+    }
+
     private static ExecutionWrapper invoke(ExecutionWrapper queued) {
         if (queued != null) {
             queued.invoke();
@@ -1,5 +1,6 @@
 package net.ocheyedan.ply.exec;
 
+import net.ocheyedan.ply.ExitStats;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.OutputExt;
 import net.ocheyedan.ply.PwdUtil;
@@ -7,7 +8,9 @@ import net.ocheyedan.ply.cmd.build.Script;
 import net.ocheyedan.ply.props.Context;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -31,6 +34,12 @@ public class Execution {
         }
     };
 
+    /**
+     * The size (in characters) at which the child's formatted output is printed (regardless of whether more is
+     * available to be printed).
+     */
+    private static final int OUTPUT_BATCH_SIZE = 16384;
+
     /**
      * A name to use when identifying this execution.
      */
@@ -65,6 +74,16 @@ public class Execution {
      */
     protected final AtomicReference<Process> process;
 
+    /**
+     * Samples the resources used by {@link #process}; set as the process is invoked.
+     */
+    protected final AtomicReference<ProcessSampler> sampler;
+
+    /**
+     * The statistics reported by {@link #process} as it exited, if any.
+     */
+    final AtomicReference<ExitStats> exitStats;
+
     public Execution(String name, Script script, String[] executionArgs) {
         this.name = name;
         this.script = script;
@@ -72,6 +91,8 @@ public class Execution {
         this.processBuilder = new AtomicReference<ProcessBuilder>();
         this.processStdout = new AtomicReference<BufferedReader>();
         this.process = new AtomicReference<Process>();
+        this.sampler = new AtomicReference<ProcessSampler>();
+        this.exitStats = new AtomicReference<ExitStats>();
     }
 
     public Execution augment(String[] with) {
@@ -136,6 +157,7 @@ public class Execution {
         // the Process thread reaps the child if the parent (this) is terminated
         final Process process = processBuilder.get().start();
         this.process.set(process);
+        this.sampler.set(ProcessSampler.start(process));
 
         // take the parent's input and pipe to the child's output
         STDIN_PROCESS_PIPE.get().startPipe(process.getOutputStream());
@@ -144,36 +166,77 @@ public class Execution {
     }
 
     /**
-     * Waits for the execution to complete.
+     * Waits for the execution to complete.  The child's output is read by a {@link ProcessOutputPump} and printed in
+     * batches; everything read is printed before a password is requested and before this method returns.
      * @return the process exit code
      * @see Process#waitFor()
      */
     int waitFor(String outputScriptName) throws IOException, InterruptedException {
         // take the child's input and reformat for output on parent process
-        String processStdoutLine;
-        while ((processStdoutLine = processStdout.get().readLine()) != null) {
-            PwdUtil.Request request = PwdUtil.isPwdRequest(processStdoutLine);  // determine if the line is a password request
-            OutputExt.printFromExec("[^green^%s^r^] %s", outputScriptName, request.getLine());
-            if (!request.isPwd()) {
-                continue;
-            }
-            // child-process is requesting a password-read; handle via {@link System#console()} if available
-            Console console = System.console();
-            char[] pwd;
-            if (console != null) {
-                pwd = console.readPassword();
-            } else { // no console available, simply read (potentially with echo-on)
-                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-                pwd = reader.readLine().toCharArray();
+        ProcessOutputPump pump = new ProcessOutputPump(processStdout.get());
+        pump.start();
+        List<String> lines = new ArrayList<String>();
+        StringBuilder batch = new StringBuilder(OUTPUT_BATCH_SIZE);
+        try {
+            while (pump.take(lines)) {
+                for (String line : lines) {
+                    ExitStats stats = ExitStats.parse(line);
+                    if (stats != null) {
+                        exitStats.set(stats);
+                        sampler.get().sample(); // the process is exiting; sample before it is reaped
+                        // the script's last output may not have ended its line; print that output, if any
+                        line = ExitStats.stripStats(line);
+                        if (line.isEmpty()) {
+                            continue;
+                        }
+                    }
+                    PwdUtil.Request request = PwdUtil.isPwdRequest(line);  // determine if the line is a password request
+                    String formatted = OutputExt.resolveFromExec("[^green^%s^r^] %s", outputScriptName, request.getLine());
+                    if (formatted != null) {
+                        batch.append(formatted);
+                    }
+                    if (request.isPwd()) {
+                        long linesForwarded = STDIN_PROCESS_PIPE.get().getLinesForwarded();
+                        print(batch);
+                        readPassword(linesForwarded);
+                    } else if (batch.length() >= OUTPUT_BATCH_SIZE) {
+                        print(batch);
+                    }
+                }
+                lines.clear();
+                print(batch);
             }
-            STDIN_PROCESS_PIPE.get().write(pwd);
-            Arrays.fill(pwd, ' ');
+        } finally {
+            print(batch);
+            pump.interrupt(); // in case of failure, no more lines will be taken
         }
         int result = process.get().waitFor();
+        sampler.get().interrupt();
         STDIN_PROCESS_PIPE.get().pausePipe();
         return result;
     }
 
+    private static void print(StringBuilder batch) {
+        if (batch.length() > 0) {
+            System.out.print(batch);
+            System.out.flush();
+            batch.setLength(0);
+        }
+    }
+
+    private static void readPassword(long linesForwarded) throws InterruptedException {
+        // child-process is requesting a password-read; the pipe forwards the line input, without echo if possible
+        STDIN_PROCESS_PIPE.get().awaitLine(linesForwarded, System.console() != null);
+    }
+
+    /**
+     * Called once the execution has completed (successfully or not).
+     * @param stats of the completed execution
+     */
+    void completed(ExecutionStats stats) {
+        // nothing to do by default
+    }
+
     /**
      * Kills the associated {@link Process} if any.
      */
@@ -0,0 +1,162 @@
+package net.ocheyedan.ply.exec;
+
+import net.ocheyedan.ply.ExitStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 3:20 PM
+ *
+ * The resources used by a completed {@link Execution}: its elapsed and {@literal CPU} time and peak resident set size
+ * (sampled from {@literal /proc}) and, for {@literal JVM} scripts reporting {@link ExitStats}, its garbage collection
+ * time and peak heap.  Unknown values are -1.
+ */
+public final class ExecutionStats {
+
+    /**
+     * A script is considered near its heap limit if its peak heap is at least this ratio of its maximum heap.
+     */
+    private static final float HEAP_LIMIT_RATIO = 0.85f;
+
+    /**
+     * A script is considered to be thrashing if it spends at least this ratio of its elapsed time collecting garbage.
+     */
+    private static final float GC_THRASH_RATIO = 0.25f;
+
+    /**
+     * The garbage collection time, in milliseconds, below which a script is not considered to be thrashing (regardless
+     * of its elapsed time).
+     */
+    private static final long GC_THRASH_MIN_MILLIS = 250L;
+
+    private static final List<ExecutionStats> recorded = new ArrayList<ExecutionStats>();
+
+    /**
+     * @return the statistics of all executions completed since the last call to this method (in order of completion)
+     */
+    public static List<ExecutionStats> drain() {
+        synchronized (recorded) {
+            List<ExecutionStats> drained = new ArrayList<ExecutionStats>(recorded);
+            recorded.clear();
+            return drained;
+        }
+    }
+
+    static void record(ExecutionStats stats) {
+        synchronized (recorded) {
+            recorded.add(stats);
+        }
+    }
+
+    /**
+     * The short-form script name (e.g., clean).
+     */
+    public final String script;
+
+    public final long elapsedMillis;
+
+    public final long cpuMillis;
+
+    public final long peakRssKb;
+
+    public final long gcMillis;
+
+    public final long heapPeakBytes;
+
+    /**
+     * The {@literal -Xmx} with which the script was invoked, otherwise the maximum heap it reported.
+     */
+    public final long heapMaxBytes;
+
+    ExecutionStats(String script, long elapsedMillis, long cpuMillis, long peakRssKb, long gcMillis,
+                   long heapPeakBytes, long heapMaxBytes) {
+        this.script = script;
+        this.elapsedMillis = elapsedMillis;
+        this.cpuMillis = cpuMillis;
+        this.peakRssKb = peakRssKb;
+        this.gcMillis = gcMillis;
+        this.heapPeakBytes = heapPeakBytes;
+        this.heapMaxBytes = heapMaxBytes;
+    }
+
+    /**
+     * @param script name with which to label the statistics
+     * @return a copy of these statistics labelled {@code script}
+     */
+    public ExecutionStats with(String script) {
+        return new ExecutionStats(script, elapsedMillis, cpuMillis, peakRssKb, gcMillis, heapPeakBytes, heapMaxBytes);
+    }
+
+    /**
+     * @param script the short-form script name
+     * @param elapsedMillis of the execution
+     * @param sampler of the execution's process
+     * @param exitStats reported by the execution's process or null if none were reported
+     * @param executionArgs of the execution, from which its {@literal -Xmx} is parsed, if any
+     * @return the statistics of the execution
+     */
+    static ExecutionStats of(String script, long elapsedMillis, ProcessSampler sampler, ExitStats exitStats,
+                             String[] executionArgs) {
+        long cpuMillis = (sampler == null ? -1L : sampler.getCpuMillis());
+        long peakRssKb = (sampler == null ? -1L : sampler.getPeakRssKb());
+        long gcMillis = (exitStats == null ? -1L : exitStats.gcMillis);
+        long heapPeakBytes = (exitStats == null ? -1L : exitStats.heapPeakBytes);
+        long heapMaxBytes = getXmx(executionArgs);
+        if ((heapMaxBytes == -1L) && (exitStats != null)) {
+            heapMaxBytes = exitStats.heapMaxBytes;
+        }
+        return new ExecutionStats(script, elapsedMillis, cpuMillis, peakRssKb, gcMillis, heapPeakBytes, heapMaxBytes);
+    }
+
+    /**
+     * @return true if the peak heap of the script was near its maximum heap or if the script spent a large portion of
+     *         its time collecting garbage
+     */
+    public boolean isNearHeapLimit() {
+        boolean nearMax = (heapPeakBytes != -1L) && (heapMaxBytes > 0L)
+                && (heapPeakBytes >= (heapMaxBytes * HEAP_LIMIT_RATIO));
+        boolean thrashing = (gcMillis >= GC_THRASH_MIN_MILLIS) && (gcMillis >= (elapsedMillis * GC_THRASH_RATIO));
+        return (nearMax || thrashing);
+    }
+
+    /**
+     * @param executionArgs from which to parse the {@literal -Xmx} option
+     * @return the last {@literal -Xmx} value, in bytes, within {@code executionArgs} or -1 if none
+     */
+    static long getXmx(String[] executionArgs) {
+        long xmx = -1L;
+        for (String arg : executionArgs) {
+            if (arg.startsWith("-Xmx") && (arg.length() > 4)) {
+                long parsed = parseSize(arg.substring(4));
+                if (parsed != -1L) {
+                    xmx = parsed;
+                }
+            }
+        }
+        return xmx;
+    }
+
+    /**
+     * @param size a {@literal JVM} memory size (e.g., {@literal 32M})
+     * @return {@code size} in bytes or -1 if it could not be parsed
+     */
+    static long parseSize(String size) {
+        long multiplier = 1L;
+        switch (Character.toLowerCase(size.charAt(size.length() - 1))) {
+            case 'k': multiplier = 1024L; break;
+            case 'm': multiplier = 1024L * 1024L; break;
+            case 'g': multiplier = 1024L * 1024L * 1024L; break;
+            case 't': multiplier = 1024L * 1024L * 1024L * 1024L; break;
+        }
+        String value = (multiplier == 1L ? size : size.substring(0, size.length() - 1));
+        try {
+            return Long.parseLong(value) * multiplier;
+        } catch (NumberFormatException nfe) {
+            return -1L;
+        }
+    }
+
+}
@@ -1,6 +1,8 @@
 package net.ocheyedan.ply.exec;
 
+import net.ocheyedan.ply.Events;
 import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.Trace;
 
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,6 +42,16 @@ final class ExecutionWrapper {
      */
     private final AtomicBoolean errorOnInvoke;
 
+    /**
+     * The span of the running process, from {@link #invoke()} until the completion of {@link #waitFor()}.
+     */
+    private Trace.Span runSpan;
+
+    /**
+     * A span (i.e., of an alias) to end upon the completion of {@link #waitFor()}, if any.
+     */
+    private Trace.Span endWith;
+
     ExecutionWrapper(Execution execution, long start) {
         this.execution = execution;
         this.start = start;
@@ -52,6 +64,8 @@ final class ExecutionWrapper {
      * Wraps error handling around calls to {@link Execution#invoke(String)}
      */
     void invoke() {
+        runSpan = Trace.start("execution", outputScriptName, "executions");
+        Events.emit("execution.start", "script", outputScriptName);
         try {
             execution.invoke(scriptName);
         } catch (IOException ioe) {
@@ -68,11 +82,22 @@ final class ExecutionWrapper {
      */
     boolean waitFor() {
         if (errorOnInvoke.get()) {
+            Events.emit("execution.finish", "script", outputScriptName, "exitCode", null,
+                        "millis", (System.currentTimeMillis() - start));
+            endSpans();
             return false;
         }
+        Trace.Span span = Trace.start("execution", "wait-for " + outputScriptName);
+        Integer exitCode = null;
+        ExecutionStats stats = null;
         try {
             int result = execution.waitFor(outputScriptName);
+            exitCode = result;
             printTime(start, outputScriptName);
+            stats = ExecutionStats.of(outputScriptName, (System.currentTimeMillis() - start),
+                    execution.sampler.get(), execution.exitStats.get(), execution.executionArgs);
+            ExecutionStats.record(stats);
+            execution.completed(stats);
             if (result == 0) {
                 return true;
             }
@@ -82,10 +107,41 @@ final class ExecutionWrapper {
             Output.print(ioe);
         } catch (InterruptedException ie) {
             Output.print(ie);
+        } finally {
+            if (stats == null) {
+                Events.emit("execution.finish", "script", outputScriptName, "exitCode", exitCode,
+                            "millis", (System.currentTimeMillis() - start));
+            } else {
+                Events.emit("execution.finish", "script", outputScriptName, "exitCode", exitCode,
+                            "millis", stats.elapsedMillis, "cpuMillis", stats.cpuMillis, "peakRssKb", stats.peakRssKb,
+                            "gcMillis", stats.gcMillis);
+            }
+            span.end();
+            endSpans();
         }
         return false;
     }
 
+    /**
+     * Ends {@link #runSpan} and {@link #endWith} (if any) so that every started span is ended, even if the invocation
+     * failed.
+     */
+    private void endSpans() {
+        if (runSpan != null) {
+            runSpan.end();
+        }
+        if (endWith != null) {
+            endWith.end();
+        }
+    }
+
+    /**
+     * @param span to end upon the completion of {@link #waitFor()}
+     */
+    void endWith(Trace.Span span) {
+        this.endWith = span;
+    }
+
     private static float printTime(long start, String script) {
         long end = System.currentTimeMillis();
         float seconds = ((end - start) / 1000.0f);
@@ -2,6 +2,7 @@ package net.ocheyedan.ply.exec;
 
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.SystemExit;
+import net.ocheyedan.ply.Trace;
 import net.ocheyedan.ply.cmd.build.Script;
 import net.ocheyedan.ply.dep.*;
 import net.ocheyedan.ply.graph.DirectedAcyclicGraph;
@@ -70,7 +71,8 @@ final class JvmExecution extends Execution {
         }
         System.arraycopy(execution.executionArgs, 1, newCmdArray, options.length + classpathLength + propertyLength + 1,
                 execution.executionArgs.length - 1);
-        return new JvmExecution(execution.name, execution.script, newCmdArray, containsJvmPrimer.get());
+        return new JvmExecution(execution.name, execution.script, newCmdArray, containsJvmPrimer.get(),
+                new File(execution.executionArgs[0]).getName(), configDirectory);
     }
 
     /**
@@ -99,7 +101,7 @@ final class JvmExecution extends Execution {
         }
         clojureArgs[args.length] = "clojure.main";
         clojureArgs[args.length + 1] = execution.executionArgs[0];
-        return new JvmExecution(jarExec.name, jarExec.script, clojureArgs, false);
+        return new JvmExecution(jarExec.name, jarExec.script, clojureArgs, false, jarExec.jarName, configDirectory);
     }
 
     /**
@@ -172,10 +174,11 @@ final class JvmExecution extends Execution {
         if (index != -1) {
             executable = executable.substring(index + 1);
         }
-        String options = Props.get("options." + executable, Context.named("scripts-jar"), execution.script.scope, configDirectory).value();
-        if (options.isEmpty()) {
-            options = Props.get("options.default", Context.named("scripts-jar"), execution.script.scope, configDirectory).value();
+        PropFile.Prop optionsProp = Props.get("options." + executable, Context.named("scripts-jar"), execution.script.scope, configDirectory);
+        if (optionsProp.value().isEmpty()) {
+            optionsProp = Props.get("options.default", Context.named("scripts-jar"), execution.script.scope, configDirectory);
         }
+        String options = JvmSizing.options(optionsProp.value(), optionsProp, executable, configDirectory, execution.script.scope);
         if (options.contains("-cp") || options.contains("-classpath") || options.contains("-Xbootclasspath")) {
             staticClasspath.set(true);
         }
@@ -191,9 +194,36 @@ final class JvmExecution extends Execution {
      */
     private final boolean usingJvmPrimer;
 
-    JvmExecution(String name, Script script, String[] executionArgs, boolean usingJvmPrimer) {
+    /**
+     * The span during which the primed {@literal JVM} waits to be invoked.
+     */
+    private Trace.Span primerWait;
+
+    /**
+     * The name of the script's jar (i.e., as referenced by the {@literal options.<jar>} property).
+     */
+    private final String jarName;
+
+    /**
+     * The ply configuration directory of the project for which the script is executed.
+     */
+    private final File configDirectory;
+
+    JvmExecution(String name, Script script, String[] executionArgs, boolean usingJvmPrimer, String jarName,
+                 File configDirectory) {
         super(name, script, executionArgs);
         this.usingJvmPrimer = usingJvmPrimer;
+        this.jarName = jarName;
+        this.configDirectory = configDirectory;
+    }
+
+    /**
+     * Override to persist the statistics of the script for adaptive sizing of its subsequent runs.
+     * @param stats of the completed execution
+     * @see JvmSizing
+     */
+    @Override void completed(ExecutionStats stats) {
+        JvmSizing.record(stats, jarName, configDirectory, script.scope);
     }
 
     /**
@@ -210,6 +240,7 @@ final class JvmExecution extends Execution {
         try {
             Process process = processBuilder.get().start();
             this.process.set(process);
+            this.primerWait = Trace.start("execution", "primer wait " + name, "primer");
         } catch (IOException ioe) {
             this.process.set(null); // null out, reverting to standard execution
         }
@@ -220,6 +251,8 @@ final class JvmExecution extends Execution {
             super.invoke(scriptName); // either an error happened on preInvoke or !usingJvmPrimer, attempt as normal
         } else {
             Output.print("^dbug^ invoking %s", scriptName);
+            primerWait.end();
+            this.sampler.set(ProcessSampler.start(process.get()));
             // send the control character to the JVM
             process.get().getOutputStream().write(0xb);
             process.get().getOutputStream().flush();
@@ -0,0 +1,210 @@
+package net.ocheyedan.ply.exec;
+
+import net.ocheyedan.ply.FileUtil;
+import net.ocheyedan.ply.Output;
+import net.ocheyedan.ply.props.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * User: blangel
+ * Date: 10/23/14
+ * Time: 10:15 AM
+ *
+ * Sizes the heap of {@literal jar} scripts from the statistics of their previous runs when the {@literal adaptive}
+ * property of context {@literal scripts-jar} is true.  After each run of a script its peak heap, garbage collection
+ * time and maximum heap (see {@link ExecutionStats}) are persisted per project and scope within
+ * {@literal .ply/stats/jvm[.scope].properties}.  Thereafter the script is given a heap of twice its peak (or twice its
+ * previous heap if it was near its limit, see {@link ExecutionStats#isNearHeapLimit()}) bounded by the
+ * {@literal adaptive.min} and {@literal adaptive.max} properties.  The peak decays between runs so that a heap grown
+ * for a large run shrinks again over subsequent smaller runs.
+ *
+ * Only options defined by ply itself (i.e., within the system {@literal scripts-jar} properties) are sized; explicit
+ * {@literal options.<jar>} (or {@literal options.default}) overrides within the project or ad-hoc are used as is.
+ */
+final class JvmSizing {
+
+    /**
+     * The heap given to a script relative to its peak heap.
+     */
+    private static final long HEADROOM = 2L;
+
+    /**
+     * The ratio of the previous peak retained when a run's peak is lower.
+     */
+    private static final float PEAK_DECAY = 0.75f;
+
+    /**
+     * Heap sizes are rounded up to a multiple of this value.
+     */
+    private static final long GRANULARITY = 8L * 1024L * 1024L;
+
+    /**
+     * Heaps at or below this size use the serial collector, which has the smallest footprint.
+     */
+    private static final long SERIAL_GC_MAX = 256L * 1024L * 1024L;
+
+    private static final long DEFAULT_MIN = 32L * 1024L * 1024L;
+
+    private static final long DEFAULT_MAX = 1024L * 1024L * 1024L;
+
+    /**
+     * @param options the resolved jvm options of the script
+     * @param optionsProp the property from which {@code options} were resolved
+     * @param jarName of the script
+     * @param configDirectory the ply configuration directory from which to resolve properties
+     * @param scope of the execution
+     * @return {@code options} with the memory options replaced by those sized from the script's statistics or
+     *         {@code options} itself if adaptive sizing is disabled, the options are explicit or there are no
+     *         statistics for the script
+     */
+    static String options(String options, PropFile.Prop optionsProp, String jarName, File configDirectory, Scope scope) {
+        Context scriptsJar = Context.named("scripts-jar");
+        if (!"true".equalsIgnoreCase(Props.get("adaptive", scriptsJar, scope, configDirectory).value())
+                || isExplicit(optionsProp, configDirectory, scope)) {
+            return options;
+        }
+        PropFile stats = load(configDirectory, scope);
+        if (!stats.contains(jarName + ".peak")) {
+            return options;
+        }
+        long min = size(Props.get("adaptive.min", scriptsJar, scope, configDirectory).value(), DEFAULT_MIN);
+        long max = Math.max(min, size(Props.get("adaptive.max", scriptsJar, scope, configDirectory).value(), DEFAULT_MAX));
+        long heap = heap(getLong(stats, jarName + ".peak"), getLong(stats, jarName + ".xmx"),
+                         "true".equals(stats.get(jarName + ".grow").value()), min, max);
+        Output.print("^dbug^ Adaptively sized heap of ^b^%s^r^ to ^b^%dMB^r^.", jarName, (heap / 1024L / 1024L));
+        return resize(options, heap);
+    }
+
+    /**
+     * Persists the statistics of a completed run of {@code jarName}, if adaptive sizing is enabled.
+     * @param stats of the completed run
+     * @param jarName of the script
+     * @param configDirectory the ply configuration directory of the project
+     * @param scope of the execution
+     */
+    static void record(ExecutionStats stats, String jarName, File configDirectory, Scope scope) {
+        if (!"true".equalsIgnoreCase(Props.get("adaptive", Context.named("scripts-jar"), scope, configDirectory).value())) {
+            return;
+        }
+        if ((stats.heapPeakBytes == -1L) || (stats.heapMaxBytes <= 0L)) {
+            return; // the script did not report its statistics
+        }
+        PropFile persisted = load(configDirectory, scope);
+        long peak = stats.heapPeakBytes;
+        if (persisted.contains(jarName + ".peak")) {
+            peak = Math.max(peak, (long) (getLong(persisted, jarName + ".peak") * PEAK_DECAY));
+        }
+        persisted.set(jarName + ".peak", String.valueOf(peak));
+        persisted.set(jarName + ".xmx", String.valueOf(stats.heapMaxBytes));
+        persisted.set(jarName + ".gc", String.valueOf(stats.gcMillis));
+        persisted.set(jarName + ".elapsed", String.valueOf(stats.elapsedMillis));
+        persisted.set(jarName + ".grow", String.valueOf(stats.isNearHeapLimit()));
+        PropFiles.store(persisted, getPath(configDirectory, scope), true);
+    }
+
+    /**
+     * @param peak the (decayed) peak heap of the script's previous runs
+     * @param xmx the maximum heap of the script's last run
+     * @param grow true if the script's last run was near its heap limit
+     * @param min bound
+     * @param max bound
+     * @return the heap size, in bytes, for the script's next run
+     */
+    static long heap(long peak, long xmx, boolean grow, long min, long max) {
+        long heap = (peak * HEADROOM);
+        if (grow) {
+            heap = Math.max(heap, (xmx * HEADROOM));
+        } else if (peak == 0L) {
+            heap = xmx; // nothing survived a collection (or none occurred), there's no basis to shrink
+        }
+        heap = (((heap + GRANULARITY - 1L) / GRANULARITY) * GRANULARITY);
+        return Math.min(max, Math.max(min, heap));
+    }
+
+    /**
+     * @param options the jvm options
+     * @param heap the size of the heap, in bytes
+     * @return {@code options} without its {@literal -Xms} and {@literal -Xmx} options and prefixed by those for
+     *         {@code heap} (and the serial collector if {@code heap} is small and no collector was chosen)
+     */
+    static String resize(String options, long heap) {
+        String size = (heap / 1024L / 1024L) + "M";
+        List<String> resized = new ArrayList<String>();
+        resized.add("-Xms" + size);
+        resized.add("-Xmx" + size);
+        boolean collectorChosen = false;
+        for (String option : options.split(" ")) {
+            if (option.startsWith("-Xms") || option.startsWith("-Xmx")) {
+                continue;
+            }
+            if (option.startsWith("-XX:+Use") && option.endsWith("GC")) {
+                collectorChosen = true;
+            }
+            resized.add(option);
+        }
+        if (!collectorChosen && (heap <= SERIAL_GC_MAX)) {
+            resized.add(2, "-XX:+UseSerialGC");
+        }
+        StringBuilder buffer = new StringBuilder();
+        for (String option : resized) {
+            if (buffer.length() > 0) {
+                buffer.append(' ');
+            }
+            buffer.append(option);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @param optionsProp the property from which the options were resolved
+     * @param configDirectory the ply configuration directory from which to resolve properties
+     * @param scope of the execution
+     * @return true if {@code optionsProp} (or {@literal options.default} which it references) is defined other
+     *         than by ply itself
+     */
+    private static boolean isExplicit(PropFile.Prop optionsProp, File configDirectory, Scope scope) {
+        if (optionsProp.loc() != PropFile.Loc.System) {
+            return true;
+        }
+        if ((optionsProp.unfilteredValue != null) && optionsProp.unfilteredValue.contains("${options.default}")) {
+            PropFile.Prop defaultProp = Props.get("options.default", Context.named("scripts-jar"), scope, configDirectory);
+            return (defaultProp.loc() != PropFile.Loc.System);
+        }
+        return false;
+    }
+
+    private static PropFile load(File configDirectory, Scope scope) {
+        PropFile stats = new PropFile(Context.named("jvm"), scope, PropFile.Loc.Local);
+        String path = getPath(configDirectory, scope);
+        if (new File(path).exists()) {
+            PropFiles.load(path, stats, false, false);
+        }
+        return stats;
+    }
+
+    private static String getPath(File configDirectory, Scope scope) {
+        return FileUtil.pathFromParts(configDirectory.getPath(), "..", "stats", "jvm" + scope.getFileSuffix() + ".properties");
+    }
+
+    private static long getLong(PropFile stats, String name) {
+        try {
+            return Long.parseLong(stats.get(name).value());
+        } catch (NumberFormatException nfe) {
+            return 0L;
+        }
+    }
+
+    private static long size(String value, long defaultSize) {
+        if ((value == null) || value.isEmpty()) {
+            return defaultSize;
+        }
+        long size = ExecutionStats.parseSize(value);
+        return (size == -1L ? defaultSize : size);
+    }
+
+    private JvmSizing() { }
+
+}
@@ -0,0 +1,101 @@
+package net.ocheyedan.ply.exec;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 11:10 AM
+ *
+ * Reads the lines of a {@link Process}'s stdout on a dedicated thread into a bounded buffer from which they are
+ * taken in batches (see {@link #take(java.util.List)}).  The child process is therefore not throttled by the speed
+ * at which its output is printed until the buffer is full, at which point reading stops until lines are taken
+ * (and so the child process blocks on writing, as it would without the pump).
+ * Lines are taken in the order in which they were read.
+ */
+final class ProcessOutputPump extends Thread {
+
+    /**
+     * The number of lines buffered before reading blocks.
+     */
+    static final int CAPACITY = 4096;
+
+    /**
+     * Marks the end of the process's stdout within {@link #lines}; compared by identity.
+     */
+    private static final String END = new String("");
+
+    private final BufferedReader processStdout;
+
+    private final BlockingQueue<String> lines;
+
+    private volatile IOException failure;
+
+    private boolean ended;
+
+    ProcessOutputPump(BufferedReader processStdout) {
+        this(processStdout, CAPACITY);
+    }
+
+    ProcessOutputPump(BufferedReader processStdout, int capacity) {
+        super("ply-output-pump");
+        setDaemon(true);
+        this.processStdout = processStdout;
+        this.lines = new ArrayBlockingQueue<String>(capacity);
+    }
+
+    @Override public void run() {
+        try {
+            String line;
+            while ((line = processStdout.readLine()) != null) {
+                lines.put(line);
+            }
+        } catch (IOException ioe) {
+            failure = ioe;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return; // the taking thread has stopped taking
+        }
+        try {
+            lines.put(END);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Blocks until at least one line is available and then moves every available line into {@code into}.
+     * @param into to which to add the lines read; expected to be empty
+     * @return false if the process's stdout has ended and all its lines have been taken; true otherwise
+     * @throws IOException if reading the process's stdout failed
+     * @throws InterruptedException if interrupted while waiting for a line
+     */
+    boolean take(List<String> into) throws IOException, InterruptedException {
+        if (!ended) {
+            String line = lines.take();
+            if (line == END) {
+                ended = true;
+            } else {
+                into.add(line);
+                lines.drainTo(into);
+                int last = into.size() - 1;
+                if (into.get(last) == END) { // always the last line read
+                    into.remove(last);
+                    ended = true;
+                }
+            }
+        }
+        if (!into.isEmpty()) {
+            return true;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return false;
+    }
+
+}
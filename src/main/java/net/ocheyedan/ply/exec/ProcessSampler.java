@@ -0,0 +1,168 @@
+package net.ocheyedan.ply.exec;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 2:45 PM
+ *
+ * Samples the cumulative {@literal CPU} time and peak resident set size of a {@link Process} from
+ * {@literal /proc/<pid>} on a dedicated thread.  The process's entries are removed from {@literal /proc} as soon
+ * as it is reaped and so it is sampled periodically (and upon {@link #sample()}) while running; the values are
+ * those of the last sample.  Where there is no {@literal /proc} (or the process id cannot be determined) nothing is
+ * sampled and the values remain unknown (i.e., -1).
+ */
+final class ProcessSampler extends Thread {
+
+    /**
+     * The interval between samples, in milliseconds.
+     */
+    static final long INTERVAL = 50L;
+
+    /**
+     * The clock ticks per second of the {@literal utime} and {@literal stime} of {@literal /proc/<pid>/stat}
+     * (i.e., {@literal USER_HZ}), which is 100 on all supported architectures.
+     */
+    private static final long CLOCK_TICKS = 100L;
+
+    /**
+     * @param process for which to sample
+     * @return a started sampler of {@code process}
+     */
+    static ProcessSampler start(Process process) {
+        long pid = getPid(process);
+        File stat = new File("/proc/" + pid + "/stat");
+        ProcessSampler sampler = new ProcessSampler(stat, new File("/proc/" + pid + "/status"));
+        if ((pid != -1L) && stat.exists()) {
+            sampler.start();
+        }
+        return sampler;
+    }
+
+    private final File stat;
+
+    private final File status;
+
+    private volatile long cpuMillis = -1L;
+
+    private volatile long peakRssKb = -1L;
+
+    private ProcessSampler(File stat, File status) {
+        super("ply-process-sampler");
+        setDaemon(true);
+        this.stat = stat;
+        this.status = status;
+    }
+
+    @Override public void run() {
+        try {
+            while (!isInterrupted() && sample()) {
+                Thread.sleep(INTERVAL);
+            }
+        } catch (InterruptedException ie) {
+            // stopped
+        }
+    }
+
+    /**
+     * Samples the process now.
+     * @return false if the process could not be sampled (i.e., has exited)
+     */
+    synchronized boolean sample() {
+        String statLine = readFirstLine(stat, null);
+        if (statLine == null) {
+            return false;
+        }
+        try {
+            // fields follow the executable's name, which is parenthesized and may itself contain spaces and parentheses
+            int index = statLine.lastIndexOf(") ");
+            String[] fields = statLine.substring(index + 2).split(" ");
+            if ((index != -1) && (fields.length > 12)) {
+                long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]); // utime + stime
+                cpuMillis = ((ticks * 1000L) / CLOCK_TICKS);
+            }
+            String peakRss = readFirstLine(status, "VmHWM:");
+            if (peakRss != null) {
+                String value = peakRss.substring(6).trim(); // e.g., '123456 kB'
+                index = value.indexOf(' ');
+                peakRssKb = Long.parseLong(index == -1 ? value : value.substring(0, index));
+            }
+            return true;
+        } catch (NumberFormatException nfe) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the sampled {@literal CPU} time (user and system) in milliseconds or -1 if unknown
+     */
+    long getCpuMillis() {
+        return cpuMillis;
+    }
+
+    /**
+     * @return the sampled peak resident set size in kilobytes or -1 if unknown
+     */
+    long getPeakRssKb() {
+        return peakRssKb;
+    }
+
+    /**
+     * @param file to read
+     * @param prefix of the line to return or null for the first line
+     * @return the first line of {@code file} starting with {@code prefix} or null if there is none or the file could
+     *         not be read
+     */
+    private static String readFirstLine(File file, String prefix) {
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(file));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if ((prefix == null) || line.startsWith(prefix)) {
+                    return line;
+                }
+            }
+            return null;
+        } catch (IOException ioe) {
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * The process id is only available via {@literal Process#pid()} on Java 9+ and otherwise via the {@literal pid}
+     * field of the {@literal UNIXProcess} implementation; so both are accessed reflectively.
+     * @param process for which to get the id
+     * @return the id of {@code process} or -1 if it could not be determined
+     */
+    static long getPid(Process process) {
+        try {
+            Method pid = Process.class.getMethod("pid");
+            return ((Number) pid.invoke(process)).longValue();
+        } catch (Exception e) {
+            // pre Java 9
+        }
+        try {
+            Field pid = process.getClass().getDeclaredField("pid");
+            pid.setAccessible(true);
+            return pid.getInt(process);
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+}
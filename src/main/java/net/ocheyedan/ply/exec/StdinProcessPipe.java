@@ -9,7 +9,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * Date: 11/19/11
  * Time: 4:23 PM
  *
- * Pipes {@link System#in} to the {@link Runner#processStdin}.
+ * Pipes {@link System#in} to the {@link Runner#processStdin}.  Reading {@link System#in} blocks until input is
+ * available, at which point it is forwarded without delay.  Input is only read while a child process is piped (i.e.,
+ * between {@link #startPipe(OutputStream)} and {@link #pausePipe()}); otherwise the pipe waits to be started again.
  *
  * This class can be instantiated once for all executions.  Multiple calls to {@link #start()} have no negative
  * effect; the first call actually starts and all subsequent calls are no-ops.
@@ -18,38 +20,95 @@ final class StdinProcessPipe extends Thread {
 
     static final class Runner implements Runnable {
 
+        /**
+         * Also the monitor notified as the pipe is started and as lines are forwarded.
+         */
         final AtomicReference<OutputStream> processStdin;
 
+        /**
+         * The number of line terminators forwarded; guarded by {@link #processStdin}.
+         */
+        private long linesForwarded;
+
+        /**
+         * True once {@link System#in} has ended; guarded by {@link #processStdin}.
+         */
+        private boolean ended;
+
         Runner(AtomicReference<OutputStream> processStdin) {
             this.processStdin = processStdin;
         }
 
-        // TODO - should only slurp input if requested by our child process
-        // TODO - otherwise, if ply is being invoked from within the context of a script (loop) reading input
-        // TODO - ply will consume the input from the parent process
+        // whether the child process is reading its stdin is not observable, so input is read (blocking) whenever a
+        // child process is piped.  A read still blocked as the pipe is paused is forwarded to the next child process
+        // piped.
         @Override public void run() {
             byte[] buffer = new byte[4096];
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    int avail = System.in.available();
-                    if (avail > 0) {
-                        int read = System.in.read(buffer, 0, Math.min(avail, buffer.length));
-                        OutputStream stdin = processStdin.get();
-                        if (stdin != null) {
-                            stdin.write(buffer, 0, read);
-                            stdin.flush();
-                        }
-                    } else {
-                        Thread.sleep(100);
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    awaitProcessStdin();
+                    int read = System.in.read(buffer);
+                    if (read == -1) {
+                        break;
                     }
-                } catch (IOException ioe) {
-                    if (ioe.getMessage().contains("Broken pipe")) { // old process died
-                        processStdin.set(null);
-                    } else {
-                        throw new AssertionError(ioe);
+                    OutputStream stdin = awaitProcessStdin();
+                    try {
+                        stdin.write(buffer, 0, read);
+                        stdin.flush();
+                    } catch (IOException ioe) {
+                        // old process died (i.e., broken pipe or stream closed)
+                        processStdin.compareAndSet(stdin, null);
+                        continue;
                     }
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
+                    forwarded(buffer, read);
+                }
+            } catch (IOException ioe) {
+                throw new AssertionError(ioe);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } finally {
+                synchronized (processStdin) {
+                    ended = true;
+                    processStdin.notifyAll();
+                }
+            }
+        }
+
+        private OutputStream awaitProcessStdin() throws InterruptedException {
+            synchronized (processStdin) {
+                OutputStream stdin;
+                while ((stdin = processStdin.get()) == null) {
+                    processStdin.wait();
+                }
+                return stdin;
+            }
+        }
+
+        private void forwarded(byte[] buffer, int read) {
+            int lines = 0;
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+            if (lines > 0) {
+                synchronized (processStdin) {
+                    linesForwarded += lines;
+                    processStdin.notifyAll();
+                }
+            }
+        }
+
+        private long getLinesForwarded() {
+            synchronized (processStdin) {
+                return linesForwarded;
+            }
+        }
+
+        private void awaitLine(long after) throws InterruptedException {
+            synchronized (processStdin) {
+                while ((linesForwarded <= after) && !ended) {
+                    processStdin.wait();
                 }
             }
         }
@@ -59,22 +118,45 @@ final class StdinProcessPipe extends Thread {
 
     final AtomicReference<OutputStream> processStdin;
 
+    private final Runner runner;
+
     public StdinProcessPipe() {
-        this(new AtomicReference<OutputStream>(null));
+        this(new Runner(new AtomicReference<OutputStream>(null)));
     }
 
-    private StdinProcessPipe(AtomicReference<OutputStream> processStdin) {
-        super(new Runner(processStdin));
+    private StdinProcessPipe(Runner runner) {
+        super(runner);
         setDaemon(true);
         started = new AtomicBoolean(false);
-        this.processStdin = processStdin;
+        this.runner = runner;
+        this.processStdin = runner.processStdin;
+    }
+
+    /**
+     * @return the number of lines of input piped to child processes
+     */
+    long getLinesForwarded() {
+        return runner.getLinesForwarded();
     }
 
-    void write(char[] buffer) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(this.processStdin.get()));
-        writer.write(buffer, 0, buffer.length);
-        writer.write('\n');
-        writer.flush();
+    /**
+     * Blocks until another line of input has been piped to the child process.  This is used when the child
+     * process requests a password (see {@link net.ocheyedan.ply.PwdUtil}); the line is read by this pipe (as it
+     * may already be blocked reading {@link System#in}) rather than by the caller.
+     * @param after the value of {@link #getLinesForwarded()} prior to the child process's request
+     * @param hideInput true to disable the terminal's echo while the line is input
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitLine(long after, boolean hideInput) throws InterruptedException {
+        boolean hidden = (hideInput && echo(false));
+        try {
+            runner.awaitLine(after);
+        } finally {
+            if (hidden) {
+                echo(true);
+                System.out.println(); // the new line input was not echoed
+            }
+        }
     }
 
     public void pausePipe() {
@@ -82,7 +164,10 @@ final class StdinProcessPipe extends Thread {
     }
 
     public void startPipe(OutputStream processStdin) {
-        this.processStdin.set(processStdin);
+        synchronized (this.processStdin) {
+            this.processStdin.set(processStdin);
+            this.processStdin.notifyAll();
+        }
         start();
     }
 
@@ -91,4 +176,24 @@ final class StdinProcessPipe extends Thread {
             super.start();
         }
     }
+
+    /**
+     * Sets the echo of the controlling terminal via {@literal stty} as the terminal's echo can only be disabled
+     * within the {@literal JVM} by the reader of the input (i.e., {@link Console#readPassword()}).
+     * @param on true to enable echo; false to disable
+     * @return true if the echo was set
+     */
+    private static boolean echo(boolean on) {
+        try {
+            Process stty = new ProcessBuilder("/bin/sh", "-c", (on ? "stty echo < /dev/tty" : "stty -echo < /dev/tty"))
+                    .redirectErrorStream(true).start();
+            stty.getOutputStream().close();
+            return (stty.waitFor() == 0);
+        } catch (IOException ioe) {
+            return false;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package net.ocheyedan.ply.props;
 
 import net.ocheyedan.ply.FileUtil;
+import net.ocheyedan.ply.Events;
 import net.ocheyedan.ply.Output;
 import net.ocheyedan.ply.PlyUtil;
+import net.ocheyedan.ply.Trace;
 import net.ocheyedan.ply.cmd.build.Script;
 import net.ocheyedan.ply.exec.Execution;
 
@@ -77,6 +79,13 @@ public final class PropsExt {
         envProps.put(execution.getEnvKey(ENV_VAR_NAME_PREFIX, plyContext, "scope"), scope.name);
         // force the resolved color property onto child processes
         envProps.put(execution.getEnvKey(ENV_VAR_NAME_PREFIX, plyContext, "color"), String.valueOf(Output.isColoredOutput()));
+        // scripts append to the trace and events, if any, irrespective of their working directory
+        if (Trace.isEnabled()) {
+            envProps.put(execution.getEnvKey(ENV_VAR_NAME_PREFIX, plyContext, "trace"), Trace.getPath());
+        }
+        if (Events.isEnabled()) {
+            envProps.put(execution.getEnvKey(ENV_VAR_NAME_PREFIX, plyContext, "events"), Events.getPath());
+        }
         // finally, add a property to signify that the script is being invoked via ply
         envProps.put(execution.getEnvKey(ENV_VAR_NAME_PREFIX, plyContext, "invoker"), "ply");
 
@@ -102,6 +111,13 @@ public final class PropsExt {
         Props.invalidateFilteredCaches(configurationDirectory);
     }
 
+    /**
+     * @see Props#seal()
+     */
+    public static void seal() {
+        Props.seal();
+    }
+
     private PropsExt() { }
 
 }
@@ -0,0 +1,68 @@
+package net.ocheyedan.ply.exec;
+
+import net.ocheyedan.ply.ExitStats;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/22/14
+ * Time: 4:05 PM
+ */
+public class ExecutionStatsTest {
+
+    @Test public void getXmx() {
+        assertEquals(-1L, ExecutionStats.getXmx(new String[] { "java", "-Xms32M", "-jar", "script.jar" }));
+        assertEquals(32L * 1024L * 1024L, ExecutionStats.getXmx(new String[] { "java", "-Xms32M", "-Xmx32M" }));
+        // the last wins, as with the jvm itself
+        assertEquals(2L * 1024L * 1024L * 1024L, ExecutionStats.getXmx(new String[] { "java", "-Xmx32M", "-Xmx2g" }));
+        assertEquals(512L * 1024L, ExecutionStats.getXmx(new String[] { "java", "-Xmx512k", "-Xmxbad" }));
+        assertEquals(1024L, ExecutionStats.getXmx(new String[] { "java", "-Xmx1024" }));
+    }
+
+    @Test public void isNearHeapLimit() {
+        long mb = 1024L * 1024L;
+        ExecutionStats stats = ExecutionStats.of("test", 1000L, null, new ExitStats(10L, 10L * mb, 32L * mb),
+                new String[] { "java", "-Xmx32M" });
+        assertFalse(stats.isNearHeapLimit());
+        assertEquals(-1L, stats.cpuMillis);
+        assertEquals(-1L, stats.peakRssKb);
+        // near the max from -Xmx
+        stats = ExecutionStats.of("test", 1000L, null, new ExitStats(10L, 30L * mb, 64L * mb), new String[] { "java", "-Xmx32M" });
+        assertTrue(stats.isNearHeapLimit());
+        // near the max reported, absent -Xmx
+        stats = ExecutionStats.of("test", 1000L, null, new ExitStats(10L, 30L * mb, 32L * mb), new String[] { "java" });
+        assertTrue(stats.isNearHeapLimit());
+        assertEquals(32L * mb, stats.heapMaxBytes);
+        // thrashing
+        stats = ExecutionStats.of("test", 2000L, null, new ExitStats(600L, 10L * mb, 32L * mb), new String[] { "java" });
+        assertTrue(stats.isNearHeapLimit());
+        // short scripts are not considered to be thrashing
+        stats = ExecutionStats.of("test", 200L, null, new ExitStats(100L, 10L * mb, 32L * mb), new String[] { "java" });
+        assertFalse(stats.isNearHeapLimit());
+        // unknown
+        stats = ExecutionStats.of("test", 200L, null, null, new String[] { "java" });
+        assertFalse(stats.isNearHeapLimit());
+        assertEquals(-1L, stats.gcMillis);
+    }
+
+    @Test public void sample() throws IOException, InterruptedException {
+        if (!new java.io.File("/proc/self/stat").exists()) {
+            return; // only sampled where there is a /proc
+        }
+        Process process = new ProcessBuilder("sleep", "1").start();
+        ProcessSampler sampler = ProcessSampler.start(process);
+        assertTrue(ProcessSampler.getPid(process) > 0L);
+        assertTrue(sampler.sample());
+        assertTrue(sampler.getCpuMillis() >= 0L);
+        assertTrue(sampler.getPeakRssKb() > 0L);
+        process.waitFor();
+        sampler.join(5000L);
+        assertFalse(sampler.isAlive());
+        assertFalse(sampler.sample());
+    }
+
+}
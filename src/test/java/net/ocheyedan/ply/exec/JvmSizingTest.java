@@ -0,0 +1,36 @@
+package net.ocheyedan.ply.exec;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * User: blangel
+ * Date: 10/23/14
+ * Time: 11:40 AM
+ */
+public class JvmSizingTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test public void heap() {
+        // twice the peak, rounded up
+        assertEquals(48L * MB, JvmSizing.heap(21L * MB, 32L * MB, false, 32L * MB, 1024L * MB));
+        // bounded
+        assertEquals(32L * MB, JvmSizing.heap(4L * MB, 32L * MB, false, 32L * MB, 1024L * MB));
+        assertEquals(1024L * MB, JvmSizing.heap(900L * MB, 1024L * MB, true, 32L * MB, 1024L * MB));
+        // near the limit, grow beyond twice the peak
+        assertEquals(64L * MB, JvmSizing.heap(28L * MB, 32L * MB, true, 32L * MB, 1024L * MB));
+        // no basis to shrink
+        assertEquals(128L * MB, JvmSizing.heap(0L, 128L * MB, false, 32L * MB, 1024L * MB));
+    }
+
+    @Test public void resize() {
+        assertEquals("-Xms64M -Xmx64M -XX:+UseSerialGC -client -Dfile.encoding=UTF-8 net.ocheyedan.ply.JvmPrimer",
+                JvmSizing.resize("-Xms32M -Xmx32M -client -Dfile.encoding=UTF-8 net.ocheyedan.ply.JvmPrimer", 64L * MB));
+        assertEquals("-Xms512M -Xmx512M -client", JvmSizing.resize("-Xmx128M -client", 512L * MB));
+        // an explicitly chosen collector is kept
+        assertEquals("-Xms64M -Xmx64M -XX:+UseG1GC", JvmSizing.resize("-Xms32M -Xmx32M -XX:+UseG1GC", 64L * MB));
+    }
+
+}
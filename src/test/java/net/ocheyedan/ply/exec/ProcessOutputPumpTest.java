@@ -0,0 +1,76 @@
+package net.ocheyedan.ply.exec;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.*;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 1:15 PM
+ */
+public class ProcessOutputPumpTest {
+
+    @Test public void take() throws IOException, InterruptedException {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            output.append("line ").append(i).append('\n');
+        }
+        // a capacity smaller than the output forces reading to block until lines are taken
+        ProcessOutputPump pump = new ProcessOutputPump(new BufferedReader(new StringReader(output.toString())), 8);
+        pump.start();
+        List<String> taken = new ArrayList<String>();
+        List<String> lines = new ArrayList<String>();
+        while (pump.take(lines)) {
+            assertTrue(lines.size() <= 9);
+            taken.addAll(lines);
+            lines.clear();
+        }
+        assertEquals(1000, taken.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("line " + i, taken.get(i));
+        }
+        assertFalse(pump.take(lines));
+        assertTrue(lines.isEmpty());
+    }
+
+    @Test public void failure() throws InterruptedException {
+        Reader failing = new Reader() {
+            private boolean read;
+            @Override public int read(char[] cbuf, int off, int len) throws IOException {
+                if (read) {
+                    throw new IOException("Stream closed");
+                }
+                read = true;
+                "first\nsecond\n".getChars(0, 13, cbuf, off);
+                return 13;
+            }
+            @Override public void close() { }
+        };
+        ProcessOutputPump pump = new ProcessOutputPump(new BufferedReader(failing));
+        pump.start();
+        List<String> taken = new ArrayList<String>();
+        List<String> lines = new ArrayList<String>();
+        try {
+            while (pump.take(lines)) {
+                taken.addAll(lines);
+                lines.clear();
+            }
+            fail("Expected an IOException");
+        } catch (IOException ioe) {
+            assertEquals("Stream closed", ioe.getMessage());
+        }
+        // lines read prior to the failure are taken first
+        assertEquals(2, taken.size());
+        assertEquals("first", taken.get(0));
+        assertEquals("second", taken.get(1));
+    }
+
+}
@@ -0,0 +1,52 @@
+package net.ocheyedan.ply.exec;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * User: blangel
+ * Date: 10/21/14
+ * Time: 3:40 PM
+ */
+public class StdinProcessPipeTest {
+
+    @Test public void pipe() throws IOException, InterruptedException {
+        InputStream stdin = System.in;
+        PipedOutputStream input = new PipedOutputStream();
+        System.setIn(new PipedInputStream(input));
+        try {
+            StdinProcessPipe pipe = new StdinProcessPipe();
+            ByteArrayOutputStream first = new ByteArrayOutputStream();
+            pipe.startPipe(first);
+            long linesForwarded = pipe.getLinesForwarded();
+            input.write("password\n".getBytes("UTF-8"));
+            input.flush();
+            pipe.awaitLine(linesForwarded, false);
+            assertEquals("password\n", first.toString("UTF-8"));
+
+            // input read as the pipe is paused is forwarded to the next piped process
+            pipe.pausePipe();
+            linesForwarded = pipe.getLinesForwarded();
+            input.write("next\n".getBytes("UTF-8"));
+            input.flush();
+            ByteArrayOutputStream second = new ByteArrayOutputStream();
+            pipe.startPipe(second);
+            pipe.awaitLine(linesForwarded, false);
+            assertEquals("password\n", first.toString("UTF-8"));
+            assertEquals("next\n", second.toString("UTF-8"));
+
+            input.close();
+            pipe.join(5000L);
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+
+}